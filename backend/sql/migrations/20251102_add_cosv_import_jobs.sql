@@ -0,0 +1,42 @@
+-- Add asynchronous COSV import jobs
+-- Date: 2025-11-02
+--
+-- cosv_import_job：批量导入任务（状态、计数、耗时），由后台执行器运行
+-- cosv_import_job_item：逐条结果日志，仅在所属块提交后写入；续跑时跳过已记录的序号
+
+CREATE TABLE IF NOT EXISTS cosv_import_job (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  uuid VARCHAR(36) NOT NULL UNIQUE,
+  raw_cosv_file_id BIGINT NOT NULL,
+  user_id BIGINT NOT NULL,
+  organization_id BIGINT NULL,
+  params JSON NULL, -- action/conflictPolicy/publishPolicy/organizationUuid/language/categoryCode/tagCodes
+  status VARCHAR(16) NOT NULL DEFAULT 'PENDING', -- PENDING|RUNNING|SUCCEEDED|FAILED|CANCELLED
+  processed INT NOT NULL DEFAULT 0,
+  success INT NOT NULL DEFAULT 0,
+  failed INT NOT NULL DEFAULT 0,
+  elapsed_ms BIGINT NOT NULL DEFAULT 0, -- 各次运行累计耗时
+  message VARCHAR(1024) NULL,
+  started_at TIMESTAMP NULL, -- 最近一次运行开始时间
+  finished_at TIMESTAMP NULL,
+  create_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) COMMENT='COSV批量导入任务表';
+
+CREATE INDEX idx_cij_user_ctime ON cosv_import_job(user_id, create_time);
+CREATE INDEX idx_cij_status ON cosv_import_job(status);
+
+CREATE TABLE IF NOT EXISTS cosv_import_job_item (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  job_id BIGINT NOT NULL,
+  item_index INT NOT NULL,
+  status VARCHAR(16) NOT NULL, -- OK|ERROR
+  action VARCHAR(16) NULL,
+  vulnerability_uuid VARCHAR(36) NULL,
+  identifier VARCHAR(255) NULL,
+  message VARCHAR(1024) NULL,
+  create_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  UNIQUE KEY uniq_ciji_job_index (job_id, item_index)
+) COMMENT='COSV批量导入任务逐条结果表';
+
+CREATE INDEX idx_cij_item_job_status ON cosv_import_job_item(job_id, status);
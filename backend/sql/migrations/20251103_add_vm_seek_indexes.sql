@@ -0,0 +1,9 @@
+-- Indexes backing keyset (cursor) pagination on vulnerability listings
+-- Date: 2025-11-03
+--
+-- 列表按 (modified|severity_num, id) 排序；InnoDB 二级索引隐含主键 id，
+-- 因此 (modified) / (severity_num) 即可覆盖排序与游标条件，(status, modified) 覆盖公开列表的 ACTIVE 过滤
+
+CREATE INDEX IF NOT EXISTS idx_vulnerability_metadata_modified ON vulnerability_metadata(modified);
+CREATE INDEX IF NOT EXISTS idx_vulnerability_metadata_severity_num ON vulnerability_metadata(severity_num);
+CREATE INDEX IF NOT EXISTS idx_vulnerability_metadata_status_modified ON vulnerability_metadata(status, modified);
@@ -0,0 +1,18 @@
+-- Full-text search for the SQL search path (search.engine=sql)
+-- Date: 2025-11-04
+--
+-- 使用 ngram 分词器（默认 ngram_token_size=2），中文摘要/详情可按子串检索；
+-- 执行后设置 search.sql.fulltext=true，q 改走 MATCH ... AGAINST，支持 sortBy=relevance 按相关度排序。
+-- 注意：在大表上建立全文索引耗时较长，建议在低峰期执行。
+-- 停用词：ngram 分词器会丢弃包含停用词的词元（默认停用词表含 a、i、in、on、is 等），含这些字符的 q
+-- 会比 LIKE 少命中。建索引前在本会话关闭停用词（索引建立时生效，之后的查询不受会话变量影响）。
+-- 若全文索引此前已在停用词开启时建立，需删除后按本脚本重建，或设置 search.sql.fulltext-stopwords=true
+-- 让命中停用词的查询回退 LIKE。
+
+SET SESSION innodb_ft_enable_stopword = OFF;
+
+ALTER TABLE vulnerability_metadata
+  ADD FULLTEXT INDEX ft_vulnerability_metadata_text (identifier, summary, details) WITH PARSER ngram;
+
+ALTER TABLE vulnerability_metadata_alias
+  ADD FULLTEXT INDEX ft_vm_alias_value (value) WITH PARSER ngram;
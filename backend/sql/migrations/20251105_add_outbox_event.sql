@@ -0,0 +1,18 @@
+-- Add transactional outbox for search-index and points side effects
+-- Date: 2025-11-05
+--
+-- outbox_event：与漏洞变更同一事务写入的事件，由 OutboxRelay 以 FOR UPDATE SKIP LOCKED 批量领取并分发；
+-- 分发成功即删除，失败按 available_at 退避重试（多实例并行领取互不重复）
+
+CREATE TABLE IF NOT EXISTS outbox_event (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  event_type VARCHAR(32) NOT NULL, -- VULN_INDEX|VULN_DELETE|VULN_POINTS
+  aggregate_uuid VARCHAR(64) NOT NULL,
+  payload JSON NULL,
+  attempts INT NOT NULL DEFAULT 0,
+  last_error VARCHAR(1024) NULL,
+  available_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  create_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+) COMMENT='事务发件箱';
+
+CREATE INDEX idx_outbox_available ON outbox_event(available_at, id);
@@ -0,0 +1,23 @@
+-- Denormalized visibility class on vulnerability_metadata
+-- Date: 2025-11-06
+--
+-- 非管理员列表原先逐行 LEFT JOIN organization / lnk_user_organization 并以 OR 谓词判断可见性，无法走索引。
+-- visibility_class：PUBLIC=所有人可见（个人提交，或公开组织的 ACTIVE 漏洞）；ORG_PUBLIC=公开组织的非 ACTIVE 漏洞；MEMBERS=私有组织漏洞。
+-- 可见性改为 visibility_class = 'PUBLIC' OR organization_id IN (成员组织)，两支分别走下面的复合索引与 (organization_id) 索引。
+-- 应用在写入 status/organization_id 时同步维护，组织 is_public 变化时按组织批量刷新。
+
+ALTER TABLE vulnerability_metadata
+  ADD COLUMN visibility_class VARCHAR(16) NOT NULL DEFAULT 'MEMBERS' AFTER organization_id;
+
+UPDATE vulnerability_metadata vm
+LEFT JOIN organization o ON o.id = vm.organization_id
+SET vm.visibility_class = CASE
+  WHEN vm.organization_id IS NULL THEN 'PUBLIC'
+  WHEN o.is_public = 1 AND vm.status = 'ACTIVE' THEN 'PUBLIC'
+  WHEN o.is_public = 1 THEN 'ORG_PUBLIC'
+  ELSE 'MEMBERS'
+END;
+
+CREATE INDEX idx_vulnerability_metadata_visibility_modified ON vulnerability_metadata(visibility_class, modified);
+CREATE INDEX idx_vulnerability_metadata_visibility_severity ON vulnerability_metadata(visibility_class, severity_num);
+CREATE INDEX idx_vulnerability_metadata_org_modified ON vulnerability_metadata(organization_id, modified);
@@ -0,0 +1,17 @@
+-- Add per-key usage rollups for API-key analytics and raw-log retention
+-- Date: 2025-11-07
+--
+-- api_key_usage_rollup：由 ApiKeyUsageRecorder 在批量写入原始日志后累加（INSERT ... ON DUPLICATE KEY UPDATE），
+-- 按 分钟/小时/天 桶、路由模板、状态类别（2xx/3xx/4xx/5xx）计数；统计接口只读此表，原始日志按保留期清理
+
+CREATE TABLE IF NOT EXISTS api_key_usage_rollup (
+  api_key_id BIGINT NOT NULL,
+  bucket_unit VARCHAR(8) NOT NULL, -- MINUTE|HOUR|DAY
+  bucket_start DATETIME NOT NULL,
+  path_template VARCHAR(255) NOT NULL,
+  status_class VARCHAR(8) NOT NULL, -- 2xx|3xx|4xx|5xx
+  request_count BIGINT NOT NULL DEFAULT 0,
+  PRIMARY KEY (api_key_id, bucket_unit, bucket_start, path_template, status_class)
+) COMMENT='API Key 使用量汇总';
+
+CREATE INDEX idx_rollup_unit_start ON api_key_usage_rollup(bucket_unit, bucket_start);
@@ -0,0 +1,13 @@
+-- Scope COSV import job recovery to the owning instance
+-- Date: 2025-11-08
+--
+-- 原先每个实例启动时把所有 PENDING/RUNNING 任务置为失败，会误伤其他实例上仍在运行的任务；取消也只能在运行任务的实例上生效。
+-- owner_id：当前持有任务的实例；heartbeat_at：持有实例定期续约，超过租约未续约的任务才回收为失败。
+-- cancel_requested：任意实例写入取消标记，由持有实例轮询后停止读取新记录。
+
+ALTER TABLE cosv_import_job
+  ADD COLUMN owner_id VARCHAR(64) NULL AFTER status,
+  ADD COLUMN heartbeat_at TIMESTAMP NULL AFTER owner_id,
+  ADD COLUMN cancel_requested TINYINT(1) NOT NULL DEFAULT 0 AFTER heartbeat_at;
+
+CREATE INDEX idx_cij_owner_status ON cosv_import_job(owner_id, status);
@@ -0,0 +1,11 @@
+-- Park poison outbox events and claim rows with a lease
+-- Date: 2025-11-09
+--
+-- status：PENDING 待分发；FAILED 尝试次数达到 outbox.relay.max-attempts 后停止重试，保留供排查（改回 PENDING 即重新投递）。
+-- 中继在短事务内领取事件（attempts+1，available_at 推到租约到期时刻）并提交，再在事务外分发；available_at 兼作租约。
+
+ALTER TABLE outbox_event
+  ADD COLUMN status VARCHAR(16) NOT NULL DEFAULT 'PENDING' AFTER last_error;
+
+DROP INDEX idx_outbox_available ON outbox_event;
+CREATE INDEX idx_outbox_status_available ON outbox_event(status, available_at, id);
@@ -82,6 +82,25 @@ CREATE TABLE `api_key_usage_log` (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='记录每一次API密钥的使用详情';
 /*!40101 SET character_set_client = @saved_cs_client */;
 
+--
+-- Table structure for table `api_key_usage_rollup`
+--
+
+DROP TABLE IF EXISTS `api_key_usage_rollup`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `api_key_usage_rollup` (
+  `api_key_id` bigint NOT NULL,
+  `bucket_unit` varchar(8) NOT NULL,
+  `bucket_start` datetime NOT NULL,
+  `path_template` varchar(255) NOT NULL,
+  `status_class` varchar(8) NOT NULL,
+  `request_count` bigint NOT NULL DEFAULT '0',
+  PRIMARY KEY (`api_key_id`,`bucket_unit`,`bucket_start`,`path_template`,`status_class`),
+  KEY `idx_rollup_unit_start` (`bucket_unit`,`bucket_start`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='API Key 使用量汇总';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `app_setting`
 --
@@ -160,6 +179,64 @@ CREATE TABLE `cosv_generated_id` (
 ) ENGINE=InnoDB AUTO_INCREMENT=8 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
+--
+-- Table structure for table `cosv_import_job`
+--
+
+DROP TABLE IF EXISTS `cosv_import_job`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `cosv_import_job` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `uuid` varchar(36) NOT NULL,
+  `raw_cosv_file_id` bigint NOT NULL,
+  `user_id` bigint NOT NULL,
+  `organization_id` bigint DEFAULT NULL,
+  `params` json DEFAULT NULL,
+  `status` varchar(16) NOT NULL DEFAULT 'PENDING',
+  `owner_id` varchar(64) DEFAULT NULL,
+  `heartbeat_at` timestamp NULL DEFAULT NULL,
+  `cancel_requested` tinyint(1) NOT NULL DEFAULT '0',
+  `processed` int NOT NULL DEFAULT '0',
+  `success` int NOT NULL DEFAULT '0',
+  `failed` int NOT NULL DEFAULT '0',
+  `elapsed_ms` bigint NOT NULL DEFAULT '0',
+  `message` varchar(1024) DEFAULT NULL,
+  `started_at` timestamp NULL DEFAULT NULL,
+  `finished_at` timestamp NULL DEFAULT NULL,
+  `create_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `update_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uuid` (`uuid`),
+  KEY `idx_cij_user_ctime` (`user_id`,`create_time`),
+  KEY `idx_cij_status` (`status`),
+  KEY `idx_cij_owner_status` (`owner_id`,`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='COSV批量导入任务表';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `cosv_import_job_item`
+--
+
+DROP TABLE IF EXISTS `cosv_import_job_item`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `cosv_import_job_item` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `job_id` bigint NOT NULL,
+  `item_index` int NOT NULL,
+  `status` varchar(16) NOT NULL,
+  `action` varchar(16) DEFAULT NULL,
+  `vulnerability_uuid` varchar(36) DEFAULT NULL,
+  `identifier` varchar(255) DEFAULT NULL,
+  `message` varchar(1024) DEFAULT NULL,
+  `create_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uniq_ciji_job_index` (`job_id`,`item_index`),
+  KEY `idx_cij_item_job_status` (`job_id`,`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='COSV批量导入任务逐条结果表';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `lnk_user_organization`
 --
@@ -359,6 +436,28 @@ CREATE TABLE `original_login` (
 ) ENGINE=InnoDB AUTO_INCREMENT=2 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
+--
+-- Table structure for table `outbox_event`
+--
+
+DROP TABLE IF EXISTS `outbox_event`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `outbox_event` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `event_type` varchar(32) NOT NULL,
+  `aggregate_uuid` varchar(64) NOT NULL,
+  `payload` json DEFAULT NULL,
+  `attempts` int NOT NULL DEFAULT '0',
+  `last_error` varchar(1024) DEFAULT NULL,
+  `status` varchar(16) NOT NULL DEFAULT 'PENDING',
+  `available_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `create_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`),
+  KEY `idx_outbox_status_available` (`status`,`available_at`,`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='事务发件箱';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `raw_cosv_file`
 --
@@ -505,6 +604,8 @@ CREATE TABLE `vulnerability_comment` (
 -- Table structure for table `vulnerability_metadata`
 --
 
+-- ngram 全文索引须在关闭停用词的会话中建立（见 migrations/20251104_add_vm_fulltext_ngram.sql）
+SET SESSION innodb_ft_enable_stopword = OFF;
 DROP TABLE IF EXISTS `vulnerability_metadata`;
 /*!40101 SET @saved_cs_client     = @@character_set_client */;
 /*!50503 SET character_set_client = utf8mb4 */;
@@ -523,6 +624,7 @@ CREATE TABLE `vulnerability_metadata` (
   `status` varchar(50) NOT NULL,
   `user_id` bigint NOT NULL,
   `organization_id` bigint DEFAULT NULL,
+  `visibility_class` varchar(16) NOT NULL DEFAULT 'MEMBERS',
   `category_id` bigint DEFAULT NULL,
   `latest_cosv_file_id` bigint NOT NULL,
   `schema_version` varchar(16) NOT NULL DEFAULT '1.0.0',
@@ -543,7 +645,14 @@ CREATE TABLE `vulnerability_metadata` (
   KEY `idx_vulnerability_metadata_organization_id` (`organization_id`),
   KEY `idx_vulnerability_metadata_category_id` (`category_id`),
   KEY `idx_vulnerability_metadata_latest_file_id` (`latest_cosv_file_id`),
-  KEY `idx_vulnerability_metadata_uuid` (`uuid`)
+  KEY `idx_vulnerability_metadata_uuid` (`uuid`),
+  KEY `idx_vulnerability_metadata_modified` (`modified`),
+  KEY `idx_vulnerability_metadata_severity_num` (`severity_num`),
+  KEY `idx_vulnerability_metadata_status_modified` (`status`,`modified`),
+  KEY `idx_vulnerability_metadata_visibility_modified` (`visibility_class`,`modified`),
+  KEY `idx_vulnerability_metadata_visibility_severity` (`visibility_class`,`severity_num`),
+  KEY `idx_vulnerability_metadata_org_modified` (`organization_id`,`modified`),
+  FULLTEXT KEY `ft_vulnerability_metadata_text` (`identifier`,`summary`,`details`) /*!50100 WITH PARSER `ngram` */ 
 ) ENGINE=InnoDB AUTO_INCREMENT=8 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -651,6 +760,8 @@ CREATE TABLE `vulnerability_metadata_affected_version` (
 -- Table structure for table `vulnerability_metadata_alias`
 --
 
+-- ngram 全文索引须在关闭停用词的会话中建立（见 migrations/20251104_add_vm_fulltext_ngram.sql）
+SET SESSION innodb_ft_enable_stopword = OFF;
 DROP TABLE IF EXISTS `vulnerability_metadata_alias`;
 /*!40101 SET @saved_cs_client     = @@character_set_client */;
 /*!50503 SET character_set_client = utf8mb4 */;
@@ -661,7 +772,8 @@ CREATE TABLE `vulnerability_metadata_alias` (
   PRIMARY KEY (`id`),
   UNIQUE KEY `vulnerability_metadata_id` (`vulnerability_metadata_id`,`value`),
   UNIQUE KEY `uniq_vm_alias_value` (`value`),
-  KEY `idx_vm_alias_vmid` (`vulnerability_metadata_id`)
+  KEY `idx_vm_alias_vmid` (`vulnerability_metadata_id`),
+  FULLTEXT KEY `ft_vm_alias_value` (`value`) /*!50100 WITH PARSER `ngram` */ 
 ) ENGINE=InnoDB AUTO_INCREMENT=5 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -0,0 +1,70 @@
+package tech.cspioneer.backend.service;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单线程（单核）access token 解析+校验吞吐：perRequestVerifier 复现旧实现（每次构建 Algorithm 与 JWTVerifier），
+ * sharedVerifier 为当前 JwtService。运行：
+ * <pre>
+ * mvn -Pjmh -DskipTests test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=JwtServiceBenchmark
+ * </pre>
+ * 加 -Dexec.args="JwtServiceBenchmark -t 4" 可观察多线程下的扩展性。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class JwtServiceBenchmark {
+    private static final String SECRET = "benchmark-secret-benchmark-secret";
+    private static final String ISSUER = "cosv-horizon";
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtService, "kid", "k1");
+        ReflectionTestUtils.setField(jwtService, "previousKeys", "k0:old-benchmark-secret");
+        ReflectionTestUtils.setField(jwtService, "issuer", ISSUER);
+        ReflectionTestUtils.setField(jwtService, "accessTtl", Duration.ofHours(1));
+        ReflectionTestUtils.setField(jwtService, "refreshTtl", Duration.ofDays(1));
+        jwtService.init();
+        token = jwtService.generateAccessToken("bench-user", "USER");
+    }
+
+    @Benchmark
+    public DecodedJWT perRequestVerifier() {
+        JWTVerifier verifier = JWT.require(Algorithm.HMAC256(SECRET)).withIssuer(ISSUER).build();
+        DecodedJWT jwt = verifier.verify(token);
+        if (!"access".equals(jwt.getClaim("typ").asString())) throw new IllegalStateException();
+        return jwt;
+    }
+
+    @Benchmark
+    public JwtService.TokenInfo sharedVerifier() {
+        return jwtService.parseAccessToken(token);
+    }
+}
@@ -0,0 +1,146 @@
+package tech.cspioneer.backend.common;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import tech.cspioneer.backend.entity.VulnerabilityMetadata;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * 漏洞列表的键集（seek）分页游标：记录上一页最后一条的 (排序值, id, uuid)。
+ * 对外为不透明的 base64url 字符串；三种引擎统一以 id 作为同值次序键：SQL 以 (排序列, vm.id) 续查，
+ * ES 以 search_after [排序值, id] 续查，进程内索引同样按 (排序值, id) 比较。
+ * 排序值统一为 ES 的排序值形式（modified 为 UTC 毫秒，severity 为 float 的精确 double 值），引擎间可互相回退。
+ */
+public final class SeekCursor {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    public static final String SORT_MODIFIED = "modified";
+    public static final String SORT_SEVERITY = "severity";
+    public static final String SORT_RELEVANCE = "relevance";
+
+    private final String sortKey;
+    private final boolean asc;
+    private final Object value; // Long（modified）或 Double（severity）
+    private final Long id;
+    private final String uuid;
+
+    private SeekCursor(String sortKey, boolean asc, Object value, Long id, String uuid) {
+        this.sortKey = sortKey;
+        this.asc = asc;
+        this.value = value;
+        this.id = id;
+        this.uuid = uuid;
+    }
+
+    /** 规范化排序键：仅支持 modified / severity，其余按 modified */
+    public static String sortKey(String sortBy) {
+        return sortBy != null && sortBy.trim().equalsIgnoreCase(SORT_SEVERITY) ? SORT_SEVERITY : SORT_MODIFIED;
+    }
+
+    /** 相关度排序（仅全文检索）：按得分排序无法续查，不提供游标 */
+    public static boolean isRelevance(String sortBy) {
+        return sortBy != null && sortBy.trim().equalsIgnoreCase(SORT_RELEVANCE);
+    }
+
+    public static boolean isAsc(String sortOrder) {
+        return sortOrder != null && sortOrder.trim().equalsIgnoreCase("asc");
+    }
+
+    /** 以某条记录为上一页末尾构造游标 */
+    public static SeekCursor after(VulnerabilityMetadata vm, String sortBy, String sortOrder) {
+        String key = sortKey(sortBy);
+        Object v;
+        if (SORT_SEVERITY.equals(key)) {
+            v = vm.getSeverityNum() == null ? null : vm.getSeverityNum().doubleValue();
+        } else {
+            v = vm.getModified() == null ? null : vm.getModified().toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+        return new SeekCursor(key, isAsc(sortOrder), v, vm.getId(), vm.getUuid());
+    }
+
+    /** 以 ES 命中的 sort 值 [排序值, id] 构造游标 */
+    public static SeekCursor after(Object sortValue, Long id, String uuid, String sortBy, String sortOrder) {
+        String key = sortKey(sortBy);
+        Object v = sortValue instanceof Number n ? (SORT_SEVERITY.equals(key) ? (Object) n.doubleValue() : (Object) n.longValue()) : null;
+        return new SeekCursor(key, isAsc(sortOrder), v, id, uuid);
+    }
+
+    /** 列表页的下一页游标：本页不足一页时返回 null（size 按列表接口同样规则截断到 1~100） */
+    public static String next(List<VulnerabilityMetadata> items, int size, String sortBy, String sortOrder) {
+        int limit = Math.max(1, Math.min(100, size <= 0 ? 20 : size));
+        if (isRelevance(sortBy)) return null;
+        if (items == null || items.isEmpty() || items.size() < limit) return null;
+        return after(items.get(items.size() - 1), sortBy, sortOrder).encode();
+    }
+
+    public String encode() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("k", sortKey);
+        m.put("d", asc ? "asc" : "desc");
+        m.put("v", value);
+        if (id != null) m.put("i", id);
+        if (uuid != null) m.put("u", uuid);
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(M.writeValueAsBytes(m));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 解析游标并校验与本次请求的排序参数一致；token 为空返回 null。
+     */
+    public static SeekCursor decode(String token, String sortBy, String sortOrder) {
+        if (token == null || token.isBlank()) return null;
+        if (isRelevance(sortBy)) throw new ApiException(400, "相关度排序不支持游标分页");
+        JsonNode n;
+        try {
+            n = M.readTree(new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new ApiException(400, "游标无效");
+        }
+        String key = n.path("k").asText("");
+        boolean asc = "asc".equals(n.path("d").asText(""));
+        if (!key.equals(sortKey(sortBy)) || asc != isAsc(sortOrder)) throw new ApiException(400, "游标与排序参数不匹配");
+        JsonNode v = n.path("v");
+        if (!v.isNumber()) throw new ApiException(400, "游标无效");
+        Object value = SORT_SEVERITY.equals(key) ? (Object) v.asDouble() : (Object) v.asLong();
+        // 缺少 id 的游标（旧版 ES 游标）无法在同值记录间定位
+        if (!n.path("i").isIntegralNumber()) throw new ApiException(400, "游标无效");
+        Long id = n.get("i").asLong();
+        String uuid = n.hasNonNull("u") ? n.get("u").asText() : null;
+        return new SeekCursor(key, asc, value, id, uuid);
+    }
+
+    // ----- SQL（MyBatis 通过 getter 读取） -----
+
+    public String getColumn() {
+        return SORT_SEVERITY.equals(sortKey) ? "vm.severity_num" : "vm.modified";
+    }
+
+    public String getOp() {
+        return asc ? ">" : "<";
+    }
+
+    public Object getValue() {
+        if (SORT_SEVERITY.equals(sortKey)) return value;
+        long ms = (Long) value;
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(ms, 1000L), (int) Math.floorMod(ms, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    // ----- ES -----
+
+    /** search_after 参数，与排序 [sortField, id] 对应；缺少 id 时返回 null */
+    public List<Object> searchAfter() {
+        if (id == null) return null;
+        return List.of(value, id);
+    }
+}
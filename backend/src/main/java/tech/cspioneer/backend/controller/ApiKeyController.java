@@ -127,6 +127,29 @@ public class ApiKeyController {
         return ApiResponse.success(data);
     }
 
+    @GetMapping("/{uuid}/usage/stats")
+    @Operation(summary = "API Key 使用量统计（按 MINUTE/HOUR/DAY 聚合的时间序列与状态码分布）")
+    public ApiResponse<Map<String, Object>> usageStats(@PathVariable("uuid") String uuid,
+                                                       @RequestParam(value = "granularity", required = false, defaultValue = "HOUR") String granularity,
+                                                       @RequestParam(value = "from", required = false) String fromTs,
+                                                       @RequestParam(value = "to", required = false) String toTs,
+                                                       Principal principal) {
+        return ApiResponse.success(apiKeyService.usageStats(principal.getName(), uuid, granularity, fromTs, toTs));
+    }
+
+    @GetMapping("/{uuid}/usage/paths")
+    @Operation(summary = "API Key 请求最多的路径")
+    public ApiResponse<Map<String, Object>> usagePaths(@PathVariable("uuid") String uuid,
+                                                       @RequestParam(value = "granularity", required = false, defaultValue = "HOUR") String granularity,
+                                                       @RequestParam(value = "from", required = false) String fromTs,
+                                                       @RequestParam(value = "to", required = false) String toTs,
+                                                       @RequestParam(value = "limit", required = false, defaultValue = "10") int limit,
+                                                       Principal principal) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("items", apiKeyService.usagePaths(principal.getName(), uuid, granularity, fromTs, toTs, limit));
+        return ApiResponse.success(data);
+    }
+
     private Map<String, Object> view(ApiKey k) {
         Map<String, Object> m = new HashMap<>();
         m.put("uuid", k.getUuid());
@@ -7,6 +7,7 @@ import jakarta.validation.constraints.NotBlank;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import tech.cspioneer.backend.common.ApiResponse;
+import tech.cspioneer.backend.service.CosvImportJobService;
 import tech.cspioneer.backend.service.CosvImportService;
 
 import java.security.Principal;
@@ -18,9 +19,11 @@ import java.util.*;
 @SecurityRequirement(name = "bearerAuth")
 public class CosvImportController {
     private final CosvImportService importService;
+    private final CosvImportJobService jobService;
 
-    public CosvImportController(CosvImportService importService) {
+    public CosvImportController(CosvImportService importService, CosvImportJobService jobService) {
         this.importService = importService;
+        this.jobService = jobService;
     }
 
     @PostMapping("/files")
@@ -101,6 +104,7 @@ public class CosvImportController {
         public String tagCodes; // comma separated
     }
 
+    // 同步接口：响应直接返回逐条结果，现有调用方依赖该契约，保持同步；大文件请使用 /ingest-jobs 后台任务
     @PostMapping("/files/{rawFileUuid}/ingest-batch")
     @Operation(summary = "批量确认入库（创建或更新）")
     @org.springframework.security.access.prepost.PreAuthorize("hasAnyRole('USER','ADMIN') or hasAuthority('SCOPE_vuln:write')")
@@ -111,4 +115,68 @@ public class CosvImportController {
         Map<String, Object> res = importService.ingestBatch(principal, rawFileUuid, Optional.ofNullable(req.action).orElse("AUTO"), Optional.ofNullable(req.conflictPolicy).orElse("FAIL"), Optional.ofNullable(req.publishPolicy).orElse("AUTO"), req.organizationUuid, req.language, req.categoryCode, tags);
         return ApiResponse.success(res);
     }
+
+    @PostMapping("/files/{rawFileUuid}/ingest-jobs")
+    @Operation(summary = "提交后台批量入库任务（立即返回任务ID）")
+    @org.springframework.security.access.prepost.PreAuthorize("hasAnyRole('USER','ADMIN') or hasAuthority('SCOPE_vuln:write')")
+    public ApiResponse<Map<String, Object>> submitIngestJob(Principal principal,
+                                                            @PathVariable("rawFileUuid") @NotBlank String rawFileUuid,
+                                                            @RequestBody IngestBatchReq req) {
+        List<String> tags = req.tagCodes == null || req.tagCodes.isBlank() ? Collections.emptyList() : Arrays.stream(req.tagCodes.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+        Map<String, Object> res = jobService.submit(principal, rawFileUuid, Optional.ofNullable(req.action).orElse("AUTO"), Optional.ofNullable(req.conflictPolicy).orElse("FAIL"), Optional.ofNullable(req.publishPolicy).orElse("AUTO"), req.organizationUuid, req.language, req.categoryCode, tags);
+        return ApiResponse.success(res);
+    }
+
+    @GetMapping("/import-jobs")
+    @Operation(summary = "我的导入任务列表")
+    @org.springframework.security.access.prepost.PreAuthorize("hasAnyRole('USER','ADMIN') or hasAuthority('SCOPE_vuln:write')")
+    public ApiResponse<Map<String, Object>> listJobs(Principal principal,
+                                                     @RequestParam(value = "page", required = false, defaultValue = "1") int page,
+                                                     @RequestParam(value = "size", required = false, defaultValue = "20") int size,
+                                                     @RequestParam(value = "withTotal", required = false, defaultValue = "false") boolean withTotal) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("page", page);
+        data.put("size", size);
+        data.put("items", jobService.listMine(principal, page, size));
+        if (withTotal) data.put("total", jobService.countMine(principal));
+        return ApiResponse.success(data);
+    }
+
+    @GetMapping("/import-jobs/{jobUuid}")
+    @Operation(summary = "导入任务进度（含吞吐 records/sec）")
+    @org.springframework.security.access.prepost.PreAuthorize("hasAnyRole('USER','ADMIN') or hasAuthority('SCOPE_vuln:write')")
+    public ApiResponse<Map<String, Object>> getJob(Principal principal, @PathVariable("jobUuid") String jobUuid) {
+        return ApiResponse.success(jobService.get(principal, jobUuid));
+    }
+
+    @GetMapping("/import-jobs/{jobUuid}/items")
+    @Operation(summary = "导入任务逐条结果（status=ERROR 查看错误日志）")
+    @org.springframework.security.access.prepost.PreAuthorize("hasAnyRole('USER','ADMIN') or hasAuthority('SCOPE_vuln:write')")
+    public ApiResponse<Map<String, Object>> listJobItems(Principal principal,
+                                                         @PathVariable("jobUuid") String jobUuid,
+                                                         @RequestParam(value = "status", required = false) String status,
+                                                         @RequestParam(value = "page", required = false, defaultValue = "1") int page,
+                                                         @RequestParam(value = "size", required = false, defaultValue = "50") int size,
+                                                         @RequestParam(value = "withTotal", required = false, defaultValue = "false") boolean withTotal) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("page", page);
+        data.put("size", size);
+        data.put("items", jobService.listItems(principal, jobUuid, status, page, size));
+        if (withTotal) data.put("total", jobService.countItems(principal, jobUuid, status));
+        return ApiResponse.success(data);
+    }
+
+    @PostMapping("/import-jobs/{jobUuid}/cancel")
+    @Operation(summary = "取消导入任务（已提交的块保留）")
+    @org.springframework.security.access.prepost.PreAuthorize("hasAnyRole('USER','ADMIN') or hasAuthority('SCOPE_vuln:write')")
+    public ApiResponse<Map<String, Object>> cancelJob(Principal principal, @PathVariable("jobUuid") String jobUuid) {
+        return ApiResponse.success(jobService.cancel(principal, jobUuid));
+    }
+
+    @PostMapping("/import-jobs/{jobUuid}/resume")
+    @Operation(summary = "续跑导入任务（从最后提交的块之后继续）")
+    @org.springframework.security.access.prepost.PreAuthorize("hasAnyRole('USER','ADMIN') or hasAuthority('SCOPE_vuln:write')")
+    public ApiResponse<Map<String, Object>> resumeJob(Principal principal, @PathVariable("jobUuid") String jobUuid) {
+        return ApiResponse.success(jobService.resume(principal, jobUuid));
+    }
 }
@@ -9,9 +9,11 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.web.bind.annotation.*;
 import tech.cspioneer.backend.common.ApiResponse;
+import tech.cspioneer.backend.common.SeekCursor;
 import tech.cspioneer.backend.entity.VulnerabilityMetadata;
 import tech.cspioneer.backend.entity.User;
 import tech.cspioneer.backend.entity.VulnerabilityProject;
+import tech.cspioneer.backend.service.VulnerabilityQueryCache;
 import tech.cspioneer.backend.service.VulnerabilityService;
 import tech.cspioneer.backend.mapper.TagMapper;
 import tech.cspioneer.backend.mapper.CategoryMapper;
@@ -38,11 +40,14 @@ public class VulnerabilityController {
     private final SearchFacade searchFacade;
     private final tech.cspioneer.backend.mapper.UserMapper userMapper;
     private final tech.cspioneer.backend.mapper.LnkUserOrganizationMapper lnkUserOrganizationMapper;
+    private final VulnerabilityQueryCache queryCache;
 
     public VulnerabilityController(VulnerabilityService service, TagMapper tagMapper, CategoryMapper categoryMapper, SearchFacade searchFacade,
                                   tech.cspioneer.backend.mapper.UserMapper userMapper,
                                   tech.cspioneer.backend.mapper.LnkUserOrganizationMapper lnkUserOrganizationMapper,
-                                  VulnerabilityAffectedPackageMapper affectedPackageMapper) {
+                                  VulnerabilityAffectedPackageMapper affectedPackageMapper,
+                                  VulnerabilityQueryCache queryCache) {
+        this.queryCache = queryCache;
         this.service = service;
         this.tagMapper = tagMapper;
         this.categoryMapper = categoryMapper;
@@ -115,43 +120,58 @@ public class VulnerabilityController {
                                                  @RequestParam(value = "sortOrder", required = false) String sortOrder,
                                                  @RequestParam(value = "page", required = false, defaultValue = "1") int page,
                                                  @RequestParam(value = "size", required = false, defaultValue = "20") int size,
-                                                 @RequestParam(value = "withTotal", required = false, defaultValue = "false") boolean withTotal) {
-        var items = service.list(
-                language, status, identifierPrefix,
-                null, // q（简单列表不支持全文检索）
-                null, // languagesCSV（简单列表不支持多语言聚合过滤）
-                null, // severityLevelsCSV
-                null, // severityGe
-                null, // severityLe
-                tag, // tagName（兼容项）
-                tagCode, // tagCode
-                mine,
-                organizationUuid,
-                category,
-                submittedFrom, submittedTo, modifiedFrom, modifiedTo,
-                sortBy, sortOrder,
-                page, size);
-        Map<String, Object> data = new HashMap<>();
-        data.put("page", page);
-        data.put("size", size);
-        data.put("items", items.stream().map(this::vmView).toList());
-        if (withTotal) {
-            long total = service.count(
+                                                 @RequestParam(value = "withTotal", required = false, defaultValue = "false") boolean withTotal,
+                                                 @Parameter(description = "键集分页游标（取上一页返回的 nextCursor，传入时忽略 page）") @RequestParam(value = "cursor", required = false) String cursor,
+                                                 @Parameter(description = "总数估算：超过上限时返回上限并置 totalApproximate=true") @RequestParam(value = "estimateTotal", required = false, defaultValue = "false") boolean estimateTotal) {
+        java.util.function.Supplier<Map<String, Object>> loader = () -> {
+            var items = service.list(
                     language, status, identifierPrefix,
-                    null, // q
-                    null, // languagesCSV
+                    null, // q（简单列表不支持全文检索）
+                    null, // languagesCSV（简单列表不支持多语言聚合过滤）
                     null, // severityLevelsCSV
                     null, // severityGe
                     null, // severityLe
-                    tag, // tagName
+                    tag, // tagName（兼容项）
                     tagCode, // tagCode
                     mine,
                     organizationUuid,
                     category,
-                    submittedFrom, submittedTo, modifiedFrom, modifiedTo);
-            data.put("total", total);
-        }
-        return ApiResponse.success(data);
+                    submittedFrom, submittedTo, modifiedFrom, modifiedTo,
+                    sortBy, sortOrder,
+                    page, size, cursor);
+            Map<String, Object> data = new HashMap<>();
+            data.put("page", page);
+            data.put("size", size);
+            data.put("items", items.stream().map(this::vmView).toList());
+            data.put("nextCursor", SeekCursor.next(items, size, sortBy, sortOrder));
+            if (withTotal) {
+                var total = service.countTotal(
+                        language, status, identifierPrefix,
+                        null, // q
+                        null, // languagesCSV
+                        null, // severityLevelsCSV
+                        null, // severityGe
+                        null, // severityLe
+                        tag, // tagName
+                        tagCode, // tagCode
+                        mine,
+                        organizationUuid,
+                        category,
+                        submittedFrom, submittedTo, modifiedFrom, modifiedTo,
+                        estimateTotal);
+                data.put("total", total.value());
+                data.put("totalApproximate", total.approximate());
+            }
+            return data;
+        };
+        // mine 的结果因人而异，不走共享缓存
+        if (Boolean.TRUE.equals(mine)) return ApiResponse.success(loader.get());
+        return ApiResponse.success(queryCache.get("list", VulnerabilityQueryCache.params(
+                "language", language, "status", status, "identifierPrefix", identifierPrefix, "tag", tag, "tagCode", tagCode,
+                "org", organizationUuid, "category", category, "submittedFrom", submittedFrom, "submittedTo", submittedTo,
+                "modifiedFrom", modifiedFrom, "modifiedTo", modifiedTo, "sortBy", sortBy, "sortOrder", sortOrder,
+                "page", page, "size", size, "withTotal", withTotal,
+                "cursor", cursor, "estimateTotal", withTotal && estimateTotal), loader));
     }
 
     
@@ -173,28 +193,58 @@ public class VulnerabilityController {
                                                    @RequestParam(value = "size", required = false, defaultValue = "20") int size,
                                                    @RequestParam(value = "withTotal", required = false, defaultValue = "false") boolean withTotal,
                                                    @RequestParam(value = "sortBy", required = false, defaultValue = "modified") String sortBy,
-                                                   @RequestParam(value = "sortOrder", required = false, defaultValue = "desc") String sortOrder) {
+                                                   @RequestParam(value = "sortOrder", required = false, defaultValue = "desc") String sortOrder,
+                                                   @Parameter(description = "键集分页游标（取上一页返回的 nextCursor，传入时忽略 page）") @RequestParam(value = "cursor", required = false) String cursor,
+                                                   @Parameter(description = "总数估算：超过上限时返回上限并置 totalApproximate=true") @RequestParam(value = "estimateTotal", required = false, defaultValue = "false") boolean estimateTotal,
+                                                   @Parameter(description = "同时返回分面计数（language/severity/status/category/tag）") @RequestParam(value = "facets", required = false, defaultValue = "false") boolean facets) {
         if (log.isInfoEnabled()) {
             log.info("/vulns/search params q='{}' identifierPrefix='{}' languages='{}' severityLevels='{}' status='{}' page={} size={} sortBy={} sortOrder={} org={} category={}",
                     q, identifierPrefix, languages, severityLevels, status, page, size, sortBy, sortOrder, organizationUuid, category);
         }
-        Map<String, Object> data = new HashMap<>();
-        data.put("page", page);
-        data.put("size", size);
-        if (searchFacade != null && searchFacade.isEsEnabled() && (mine == null || !mine)) {
-            var res = searchFacade.search(languages, severityLevels, severityGe, severityLe, status, q, identifierPrefix, organizationUuid, category, page, size, sortBy, sortOrder, withTotal);
-            data.put("items", res.items());
-            if (withTotal) data.put("total", res.total());
-            return ApiResponse.success(data);
-        } else {
-            List<VulnerabilityMetadata> items = service.list(null, status, identifierPrefix, q, languages, severityLevels, severityGe, severityLe, null, null, mine, organizationUuid, category, null, null, null, null, sortBy, sortOrder, page, size);
-            data.put("items", items.stream().map(this::vmView).toList());
-            if (withTotal) {
-                long total = service.count(null, status, identifierPrefix, q, languages, severityLevels, severityGe, severityLe, null, null, mine, organizationUuid, category, null, null, null, null);
-                data.put("total", total);
+        java.util.function.Supplier<Map<String, Object>> loader = () -> {
+            Map<String, Object> data = new HashMap<>();
+            data.put("page", page);
+            data.put("size", size);
+            if (searchFacade != null && searchFacade.isEngineEnabled() && (mine == null || !mine)) {
+                var res = searchFacade.search(languages, severityLevels, severityGe, severityLe, status, q, identifierPrefix, organizationUuid, category, page, size, sortBy, sortOrder, withTotal, cursor, facets);
+                data.put("items", res.items());
+                data.put("nextCursor", res.nextCursor());
+                if (withTotal) data.put("total", res.total());
+                if (facets) data.put("facets", res.facets());
+                return data;
+            } else {
+                List<VulnerabilityMetadata> items = service.list(null, status, identifierPrefix, q, languages, severityLevels, severityGe, severityLe, null, null, mine, organizationUuid, category, null, null, null, null, sortBy, sortOrder, page, size, cursor);
+                data.put("items", items.stream().map(this::vmView).toList());
+                data.put("nextCursor", SeekCursor.next(items, size, sortBy, sortOrder));
+                if (withTotal) {
+                    var total = service.countTotal(null, status, identifierPrefix, q, languages, severityLevels, severityGe, severityLe, null, null, mine, organizationUuid, category, null, null, null, null, estimateTotal);
+                    data.put("total", total.value());
+                    data.put("totalApproximate", total.approximate());
+                }
+                if (facets) {
+                    data.put("facets", service.facets(null, status, identifierPrefix, q, languages, severityLevels, severityGe, severityLe, null, null, mine, organizationUuid, category, null, null, null, null));
+                }
+                return data;
             }
-            return ApiResponse.success(data);
-        }
+        };
+        if (Boolean.TRUE.equals(mine)) return ApiResponse.success(loader.get());
+        return ApiResponse.success(queryCache.get("search", VulnerabilityQueryCache.params(
+                "languages", languages, "severityLevels", severityLevels, "severityGe", severityGe, "severityLe", severityLe,
+                "status", status, "q", q, "identifierPrefix", identifierPrefix, "org", organizationUuid, "category", category,
+                "page", page, "size", size, "withTotal", withTotal,
+                "sortBy", sortBy, "sortOrder", sortOrder, "cursor", cursor, "estimateTotal", withTotal && estimateTotal,
+                "facets", facets), loader));
+    }
+
+    @GetMapping("/suggest")
+    @Operation(summary = "编号/别名自动补全（CVE/GHSA/COSV 等前缀匹配）")
+    @org.springframework.security.access.prepost.PreAuthorize("hasAnyRole('USER','ADMIN') or hasAuthority('SCOPE_vuln:read')")
+    public ApiResponse<Map<String, Object>> suggest(@RequestParam(value = "q") String q,
+                                                    @RequestParam(value = "limit", required = false, defaultValue = "10") int limit) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("items", searchFacade.suggest(q, limit));
+        data.put("ready", searchFacade.isSuggestReady());
+        return ApiResponse.success(data);
     }
 
     @GetMapping("/{uuid}")
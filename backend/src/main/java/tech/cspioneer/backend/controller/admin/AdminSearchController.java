@@ -5,9 +5,15 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.web.bind.annotation.*;
 import tech.cspioneer.backend.common.ApiResponse;
-import tech.cspioneer.backend.search.EsIndexer;
+import tech.cspioneer.backend.common.ApiException;
+import tech.cspioneer.backend.search.EsIndexRebuilder;
+import tech.cspioneer.backend.search.SearchFacade;
+import tech.cspioneer.backend.search.SearchIndexer;
+import tech.cspioneer.backend.service.OutboxRelay;
+import tech.cspioneer.backend.service.VulnerabilityQueryCache;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -16,31 +22,61 @@ import java.util.Map;
 @SecurityRequirement(name = "bearerAuth")
 @org.springframework.security.access.prepost.PreAuthorize("hasRole('ADMIN')")
 public class AdminSearchController {
-    private final EsIndexer indexer;
+    private final List<SearchIndexer> indexers;
+    private final OutboxRelay outboxRelay;
+    private final EsIndexRebuilder rebuilder; // may be null when ES disabled
+    private final SearchFacade searchFacade;
+    private final VulnerabilityQueryCache queryCache;
 
-    public AdminSearchController(org.springframework.beans.factory.ObjectProvider<EsIndexer> provider) {
-        this.indexer = provider.getIfAvailable();
+    public AdminSearchController(org.springframework.beans.factory.ObjectProvider<SearchIndexer> provider, OutboxRelay outboxRelay,
+                                 org.springframework.beans.factory.ObjectProvider<EsIndexRebuilder> rebuilderProvider,
+                                 SearchFacade searchFacade, VulnerabilityQueryCache queryCache) {
+        this.indexers = provider.orderedStream().toList();
+        this.outboxRelay = outboxRelay;
+        this.rebuilder = rebuilderProvider.getIfAvailable();
+        this.searchFacade = searchFacade;
+        this.queryCache = queryCache;
     }
 
     private void ensureEnabled() {
-        if (indexer == null) throw new RuntimeException("ES 未启用或未配置");
+        if (indexers.isEmpty()) throw new RuntimeException("检索索引未启用或未配置");
     }
 
     @PostMapping("/reindex-all")
     @Operation(summary = "全量重建索引")
     public ApiResponse<Map<String, Object>> reindexAll() {
         ensureEnabled();
-        int count = indexer.reindexAll();
+        int count = 0;
+        for (SearchIndexer indexer : indexers) count = Math.max(count, indexer.reindexAll());
         Map<String, Object> data = new HashMap<>();
         data.put("count", count);
         return ApiResponse.success(data);
     }
 
+    @PostMapping("/rebuild")
+    @Operation(summary = "蓝绿重建 ES 索引（新建版本索引、填充校验后原子切换别名）")
+    public ApiResponse<Map<String, Object>> rebuild() {
+        if (rebuilder == null) throw new ApiException(400, "ES 未启用");
+        return ApiResponse.success(rebuilder.rebuild());
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "索引运行状态（队列深度、延迟、熔断状态等）")
+    public ApiResponse<Map<String, Object>> stats() {
+        ensureEnabled();
+        Map<String, Object> data = new HashMap<>();
+        for (SearchIndexer indexer : indexers) data.put(indexer.getClass().getSimpleName(), indexer.stats());
+        data.put("outbox", outboxRelay.stats());
+        if (searchFacade.isEsEnabled()) data.put("resilience", searchFacade.resilienceStats());
+        data.put("queryCache", queryCache.stats());
+        return ApiResponse.success(data);
+    }
+
     @PostMapping("/index/{uuid}")
     @Operation(summary = "单条索引重建")
     public ApiResponse<Void> indexOne(@PathVariable("uuid") String uuid) {
         ensureEnabled();
-        indexer.indexOne(uuid);
+        indexers.forEach(i -> i.indexOne(uuid));
         return ApiResponse.success(null);
     }
 
@@ -48,7 +84,7 @@ public class AdminSearchController {
     @Operation(summary = "从索引中删除文档")
     public ApiResponse<Void> deleteOne(@PathVariable("uuid") String uuid) {
         ensureEnabled();
-        indexer.deleteOne(uuid);
+        indexers.forEach(i -> i.deleteOne(uuid));
         return ApiResponse.success(null);
     }
 }
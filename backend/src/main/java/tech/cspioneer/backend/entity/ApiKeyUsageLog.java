@@ -12,6 +12,9 @@ public class ApiKeyUsageLog {
     private String requestPath;
     private Integer responseStatusCode;
     private String userAgent;
+    // 路由模板（如 /vulns/{uuid}），仅用于使用量汇总，不入库
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private String pathTemplate;
 
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -31,5 +34,7 @@ public class ApiKeyUsageLog {
     public void setResponseStatusCode(Integer responseStatusCode) { this.responseStatusCode = responseStatusCode; }
     public String getUserAgent() { return userAgent; }
     public void setUserAgent(String userAgent) { this.userAgent = userAgent; }
+    public String getPathTemplate() { return pathTemplate; }
+    public void setPathTemplate(String pathTemplate) { this.pathTemplate = pathTemplate; }
 }
 
@@ -0,0 +1,34 @@
+package tech.cspioneer.backend.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "COSV批量导入任务")
+public class CosvImportJob {
+    private Long id;
+    private String uuid;
+    private Long rawCosvFileId;
+    private Long userId;
+    private Long organizationId;
+    private String params; // JSON：导入参数，续跑时沿用
+    private String status; // PENDING | RUNNING | SUCCEEDED | FAILED | CANCELLED
+    private String ownerId; // 持有任务的实例
+    private LocalDateTime heartbeatAt;
+    private Boolean cancelRequested;
+    private Integer processed;
+    private Integer success;
+    private Integer failed;
+    private Long elapsedMs;
+    private String message;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private LocalDateTime createTime;
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,24 @@
+package tech.cspioneer.backend.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "COSV批量导入任务逐条结果")
+public class CosvImportJobItem {
+    private Long id;
+    private Long jobId;
+    private Integer itemIndex;
+    private String status; // OK | ERROR
+    private String action;
+    private String vulnerabilityUuid;
+    private String identifier;
+    private String message;
+    private LocalDateTime createTime;
+}
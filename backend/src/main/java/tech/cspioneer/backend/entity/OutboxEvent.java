@@ -0,0 +1,24 @@
+package tech.cspioneer.backend.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "事务发件箱事件")
+public class OutboxEvent {
+    private Long id;
+    private String eventType; // VULN_INDEX | VULN_DELETE | VULN_POINTS
+    private String aggregateUuid;
+    private String payload; // JSON，可为空
+    private Integer attempts;
+    private String lastError;
+    private String status; // PENDING | FAILED
+    private LocalDateTime availableAt;
+    private LocalDateTime createTime;
+}
@@ -22,8 +22,18 @@ public interface ApiKeyMapper {
     @Update("UPDATE api_key SET status = #{status}, update_time = NOW() WHERE uuid = #{uuid}")
     int updateStatus(@Param("uuid") String uuid, @Param("status") String status);
 
-    @Update("UPDATE api_key SET last_used_time = NOW(), last_used_ip = #{ip} WHERE id = #{id}")
-    int touch(@Param("id") Long id, @Param("ip") String ip);
+    // 批量回写最近使用时间/IP（写后合并，每个 Key 一行）
+    @Update({
+            "<script>",
+            "UPDATE api_key SET",
+            " last_used_time = CASE id <foreach item='u' collection='uses'> WHEN #{u.id} THEN #{u.time} </foreach> ELSE last_used_time END,",
+            " last_used_ip = CASE id <foreach item='u' collection='uses'> WHEN #{u.id} THEN #{u.ip} </foreach> ELSE last_used_ip END",
+            "WHERE id IN <foreach item='u' collection='uses' open='(' separator=',' close=')'>#{u.id}</foreach>",
+            "</script>"
+    })
+    int touchBatch(@Param("uses") List<LastUse> uses);
+
+    record LastUse(Long id, LocalDateTime time, String ip) {}
 
     @Select("SELECT id, uuid, key_prefix AS keyPrefix, key_hash AS keyHash, creator_user_id AS creatorUserId, organization_id AS organizationId, description, scopes, status, last_used_time AS lastUsedTime, last_used_ip AS lastUsedIp, expire_time AS expireTime, create_time AS createTime, update_time AS updateTime FROM api_key WHERE creator_user_id = #{userId} ORDER BY create_time DESC")
     List<ApiKey> listByCreator(@Param("userId") Long userId);
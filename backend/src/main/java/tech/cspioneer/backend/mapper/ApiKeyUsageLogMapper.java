@@ -11,6 +11,22 @@ public interface ApiKeyUsageLogMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(ApiKeyUsageLog log);
 
+    // 多行插入（由 ApiKeyUsageRecorder 批量回写，request_timestamp 取入队时刻）
+    @Insert({
+            "<script>",
+            "INSERT INTO api_key_usage_log(uuid, api_key_id, request_timestamp, request_ip_address, request_method, request_path, response_status_code, user_agent) VALUES",
+            "<foreach item='l' collection='logs' separator=','>",
+            "(#{l.uuid}, #{l.apiKeyId}, #{l.requestTimestamp}, #{l.requestIpAddress}, #{l.requestMethod}, #{l.requestPath}, #{l.responseStatusCode}, #{l.userAgent})",
+            "</foreach>",
+            "</script>"
+    })
+    int insertBatch(@org.apache.ibatis.annotations.Param("logs") java.util.List<ApiKeyUsageLog> logs);
+
+    // 保留期清理：分批删除，避免长事务
+    @org.apache.ibatis.annotations.Delete("DELETE FROM api_key_usage_log WHERE request_timestamp < #{before} LIMIT #{limit}")
+    int deleteBefore(@org.apache.ibatis.annotations.Param("before") java.time.LocalDateTime before,
+                     @org.apache.ibatis.annotations.Param("limit") int limit);
+
     @org.apache.ibatis.annotations.Select({
             "<script>",
             "SELECT id, uuid, api_key_id AS apiKeyId, request_timestamp AS requestTimestamp, request_ip_address AS requestIpAddress, request_method AS requestMethod, request_path AS requestPath, response_status_code AS responseStatusCode, user_agent AS userAgent",
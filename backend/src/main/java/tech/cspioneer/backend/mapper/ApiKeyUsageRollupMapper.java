@@ -0,0 +1,66 @@
+package tech.cspioneer.backend.mapper;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Mapper
+public interface ApiKeyUsageRollupMapper {
+
+    /** 一个汇总单元的增量：同一 (key, 桶, 路由模板, 状态类别) 的请求数 */
+    record Row(Long apiKeyId, String bucketUnit, LocalDateTime bucketStart, String pathTemplate, String statusClass, long requestCount) {}
+
+    // 累加计数（多实例并发写同一桶由行锁串行化）
+    @Insert({
+            "<script>",
+            "INSERT INTO api_key_usage_rollup(api_key_id, bucket_unit, bucket_start, path_template, status_class, request_count) VALUES",
+            "<foreach item='r' collection='rows' separator=','>",
+            "(#{r.apiKeyId}, #{r.bucketUnit}, #{r.bucketStart}, #{r.pathTemplate}, #{r.statusClass}, #{r.requestCount})",
+            "</foreach>",
+            "ON DUPLICATE KEY UPDATE request_count = request_count + VALUES(request_count)",
+            "</script>"
+    })
+    int upsert(@Param("rows") List<Row> rows);
+
+    // 时间序列：每个桶按状态类别的请求数
+    @Select({
+            "SELECT bucket_start AS bucketStart, status_class AS statusClass, SUM(request_count) AS requestCount",
+            "FROM api_key_usage_rollup",
+            "WHERE api_key_id = #{apiKeyId} AND bucket_unit = #{unit} AND bucket_start >= #{from} AND bucket_start < #{to}",
+            "GROUP BY bucket_start, status_class",
+            "ORDER BY bucket_start"
+    })
+    List<Map<String, Object>> series(@Param("apiKeyId") Long apiKeyId,
+                                     @Param("unit") String unit,
+                                     @Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to);
+
+    // 区间内请求数最多的路由模板（含各状态类别计数）
+    @Select({
+            "SELECT path_template AS pathTemplate, SUM(request_count) AS requestCount,",
+            "  SUM(CASE WHEN status_class = '2xx' THEN request_count ELSE 0 END) AS c2xx,",
+            "  SUM(CASE WHEN status_class = '3xx' THEN request_count ELSE 0 END) AS c3xx,",
+            "  SUM(CASE WHEN status_class = '4xx' THEN request_count ELSE 0 END) AS c4xx,",
+            "  SUM(CASE WHEN status_class = '5xx' THEN request_count ELSE 0 END) AS c5xx",
+            "FROM api_key_usage_rollup",
+            "WHERE api_key_id = #{apiKeyId} AND bucket_unit = #{unit} AND bucket_start >= #{from} AND bucket_start < #{to}",
+            "GROUP BY path_template",
+            "ORDER BY requestCount DESC",
+            "LIMIT #{limit}"
+    })
+    List<Map<String, Object>> topPaths(@Param("apiKeyId") Long apiKeyId,
+                                       @Param("unit") String unit,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("to") LocalDateTime to,
+                                       @Param("limit") int limit);
+
+    // 保留期清理：分批删除某粒度早于 before 的桶
+    @Delete("DELETE FROM api_key_usage_rollup WHERE bucket_unit = #{unit} AND bucket_start < #{before} LIMIT #{limit}")
+    int deleteBefore(@Param("unit") String unit, @Param("before") LocalDateTime before, @Param("limit") int limit);
+}
@@ -14,6 +14,15 @@ public interface CategoryMapper {
     @Select("SELECT id, uuid, code, name, description, create_date AS createDate FROM category WHERE code = #{code} LIMIT 1")
     Category findByCode(@Param("code") String code);
 
+    @Select({
+            "<script>",
+            "SELECT id, uuid, code, name, description, create_date AS createDate FROM category",
+            "WHERE code IN <foreach item='v' collection='values' open='(' separator=',' close=')'>#{v}</foreach>",
+            "OR name IN <foreach item='v' collection='values' open='(' separator=',' close=')'>#{v}</foreach>",
+            "</script>"
+    })
+    List<Category> listByCodesOrNames(@Param("values") List<String> values);
+
     @Select("SELECT id, uuid, code, name, description, create_date AS createDate FROM category WHERE id = #{id} LIMIT 1")
     Category findById(@Param("id") Long id);
 
@@ -0,0 +1,43 @@
+package tech.cspioneer.backend.mapper;
+
+import org.apache.ibatis.annotations.*;
+import tech.cspioneer.backend.entity.CosvImportJobItem;
+
+import java.util.List;
+
+@Mapper
+public interface CosvImportJobItemMapper {
+    @Insert({
+            "<script>",
+            "INSERT INTO cosv_import_job_item(job_id, item_index, status, action, vulnerability_uuid, identifier, message, create_time) VALUES",
+            "<foreach item='e' collection='list' separator=','>",
+            "(#{e.jobId}, #{e.itemIndex}, #{e.status}, #{e.action}, #{e.vulnerabilityUuid}, #{e.identifier}, #{e.message}, NOW())",
+            "</foreach>",
+            "</script>"
+    })
+    int insertBatch(@Param("list") List<CosvImportJobItem> list);
+
+    // 已记录的序号（续跑时跳过）
+    @Select("SELECT item_index FROM cosv_import_job_item WHERE job_id = #{jobId}")
+    List<Integer> listIndexesByJobId(@Param("jobId") Long jobId);
+
+    @Select({
+            "<script>",
+            "SELECT id, job_id AS jobId, item_index AS itemIndex, status, action, vulnerability_uuid AS vulnerabilityUuid, identifier, message, create_time AS createTime",
+            "FROM cosv_import_job_item WHERE job_id = #{jobId}",
+            "<if test='status != null'> AND status = #{status} </if>",
+            "ORDER BY item_index ASC",
+            "LIMIT #{limit} OFFSET #{offset}",
+            "</script>"
+    })
+    List<CosvImportJobItem> listByJobId(@Param("jobId") Long jobId, @Param("status") String status,
+                                        @Param("limit") int limit, @Param("offset") int offset);
+
+    @Select({
+            "<script>",
+            "SELECT COUNT(1) FROM cosv_import_job_item WHERE job_id = #{jobId}",
+            "<if test='status != null'> AND status = #{status} </if>",
+            "</script>"
+    })
+    long countByJobId(@Param("jobId") Long jobId, @Param("status") String status);
+}
@@ -0,0 +1,60 @@
+package tech.cspioneer.backend.mapper;
+
+import org.apache.ibatis.annotations.*;
+import tech.cspioneer.backend.entity.CosvImportJob;
+
+import java.util.List;
+
+@Mapper
+public interface CosvImportJobMapper {
+    @Insert("INSERT INTO cosv_import_job(uuid, raw_cosv_file_id, user_id, organization_id, params, status, owner_id, heartbeat_at, processed, success, failed, elapsed_ms, create_time, update_time) " +
+            "VALUES(#{uuid}, #{rawCosvFileId}, #{userId}, #{organizationId}, #{params}, 'PENDING', #{ownerId}, NOW(), 0, 0, 0, 0, NOW(), NOW())")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insert(CosvImportJob job);
+
+    @Select("SELECT id, uuid, raw_cosv_file_id AS rawCosvFileId, user_id AS userId, organization_id AS organizationId, params, status, owner_id AS ownerId, heartbeat_at AS heartbeatAt, cancel_requested AS cancelRequested, processed, success, failed, elapsed_ms AS elapsedMs, message, started_at AS startedAt, finished_at AS finishedAt, create_time AS createTime, update_time AS updateTime FROM cosv_import_job WHERE uuid = #{uuid} LIMIT 1")
+    CosvImportJob findByUuid(@Param("uuid") String uuid);
+
+    @Select("SELECT id, uuid, raw_cosv_file_id AS rawCosvFileId, user_id AS userId, organization_id AS organizationId, params, status, owner_id AS ownerId, heartbeat_at AS heartbeatAt, cancel_requested AS cancelRequested, processed, success, failed, elapsed_ms AS elapsedMs, message, started_at AS startedAt, finished_at AS finishedAt, create_time AS createTime, update_time AS updateTime FROM cosv_import_job WHERE id = #{id} LIMIT 1")
+    CosvImportJob findById(@Param("id") Long id);
+
+    @Select("SELECT id, uuid, raw_cosv_file_id AS rawCosvFileId, user_id AS userId, organization_id AS organizationId, params, status, owner_id AS ownerId, heartbeat_at AS heartbeatAt, cancel_requested AS cancelRequested, processed, success, failed, elapsed_ms AS elapsedMs, message, started_at AS startedAt, finished_at AS finishedAt, create_time AS createTime, update_time AS updateTime FROM cosv_import_job WHERE user_id = #{userId} ORDER BY create_time DESC, id DESC LIMIT #{limit} OFFSET #{offset}")
+    List<CosvImportJob> listByUser(@Param("userId") Long userId, @Param("limit") int limit, @Param("offset") int offset);
+
+    @Select("SELECT COUNT(1) FROM cosv_import_job WHERE user_id = #{userId}")
+    long countByUser(@Param("userId") Long userId);
+
+    // 续跑：由本实例重新持有并排队，清除上次的取消标记；返回 0 表示状态已被其他操作改变
+    @Update("UPDATE cosv_import_job SET status = 'PENDING', owner_id = #{owner}, heartbeat_at = NOW(), cancel_requested = 0, update_time = NOW() WHERE id = #{id} AND status = #{from}")
+    int requeue(@Param("id") Long id, @Param("from") String from, @Param("owner") String owner);
+
+    @Update("UPDATE cosv_import_job SET status = 'RUNNING', started_at = NOW(), heartbeat_at = NOW(), finished_at = NULL, message = NULL, update_time = NOW() WHERE id = #{id} AND status = 'PENDING' AND owner_id = #{owner}")
+    int markRunning(@Param("id") Long id, @Param("owner") String owner);
+
+    @Update("UPDATE cosv_import_job SET processed = processed + #{processed}, success = success + #{success}, failed = failed + #{failed}, update_time = NOW() WHERE id = #{id}")
+    int addProgress(@Param("id") Long id, @Param("processed") int processed, @Param("success") int success, @Param("failed") int failed);
+
+    // 仅持有实例可结束任务：租约过期被回收并由其他实例续跑后，旧实例的结果不再覆盖
+    @Update("UPDATE cosv_import_job SET status = #{status}, message = #{message}, elapsed_ms = elapsed_ms + #{elapsedMs}, finished_at = NOW(), update_time = NOW() WHERE id = #{id} AND owner_id = #{owner}")
+    int finish(@Param("id") Long id, @Param("owner") String owner, @Param("status") String status, @Param("message") String message, @Param("elapsedMs") long elapsedMs);
+
+    // 排队中的任务任意实例可直接取消；持有实例出队时 markRunning 不再生效
+    @Update("UPDATE cosv_import_job SET status = 'CANCELLED', message = #{message}, finished_at = NOW(), update_time = NOW() WHERE id = #{id} AND status = 'PENDING'")
+    int cancelPending(@Param("id") Long id, @Param("message") String message);
+
+    // 运行中的任务写入取消标记，由持有实例轮询
+    @Update("UPDATE cosv_import_job SET cancel_requested = 1, update_time = NOW() WHERE id = #{id} AND status = 'RUNNING'")
+    int requestCancel(@Param("id") Long id);
+
+    @Select("SELECT id FROM cosv_import_job WHERE owner_id = #{owner} AND status = 'RUNNING' AND cancel_requested = 1")
+    List<Long> listCancelRequested(@Param("owner") String owner);
+
+    // 续约本实例持有的未结束任务
+    @Update("UPDATE cosv_import_job SET heartbeat_at = NOW() WHERE owner_id = #{owner} AND status IN ('PENDING','RUNNING')")
+    int heartbeat(@Param("owner") String owner);
+
+    // 回收：持有实例超过租约未续约（进程退出或宕机）的排队/运行任务标记为失败，可通过续跑继续
+    @Update("UPDATE cosv_import_job SET status = 'FAILED', message = #{message}, finished_at = NOW(), update_time = NOW() " +
+            "WHERE status IN ('PENDING','RUNNING') AND (heartbeat_at IS NULL OR heartbeat_at < DATE_SUB(NOW(), INTERVAL #{leaseSeconds} SECOND))")
+    int failStale(@Param("message") String message, @Param("leaseSeconds") long leaseSeconds);
+}
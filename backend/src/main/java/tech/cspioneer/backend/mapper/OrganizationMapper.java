@@ -16,6 +16,23 @@ public interface OrganizationMapper {
     @Select("SELECT id, uuid, name, status, date_created AS dateCreated, avatar, description, rating, free_text AS freeText, is_verified AS isVerified, reject_reason AS rejectReason, review_date AS reviewDate, reviewed_by AS reviewedBy, is_public AS isPublic, allow_join_request AS allowJoinRequest, allow_invite_link AS allowInviteLink FROM organization WHERE id = #{id} LIMIT 1")
     Organization findById(@Param("id") Long id);
 
+    @Select({
+            "<script>",
+            "SELECT id, uuid, name, status, date_created AS dateCreated, avatar, description, rating, free_text AS freeText, is_verified AS isVerified, reject_reason AS rejectReason, review_date AS reviewDate, reviewed_by AS reviewedBy, is_public AS isPublic, allow_join_request AS allowJoinRequest, allow_invite_link AS allowInviteLink FROM organization",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    List<Organization> listByIds(@Param("ids") java.util.Collection<Long> ids);
+
+    // 批量读取组织是否公开（检索水合时实时判定可见性）
+    @Select({
+            "<script>",
+            "SELECT id, uuid, is_public AS isPublic FROM organization",
+            "WHERE uuid IN <foreach item='u' collection='uuids' open='(' separator=',' close=')'>#{u}</foreach>",
+            "</script>"
+    })
+    List<Organization> listVisibilityByUuids(@Param("uuids") java.util.Collection<String> uuids);
+
     @Select("SELECT id, uuid, name, status, date_created AS dateCreated, avatar, description, rating, free_text AS freeText, is_verified AS isVerified, reject_reason AS rejectReason, review_date AS reviewDate, reviewed_by AS reviewedBy, is_public AS isPublic, allow_join_request AS allowJoinRequest, allow_invite_link AS allowInviteLink FROM organization WHERE name = #{name} LIMIT 1")
     Organization findByName(@Param("name") String name);
 
@@ -0,0 +1,49 @@
+package tech.cspioneer.backend.mapper;
+
+import org.apache.ibatis.annotations.*;
+import tech.cspioneer.backend.entity.OutboxEvent;
+
+import java.util.List;
+
+@Mapper
+public interface OutboxEventMapper {
+    @Insert("INSERT INTO outbox_event(event_type, aggregate_uuid, payload, attempts, available_at, create_time) VALUES(#{eventType}, #{aggregateUuid}, #{payload}, 0, NOW(), NOW())")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insert(OutboxEvent event);
+
+    // 锁定到期事件：行锁持有到事务结束，其他实例跳过已锁定行
+    @Select("SELECT id, event_type AS eventType, aggregate_uuid AS aggregateUuid, payload, attempts, last_error AS lastError, status, available_at AS availableAt, create_time AS createTime FROM outbox_event WHERE status = 'PENDING' AND available_at <= NOW() ORDER BY id LIMIT #{limit} FOR UPDATE SKIP LOCKED")
+    List<OutboxEvent> lockAvailable(@Param("limit") int limit);
+
+    // 领取：计一次尝试并把 available_at 推到租约到期时刻，提交后行锁即释放；持有实例宕机时租约到期后由其他实例重新领取
+    @Update({
+            "<script>",
+            "UPDATE outbox_event SET attempts = attempts + 1, available_at = DATE_ADD(NOW(), INTERVAL #{leaseSeconds} SECOND)",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int claim(@Param("ids") List<Long> ids, @Param("leaseSeconds") long leaseSeconds);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM outbox_event WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Update("UPDATE outbox_event SET last_error = #{error}, available_at = DATE_ADD(NOW(), INTERVAL #{delaySeconds} SECOND) WHERE id = #{id}")
+    int reschedule(@Param("id") Long id, @Param("error") String error, @Param("delaySeconds") long delaySeconds);
+
+    // 超过最大尝试次数：停止重试，保留行供排查（改回 PENDING 即可重新投递）
+    @Update("UPDATE outbox_event SET status = 'FAILED', last_error = #{error} WHERE id = #{id}")
+    int markFailed(@Param("id") Long id, @Param("error") String error);
+
+    @Select("SELECT COUNT(1) FROM outbox_event WHERE status = 'PENDING'")
+    long countPending();
+
+    @Select("SELECT COUNT(1) FROM outbox_event WHERE status = 'FAILED'")
+    long countFailed();
+
+    @Select("SELECT MIN(create_time) FROM outbox_event WHERE status = 'PENDING'")
+    java.time.LocalDateTime oldestCreateTime();
+}
@@ -12,6 +12,15 @@ public interface TagMapper {
     @Select("SELECT id, uuid, code, name, create_date AS createDate FROM tag WHERE code = #{code} LIMIT 1")
     Tag findByCode(@Param("code") String code);
 
+    @Select({
+            "<script>",
+            "SELECT id, uuid, code, name, create_date AS createDate FROM tag",
+            "WHERE code IN <foreach item='v' collection='values' open='(' separator=',' close=')'>#{v}</foreach>",
+            "OR name IN <foreach item='v' collection='values' open='(' separator=',' close=')'>#{v}</foreach>",
+            "</script>"
+    })
+    java.util.List<Tag> listByCodesOrNames(@Param("values") java.util.List<String> values);
+
     @Select("SELECT id, uuid, code, name, create_date AS createDate FROM tag WHERE uuid = #{uuid} LIMIT 1")
     Tag findByUuid(@Param("uuid") String uuid);
 
@@ -48,6 +57,14 @@ public interface TagMapper {
     @Select("SELECT t.id, t.uuid, t.code, t.name, t.create_date AS createDate FROM tag t JOIN lnk_vulnerability_metadata_tag l ON l.tag_id = t.id WHERE l.vulnerability_metadata_id = #{vmId}")
     java.util.List<Tag> listByVulnerabilityId(@Param("vmId") Long vmId);
 
+    @Select({
+            "<script>",
+            "SELECT l.vulnerability_metadata_id AS vmId, t.code AS code FROM tag t JOIN lnk_vulnerability_metadata_tag l ON l.tag_id = t.id",
+            "WHERE l.vulnerability_metadata_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    java.util.List<java.util.Map<String, Object>> listCodesByVulnerabilityIds(@Param("ids") java.util.List<Long> ids);
+
     @Delete("DELETE FROM tag WHERE uuid = #{uuid}")
     int deleteByUuid(@Param("uuid") String uuid);
 
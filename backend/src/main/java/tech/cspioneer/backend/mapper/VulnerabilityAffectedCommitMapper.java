@@ -12,10 +12,44 @@ public interface VulnerabilityAffectedCommitMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityAffectedCommit e);
 
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_affected_commit(package_id, commit_type, commit_id) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.packageId}, #{e.commitType}, #{e.commitId})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityAffectedCommit> list);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_affected_commit",
+            "WHERE package_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByPackageIds(@Param("ids") List<Long> ids);
+
     @Select("SELECT id, package_id AS packageId, commit_type AS commitType, commit_id AS commitId FROM vulnerability_metadata_affected_commit WHERE package_id = #{packageId} ORDER BY id")
     List<VulnerabilityAffectedCommit> listByPackageId(@Param("packageId") Long packageId);
 
     @Delete("DELETE FROM vulnerability_metadata_affected_commit WHERE package_id = #{packageId}")
     int deleteByPackageId(@Param("packageId") Long packageId);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_affected_commit",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Select({
+            "<script>",
+            "SELECT id, package_id AS packageId, commit_type AS commitType, commit_id AS commitId FROM vulnerability_metadata_affected_commit",
+            "WHERE package_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY package_id, id",
+            "</script>"
+    })
+    List<VulnerabilityAffectedCommit> listByPackageIds(@Param("ids") List<Long> ids);
 }
 
@@ -12,10 +12,39 @@ public interface VulnerabilityAffectedPackageMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityAffectedPackage e);
 
+    @Update("UPDATE vulnerability_metadata_affected_package SET language = #{language}, repository = #{repository}, home_page = #{homePage}, edition = #{edition}, ecosystem_specific = #{ecosystemSpecific}, database_specific = #{databaseSpecific} WHERE id = #{id}")
+    int updateById(VulnerabilityAffectedPackage e);
+
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_affected_package(vulnerability_metadata_id, ecosystem, name, purl, language, repository, home_page, edition, ecosystem_specific, database_specific) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.vulnerabilityMetadataId}, #{e.ecosystem}, #{e.name}, #{e.purl}, #{e.language}, #{e.repository}, #{e.homePage}, #{e.edition}, #{e.ecosystemSpecific}, #{e.databaseSpecific})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityAffectedPackage> list);
+
     @Select("SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, ecosystem, name, purl, language, repository, home_page AS homePage, edition, ecosystem_specific AS ecosystemSpecific, database_specific AS databaseSpecific FROM vulnerability_metadata_affected_package WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId} ORDER BY id")
     List<VulnerabilityAffectedPackage> listByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
 
     @Delete("DELETE FROM vulnerability_metadata_affected_package WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId}")
     int deleteByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_affected_package",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Select({
+            "<script>",
+            "SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, ecosystem, name, purl, language, repository, home_page AS homePage, edition, ecosystem_specific AS ecosystemSpecific, database_specific AS databaseSpecific FROM vulnerability_metadata_affected_package",
+            "WHERE vulnerability_metadata_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY vulnerability_metadata_id, id",
+            "</script>"
+    })
+    List<VulnerabilityAffectedPackage> listByVulnerabilityIds(@Param("ids") List<Long> ids);
 }
 
@@ -12,10 +12,44 @@ public interface VulnerabilityAffectedRangeEventMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityAffectedRangeEvent e);
 
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_affected_range_event(range_id, event_type, value) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.rangeId}, #{e.eventType}, #{e.value})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityAffectedRangeEvent> list);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_affected_range_event",
+            "WHERE range_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByRangeIds(@Param("ids") List<Long> ids);
+
     @Select("SELECT id, range_id AS rangeId, event_type AS eventType, value FROM vulnerability_metadata_affected_range_event WHERE range_id = #{rangeId} ORDER BY id")
     List<VulnerabilityAffectedRangeEvent> listByRangeId(@Param("rangeId") Long rangeId);
 
     @Delete("DELETE FROM vulnerability_metadata_affected_range_event WHERE range_id = #{rangeId}")
     int deleteByRangeId(@Param("rangeId") Long rangeId);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_affected_range_event",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Select({
+            "<script>",
+            "SELECT id, range_id AS rangeId, event_type AS eventType, value FROM vulnerability_metadata_affected_range_event",
+            "WHERE range_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY range_id, id",
+            "</script>"
+    })
+    List<VulnerabilityAffectedRangeEvent> listByRangeIds(@Param("ids") List<Long> ids);
 }
 
@@ -12,10 +12,47 @@ public interface VulnerabilityAffectedRangeMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityAffectedRange e);
 
+    @Update("UPDATE vulnerability_metadata_affected_range SET database_specific = #{databaseSpecific} WHERE id = #{id}")
+    int updateDatabaseSpecificById(@Param("id") Long id, @Param("databaseSpecific") String databaseSpecific);
+
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_affected_range(package_id, type, repo, database_specific) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.packageId}, #{e.type}, #{e.repo}, #{e.databaseSpecific})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityAffectedRange> list);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_affected_range",
+            "WHERE package_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByPackageIds(@Param("ids") List<Long> ids);
+
     @Select("SELECT id, package_id AS packageId, type, repo, database_specific AS databaseSpecific FROM vulnerability_metadata_affected_range WHERE package_id = #{packageId} ORDER BY id")
     List<VulnerabilityAffectedRange> listByPackageId(@Param("packageId") Long packageId);
 
     @Delete("DELETE FROM vulnerability_metadata_affected_range WHERE package_id = #{packageId}")
     int deleteByPackageId(@Param("packageId") Long packageId);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_affected_range",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Select({
+            "<script>",
+            "SELECT id, package_id AS packageId, type, repo, database_specific AS databaseSpecific FROM vulnerability_metadata_affected_range",
+            "WHERE package_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY package_id, id",
+            "</script>"
+    })
+    List<VulnerabilityAffectedRange> listByPackageIds(@Param("ids") List<Long> ids);
 }
 
@@ -12,10 +12,44 @@ public interface VulnerabilityAffectedVersionMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityAffectedVersion e);
 
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_affected_version(package_id, version) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.packageId}, #{e.version})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityAffectedVersion> list);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_affected_version",
+            "WHERE package_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByPackageIds(@Param("ids") List<Long> ids);
+
     @Select("SELECT id, package_id AS packageId, version FROM vulnerability_metadata_affected_version WHERE package_id = #{packageId} ORDER BY id")
     List<VulnerabilityAffectedVersion> listByPackageId(@Param("packageId") Long packageId);
 
     @Delete("DELETE FROM vulnerability_metadata_affected_version WHERE package_id = #{packageId}")
     int deleteByPackageId(@Param("packageId") Long packageId);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_affected_version",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Select({
+            "<script>",
+            "SELECT id, package_id AS packageId, version FROM vulnerability_metadata_affected_version",
+            "WHERE package_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY package_id, id",
+            "</script>"
+    })
+    List<VulnerabilityAffectedVersion> listByPackageIds(@Param("ids") List<Long> ids);
 }
 
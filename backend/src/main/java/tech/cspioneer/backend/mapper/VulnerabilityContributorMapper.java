@@ -12,10 +12,36 @@ public interface VulnerabilityContributorMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityContributor e);
 
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_contributor(vulnerability_metadata_id, org, name, email, contributions) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.vulnerabilityMetadataId}, #{e.org}, #{e.name}, #{e.email}, #{e.contributions})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityContributor> list);
+
     @Select("SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, org, name, email, contributions FROM vulnerability_metadata_contributor WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId} ORDER BY id")
     List<VulnerabilityContributor> listByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
 
     @Delete("DELETE FROM vulnerability_metadata_contributor WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId}")
     int deleteByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_contributor",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Select({
+            "<script>",
+            "SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, org, name, email, contributions FROM vulnerability_metadata_contributor",
+            "WHERE vulnerability_metadata_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY vulnerability_metadata_id, id",
+            "</script>"
+    })
+    List<VulnerabilityContributor> listByVulnerabilityIds(@Param("ids") List<Long> ids);
 }
 
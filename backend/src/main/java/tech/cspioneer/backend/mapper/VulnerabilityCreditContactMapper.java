@@ -12,10 +12,44 @@ public interface VulnerabilityCreditContactMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityCreditContact e);
 
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_credit_contact(credit_id, contact) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.creditId}, #{e.contact})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityCreditContact> list);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_credit_contact",
+            "WHERE credit_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByCreditIds(@Param("ids") List<Long> ids);
+
     @Select("SELECT id, credit_id AS creditId, contact FROM vulnerability_metadata_credit_contact WHERE credit_id = #{creditId} ORDER BY id")
     List<VulnerabilityCreditContact> listByCreditId(@Param("creditId") Long creditId);
 
     @Delete("DELETE FROM vulnerability_metadata_credit_contact WHERE credit_id = #{creditId}")
     int deleteByCreditId(@Param("creditId") Long creditId);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_credit_contact",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Select({
+            "<script>",
+            "SELECT id, credit_id AS creditId, contact FROM vulnerability_metadata_credit_contact",
+            "WHERE credit_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY credit_id, id",
+            "</script>"
+    })
+    List<VulnerabilityCreditContact> listByCreditIds(@Param("ids") List<Long> ids);
 }
 
@@ -12,10 +12,36 @@ public interface VulnerabilityCreditMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityCredit e);
 
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_credit(vulnerability_metadata_id, name, type) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.vulnerabilityMetadataId}, #{e.name}, #{e.type})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityCredit> list);
+
     @Select("SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, name, type FROM vulnerability_metadata_credit WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId} ORDER BY id")
     List<VulnerabilityCredit> listByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
 
     @Delete("DELETE FROM vulnerability_metadata_credit WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId}")
     int deleteByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_credit",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Select({
+            "<script>",
+            "SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, name, type FROM vulnerability_metadata_credit",
+            "WHERE vulnerability_metadata_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY vulnerability_metadata_id, id",
+            "</script>"
+    })
+    List<VulnerabilityCredit> listByVulnerabilityIds(@Param("ids") List<Long> ids);
 }
 
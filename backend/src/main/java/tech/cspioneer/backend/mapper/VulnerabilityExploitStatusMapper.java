@@ -12,10 +12,36 @@ public interface VulnerabilityExploitStatusMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityExploitStatus e);
 
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_exploit_status(vulnerability_metadata_id, status) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.vulnerabilityMetadataId}, #{e.status})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityExploitStatus> list);
+
     @Select("SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, status FROM vulnerability_metadata_exploit_status WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId} ORDER BY id")
     List<VulnerabilityExploitStatus> listByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
 
     @Delete("DELETE FROM vulnerability_metadata_exploit_status WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId}")
     int deleteByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_exploit_status",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Select({
+            "<script>",
+            "SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, status FROM vulnerability_metadata_exploit_status",
+            "WHERE vulnerability_metadata_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY vulnerability_metadata_id, id",
+            "</script>"
+    })
+    List<VulnerabilityExploitStatus> listByVulnerabilityIds(@Param("ids") List<Long> ids);
 }
 
@@ -12,15 +12,49 @@ public interface VulnerabilityMetadataAliasMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityMetadataAlias e);
 
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_alias(vulnerability_metadata_id, value) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.vulnerabilityMetadataId}, #{e.value})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityMetadataAlias> list);
+
     @Select("SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, value FROM vulnerability_metadata_alias WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId} ORDER BY id")
     List<VulnerabilityMetadataAlias> listByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
 
     @Delete("DELETE FROM vulnerability_metadata_alias WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId}")
     int deleteByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
 
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_alias",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
     @Select("SELECT COUNT(1) FROM vulnerability_metadata_alias WHERE value = #{value}")
     long countByValue(@Param("value") String value);
 
     @Select("SELECT vm.uuid FROM vulnerability_metadata_alias a JOIN vulnerability_metadata vm ON vm.id = a.vulnerability_metadata_id WHERE a.value = #{value} LIMIT 1")
     String findVulnerabilityUuidByAlias(@Param("value") String value);
+
+    @Select({
+            "<script>",
+            "SELECT a.value AS value, vm.uuid AS uuid FROM vulnerability_metadata_alias a JOIN vulnerability_metadata vm ON vm.id = a.vulnerability_metadata_id",
+            "WHERE a.value IN <foreach item='v' collection='values' open='(' separator=',' close=')'>#{v}</foreach>",
+            "</script>"
+    })
+    List<java.util.Map<String, Object>> findOwnersByValues(@Param("values") List<String> values);
+
+    @Select({
+            "<script>",
+            "SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, value FROM vulnerability_metadata_alias",
+            "WHERE vulnerability_metadata_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY vulnerability_metadata_id, id",
+            "</script>"
+    })
+    List<VulnerabilityMetadataAlias> listByVulnerabilityIds(@Param("ids") List<Long> ids);
 }
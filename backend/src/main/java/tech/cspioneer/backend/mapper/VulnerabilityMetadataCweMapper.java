@@ -12,10 +12,36 @@ public interface VulnerabilityMetadataCweMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityMetadataCwe e);
 
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_cwe(vulnerability_metadata_id, cwe_id, cwe_name) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.vulnerabilityMetadataId}, #{e.cweId}, #{e.cweName})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityMetadataCwe> list);
+
     @Select("SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, cwe_id AS cweId, cwe_name AS cweName FROM vulnerability_metadata_cwe WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId} ORDER BY id")
     List<VulnerabilityMetadataCwe> listByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
 
     @Delete("DELETE FROM vulnerability_metadata_cwe WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId}")
     int deleteByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_cwe",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Select({
+            "<script>",
+            "SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, cwe_id AS cweId, cwe_name AS cweName FROM vulnerability_metadata_cwe",
+            "WHERE vulnerability_metadata_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY vulnerability_metadata_id, id",
+            "</script>"
+    })
+    List<VulnerabilityMetadataCwe> listByVulnerabilityIds(@Param("ids") List<Long> ids);
 }
 
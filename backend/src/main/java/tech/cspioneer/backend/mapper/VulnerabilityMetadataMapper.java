@@ -11,10 +11,45 @@ public interface VulnerabilityMetadataMapper {
     @Select("SELECT id, uuid, identifier, summary, details, severity_num AS severityNum, modified, submitted, published, withdrawn, language, status, user_id AS userId, organization_id AS organizationId, latest_cosv_file_id AS latestCosvFileId, schema_version AS schemaVersion, category_id AS categoryId, review_date AS reviewDate, reviewed_by AS reviewedBy, reject_reason AS rejectReason, confirmed_type AS confirmedType, database_specific AS databaseSpecific FROM vulnerability_metadata WHERE uuid = #{uuid} LIMIT 1")
     VulnerabilityMetadata findByUuid(@Param("uuid") String uuid);
 
+    @Select({
+            "<script>",
+            "SELECT id, uuid, identifier, summary, details, severity_num AS severityNum, modified, submitted, published, withdrawn, language, status, user_id AS userId, organization_id AS organizationId, latest_cosv_file_id AS latestCosvFileId, schema_version AS schemaVersion, category_id AS categoryId, review_date AS reviewDate, reviewed_by AS reviewedBy, reject_reason AS rejectReason, confirmed_type AS confirmedType, database_specific AS databaseSpecific FROM vulnerability_metadata",
+            "WHERE uuid IN <foreach item='u' collection='uuids' open='(' separator=',' close=')'>#{u}</foreach>",
+            "</script>"
+    })
+    java.util.List<VulnerabilityMetadata> listByUuids(@Param("uuids") java.util.Collection<String> uuids);
+
     @Select("SELECT id, uuid, identifier, summary, details, severity_num AS severityNum, modified, submitted, published, withdrawn, language, status, user_id AS userId, organization_id AS organizationId, latest_cosv_file_id AS latestCosvFileId, schema_version AS schemaVersion, category_id AS categoryId, review_date AS reviewDate, reviewed_by AS reviewedBy, reject_reason AS rejectReason, confirmed_type AS confirmedType, database_specific AS databaseSpecific FROM vulnerability_metadata WHERE identifier = #{identifier} LIMIT 1")
     VulnerabilityMetadata findByIdentifier(@Param("identifier") String identifier);
 
-    @Insert("INSERT INTO vulnerability_metadata(uuid, identifier, summary, details, severity_num, modified, submitted, language, status, user_id, organization_id, latest_cosv_file_id, category_id, schema_version) VALUES(#{uuid}, #{identifier}, #{summary}, #{details}, #{severityNum}, NOW(), NOW(), #{language}, #{status}, #{userId}, #{organizationId}, #{latestCosvFileId}, #{categoryId}, #{schemaVersion})")
+    @Select({
+            "<script>",
+            "SELECT identifier, uuid FROM vulnerability_metadata",
+            "WHERE identifier IN <foreach item='v' collection='identifiers' open='(' separator=',' close=')'>#{v}</foreach>",
+            "</script>"
+    })
+    List<java.util.Map<String, Object>> findUuidsByIdentifiers(@Param("identifiers") List<String> identifiers);
+
+    /**
+     * 可见性类别（visibility_class 列）：PUBLIC 所有人可见（个人提交，或公开组织的 ACTIVE 漏洞）；
+     * ORG_PUBLIC 公开组织的非 ACTIVE 漏洞（仅成员可见）；MEMBERS 私有组织的漏洞（仅成员可见）。
+     * 写入 status/organization_id 时随同一语句维护；组织 is_public 变化时由 refreshVisibilityClassByOrg 批量刷新。
+     */
+    String VISIBILITY_CLASS_EXPR = "(CASE WHEN vulnerability_metadata.organization_id IS NULL THEN 'PUBLIC'"
+            + " WHEN NOT EXISTS (SELECT 1 FROM organization vo WHERE vo.id = vulnerability_metadata.organization_id AND vo.is_public = 1) THEN 'MEMBERS'"
+            + " WHEN vulnerability_metadata.status = 'ACTIVE' THEN 'PUBLIC' ELSE 'ORG_PUBLIC' END)";
+
+    /** 非管理员可见性：PUBLIC，或属于成员组织（不再逐行关联 organization / lnk_user_organization） */
+    String VISIBILITY_FILTER = "<if test='enforceVisibility != null and enforceVisibility'>"
+            + " AND (vm.visibility_class = 'PUBLIC'"
+            + " <if test='restrictPublicToActive != null and !restrictPublicToActive'> OR vm.visibility_class = 'ORG_PUBLIC' </if>"
+            + " <if test='memberOrgIds != null and memberOrgIds.size() > 0'> OR vm.organization_id IN <foreach item='oid' collection='memberOrgIds' open='(' separator=',' close=')'>#{oid}</foreach> </if>"
+            + ") </if>";
+
+    @Insert("INSERT INTO vulnerability_metadata(uuid, identifier, summary, details, severity_num, modified, submitted, language, status, user_id, organization_id, latest_cosv_file_id, category_id, schema_version, visibility_class) VALUES(#{uuid}, #{identifier}, #{summary}, #{details}, #{severityNum}, NOW(), NOW(), #{language}, #{status}, #{userId}, #{organizationId}, #{latestCosvFileId}, #{categoryId}, #{schemaVersion},"
+            + " (CASE WHEN #{organizationId} IS NULL THEN 'PUBLIC'"
+            + " WHEN NOT EXISTS (SELECT 1 FROM organization vo WHERE vo.id = #{organizationId} AND vo.is_public = 1) THEN 'MEMBERS'"
+            + " WHEN #{status} = 'ACTIVE' THEN 'PUBLIC' ELSE 'ORG_PUBLIC' END))")
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityMetadata vm);
 
@@ -26,7 +61,7 @@ public interface VulnerabilityMetadataMapper {
             "<if test='details != null'> details = #{details}, </if>",
             "<if test='severityNum != null'> severity_num = #{severityNum}, </if>",
             "<if test='language != null'> language = #{language}, </if>",
-            "<if test='status != null'> status = #{status}, </if>",
+            "<if test='status != null'> status = #{status}, visibility_class = " + VISIBILITY_CLASS_EXPR + ", </if>",
             "<if test='categoryId != null'> category_id = #{categoryId}, </if>",
             " modified = NOW()",
             "</set>",
@@ -131,18 +166,26 @@ public interface VulnerabilityMetadataMapper {
             "<script>",
             "SELECT vm.id, vm.uuid, vm.identifier, vm.summary, vm.details, vm.severity_num AS severityNum, vm.modified, vm.submitted, vm.published, vm.withdrawn, vm.language, vm.status, vm.user_id AS userId, vm.organization_id AS organizationId, vm.latest_cosv_file_id AS latestCosvFileId, vm.schema_version AS schemaVersion, vm.category_id AS categoryId",
             "FROM vulnerability_metadata vm",
-            "LEFT JOIN organization o ON o.id = vm.organization_id",
-            "LEFT JOIN lnk_user_organization uo ON uo.organization_id = vm.organization_id AND uo.user_id = #{currentUserId}",
             "<if test='tagName != null or tagCode != null'> JOIN lnk_vulnerability_metadata_tag lvt ON lvt.vulnerability_metadata_id = vm.id JOIN tag t ON t.id = lvt.tag_id </if>",
             "WHERE 1=1",
             "<if test='languagesCSV != null and languagesCSV != \"\"'> AND FIND_IN_SET(vm.language, #{languagesCSV}) </if>",
             "<if test='status != null'> AND vm.status = #{status} </if>",
             "<if test='identifierPrefix != null'> AND vm.identifier LIKE CONCAT(#{identifierPrefix}, '%') </if>",
-            "<if test='q != null and q != \"\"'> AND (",
-            "  vm.identifier LIKE CONCAT(#{q}, '%')",
-            "  OR vm.summary LIKE CONCAT('%', #{q}, '%')",
-            "  OR EXISTS (SELECT 1 FROM vulnerability_metadata_alias a WHERE a.vulnerability_metadata_id = vm.id AND a.value LIKE CONCAT(#{q}, '%'))",
-            ") </if>",
+            "<if test='q != null and q != \"\"'>",
+            "  <choose>",
+            "    <when test='ftq != null'> AND vm.id IN (",
+            "      SELECT f.id FROM vulnerability_metadata f WHERE MATCH(f.identifier, f.summary, f.details) AGAINST(#{ftq} IN BOOLEAN MODE)",
+            "      UNION SELECT p.id FROM vulnerability_metadata p WHERE p.identifier LIKE CONCAT(#{q}, '%')",
+            "      UNION SELECT a.vulnerability_metadata_id FROM vulnerability_metadata_alias a WHERE MATCH(a.value) AGAINST(#{ftq} IN BOOLEAN MODE)",
+            "      UNION SELECT b.vulnerability_metadata_id FROM vulnerability_metadata_alias b WHERE b.value LIKE CONCAT(#{q}, '%')",
+            "    ) </when>",
+            "    <otherwise> AND (",
+            "      vm.identifier LIKE CONCAT(#{q}, '%')",
+            "      OR vm.summary LIKE CONCAT('%', #{q}, '%')",
+            "      OR EXISTS (SELECT 1 FROM vulnerability_metadata_alias a WHERE a.vulnerability_metadata_id = vm.id AND a.value LIKE CONCAT(#{q}, '%'))",
+            "    ) </otherwise>",
+            "  </choose>",
+            "</if>",
             "<if test='tagName != null'> AND t.name = #{tagName} </if>",
             "<if test='tagCode != null'> AND t.code = #{tagCode} </if>",
             "<if test='organizationId != null'> AND vm.organization_id = #{organizationId} </if>",
@@ -159,11 +202,14 @@ public interface VulnerabilityMetadataMapper {
             ") </if>",
             "<if test='severityGe != null'> AND vm.severity_num &gt;= #{severityGe} </if>",
             "<if test='severityLe != null'> AND vm.severity_num &lt;= #{severityLe} </if>",
-            "<if test='enforceVisibility != null and enforceVisibility'>",
-            "  AND (vm.organization_id IS NULL OR o.is_public = 1 OR uo.id IS NOT NULL)",
-            "  AND (uo.id IS NOT NULL OR vm.organization_id IS NULL OR o.is_public = 0 OR #{restrictPublicToActive} = false OR vm.status = 'ACTIVE')",
+            VISIBILITY_FILTER,
+            "<if test='seek != null'>",
+            "  AND ${seek.column} ${seek.op}= #{seek.value} AND (${seek.column} ${seek.op} #{seek.value} OR vm.id ${seek.op} #{seek.id})",
             "</if>",
-            "ORDER BY ${orderBy}",
+            "<choose>",
+            "  <when test='ftq != null and byRelevance'> ORDER BY MATCH(vm.identifier, vm.summary, vm.details) AGAINST(#{ftq} IN BOOLEAN MODE) DESC, vm.modified DESC, vm.id DESC </when>",
+            "  <otherwise> ORDER BY ${orderBy} </otherwise>",
+            "</choose>",
             "LIMIT #{limit} OFFSET #{offset}",
             "</script>"
     })
@@ -188,9 +234,12 @@ public interface VulnerabilityMetadataMapper {
                                                  @Param("orderBy") String orderBy,
                                                  @Param("limit") int limit,
                                                  @Param("offset") int offset,
-                                                 @Param("currentUserId") Long currentUserId,
+                                                 @Param("memberOrgIds") List<Long> memberOrgIds,
                                                  @Param("enforceVisibility") Boolean enforceVisibility,
-                                                 @Param("restrictPublicToActive") Boolean restrictPublicToActive);
+                                                 @Param("restrictPublicToActive") Boolean restrictPublicToActive,
+                                                 @Param("seek") tech.cspioneer.backend.common.SeekCursor seek,
+                                                 @Param("ftq") String ftq,
+                                                 @Param("byRelevance") boolean byRelevance);
 
     // Mine-only variants: vm.user_id = userId OR vm.organization_id IN (adminOrgIds)
     @Select({
@@ -206,11 +255,21 @@ public interface VulnerabilityMetadataMapper {
             "<if test='languagesCSV != null and languagesCSV != \"\"'> AND FIND_IN_SET(vm.language, #{languagesCSV}) </if>",
             "<if test='status != null'> AND vm.status = #{status} </if>",
             "<if test='identifierPrefix != null'> AND vm.identifier LIKE CONCAT(#{identifierPrefix}, '%') </if>",
-            "<if test='q != null and q != \"\"'> AND (",
-            "  vm.identifier LIKE CONCAT(#{q}, '%')",
-            "  OR vm.summary LIKE CONCAT('%', #{q}, '%')",
-            "  OR EXISTS (SELECT 1 FROM vulnerability_metadata_alias a WHERE a.vulnerability_metadata_id = vm.id AND a.value LIKE CONCAT(#{q}, '%'))",
-            ") </if>",
+            "<if test='q != null and q != \"\"'>",
+            "  <choose>",
+            "    <when test='ftq != null'> AND vm.id IN (",
+            "      SELECT f.id FROM vulnerability_metadata f WHERE MATCH(f.identifier, f.summary, f.details) AGAINST(#{ftq} IN BOOLEAN MODE)",
+            "      UNION SELECT p.id FROM vulnerability_metadata p WHERE p.identifier LIKE CONCAT(#{q}, '%')",
+            "      UNION SELECT a.vulnerability_metadata_id FROM vulnerability_metadata_alias a WHERE MATCH(a.value) AGAINST(#{ftq} IN BOOLEAN MODE)",
+            "      UNION SELECT b.vulnerability_metadata_id FROM vulnerability_metadata_alias b WHERE b.value LIKE CONCAT(#{q}, '%')",
+            "    ) </when>",
+            "    <otherwise> AND (",
+            "      vm.identifier LIKE CONCAT(#{q}, '%')",
+            "      OR vm.summary LIKE CONCAT('%', #{q}, '%')",
+            "      OR EXISTS (SELECT 1 FROM vulnerability_metadata_alias a WHERE a.vulnerability_metadata_id = vm.id AND a.value LIKE CONCAT(#{q}, '%'))",
+            "    ) </otherwise>",
+            "  </choose>",
+            "</if>",
             "<if test='tagName != null'> AND t.name = #{tagName} </if>",
             "<if test='tagCode != null'> AND t.code = #{tagCode} </if>",
             "<if test='categoryId != null'> AND vm.category_id = #{categoryId} </if>",
@@ -226,7 +285,13 @@ public interface VulnerabilityMetadataMapper {
             ") </if>",
             "<if test='severityGe != null'> AND vm.severity_num &gt;= #{severityGe} </if>",
             "<if test='severityLe != null'> AND vm.severity_num &lt;= #{severityLe} </if>",
-            "ORDER BY ${orderBy}",
+            "<if test='seek != null'>",
+            "  AND ${seek.column} ${seek.op}= #{seek.value} AND (${seek.column} ${seek.op} #{seek.value} OR vm.id ${seek.op} #{seek.id})",
+            "</if>",
+            "<choose>",
+            "  <when test='ftq != null and byRelevance'> ORDER BY MATCH(vm.identifier, vm.summary, vm.details) AGAINST(#{ftq} IN BOOLEAN MODE) DESC, vm.modified DESC, vm.id DESC </when>",
+            "  <otherwise> ORDER BY ${orderBy} </otherwise>",
+            "</choose>",
             "LIMIT #{limit} OFFSET #{offset}",
             "</script>"
     })
@@ -251,14 +316,18 @@ public interface VulnerabilityMetadataMapper {
                                                      @Param("severityLe") Float severityLe,
                                                      @Param("orderBy") String orderBy,
                                                      @Param("limit") int limit,
-                                                     @Param("offset") int offset);
+                                                     @Param("offset") int offset,
+                                                     @Param("seek") tech.cspioneer.backend.common.SeekCursor seek,
+                                                     @Param("ftq") String ftq,
+                                                     @Param("byRelevance") boolean byRelevance);
 
     @Delete("DELETE FROM vulnerability_metadata WHERE id = #{id}")
     int deleteById(@Param("id") Long id);
 
     @Select({
             "<script>",
-            "SELECT COUNT(1)",
+            "<if test='cap == null'>SELECT COUNT(1)</if>",
+            "<if test='cap != null'>SELECT COUNT(1) FROM (SELECT 1</if>",
             "FROM vulnerability_metadata vm",
             "<if test='tagName != null or tagCode != null'> JOIN lnk_vulnerability_metadata_tag lvt ON lvt.vulnerability_metadata_id = vm.id JOIN tag t ON t.id = lvt.tag_id </if>",
             "WHERE 1=1",
@@ -269,11 +338,21 @@ public interface VulnerabilityMetadataMapper {
             "<if test='languagesCSV != null and languagesCSV != \"\"'> AND FIND_IN_SET(vm.language, #{languagesCSV}) </if>",
             "<if test='status != null'> AND vm.status = #{status} </if>",
             "<if test='identifierPrefix != null'> AND vm.identifier LIKE CONCAT(#{identifierPrefix}, '%') </if>",
-            "<if test='q != null and q != \"\"'> AND (",
-            "  vm.identifier LIKE CONCAT(#{q}, '%')",
-            "  OR vm.summary LIKE CONCAT('%', #{q}, '%')",
-            "  OR EXISTS (SELECT 1 FROM vulnerability_metadata_alias a WHERE a.vulnerability_metadata_id = vm.id AND a.value LIKE CONCAT(#{q}, '%'))",
-            ") </if>",
+            "<if test='q != null and q != \"\"'>",
+            "  <choose>",
+            "    <when test='ftq != null'> AND vm.id IN (",
+            "      SELECT f.id FROM vulnerability_metadata f WHERE MATCH(f.identifier, f.summary, f.details) AGAINST(#{ftq} IN BOOLEAN MODE)",
+            "      UNION SELECT p.id FROM vulnerability_metadata p WHERE p.identifier LIKE CONCAT(#{q}, '%')",
+            "      UNION SELECT a.vulnerability_metadata_id FROM vulnerability_metadata_alias a WHERE MATCH(a.value) AGAINST(#{ftq} IN BOOLEAN MODE)",
+            "      UNION SELECT b.vulnerability_metadata_id FROM vulnerability_metadata_alias b WHERE b.value LIKE CONCAT(#{q}, '%')",
+            "    ) </when>",
+            "    <otherwise> AND (",
+            "      vm.identifier LIKE CONCAT(#{q}, '%')",
+            "      OR vm.summary LIKE CONCAT('%', #{q}, '%')",
+            "      OR EXISTS (SELECT 1 FROM vulnerability_metadata_alias a WHERE a.vulnerability_metadata_id = vm.id AND a.value LIKE CONCAT(#{q}, '%'))",
+            "    ) </otherwise>",
+            "  </choose>",
+            "</if>",
             "<if test='tagName != null'> AND t.name = #{tagName} </if>",
             "<if test='tagCode != null'> AND t.code = #{tagCode} </if>",
             "<if test='categoryId != null'> AND vm.category_id = #{categoryId} </if>",
@@ -289,6 +368,7 @@ public interface VulnerabilityMetadataMapper {
             ") </if>",
             "<if test='severityGe != null'> AND vm.severity_num &gt;= #{severityGe} </if>",
             "<if test='severityLe != null'> AND vm.severity_num &lt;= #{severityLe} </if>",
+            "<if test='cap != null'> LIMIT #{cap}) capped</if>",
             "</script>"
     })
     long countMineByFiltersAdv(@Param("userId") Long userId,
@@ -309,24 +389,35 @@ public interface VulnerabilityMetadataMapper {
                                @Param("sevMedium") Boolean sevMedium,
                                @Param("sevLow") Boolean sevLow,
                                @Param("severityGe") Float severityGe,
-                               @Param("severityLe") Float severityLe);
+                               @Param("severityLe") Float severityLe,
+                               @Param("cap") Integer cap,
+                               @Param("ftq") String ftq);
 
     @Select({
             "<script>",
-            "SELECT COUNT(1)",
+            "<if test='cap == null'>SELECT COUNT(1)</if>",
+            "<if test='cap != null'>SELECT COUNT(1) FROM (SELECT 1</if>",
             "FROM vulnerability_metadata vm",
-            "LEFT JOIN organization o ON o.id = vm.organization_id",
-            "LEFT JOIN lnk_user_organization uo ON uo.organization_id = vm.organization_id AND uo.user_id = #{currentUserId}",
             "<if test='tagName != null or tagCode != null'> JOIN lnk_vulnerability_metadata_tag lvt ON lvt.vulnerability_metadata_id = vm.id JOIN tag t ON t.id = lvt.tag_id </if>",
             "WHERE 1=1",
             "<if test='languagesCSV != null and languagesCSV != \"\"'> AND FIND_IN_SET(vm.language, #{languagesCSV}) </if>",
             "<if test='status != null'> AND vm.status = #{status} </if>",
             "<if test='identifierPrefix != null'> AND vm.identifier LIKE CONCAT(#{identifierPrefix}, '%') </if>",
-            "<if test='q != null and q != \"\"'> AND (",
-            "  vm.identifier LIKE CONCAT(#{q}, '%')",
-            "  OR vm.summary LIKE CONCAT('%', #{q}, '%')",
-            "  OR EXISTS (SELECT 1 FROM vulnerability_metadata_alias a WHERE a.vulnerability_metadata_id = vm.id AND a.value LIKE CONCAT(#{q}, '%'))",
-            ") </if>",
+            "<if test='q != null and q != \"\"'>",
+            "  <choose>",
+            "    <when test='ftq != null'> AND vm.id IN (",
+            "      SELECT f.id FROM vulnerability_metadata f WHERE MATCH(f.identifier, f.summary, f.details) AGAINST(#{ftq} IN BOOLEAN MODE)",
+            "      UNION SELECT p.id FROM vulnerability_metadata p WHERE p.identifier LIKE CONCAT(#{q}, '%')",
+            "      UNION SELECT a.vulnerability_metadata_id FROM vulnerability_metadata_alias a WHERE MATCH(a.value) AGAINST(#{ftq} IN BOOLEAN MODE)",
+            "      UNION SELECT b.vulnerability_metadata_id FROM vulnerability_metadata_alias b WHERE b.value LIKE CONCAT(#{q}, '%')",
+            "    ) </when>",
+            "    <otherwise> AND (",
+            "      vm.identifier LIKE CONCAT(#{q}, '%')",
+            "      OR vm.summary LIKE CONCAT('%', #{q}, '%')",
+            "      OR EXISTS (SELECT 1 FROM vulnerability_metadata_alias a WHERE a.vulnerability_metadata_id = vm.id AND a.value LIKE CONCAT(#{q}, '%'))",
+            "    ) </otherwise>",
+            "  </choose>",
+            "</if>",
             "<if test='tagName != null'> AND t.name = #{tagName} </if>",
             "<if test='tagCode != null'> AND t.code = #{tagCode} </if>",
             "<if test='organizationId != null'> AND vm.organization_id = #{organizationId} </if>",
@@ -343,10 +434,8 @@ public interface VulnerabilityMetadataMapper {
             ") </if>",
             "<if test='severityGe != null'> AND vm.severity_num &gt;= #{severityGe} </if>",
             "<if test='severityLe != null'> AND vm.severity_num &lt;= #{severityLe} </if>",
-            "<if test='enforceVisibility != null and enforceVisibility'>",
-            "  AND (vm.organization_id IS NULL OR o.is_public = 1 OR uo.id IS NOT NULL)",
-            "  AND (uo.id IS NOT NULL OR vm.organization_id IS NULL OR o.is_public = 0 OR #{restrictPublicToActive} = false OR vm.status = 'ACTIVE')",
-            "</if>",
+            VISIBILITY_FILTER,
+            "<if test='cap != null'> LIMIT #{cap}) capped</if>",
             "</script>"
     })
     long countByFiltersAdv(@Param("languagesCSV") String languagesCSV,
@@ -367,9 +456,176 @@ public interface VulnerabilityMetadataMapper {
                            @Param("sevLow") Boolean sevLow,
                            @Param("severityGe") Float severityGe,
                            @Param("severityLe") Float severityLe,
-                           @Param("currentUserId") Long currentUserId,
+                           @Param("memberOrgIds") List<Long> memberOrgIds,
                            @Param("enforceVisibility") Boolean enforceVisibility,
-                           @Param("restrictPublicToActive") Boolean restrictPublicToActive);
+                           @Param("restrictPublicToActive") Boolean restrictPublicToActive,
+                           @Param("cap") Integer cap,
+                           @Param("ftq") String ftq);
+
+    /**
+     * 分面计数：WHERE 与 countByFiltersAdv 完全一致，按 dim 分组（language/severity/status/category/tag），列 k=取值、cnt=条数。
+     * dim 仅取白名单值，其余按 language 处理。
+     */
+    @Select({
+            "<script>",
+            "SELECT",
+            "<choose>",
+            "  <when test='dim == \"severity\"'> CASE WHEN vm.severity_num &gt;= 9.0 THEN 'CRITICAL' WHEN vm.severity_num &gt;= 7.0 THEN 'HIGH' WHEN vm.severity_num &gt;= 4.0 THEN 'MEDIUM' WHEN vm.severity_num &gt;= 0.0 THEN 'LOW' END</when>",
+            "  <when test='dim == \"status\"'> vm.status</when>",
+            "  <when test='dim == \"category\"'> fc.code</when>",
+            "  <when test='dim == \"tag\"'> ft.code</when>",
+            "  <otherwise> vm.language</otherwise>",
+            "</choose> AS k, COUNT(DISTINCT vm.id) AS cnt",
+            "FROM vulnerability_metadata vm",
+            "<if test='dim == \"category\"'> LEFT JOIN category fc ON fc.id = vm.category_id </if>",
+            "<if test='dim == \"tag\"'> JOIN lnk_vulnerability_metadata_tag fl ON fl.vulnerability_metadata_id = vm.id JOIN tag ft ON ft.id = fl.tag_id </if>",
+            "<if test='tagName != null or tagCode != null'> JOIN lnk_vulnerability_metadata_tag lvt ON lvt.vulnerability_metadata_id = vm.id JOIN tag t ON t.id = lvt.tag_id </if>",
+            "WHERE 1=1",
+            "<if test='languagesCSV != null and languagesCSV != \"\"'> AND FIND_IN_SET(vm.language, #{languagesCSV}) </if>",
+            "<if test='status != null'> AND vm.status = #{status} </if>",
+            "<if test='identifierPrefix != null'> AND vm.identifier LIKE CONCAT(#{identifierPrefix}, '%') </if>",
+            "<if test='q != null and q != \"\"'>",
+            "  <choose>",
+            "    <when test='ftq != null'> AND vm.id IN (",
+            "      SELECT f.id FROM vulnerability_metadata f WHERE MATCH(f.identifier, f.summary, f.details) AGAINST(#{ftq} IN BOOLEAN MODE)",
+            "      UNION SELECT p.id FROM vulnerability_metadata p WHERE p.identifier LIKE CONCAT(#{q}, '%')",
+            "      UNION SELECT a.vulnerability_metadata_id FROM vulnerability_metadata_alias a WHERE MATCH(a.value) AGAINST(#{ftq} IN BOOLEAN MODE)",
+            "      UNION SELECT b.vulnerability_metadata_id FROM vulnerability_metadata_alias b WHERE b.value LIKE CONCAT(#{q}, '%')",
+            "    ) </when>",
+            "    <otherwise> AND (",
+            "      vm.identifier LIKE CONCAT(#{q}, '%')",
+            "      OR vm.summary LIKE CONCAT('%', #{q}, '%')",
+            "      OR EXISTS (SELECT 1 FROM vulnerability_metadata_alias a WHERE a.vulnerability_metadata_id = vm.id AND a.value LIKE CONCAT(#{q}, '%'))",
+            "    ) </otherwise>",
+            "  </choose>",
+            "</if>",
+            "<if test='tagName != null'> AND t.name = #{tagName} </if>",
+            "<if test='tagCode != null'> AND t.code = #{tagCode} </if>",
+            "<if test='organizationId != null'> AND vm.organization_id = #{organizationId} </if>",
+            "<if test='categoryId != null'> AND vm.category_id = #{categoryId} </if>",
+            "<if test='submittedFrom != null'> AND vm.submitted &gt;= #{submittedFrom} </if>",
+            "<if test='submittedTo != null'> AND vm.submitted &lt;= #{submittedTo} </if>",
+            "<if test='modifiedFrom != null'> AND vm.modified &gt;= #{modifiedFrom} </if>",
+            "<if test='modifiedTo != null'> AND vm.modified &lt;= #{modifiedTo} </if>",
+            "<if test='sevCritical or sevHigh or sevMedium or sevLow'> AND (",
+            "  <if test='sevCritical'> (vm.severity_num &gt;= 9.0) </if>",
+            "  <if test='sevHigh'> <if test='sevCritical'> OR </if> (vm.severity_num &gt;= 7.0 AND vm.severity_num &lt; 9.0) </if>",
+            "  <if test='sevMedium'> <if test='sevCritical or sevHigh'> OR </if> (vm.severity_num &gt;= 4.0 AND vm.severity_num &lt; 7.0) </if>",
+            "  <if test='sevLow'> <if test='sevCritical or sevHigh or sevMedium'> OR </if> (vm.severity_num &gt;= 0.0 AND vm.severity_num &lt; 4.0) </if>",
+            ") </if>",
+            "<if test='severityGe != null'> AND vm.severity_num &gt;= #{severityGe} </if>",
+            "<if test='severityLe != null'> AND vm.severity_num &lt;= #{severityLe} </if>",
+            VISIBILITY_FILTER,
+            "GROUP BY k",
+            "ORDER BY cnt DESC, k ASC",
+            "LIMIT #{limit}",
+            "</script>"
+    })
+    List<java.util.Map<String, Object>> facetByFiltersAdv(@Param("dim") String dim,
+                                           @Param("languagesCSV") String languagesCSV,
+                                           @Param("status") String status,
+                                           @Param("identifierPrefix") String identifierPrefix,
+                                           @Param("q") String q,
+                                           @Param("tagName") String tagName,
+                                           @Param("tagCode") String tagCode,
+                                           @Param("organizationId") Long organizationId,
+                                           @Param("categoryId") Long categoryId,
+                                           @Param("submittedFrom") String submittedFrom,
+                                           @Param("submittedTo") String submittedTo,
+                                           @Param("modifiedFrom") String modifiedFrom,
+                                           @Param("modifiedTo") String modifiedTo,
+                                           @Param("sevCritical") Boolean sevCritical,
+                                           @Param("sevHigh") Boolean sevHigh,
+                                           @Param("sevMedium") Boolean sevMedium,
+                                           @Param("sevLow") Boolean sevLow,
+                                           @Param("severityGe") Float severityGe,
+                                           @Param("severityLe") Float severityLe,
+                                           @Param("memberOrgIds") List<Long> memberOrgIds,
+                                           @Param("enforceVisibility") Boolean enforceVisibility,
+                                           @Param("restrictPublicToActive") Boolean restrictPublicToActive,
+                                           @Param("limit") int limit,
+                                           @Param("ftq") String ftq);
+
+    /** mine 模式的分面计数，范围与 countMineByFiltersAdv 一致 */
+    @Select({
+            "<script>",
+            "SELECT",
+            "<choose>",
+            "  <when test='dim == \"severity\"'> CASE WHEN vm.severity_num &gt;= 9.0 THEN 'CRITICAL' WHEN vm.severity_num &gt;= 7.0 THEN 'HIGH' WHEN vm.severity_num &gt;= 4.0 THEN 'MEDIUM' WHEN vm.severity_num &gt;= 0.0 THEN 'LOW' END</when>",
+            "  <when test='dim == \"status\"'> vm.status</when>",
+            "  <when test='dim == \"category\"'> fc.code</when>",
+            "  <when test='dim == \"tag\"'> ft.code</when>",
+            "  <otherwise> vm.language</otherwise>",
+            "</choose> AS k, COUNT(DISTINCT vm.id) AS cnt",
+            "FROM vulnerability_metadata vm",
+            "<if test='dim == \"category\"'> LEFT JOIN category fc ON fc.id = vm.category_id </if>",
+            "<if test='dim == \"tag\"'> JOIN lnk_vulnerability_metadata_tag fl ON fl.vulnerability_metadata_id = vm.id JOIN tag ft ON ft.id = fl.tag_id </if>",
+            "<if test='tagName != null or tagCode != null'> JOIN lnk_vulnerability_metadata_tag lvt ON lvt.vulnerability_metadata_id = vm.id JOIN tag t ON t.id = lvt.tag_id </if>",
+            "WHERE 1=1",
+            " AND (vm.user_id = #{userId} ",
+            "<if test='adminOrgIds != null and adminOrgIds.size > 0'> OR vm.organization_id IN ",
+            "  <foreach item='oid' collection='adminOrgIds' open='(' separator=',' close=')'>#{oid}</foreach>",
+            "</if>)",
+            "<if test='languagesCSV != null and languagesCSV != \"\"'> AND FIND_IN_SET(vm.language, #{languagesCSV}) </if>",
+            "<if test='status != null'> AND vm.status = #{status} </if>",
+            "<if test='identifierPrefix != null'> AND vm.identifier LIKE CONCAT(#{identifierPrefix}, '%') </if>",
+            "<if test='q != null and q != \"\"'>",
+            "  <choose>",
+            "    <when test='ftq != null'> AND vm.id IN (",
+            "      SELECT f.id FROM vulnerability_metadata f WHERE MATCH(f.identifier, f.summary, f.details) AGAINST(#{ftq} IN BOOLEAN MODE)",
+            "      UNION SELECT p.id FROM vulnerability_metadata p WHERE p.identifier LIKE CONCAT(#{q}, '%')",
+            "      UNION SELECT a.vulnerability_metadata_id FROM vulnerability_metadata_alias a WHERE MATCH(a.value) AGAINST(#{ftq} IN BOOLEAN MODE)",
+            "      UNION SELECT b.vulnerability_metadata_id FROM vulnerability_metadata_alias b WHERE b.value LIKE CONCAT(#{q}, '%')",
+            "    ) </when>",
+            "    <otherwise> AND (",
+            "      vm.identifier LIKE CONCAT(#{q}, '%')",
+            "      OR vm.summary LIKE CONCAT('%', #{q}, '%')",
+            "      OR EXISTS (SELECT 1 FROM vulnerability_metadata_alias a WHERE a.vulnerability_metadata_id = vm.id AND a.value LIKE CONCAT(#{q}, '%'))",
+            "    ) </otherwise>",
+            "  </choose>",
+            "</if>",
+            "<if test='tagName != null'> AND t.name = #{tagName} </if>",
+            "<if test='tagCode != null'> AND t.code = #{tagCode} </if>",
+            "<if test='categoryId != null'> AND vm.category_id = #{categoryId} </if>",
+            "<if test='submittedFrom != null'> AND vm.submitted &gt;= #{submittedFrom} </if>",
+            "<if test='submittedTo != null'> AND vm.submitted &lt;= #{submittedTo} </if>",
+            "<if test='modifiedFrom != null'> AND vm.modified &gt;= #{modifiedFrom} </if>",
+            "<if test='modifiedTo != null'> AND vm.modified &lt;= #{modifiedTo} </if>",
+            "<if test='sevCritical or sevHigh or sevMedium or sevLow'> AND (",
+            "  <if test='sevCritical'> (vm.severity_num &gt;= 9.0) </if>",
+            "  <if test='sevHigh'> <if test='sevCritical'> OR </if> (vm.severity_num &gt;= 7.0 AND vm.severity_num &lt; 9.0) </if>",
+            "  <if test='sevMedium'> <if test='sevCritical or sevHigh'> OR </if> (vm.severity_num &gt;= 4.0 AND vm.severity_num &lt; 7.0) </if>",
+            "  <if test='sevLow'> <if test='sevCritical or sevHigh or sevMedium'> OR </if> (vm.severity_num &gt;= 0.0 AND vm.severity_num &lt; 4.0) </if>",
+            ") </if>",
+            "<if test='severityGe != null'> AND vm.severity_num &gt;= #{severityGe} </if>",
+            "<if test='severityLe != null'> AND vm.severity_num &lt;= #{severityLe} </if>",
+            "GROUP BY k",
+            "ORDER BY cnt DESC, k ASC",
+            "LIMIT #{limit}",
+            "</script>"
+    })
+    List<java.util.Map<String, Object>> facetMineByFiltersAdv(@Param("dim") String dim,
+                                               @Param("userId") Long userId,
+                                               @Param("adminOrgIds") java.util.List<Long> adminOrgIds,
+                                               @Param("languagesCSV") String languagesCSV,
+                                               @Param("status") String status,
+                                               @Param("identifierPrefix") String identifierPrefix,
+                                               @Param("q") String q,
+                                               @Param("tagName") String tagName,
+                                               @Param("tagCode") String tagCode,
+                                               @Param("categoryId") Long categoryId,
+                                               @Param("submittedFrom") String submittedFrom,
+                                               @Param("submittedTo") String submittedTo,
+                                               @Param("modifiedFrom") String modifiedFrom,
+                                               @Param("modifiedTo") String modifiedTo,
+                                               @Param("sevCritical") Boolean sevCritical,
+                                               @Param("sevHigh") Boolean sevHigh,
+                                               @Param("sevMedium") Boolean sevMedium,
+                                               @Param("sevLow") Boolean sevLow,
+                                               @Param("severityGe") Float severityGe,
+                                               @Param("severityLe") Float severityLe,
+                                               @Param("limit") int limit,
+                                               @Param("ftq") String ftq);
 
     @Select({
             "<script>",
@@ -411,7 +667,7 @@ public interface VulnerabilityMetadataMapper {
             "<script>",
             "UPDATE vulnerability_metadata",
             "<set>",
-            "  <if test='status != null'> status = #{status},</if>",
+            "  <if test='status != null'> status = #{status}, visibility_class = " + VISIBILITY_CLASS_EXPR + ",</if>",
             "  <if test='rejectReasonSet'> reject_reason = #{rejectReason},</if>",
             "  <if test='reviewDate != null'> review_date = #{reviewDate},</if>",
             "  <if test='reviewedBy != null'> reviewed_by = #{reviewedBy},</if>",
@@ -427,6 +683,14 @@ public interface VulnerabilityMetadataMapper {
                                  @Param("reviewDate") java.time.LocalDateTime reviewDate,
                                  @Param("reviewedBy") Long reviewedBy);
 
+    // 组织 is_public 变化后刷新其下漏洞的可见性类别（不改 modified）
+    @Update("UPDATE vulnerability_metadata SET visibility_class = " + VISIBILITY_CLASS_EXPR + " WHERE organization_id = #{organizationId}")
+    int refreshVisibilityClassByOrg(@Param("organizationId") Long organizationId);
+
+    // 组织下全部漏洞的 uuid（组织可见性变化后重建检索索引）
+    @Select("SELECT uuid FROM vulnerability_metadata WHERE organization_id = #{organizationId}")
+    List<String> listUuidsByOrganizationId(@Param("organizationId") Long organizationId);
+
     // ========== User Statistics ==========
 
     @Select("SELECT COUNT(1) FROM vulnerability_metadata WHERE user_id = #{userId}")
@@ -448,11 +712,15 @@ public interface VulnerabilityMetadataMapper {
 
     // ========== Scanning for ES indexing ==========
     @Select({
-            "SELECT id, uuid, identifier, summary, details, severity_num AS severityNum, modified, submitted, published, withdrawn, language, status, user_id AS userId, organization_id AS organizationId, category_id AS categoryId, latest_cosv_file_id AS latestCosvFileId, schema_version AS schemaVersion",
+            "SELECT id, uuid, identifier, summary, details, severity_num AS severityNum, modified, submitted, published, withdrawn, language, status, user_id AS userId, organization_id AS organizationId, category_id AS categoryId, latest_cosv_file_id AS latestCosvFileId, schema_version AS schemaVersion, confirmed_type AS confirmedType",
             "FROM vulnerability_metadata",
             "WHERE id > #{afterId}",
             "ORDER BY id ASC",
             "LIMIT #{limit}"
     })
     java.util.List<VulnerabilityMetadata> scanForIndexing(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    // 与 scanForIndexing 范围一致，用于核对重建后的索引文档数
+    @Select("SELECT COUNT(1) FROM vulnerability_metadata")
+    long countForIndexing();
 }
@@ -12,10 +12,36 @@ public interface VulnerabilityMetadataReferenceMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityMetadataReference e);
 
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_reference(vulnerability_metadata_id, type, url) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.vulnerabilityMetadataId}, #{e.type}, #{e.url})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityMetadataReference> list);
+
     @Select("SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, type, url FROM vulnerability_metadata_reference WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId} ORDER BY id")
     List<VulnerabilityMetadataReference> listByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
 
     @Delete("DELETE FROM vulnerability_metadata_reference WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId}")
     int deleteByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_reference",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Select({
+            "<script>",
+            "SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, type, url FROM vulnerability_metadata_reference",
+            "WHERE vulnerability_metadata_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY vulnerability_metadata_id, id",
+            "</script>"
+    })
+    List<VulnerabilityMetadataReference> listByVulnerabilityIds(@Param("ids") List<Long> ids);
 }
 
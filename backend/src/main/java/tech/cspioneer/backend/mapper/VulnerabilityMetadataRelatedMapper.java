@@ -12,10 +12,36 @@ public interface VulnerabilityMetadataRelatedMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityMetadataRelated e);
 
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_related(vulnerability_metadata_id, value) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.vulnerabilityMetadataId}, #{e.value})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityMetadataRelated> list);
+
     @Select("SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, value FROM vulnerability_metadata_related WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId} ORDER BY id")
     List<VulnerabilityMetadataRelated> listByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
 
     @Delete("DELETE FROM vulnerability_metadata_related WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId}")
     int deleteByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_related",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Select({
+            "<script>",
+            "SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, value FROM vulnerability_metadata_related",
+            "WHERE vulnerability_metadata_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY vulnerability_metadata_id, id",
+            "</script>"
+    })
+    List<VulnerabilityMetadataRelated> listByVulnerabilityIds(@Param("ids") List<Long> ids);
 }
 
@@ -12,10 +12,36 @@ public interface VulnerabilityMetadataSeverityMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityMetadataSeverity e);
 
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_severity(vulnerability_metadata_id, type, score, level, score_num) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.vulnerabilityMetadataId}, #{e.type}, #{e.score}, #{e.level}, #{e.scoreNum})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityMetadataSeverity> list);
+
     @Select("SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, type, score, level, score_num AS scoreNum FROM vulnerability_metadata_severity WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId} ORDER BY id")
     List<VulnerabilityMetadataSeverity> listByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
 
     @Delete("DELETE FROM vulnerability_metadata_severity WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId}")
     int deleteByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_severity",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Select({
+            "<script>",
+            "SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, type, score, level, score_num AS scoreNum FROM vulnerability_metadata_severity",
+            "WHERE vulnerability_metadata_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY vulnerability_metadata_id, id",
+            "</script>"
+    })
+    List<VulnerabilityMetadataSeverity> listByVulnerabilityIds(@Param("ids") List<Long> ids);
 }
 
@@ -12,10 +12,36 @@ public interface VulnerabilityMetadataTimelineMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityMetadataTimeline e);
 
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_timeline(vulnerability_metadata_id, type, value) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.vulnerabilityMetadataId}, #{e.type}, #{e.value})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityMetadataTimeline> list);
+
     @Select("SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, type, value FROM vulnerability_metadata_timeline WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId} ORDER BY value")
     List<VulnerabilityMetadataTimeline> listByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
 
     @Delete("DELETE FROM vulnerability_metadata_timeline WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId}")
     int deleteByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_timeline",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Select({
+            "<script>",
+            "SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, type, value FROM vulnerability_metadata_timeline",
+            "WHERE vulnerability_metadata_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY vulnerability_metadata_id, value",
+            "</script>"
+    })
+    List<VulnerabilityMetadataTimeline> listByVulnerabilityIds(@Param("ids") List<Long> ids);
 }
 
@@ -12,10 +12,44 @@ public interface VulnerabilityPatchBranchMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityPatchBranch e);
 
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_patch_branch(patch_detail_id, name) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.patchDetailId}, #{e.name})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityPatchBranch> list);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_patch_branch",
+            "WHERE patch_detail_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByPatchDetailIds(@Param("ids") List<Long> ids);
+
     @Select("SELECT id, patch_detail_id AS patchDetailId, name FROM vulnerability_metadata_patch_branch WHERE patch_detail_id = #{patchDetailId} ORDER BY id")
     List<VulnerabilityPatchBranch> listByPatchDetailId(@Param("patchDetailId") Long patchDetailId);
 
     @Delete("DELETE FROM vulnerability_metadata_patch_branch WHERE patch_detail_id = #{patchDetailId}")
     int deleteByPatchDetailId(@Param("patchDetailId") Long patchDetailId);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_patch_branch",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Select({
+            "<script>",
+            "SELECT id, patch_detail_id AS patchDetailId, name FROM vulnerability_metadata_patch_branch",
+            "WHERE patch_detail_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY patch_detail_id, id",
+            "</script>"
+    })
+    List<VulnerabilityPatchBranch> listByPatchDetailIds(@Param("ids") List<Long> ids);
 }
 
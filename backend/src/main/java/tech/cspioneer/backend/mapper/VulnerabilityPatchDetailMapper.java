@@ -12,10 +12,39 @@ public interface VulnerabilityPatchDetailMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(VulnerabilityPatchDetail e);
 
+    @Update("UPDATE vulnerability_metadata_patch_detail SET issue_url = #{issueUrl}, main_language = #{mainLanguage}, author = #{author}, committer = #{committer} WHERE id = #{id}")
+    int updateById(VulnerabilityPatchDetail e);
+
+    @Insert({
+            "<script>",
+            "INSERT INTO vulnerability_metadata_patch_detail(vulnerability_metadata_id, patch_url, issue_url, main_language, author, committer) VALUES",
+            "<foreach item='e' collection='list' separator=','>(#{e.vulnerabilityMetadataId}, #{e.patchUrl}, #{e.issueUrl}, #{e.mainLanguage}, #{e.author}, #{e.committer})</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<VulnerabilityPatchDetail> list);
+
     @Select("SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, patch_url AS patchUrl, issue_url AS issueUrl, main_language AS mainLanguage, author, committer FROM vulnerability_metadata_patch_detail WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId} ORDER BY id")
     List<VulnerabilityPatchDetail> listByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
 
     @Delete("DELETE FROM vulnerability_metadata_patch_detail WHERE vulnerability_metadata_id = #{vulnerabilityMetadataId}")
     int deleteByVulnerabilityId(@Param("vulnerabilityMetadataId") Long vulnerabilityMetadataId);
+
+    @Delete({
+            "<script>",
+            "DELETE FROM vulnerability_metadata_patch_detail",
+            "WHERE id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Select({
+            "<script>",
+            "SELECT id, vulnerability_metadata_id AS vulnerabilityMetadataId, patch_url AS patchUrl, issue_url AS issueUrl, main_language AS mainLanguage, author, committer FROM vulnerability_metadata_patch_detail",
+            "WHERE vulnerability_metadata_id IN <foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>",
+            "ORDER BY vulnerability_metadata_id, id",
+            "</script>"
+    })
+    List<VulnerabilityPatchDetail> listByVulnerabilityIds(@Param("ids") List<Long> ids);
 }
 
@@ -28,29 +28,10 @@ public class EsBootstrap {
         if (!props.getEs().isAutoBootstrap()) return;
         String index = props.getEs().currentIndexName();
         try {
-            if (!indexExists(index)) {
+            // 读别名已存在（可能已由蓝绿重建指向新版本索引）时不再创建 currentIndexName
+            if (!aliasExists(props.getEs().getReadAlias()) && !indexExists(index)) {
                 log.info("[ES] creating index {} shards={} replicas={}", index, props.getEs().getShards(), props.getEs().getReplicas());
-                String body = "{" +
-                        "\"settings\":{\"number_of_shards\":" + props.getEs().getShards() + ",\"number_of_replicas\":" + props.getEs().getReplicas() + "}," +
-                        "\"mappings\":{\"properties\":{" +
-                        "\"uuid\":{\"type\":\"keyword\"}," +
-                        "\"identifier\":{\"type\":\"text\",\"fields\":{\"keyword\":{\"type\":\"keyword\"}}}," +
-                        "\"summary\":{\"type\":\"text\"}," +
-                        "\"details\":{\"type\":\"text\"}," +
-                        "\"aliases\":{\"type\":\"keyword\"}," +
-                        "\"tagCodes\":{\"type\":\"keyword\"}," +
-                        "\"categoryCode\":{\"type\":\"keyword\"}," +
-                        "\"language\":{\"type\":\"keyword\"}," +
-                        "\"severityNum\":{\"type\":\"float\"}," +
-                        "\"status\":{\"type\":\"keyword\"}," +
-                        "\"modified\":{\"type\":\"date\"}," +
-                        "\"submitted\":{\"type\":\"date\"}," +
-                        "\"organizationUuid\":{\"type\":\"keyword\"}," +
-                        "\"orgIsPublic\":{\"type\":\"boolean\"}," +
-                        "\"orgStatus\":{\"type\":\"keyword\"}," +
-                        "\"orgIsVerified\":{\"type\":\"boolean\"}" +
-                        "}}" +
-                        "}";
+                String body = indexDefinition(props.getEs());
                 Request req = new Request("PUT", "/" + index);
                 req.setJsonEntity(body);
                 es.performRequest(req);
@@ -69,6 +50,41 @@ public class EsBootstrap {
         }
     }
 
+    /** 索引定义（settings + mappings），首次创建与蓝绿重建共用 */
+    static String indexDefinition(SearchProperties.Es cfg) {
+        return "{" +
+                "\"settings\":{\"number_of_shards\":" + cfg.getShards() + ",\"number_of_replicas\":" + cfg.getReplicas() + "}," +
+                "\"mappings\":{\"properties\":{" +
+                "\"id\":{\"type\":\"long\"}," +
+                "\"uuid\":{\"type\":\"keyword\"}," +
+                "\"identifier\":{\"type\":\"text\",\"fields\":{\"keyword\":{\"type\":\"keyword\"}}}," +
+                "\"summary\":{\"type\":\"text\"}," +
+                "\"details\":{\"type\":\"text\"}," +
+                "\"aliases\":{\"type\":\"keyword\"}," +
+                "\"tagCodes\":{\"type\":\"keyword\"}," +
+                "\"categoryCode\":{\"type\":\"keyword\"}," +
+                "\"language\":{\"type\":\"keyword\"}," +
+                "\"severityNum\":{\"type\":\"float\"}," +
+                "\"status\":{\"type\":\"keyword\"}," +
+                "\"modified\":{\"type\":\"date\"}," +
+                "\"submitted\":{\"type\":\"date\"}," +
+                "\"published\":{\"type\":\"date\"}," +
+                "\"withdrawn\":{\"type\":\"date\"}," +
+                "\"schemaVersion\":{\"type\":\"keyword\"}," +
+                "\"confirmedType\":{\"type\":\"keyword\"}," +
+                "\"organizationUuid\":{\"type\":\"keyword\"}," +
+                "\"orgIsPublic\":{\"type\":\"boolean\"}," +
+                "\"orgStatus\":{\"type\":\"keyword\"}," +
+                "\"orgIsVerified\":{\"type\":\"boolean\"}" +
+                "}}" +
+                "}";
+    }
+
+    private boolean aliasExists(String alias) throws Exception {
+        Response resp = es.performRequest(new Request("HEAD", "/_alias/" + alias));
+        return resp.getStatusLine().getStatusCode() == 200;
+    }
+
     private boolean indexExists(String index) throws Exception {
         Request head = new Request("HEAD", "/" + index);
         Response resp = es.performRequest(head);
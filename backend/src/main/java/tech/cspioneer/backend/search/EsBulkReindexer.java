@@ -0,0 +1,179 @@
+package tech.cspioneer.backend.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 全量重建的 _bulk 发送端：按字节数切分批次，多个批次并发发送（在途批次数受限，读库线程自然背压），
+ * 解析逐条结果，可重试的失败条目（429/5xx）按指数退避重发，其余记为失败。
+ */
+@Slf4j
+class EsBulkReindexer implements AutoCloseable {
+
+    /** 一条待写入文档：action 行与 source 行（均不含换行） */
+    record Item(String id, String action, String source) {
+        int bytes() {
+            return utf8Length(action) + utf8Length(source) + 2;
+        }
+    }
+
+    static int utf8Length(String s) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) n += 1;
+            else if (c < 0x800) n += 2;
+            else if (Character.isHighSurrogate(c)) { n += 4; i++; }
+            else n += 3;
+        }
+        return n;
+    }
+
+    private final RestClient es;
+    private final ObjectMapper mapper;
+    private final SearchProperties.Es.Reindex cfg;
+    private final ExecutorService senders;
+    private final Semaphore inFlight;
+    private final List<Future<?>> futures = new ArrayList<>();
+    private final AtomicInteger indexed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private List<Item> current = new ArrayList<>();
+    private long currentBytes = 0;
+
+    EsBulkReindexer(RestClient es, ObjectMapper mapper, SearchProperties.Es.Reindex cfg) {
+        this.es = es;
+        this.mapper = mapper;
+        this.cfg = cfg;
+        int n = Math.max(1, cfg.getConcurrency());
+        AtomicInteger seq = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(n, r -> {
+            Thread t = new Thread(r, "es-reindex-bulk-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.inFlight = new Semaphore(n);
+    }
+
+    /** 由读库线程调用；批次满时派发，在途批次已满则阻塞等待 */
+    void add(Item item) throws InterruptedException {
+        current.add(item);
+        currentBytes += item.bytes();
+        if (currentBytes >= Math.max(1024, cfg.getBulkBytes())) dispatch();
+    }
+
+    /** 派发剩余条目并等待全部批次完成，返回成功写入数 */
+    int finish() throws InterruptedException {
+        dispatch();
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                log.warn("[ES] reindex bulk task failed: {}", e.getCause() == null ? e.getMessage() : e.getCause().getMessage());
+            }
+        }
+        return indexed.get();
+    }
+
+    int failedCount() {
+        return failed.get();
+    }
+
+    @Override
+    public void close() {
+        senders.shutdownNow();
+    }
+
+    private void dispatch() throws InterruptedException {
+        if (current.isEmpty()) return;
+        List<Item> chunk = current;
+        current = new ArrayList<>();
+        currentBytes = 0;
+        inFlight.acquire();
+        futures.add(senders.submit(() -> {
+            try {
+                sendWithRetry(chunk);
+            } finally {
+                inFlight.release();
+            }
+        }));
+    }
+
+    private void sendWithRetry(List<Item> chunk) {
+        List<Item> pending = chunk;
+        for (int attempt = 0; ; attempt++) {
+            List<Item> retry;
+            try {
+                retry = send(pending);
+            } catch (Exception e) {
+                if (!isRetryable(e)) {
+                    log.warn("[ES] reindex bulk rejected size={} : {}", pending.size(), e.getMessage());
+                    failed.addAndGet(pending.size());
+                    return;
+                }
+                retry = pending;
+            }
+            if (retry.isEmpty()) return;
+            if (attempt >= cfg.getMaxRetries()) {
+                failed.addAndGet(retry.size());
+                log.warn("[ES] reindex gave up on {} items after {} retries", retry.size(), attempt);
+                return;
+            }
+            try {
+                Thread.sleep(Math.min(30000L, cfg.getRetryBackoffMs() * (1L << Math.min(10, attempt))));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                failed.addAndGet(retry.size());
+                return;
+            }
+            pending = retry;
+        }
+    }
+
+    /** 发送一批，返回需重试的条目；不可重试的失败计入 failed */
+    List<Item> send(List<Item> chunk) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (Item it : chunk) sb.append(it.action()).append('\n').append(it.source()).append('\n');
+        Request req = new Request("POST", "/_bulk");
+        req.setEntity(new NStringEntity(sb.toString(), ContentType.create("application/x-ndjson", StandardCharsets.UTF_8)));
+        Response resp = es.performRequest(req);
+        Map<?, ?> parsed = mapper.readValue(resp.getEntity().getContent(), Map.class);
+        if (!Boolean.TRUE.equals(parsed.get("errors"))) {
+            indexed.addAndGet(chunk.size());
+            return List.of();
+        }
+        List<Item> retry = new ArrayList<>();
+        List<?> items = parsed.get("items") instanceof List<?> l ? l : List.of();
+        for (int i = 0; i < chunk.size(); i++) {
+            Map<?, ?> r = i < items.size() && items.get(i) instanceof Map<?, ?> w && !w.isEmpty() && w.values().iterator().next() instanceof Map<?, ?> m ? m : null;
+            int status = r != null && r.get("status") instanceof Number n ? n.intValue() : 500;
+            if (status < 300) {
+                indexed.incrementAndGet();
+            } else if (status == 429 || status >= 500) {
+                retry.add(chunk.get(i));
+            } else {
+                failed.incrementAndGet();
+                log.warn("[ES] reindex item failed id={} status={} error={}", chunk.get(i).id(), status, r == null ? null : r.get("error"));
+            }
+        }
+        return retry;
+    }
+
+    private static boolean isRetryable(Exception e) {
+        if (e instanceof ResponseException re) {
+            int code = re.getResponse().getStatusLine().getStatusCode();
+            return code == 429 || code >= 500;
+        }
+        return e instanceof java.io.IOException;
+    }
+}
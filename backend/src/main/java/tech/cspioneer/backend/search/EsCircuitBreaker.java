@@ -0,0 +1,129 @@
+package tech.cspioneer.backend.search;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * ES 检索熔断器：滑动窗口（最近 window-size 次调用）内错误率或延迟分位数超过阈值即打开，
+ * 打开期间请求直接走 SQL；open-ms 后半开，放行一个探测请求，成功且未超时则关闭，否则重新打开。
+ * 每次状态切换递增代数，放行时发给调用方当前代数；回报时代数不符（切换前发出的请求迟到的结果）直接忽略，
+ * 避免半开期间把旧请求的结果当作探测结果。
+ */
+@Slf4j
+class EsCircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    static final long NO_PERMIT = -1;
+
+    private final SearchProperties.Es.Resilience cfg;
+    private final LongSupplier clock;
+    private final long[] latencies;
+    private final boolean[] failures;
+    private int count = 0;
+    private int next = 0;
+    private State state = State.CLOSED;
+    private long openedAt = 0;
+    private boolean probeInFlight = false;
+    private long generation = 0;
+    private String lastTripReason;
+    private long trips = 0;
+
+    EsCircuitBreaker(SearchProperties.Es.Resilience cfg) {
+        this(cfg, System::currentTimeMillis);
+    }
+
+    EsCircuitBreaker(SearchProperties.Es.Resilience cfg, LongSupplier clock) {
+        this.cfg = cfg;
+        this.clock = clock;
+        int n = Math.max(1, cfg.getWindowSize());
+        this.latencies = new long[n];
+        this.failures = new boolean[n];
+    }
+
+    /** 放行本次 ES 调用时返回许可（当前代数），否则返回 NO_PERMIT；放行后必须以 record 回报结果 */
+    synchronized long tryAcquire() {
+        if (state == State.CLOSED) return generation;
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < cfg.getOpenMs()) return NO_PERMIT;
+            state = State.HALF_OPEN;
+            generation++;
+            probeInFlight = false;
+        }
+        if (probeInFlight) return NO_PERMIT;
+        probeInFlight = true;
+        return generation;
+    }
+
+    synchronized void record(long permit, long latencyMs, boolean success) {
+        if (permit != generation) return; // 状态切换前发出的请求迟到的结果
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            if (success && latencyMs < cfg.getSlowCallMs()) {
+                state = State.CLOSED;
+                generation++;
+                count = 0;
+                next = 0;
+                log.info("[ES] circuit closed after probe latency={}ms", latencyMs);
+            } else {
+                trip("probe " + (success ? "slow " + latencyMs + "ms" : "failed"));
+            }
+            return;
+        }
+        latencies[next] = latencyMs;
+        failures[next] = !success;
+        next = (next + 1) % latencies.length;
+        count = Math.min(count + 1, latencies.length);
+        if (count < Math.max(1, cfg.getMinCalls())) return;
+        int failed = 0;
+        for (int i = 0; i < count; i++) if (failures[i]) failed++;
+        double failureRate = failed * 100.0 / count;
+        if (failureRate >= cfg.getFailureRateThreshold()) {
+            trip(String.format("failureRate=%.1f%%", failureRate));
+            return;
+        }
+        long p = percentile(cfg.getLatencyPercentile());
+        if (p >= cfg.getSlowCallMs()) trip("p" + cfg.getLatencyPercentile() + "=" + p + "ms");
+    }
+
+    /** 放弃已放行的调用（结果不计入窗口）；若为半开探测则允许下一个请求重新探测 */
+    synchronized void release(long permit) {
+        if (permit == generation && state == State.HALF_OPEN) probeInFlight = false;
+    }
+
+    private long percentile(int pct) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int idx = (int) Math.ceil(Math.max(1, Math.min(100, pct)) / 100.0 * count) - 1;
+        return sorted[Math.max(0, idx)];
+    }
+
+    private void trip(String reason) {
+        state = State.OPEN;
+        generation++;
+        openedAt = clock.getAsLong();
+        lastTripReason = reason;
+        trips++;
+        count = 0;
+        next = 0;
+        log.warn("[ES] circuit opened for {}ms: {}", cfg.getOpenMs(), reason);
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("state", state.name());
+        m.put("windowCalls", count);
+        m.put("trips", trips);
+        m.put("lastTripReason", lastTripReason);
+        m.put("openedAt", openedAt);
+        return m;
+    }
+}
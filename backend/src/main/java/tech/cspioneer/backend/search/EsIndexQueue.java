@@ -0,0 +1,171 @@
+package tech.cspioneer.backend.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ES 索引更新队列：写操作在事务提交后登记 uuid，后台定时批量刷出。
+ * 同一 uuid 在窗口内多次变更只保留最后一次操作；刷出失败的条目按指数退避重新入队，超过重试次数后丢弃并告警。
+ */
+@Slf4j
+class EsIndexQueue {
+
+    enum Op { INDEX, DELETE }
+
+    /** 批量刷出：返回需要重试的 uuid（整体失败时抛异常，整批重试） */
+    interface Sink {
+        Set<String> flush(Map<String, Op> batch) throws Exception;
+    }
+
+    private record Pending(Op op, long enqueuedAt, int attempts, long notBefore) {}
+
+    private final Sink sink;
+    private final SearchProperties.Es.Queue cfg;
+    private final LinkedHashMap<String, Pending> pending = new LinkedHashMap<>();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long lastFlushAt = 0;
+    private ScheduledExecutorService scheduler;
+
+    EsIndexQueue(Sink sink, SearchProperties.Es.Queue cfg) {
+        this.sink = sink;
+        this.cfg = cfg;
+    }
+
+    void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "es-index-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(50, cfg.getFlushIntervalMs());
+        scheduler.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+        // 停机前尽力刷出剩余条目
+        flushSafely();
+    }
+
+    /** 处于事务中时在提交后入队，回滚的写不会触发索引 */
+    void enqueue(String uuid, Op op) {
+        if (uuid == null) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offer(uuid, op);
+                }
+            });
+        } else {
+            offer(uuid, op);
+        }
+    }
+
+    void offer(String uuid, Op op) {
+        long now = System.currentTimeMillis();
+        synchronized (pending) {
+            Pending old = pending.remove(uuid);
+            // 合并：保留最早入队时间用于计算延迟，操作取最后一次，重试计数清零
+            pending.put(uuid, new Pending(op, old == null ? now : old.enqueuedAt(), 0, 0));
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            while (flushOnce() >= Math.max(1, cfg.getBatchSize())) {
+                // 积压超过一批时连续刷出
+            }
+        } catch (Exception e) {
+            log.warn("[ES] index queue flush failed: {}", e.getMessage());
+        }
+    }
+
+    /** 刷出一批到期条目，返回本批条数 */
+    int flushOnce() {
+        long now = System.currentTimeMillis();
+        Map<String, Pending> batch = new LinkedHashMap<>();
+        synchronized (pending) {
+            var it = pending.entrySet().iterator();
+            while (it.hasNext() && batch.size() < Math.max(1, cfg.getBatchSize())) {
+                var e = it.next();
+                if (e.getValue().notBefore() > now) continue;
+                batch.put(e.getKey(), e.getValue());
+                it.remove();
+            }
+        }
+        if (batch.isEmpty()) return 0;
+        Map<String, Op> ops = new LinkedHashMap<>();
+        batch.forEach((k, v) -> ops.put(k, v.op()));
+        Set<String> failed;
+        try {
+            failed = sink.flush(ops);
+        } catch (Exception e) {
+            log.warn("[ES] bulk flush failed size={} : {}", batch.size(), e.getMessage());
+            failed = batch.keySet();
+        }
+        lastFlushAt = System.currentTimeMillis();
+        flushed.addAndGet(batch.size() - (failed == null ? 0 : failed.size()));
+        if (failed != null && !failed.isEmpty()) requeue(batch, failed);
+        return batch.size();
+    }
+
+    private void requeue(Map<String, Pending> batch, Set<String> failed) {
+        long now = System.currentTimeMillis();
+        synchronized (pending) {
+            for (String uuid : failed) {
+                Pending p = batch.get(uuid);
+                if (p == null || pending.containsKey(uuid)) continue; // 期间已有新变更，以新变更为准
+                int attempts = p.attempts() + 1;
+                if (attempts > cfg.getMaxRetries()) {
+                    dropped.incrementAndGet();
+                    log.warn("[ES] index update dropped after {} attempts uuid={} op={}", p.attempts(), uuid, p.op());
+                    continue;
+                }
+                long backoff = Math.min(cfg.getMaxBackoffMs(), cfg.getInitialBackoffMs() * (1L << Math.min(20, attempts - 1)));
+                pending.put(uuid, new Pending(p.op(), p.enqueuedAt(), attempts, now + backoff));
+                retried.incrementAndGet();
+            }
+        }
+    }
+
+    int depth() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /** 最早未刷出条目的等待时长（毫秒） */
+    long lagMs() {
+        long now = System.currentTimeMillis();
+        synchronized (pending) {
+            long oldest = Long.MAX_VALUE;
+            for (Pending p : pending.values()) oldest = Math.min(oldest, p.enqueuedAt());
+            return oldest == Long.MAX_VALUE ? 0 : now - oldest;
+        }
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("queueDepth", depth());
+        m.put("lagMs", lagMs());
+        m.put("flushed", flushed.get());
+        m.put("retried", retried.get());
+        m.put("dropped", dropped.get());
+        m.put("lastFlushAt", lastFlushAt);
+        return m;
+    }
+
+    long flushedCount() { return flushed.get(); }
+    long retriedCount() { return retried.get(); }
+    long droppedCount() { return dropped.get(); }
+}
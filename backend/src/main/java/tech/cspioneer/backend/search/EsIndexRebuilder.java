@@ -0,0 +1,170 @@
+package tech.cspioneer.backend.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import tech.cspioneer.backend.common.ApiException;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataMapper;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * 蓝绿重建：新建带时间戳版本号的索引并用批量重建填充，期间增量写入仍进旧索引并被记录，
+ * 填充完成后重放到新索引；新索引文档数与数据库一致时在一次 _aliases 调用中同时切换读写别名，随后删除旧索引。
+ * 切换前任一步失败则删除新索引，读写别名保持不变；切换后的重放失败不影响结果，失败记录转入增量队列重试。
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "search.es", name = "enabled", havingValue = "true")
+public class EsIndexRebuilder {
+    private static final ObjectMapper M = new ObjectMapper();
+    private static final DateTimeFormatter VERSION_TS = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final int VERIFY_ROUNDS = 3;
+
+    private final RestClient es;
+    private final SearchProperties props;
+    private final EsIndexer indexer;
+    private final VulnerabilityMetadataMapper vmMapper;
+
+    @Value("${search.es.rebuild.keep-old-index:false}")
+    private boolean keepOldIndex = false;
+
+    public EsIndexRebuilder(RestClient es, SearchProperties props, EsIndexer indexer, VulnerabilityMetadataMapper vmMapper) {
+        this.es = es;
+        this.props = props;
+        this.indexer = indexer;
+        this.vmMapper = vmMapper;
+    }
+
+    public synchronized Map<String, Object> rebuild() {
+        var cfg = props.getEs();
+        long start = System.currentTimeMillis();
+        Set<String> oldIndices = new LinkedHashSet<>(indicesOf(cfg.getReadAlias()));
+        oldIndices.addAll(indicesOf(cfg.getWriteAlias()));
+        String newIndex = cfg.getIndexPrefix() + "_" + cfg.getIndexVersion() + "_" + LocalDateTime.now().format(VERSION_TS);
+        if (oldIndices.contains(newIndex)) throw new ApiException(409, "索引重建过于频繁，请稍后再试");
+
+        boolean swapped = false;
+        int indexed;
+        long docCount;
+        Set<String> pending;
+        indexer.startCapture();
+        try {
+            perform("PUT", "/" + newIndex, EsBootstrap.indexDefinition(cfg));
+            log.info("[ES] rebuild into {} (old={})", newIndex, oldIndices);
+            indexed = indexer.reindexInto(newIndex);
+            docCount = verify(newIndex);
+            // 切换与最后一轮重放期间暂停增量刷出：此前刷出的都已记录，此后刷出的经写别名直接进新索引
+            indexer.pauseFlushes();
+            try {
+                swapAliases(oldIndices, newIndex);
+                swapped = true;
+                pending = replayAfterSwap(newIndex);
+            } finally {
+                indexer.resumeFlushes();
+            }
+        } catch (ApiException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("[ES] rebuild failed index={} : {}", newIndex, e.getMessage());
+            throw new ApiException(1500, "索引重建失败：" + e.getMessage());
+        } finally {
+            indexer.stopCapture();
+            if (!swapped) {
+                try { perform("DELETE", "/" + newIndex, null); } catch (Exception ignore) {}
+            }
+        }
+        // 别名已切到新索引，重建即已生效：未重放成功的记录转入增量队列，经写别名重试
+        if (!pending.isEmpty()) {
+            log.warn("[ES] rebuild swapped to {} but replay failed for {} docs, requeued", newIndex, pending.size());
+            pending.forEach(indexer::indexOne);
+        }
+        if (!keepOldIndex) {
+            for (String old : oldIndices) {
+                try {
+                    perform("DELETE", "/" + old, null);
+                } catch (Exception e) {
+                    log.warn("[ES] drop old index {} failed: {}", old, e.getMessage());
+                }
+            }
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("index", newIndex);
+        out.put("previous", oldIndices);
+        out.put("indexed", indexed);
+        out.put("count", docCount);
+        out.put("elapsedMs", System.currentTimeMillis() - start);
+        if (!pending.isEmpty()) out.put("warning", "切换后重放失败 " + pending.size() + " 条，已转入增量队列重试");
+        log.info("[ES] rebuild done {}", out);
+        return out;
+    }
+
+    // 重放期间的增量写入后核对文档数；仍有并发写入时多轮重放，直到与数据库一致
+    private long verify(String index) throws Exception {
+        for (int round = 1; ; round++) {
+            Set<String> failed = indexer.replayInto(indexer.drainCapture(), index);
+            if (!failed.isEmpty()) throw new IllegalStateException("重放失败 " + failed.size() + " 条");
+            perform("POST", "/" + index + "/_refresh", null);
+            long esCount = count(index);
+            long dbCount = vmMapper.countForIndexing();
+            if (esCount == dbCount) return esCount;
+            if (round >= VERIFY_ROUNDS) throw new IllegalStateException("文档数不一致 es=" + esCount + " db=" + dbCount);
+            log.info("[ES] rebuild verify round={} es={} db={}，重试", round, esCount, dbCount);
+        }
+    }
+
+    // 切换后的最后一轮重放不再回滚：失败时返回需重试的 uuid
+    private Set<String> replayAfterSwap(String index) {
+        Set<String> uuids = indexer.drainCapture();
+        try {
+            return indexer.replayInto(uuids, index);
+        } catch (Exception e) {
+            log.warn("[ES] rebuild final replay into {} failed: {}", index, e.getMessage());
+            return uuids;
+        }
+    }
+
+    private void swapAliases(Set<String> oldIndices, String newIndex) throws Exception {
+        var cfg = props.getEs();
+        List<Object> actions = new ArrayList<>();
+        for (String old : oldIndices) {
+            actions.add(Map.of("remove", Map.of("index", old, "alias", cfg.getReadAlias(), "must_exist", false)));
+            actions.add(Map.of("remove", Map.of("index", old, "alias", cfg.getWriteAlias(), "must_exist", false)));
+        }
+        actions.add(Map.of("add", Map.of("index", newIndex, "alias", cfg.getReadAlias())));
+        actions.add(Map.of("add", Map.of("index", newIndex, "alias", cfg.getWriteAlias())));
+        perform("POST", "/_aliases", M.writeValueAsString(Map.of("actions", actions)));
+    }
+
+    private List<String> indicesOf(String alias) {
+        try {
+            Response resp = es.performRequest(new Request("GET", "/_alias/" + alias));
+            Map<?, ?> parsed = M.readValue(resp.getEntity().getContent(), Map.class);
+            return parsed.keySet().stream().map(String::valueOf).toList();
+        } catch (org.elasticsearch.client.ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == 404) return List.of();
+            throw new ApiException(1500, "读取索引别名失败");
+        } catch (Exception e) {
+            throw new ApiException(1500, "读取索引别名失败");
+        }
+    }
+
+    private long count(String index) throws Exception {
+        Response resp = es.performRequest(new Request("GET", "/" + index + "/_count"));
+        Map<?, ?> parsed = M.readValue(resp.getEntity().getContent(), Map.class);
+        return parsed.get("count") instanceof Number n ? n.longValue() : -1;
+    }
+
+    private void perform(String method, String path, String json) throws Exception {
+        Request req = new Request(method, path);
+        if (json != null) req.setJsonEntity(json);
+        es.performRequest(req);
+    }
+}
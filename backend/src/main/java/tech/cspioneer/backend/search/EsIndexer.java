@@ -3,12 +3,18 @@ package tech.cspioneer.backend.search;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.entity.ContentType;
 import org.apache.http.nio.entity.NStringEntity;
 import org.elasticsearch.client.Request;
 import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestClient;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import tech.cspioneer.backend.entity.Organization;
@@ -16,6 +22,7 @@ import tech.cspioneer.backend.entity.VulnerabilityMetadata;
 import tech.cspioneer.backend.mapper.CategoryMapper;
 import tech.cspioneer.backend.mapper.OrganizationMapper;
 import tech.cspioneer.backend.mapper.TagMapper;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataAliasMapper;
 import tech.cspioneer.backend.mapper.VulnerabilityMetadataMapper;
 
 import java.util.*;
@@ -23,79 +30,289 @@ import java.util.*;
 @Component
 @Slf4j
 @ConditionalOnProperty(prefix = "search.es", name = "enabled", havingValue = "true")
-public class EsIndexer {
+public class EsIndexer implements SearchIndexer {
     private final RestClient es;
     private final SearchProperties props;
     private final VulnerabilityMetadataMapper vmMapper;
     private final TagMapper tagMapper;
     private final CategoryMapper categoryMapper;
     private final OrganizationMapper organizationMapper;
+    private final VulnerabilityMetadataAliasMapper aliasMapper;
+    private final MeterRegistry meterRegistry; // may be null
+    private final EsIndexQueue queue;
+    private volatile Set<String> capture; // 非空表示蓝绿重建进行中
+    // 增量刷出持读锁；蓝绿重建切换别名及最后一轮重放时持写锁，进行中的刷出不会在重放之后落入新索引
+    private final java.util.concurrent.locks.ReentrantReadWriteLock flushGate = new java.util.concurrent.locks.ReentrantReadWriteLock();
 
-    public EsIndexer(RestClient es, SearchProperties props, VulnerabilityMetadataMapper vmMapper, TagMapper tagMapper, CategoryMapper categoryMapper, OrganizationMapper organizationMapper) {
+    public EsIndexer(RestClient es, SearchProperties props, VulnerabilityMetadataMapper vmMapper, TagMapper tagMapper, CategoryMapper categoryMapper, OrganizationMapper organizationMapper,
+                     VulnerabilityMetadataAliasMapper aliasMapper, ObjectProvider<MeterRegistry> meterRegistryProvider) {
         this.es = es; this.props = props; this.vmMapper = vmMapper; this.tagMapper = tagMapper; this.categoryMapper = categoryMapper; this.organizationMapper = organizationMapper;
+        this.aliasMapper = aliasMapper;
+        this.meterRegistry = meterRegistryProvider.getIfAvailable();
+        this.queue = new EsIndexQueue(this::flushBatch, props.getEs().getQueue());
     }
 
-    public int reindexAll() {
-        int pageSize = 500;
-        long lastId = 0;
-        int total = 0;
-        List<VulnerabilityMetadata> batch;
-        while (true) {
-            batch = vmMapper.scanForIndexing(lastId, pageSize);
-            if (batch == null || batch.isEmpty()) break;
-            StringBuilder ndjson = new StringBuilder();
-            for (var vm : batch) {
-                Map<String, Object> doc = toDoc(vm);
-                Map<String, Object> action = Map.of("index", Map.of("_index", props.getEs().getWriteAlias(), "_id", vm.getUuid()));
-                try {
-                    ndjson.append(OBJECT_MAPPER.writeValueAsString(action)).append('\n');
-                    ndjson.append(OBJECT_MAPPER.writeValueAsString(doc)).append('\n');
-                } catch (com.fasterxml.jackson.core.JsonProcessingException jpe) {
-                    log.warn("[ES] serialize failed uuid={} : {}", vm.getUuid(), jpe.getMessage());
-                    continue;
+    @PostConstruct
+    public void init() {
+        queue.start();
+        if (meterRegistry != null) {
+            Gauge.builder("search.es.queue.depth", queue, EsIndexQueue::depth).description("待刷出的索引更新数").register(meterRegistry);
+            Gauge.builder("search.es.queue.lag", queue, q -> q.lagMs() / 1000.0).baseUnit("seconds").description("最早待刷出更新的等待时长").register(meterRegistry);
+            FunctionCounter.builder("search.es.queue.flushed", queue, EsIndexQueue::flushedCount).register(meterRegistry);
+            FunctionCounter.builder("search.es.queue.retried", queue, EsIndexQueue::retriedCount).register(meterRegistry);
+            FunctionCounter.builder("search.es.queue.dropped", queue, EsIndexQueue::droppedCount).register(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queue.stop();
+    }
+
+    /**
+     * 全量重建：按 id 游标分页读库，每页的标签/别名/分类/组织各一次查询补全，
+     * 文档交给 EsBulkReindexer 按字节切批并发写入。期间关闭 refresh、副本置 0，结束后恢复并刷新。
+     */
+    @Override
+    public synchronized int reindexAll() {
+        return reindexInto(props.getEs().getWriteAlias());
+    }
+
+    int reindexInto(String index) {
+        long start = System.currentTimeMillis();
+        var cfg = props.getEs().getReindex();
+        int pageSize = Math.max(1, cfg.getPageSize());
+        Map<String, Object> savedSettings = suspendRefresh(index);
+        int indexed = 0;
+        int failed = 0;
+        try (EsBulkReindexer bulk = new EsBulkReindexer(es, OBJECT_MAPPER, cfg)) {
+            Map<Long, String> categoryCodes = new HashMap<>();
+            Map<Long, Organization> orgs = new HashMap<>();
+            long lastId = 0;
+            while (true) {
+                List<VulnerabilityMetadata> page = vmMapper.scanForIndexing(lastId, pageSize);
+                if (page == null || page.isEmpty()) break;
+                Enrichment en = enrich(page, categoryCodes, orgs);
+                for (var vm : page) {
+                    if (vm.getId() != null && vm.getId() > lastId) lastId = vm.getId();
+                    try {
+                        String action = OBJECT_MAPPER.writeValueAsString(Map.of("index", Map.of("_index", index, "_id", vm.getUuid())));
+                        bulk.add(new EsBulkReindexer.Item(vm.getUuid(), action, OBJECT_MAPPER.writeValueAsString(toDoc(vm, en))));
+                    } catch (com.fasterxml.jackson.core.JsonProcessingException jpe) {
+                        log.warn("[ES] serialize failed uuid={} : {}", vm.getUuid(), jpe.getMessage());
+                        failed++;
+                    }
                 }
-                if (vm.getId() != null && vm.getId() > lastId) lastId = vm.getId();
-                total++;
+                if (page.size() < pageSize) break;
             }
-            try {
-                Request req = new Request("POST", "/_bulk");
-                req.setEntity(new NStringEntity(ndjson.toString(), ContentType.create("application/x-ndjson")));
-                es.performRequest(req);
-            } catch (Exception e) {
-                log.warn("[ES] bulk failed: {}", e.getMessage());
+            indexed = bulk.finish();
+            failed += bulk.failedCount();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            log.warn("[ES] reindex interrupted");
+        } finally {
+            restoreSettings(index, savedSettings);
+            try { es.performRequest(new Request("POST", "/" + index + "/_refresh")); } catch (Exception ignore) {}
+        }
+        log.info("[ES] reindex done index={} indexed={} failed={} elapsedMs={}", index, indexed, failed, System.currentTimeMillis() - start);
+        return indexed;
+    }
+
+    // 关闭刷新并将副本置 0，返回原值；读取失败时不修改设置
+    private Map<String, Object> suspendRefresh(String index) {
+        try {
+            Response resp = es.performRequest(new Request("GET", "/" + index + "/_settings"));
+            Map<?, ?> parsed = OBJECT_MAPPER.readValue(resp.getEntity().getContent(), Map.class);
+            Map<String, Object> saved = new HashMap<>();
+            for (Object v : parsed.values()) {
+                if (v instanceof Map<?, ?> m && m.get("settings") instanceof Map<?, ?> st && st.get("index") instanceof Map<?, ?> idx) {
+                    saved.put("refresh_interval", idx.get("refresh_interval"));
+                    saved.put("number_of_replicas", idx.get("number_of_replicas"));
+                    break;
+                }
             }
-            if (batch.size() < pageSize) break;
+            Map<String, Object> off = new HashMap<>();
+            off.put("refresh_interval", "-1");
+            off.put("number_of_replicas", 0);
+            putSettings(index, off);
+            return saved;
+        } catch (Exception e) {
+            log.warn("[ES] suspend refresh failed index={} : {}", index, e.getMessage());
+            return null;
         }
-        try { Request r = new Request("POST", "/" + props.getEs().getReadAlias() + "/_refresh"); es.performRequest(r);} catch (Exception ignore) {}
-        return total;
     }
 
-    public void indexOne(String uuid) {
+    // refresh_interval 原本未设置时写入 null，恢复为集群默认
+    private void restoreSettings(String index, Map<String, Object> saved) {
+        if (saved == null) return;
+        Map<String, Object> restore = new HashMap<>();
+        restore.put("refresh_interval", saved.get("refresh_interval"));
+        restore.put("number_of_replicas", saved.get("number_of_replicas") != null ? saved.get("number_of_replicas") : props.getEs().getReplicas());
         try {
-            VulnerabilityMetadata vm = vmMapper.findByUuid(uuid);
-            if (vm == null) return;
-            Map<String, Object> doc = toDoc(vm);
-            Request req = new Request("PUT", "/" + props.getEs().getWriteAlias() + "/_doc/" + uuid);
-            req.setEntity(new NStringEntity(OBJECT_MAPPER.writeValueAsString(doc), ContentType.APPLICATION_JSON));
-            es.performRequest(req);
-            try { es.performRequest(new Request("POST", "/" + props.getEs().getReadAlias() + "/_refresh")); } catch (Exception ignore) {}
+            putSettings(index, restore);
         } catch (Exception e) {
-            log.warn("[ES] indexOne failed uuid={} : {}", uuid, e.getMessage());
+            log.warn("[ES] restore settings failed index={} : {}", index, e.getMessage());
         }
     }
 
+    private void putSettings(String index, Map<String, Object> indexSettings) throws Exception {
+        Request req = new Request("PUT", "/" + index + "/_settings");
+        req.setEntity(new NStringEntity(OBJECT_MAPPER.writeValueAsString(Map.of("index", indexSettings)), ContentType.APPLICATION_JSON));
+        es.performRequest(req);
+    }
+
+    /** 异步：事务提交后入队，由后台批量刷出 */
+    @Override
+    public void indexOne(String uuid) {
+        queue.enqueue(uuid, EsIndexQueue.Op.INDEX);
+    }
+
+    @Override
     public void deleteOne(String uuid) {
+        queue.enqueue(uuid, EsIndexQueue.Op.DELETE);
+    }
+
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+    /** 发件箱分发：绕过内存队列直接发一次 _bulk，失败由发件箱改期重试 */
+    @Override
+    public Set<String> applyNow(Collection<String> upserts, Collection<String> deletes) throws Exception {
+        Map<String, EsIndexQueue.Op> batch = new LinkedHashMap<>();
+        upserts.forEach(u -> batch.put(u, EsIndexQueue.Op.INDEX));
+        deletes.forEach(u -> batch.put(u, EsIndexQueue.Op.DELETE));
+        return batch.isEmpty() ? Set.of() : flushBatch(batch);
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        return queue.stats();
+    }
+
+    /** 蓝绿重建期间记录被增量写入过的 uuid，供切换前后重放到新索引 */
+    void startCapture() {
+        capture = java.util.concurrent.ConcurrentHashMap.newKeySet();
+    }
+
+    Set<String> drainCapture() {
+        Set<String> cap = capture;
+        if (cap == null) return Set.of();
+        Set<String> out = new HashSet<>();
+        for (var it = cap.iterator(); it.hasNext(); ) {
+            out.add(it.next());
+            it.remove();
+        }
+        return out;
+    }
+
+    void stopCapture() {
+        capture = null;
+    }
+
+    /** 等待进行中的增量刷出结束并阻止新的刷出，须与 resumeFlushes 在同一线程成对调用 */
+    void pauseFlushes() {
+        flushGate.writeLock().lock();
+    }
+
+    void resumeFlushes() {
+        flushGate.writeLock().unlock();
+    }
+
+    /** 按当前数据库状态把指定 uuid 重写到目标索引（不存在的记录删除），返回仍失败的 uuid */
+    Set<String> replayInto(Collection<String> uuids, String index) throws Exception {
+        Set<String> failed = new HashSet<>();
+        List<String> all = new ArrayList<>(uuids);
+        for (int i = 0; i < all.size(); i += 500) {
+            Map<String, EsIndexQueue.Op> batch = new LinkedHashMap<>();
+            for (String u : all.subList(i, Math.min(all.size(), i + 500))) batch.put(u, EsIndexQueue.Op.INDEX);
+            failed.addAll(flushBatch(batch, index));
+        }
+        return failed;
+    }
+
+    Set<String> flushBatch(Map<String, EsIndexQueue.Op> batch) throws Exception {
+        flushGate.readLock().lock();
         try {
-            Request req = new Request("DELETE", "/" + props.getEs().getWriteAlias() + "/_doc/" + uuid);
-            es.performRequest(req);
-            try { es.performRequest(new Request("POST", "/" + props.getEs().getReadAlias() + "/_refresh")); } catch (Exception ignore) {}
-        } catch (Exception e) {
-            log.warn("[ES] deleteOne failed uuid={} : {}", uuid, e.getMessage());
+            Set<String> cap = capture;
+            if (cap != null) cap.addAll(batch.keySet());
+            return flushBatch(batch, props.getEs().getWriteAlias());
+        } finally {
+            flushGate.readLock().unlock();
+        }
+    }
+
+    // 一批更新合并为一次 _bulk；INDEX 时按刷出时刻的数据库状态建文档（记录已不存在则删除），返回需重试的 uuid
+    private Set<String> flushBatch(Map<String, EsIndexQueue.Op> batch, String alias) throws Exception {
+        List<String> toIndex = batch.entrySet().stream().filter(e -> e.getValue() == EsIndexQueue.Op.INDEX).map(Map.Entry::getKey).toList();
+        Map<String, VulnerabilityMetadata> rows = new HashMap<>();
+        if (!toIndex.isEmpty()) for (var vm : vmMapper.listByUuids(toIndex)) rows.put(vm.getUuid(), vm);
+        Enrichment en = enrich(new ArrayList<>(rows.values()), new HashMap<>(), new HashMap<>());
+        StringBuilder ndjson = new StringBuilder();
+        for (var e : batch.entrySet()) {
+            VulnerabilityMetadata vm = e.getValue() == EsIndexQueue.Op.INDEX ? rows.get(e.getKey()) : null;
+            if (vm == null) {
+                ndjson.append(OBJECT_MAPPER.writeValueAsString(Map.of("delete", Map.of("_index", alias, "_id", e.getKey())))).append('\n');
+            } else {
+                ndjson.append(OBJECT_MAPPER.writeValueAsString(Map.of("index", Map.of("_index", alias, "_id", e.getKey())))).append('\n');
+                ndjson.append(OBJECT_MAPPER.writeValueAsString(toDoc(vm, en))).append('\n');
+            }
+        }
+        Request req = new Request("POST", "/_bulk");
+        String refresh = props.getEs().getQueue().getRefresh();
+        if (refresh != null && !refresh.isBlank() && !"false".equalsIgnoreCase(refresh)) req.addParameter("refresh", refresh);
+        req.setEntity(new NStringEntity(ndjson.toString(), ContentType.create("application/x-ndjson", java.nio.charset.StandardCharsets.UTF_8)));
+        Response resp = es.performRequest(req);
+        Map<?, ?> parsed = OBJECT_MAPPER.readValue(resp.getEntity().getContent(), Map.class);
+        Set<String> failed = new HashSet<>();
+        if (Boolean.TRUE.equals(parsed.get("errors")) && parsed.get("items") instanceof List<?> items) {
+            for (Object it : items) {
+                if (!(it instanceof Map<?, ?> wrapper) || wrapper.isEmpty()) continue;
+                String action = String.valueOf(wrapper.keySet().iterator().next());
+                if (!(wrapper.get(action) instanceof Map<?, ?> r)) continue;
+                int status = r.get("status") instanceof Number n ? n.intValue() : 500;
+                // 删除不存在的文档视为成功
+                if (status >= 300 && !("delete".equals(action) && status == 404)) failed.add(String.valueOf(r.get("_id")));
+            }
+        }
+        return failed;
+    }
+
+    /** 一批记录的关联数据：每种关系一次查询；分类与组织缓存可跨页复用 */
+    private record Enrichment(Map<Long, List<String>> tagCodes, Map<Long, List<String>> aliases,
+                              Map<Long, String> categoryCodes, Map<Long, Organization> orgs) {}
+
+    private Enrichment enrich(List<VulnerabilityMetadata> vms, Map<Long, String> categoryCodes, Map<Long, Organization> orgs) {
+        List<Long> ids = new ArrayList<>();
+        Set<Long> missingOrgs = new HashSet<>();
+        for (var vm : vms) {
+            if (vm.getId() != null) ids.add(vm.getId());
+            if (vm.getOrganizationId() != null && !orgs.containsKey(vm.getOrganizationId())) missingOrgs.add(vm.getOrganizationId());
+            if (vm.getCategoryId() != null) {
+                categoryCodes.computeIfAbsent(vm.getCategoryId(), id -> {
+                    var c = categoryMapper.findById(id);
+                    return c == null ? "" : c.getCode();
+                });
+            }
         }
+        if (!missingOrgs.isEmpty()) for (var o : organizationMapper.listByIds(missingOrgs)) orgs.put(o.getId(), o);
+        Map<Long, List<String>> tags = new HashMap<>();
+        Map<Long, List<String>> aliases = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (var row : tagMapper.listCodesByVulnerabilityIds(ids)) {
+                if (row.get("vmId") instanceof Number n && row.get("code") != null) tags.computeIfAbsent(n.longValue(), k -> new ArrayList<>()).add(row.get("code").toString());
+            }
+            for (var a : aliasMapper.listByVulnerabilityIds(ids)) {
+                if (a.getValue() != null) aliases.computeIfAbsent(a.getVulnerabilityMetadataId(), k -> new ArrayList<>()).add(a.getValue());
+            }
+        }
+        return new Enrichment(tags, aliases, categoryCodes, orgs);
     }
 
-    private Map<String, Object> toDoc(VulnerabilityMetadata vm) {
+    private Map<String, Object> toDoc(VulnerabilityMetadata vm, Enrichment en) {
         Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", vm.getId());
         m.put("uuid", vm.getUuid());
         m.put("identifier", vm.getIdentifier());
         m.put("summary", vm.getSummary());
@@ -105,21 +322,21 @@ public class EsIndexer {
         m.put("status", vm.getStatus() == null ? null : vm.getStatus().name());
         m.put("modified", vm.getModified());
         m.put("submitted", vm.getSubmitted());
+        m.put("published", vm.getPublished());
+        m.put("withdrawn", vm.getWithdrawn());
+        m.put("schemaVersion", vm.getSchemaVersion());
+        m.put("confirmedType", vm.getConfirmedType());
         // category
         if (vm.getCategoryId() != null) {
-            var c = categoryMapper.findById(vm.getCategoryId());
-            if (c != null) m.put("categoryCode", c.getCode());
-        }
-        // tags
-        if (vm.getId() != null) {
-            var tags = tagMapper.listByVulnerabilityId(vm.getId());
-            if (tags != null) m.put("tagCodes", tags.stream().map(t -> t.getCode()).filter(Objects::nonNull).toList());
+            String code = en.categoryCodes().get(vm.getCategoryId());
+            if (code != null && !code.isEmpty()) m.put("categoryCode", code);
         }
-        // aliases
-        // keep lightweight: vmMapper will include alias in DB LIKE; here skipping full fetch to reduce queries
+        // tags / aliases
+        m.put("tagCodes", en.tagCodes().getOrDefault(vm.getId(), List.of()));
+        m.put("aliases", en.aliases().getOrDefault(vm.getId(), List.of()));
         // organization
         if (vm.getOrganizationId() != null) {
-            Organization o = organizationMapper.findById(vm.getOrganizationId());
+            Organization o = en.orgs().get(vm.getOrganizationId());
             if (o != null) {
                 m.put("organizationUuid", o.getUuid());
                 m.put("orgIsPublic", o.getIsPublic());
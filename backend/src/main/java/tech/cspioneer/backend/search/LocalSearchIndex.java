@@ -0,0 +1,417 @@
+package tech.cspioneer.backend.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tech.cspioneer.backend.common.SeekCursor;
+import tech.cspioneer.backend.entity.Category;
+import tech.cspioneer.backend.entity.Organization;
+import tech.cspioneer.backend.entity.VulnerabilityMetadata;
+import tech.cspioneer.backend.enums.VulnerabilityStatus;
+import tech.cspioneer.backend.mapper.CategoryMapper;
+import tech.cspioneer.backend.mapper.OrganizationMapper;
+import tech.cspioneer.backend.mapper.TagMapper;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataAliasMapper;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataMapper;
+
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内检索引擎（search.engine=local）：启动后由 scanForIndexing 全量构建内存倒排索引，
+ * 之后随 indexOne/deleteOne 增量维护（事务内的调用在提交后生效），无需外部服务。
+ * 文本按小写字符二元组（bigram）建倒排；查询取各二元组倒排的交集后逐条校验子串，语义与 SQL LIKE '%q%' 一致。
+ * 过滤、可见性与排序在候选集上完成，分页取 Top-K；排序值与 ES 一致，游标可与 ES/SQL 通用。
+ * 重建期间 isReady()=false，SearchFacade 回退 SQL。
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "search", name = "engine", havingValue = "local")
+public class LocalSearchIndex implements SearchIndexer {
+    private static final int SCAN_PAGE = 500;
+
+    private final VulnerabilityMetadataMapper vmMapper;
+    private final VulnerabilityMetadataAliasMapper aliasMapper;
+    private final TagMapper tagMapper;
+    private final CategoryMapper categoryMapper;
+    private final OrganizationMapper organizationMapper;
+
+    private final Map<String, Doc> docs = new ConcurrentHashMap<>();
+    // bigram -> 文档 uuid 集合
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+    // 小写编号 -> uuid，用于 identifierPrefix 范围查找
+    private final TreeMap<String, String> byIdentifier = new TreeMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // 重建期间被增量更新过的文档，重建时跳过，避免旧快照覆盖新数据
+    private final Set<String> touchedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding = false;
+    private volatile boolean ready = false;
+
+    public LocalSearchIndex(VulnerabilityMetadataMapper vmMapper,
+                            VulnerabilityMetadataAliasMapper aliasMapper,
+                            TagMapper tagMapper,
+                            CategoryMapper categoryMapper,
+                            OrganizationMapper organizationMapper) {
+        this.vmMapper = vmMapper;
+        this.aliasMapper = aliasMapper;
+        this.tagMapper = tagMapper;
+        this.categoryMapper = categoryMapper;
+        this.organizationMapper = organizationMapper;
+    }
+
+    /** 索引文档：原始记录加上检索用的小写文本与关联字段 */
+    record Doc(VulnerabilityMetadata vm, String identifier, String summary, String details,
+               List<String> aliases, List<String> tagCodes, String categoryCode,
+               String organizationUuid, boolean orgIsPublic) {
+        long modifiedMillis() {
+            return vm.getModified() == null ? Long.MIN_VALUE : vm.getModified().toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+
+        double severity() {
+            return vm.getSeverityNum() == null ? 0d : vm.getSeverityNum().doubleValue();
+        }
+    }
+
+    /** languages 为小写，severityLevels 为大写（CRITICAL/HIGH/MEDIUM/LOW） */
+    public record Query(Set<String> languages, Set<String> severityLevels, Float severityGe, Float severityLe,
+                        String status, String q, String identifierPrefix, String organizationUuid, String categoryCode,
+                        String sortBy, String sortOrder, SeekCursor seek, int offset, int limit, SearchVisibility visibility) {}
+
+    public record Page(List<VulnerabilityMetadata> items, long total, String nextCursor) {}
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        Thread t = new Thread(() -> {
+            try {
+                reindexAll();
+            } catch (Exception e) {
+                log.warn("[LocalSearch] 启动重建失败: {}", e.getMessage());
+            }
+        }, "local-search-rebuild");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @Override
+    public synchronized int reindexAll() {
+        long start = System.currentTimeMillis();
+        ready = false;
+        rebuilding = true;
+        touchedDuringRebuild.clear();
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            postings.clear();
+            byIdentifier.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        int total = 0;
+        try {
+            Map<Long, String> categoryCodes = new HashMap<>();
+            Map<Long, Organization> orgs = new HashMap<>();
+            long lastId = 0;
+            while (true) {
+                List<VulnerabilityMetadata> batch = vmMapper.scanForIndexing(lastId, SCAN_PAGE);
+                if (batch == null || batch.isEmpty()) break;
+                List<Long> ids = batch.stream().map(VulnerabilityMetadata::getId).filter(Objects::nonNull).toList();
+                Map<Long, List<String>> aliases = new HashMap<>();
+                Map<Long, List<String>> tags = new HashMap<>();
+                if (!ids.isEmpty()) {
+                    for (var a : aliasMapper.listByVulnerabilityIds(ids)) {
+                        aliases.computeIfAbsent(a.getVulnerabilityMetadataId(), k -> new ArrayList<>()).add(a.getValue());
+                    }
+                    for (var row : tagMapper.listCodesByVulnerabilityIds(ids)) {
+                        Object vmId = row.get("vmId");
+                        Object code = row.get("code");
+                        if (vmId instanceof Number n && code != null) tags.computeIfAbsent(n.longValue(), k -> new ArrayList<>()).add(code.toString());
+                    }
+                }
+                for (var vm : batch) {
+                    if (vm.getId() != null && vm.getId() > lastId) lastId = vm.getId();
+                    if (vm.getStatus() == VulnerabilityStatus.DELETED || touchedDuringRebuild.contains(vm.getUuid())) continue;
+                    Doc d = toDoc(vm, aliases.getOrDefault(vm.getId(), List.of()), tags.getOrDefault(vm.getId(), List.of()), categoryCodes, orgs);
+                    put(d);
+                    total++;
+                }
+                if (batch.size() < SCAN_PAGE) break;
+            }
+        } finally {
+            rebuilding = false;
+            ready = true;
+        }
+        log.info("[LocalSearch] 重建完成 docs={} bigrams={} elapsedMs={}", docs.size(), postings.size(), System.currentTimeMillis() - start);
+        return total;
+    }
+
+    @Override
+    public void indexOne(String uuid) {
+        if (uuid == null) return;
+        afterCommit(() -> refresh(uuid));
+    }
+
+    @Override
+    public void deleteOne(String uuid) {
+        if (uuid == null) return;
+        afterCommit(() -> {
+            if (rebuilding) touchedDuringRebuild.add(uuid);
+            remove(uuid);
+        });
+    }
+
+    private void refresh(String uuid) {
+        if (rebuilding) touchedDuringRebuild.add(uuid);
+        try {
+            VulnerabilityMetadata vm = vmMapper.findByUuid(uuid);
+            if (vm == null || vm.getStatus() == VulnerabilityStatus.DELETED) {
+                remove(uuid);
+                return;
+            }
+            List<String> aliases = aliasMapper.listByVulnerabilityId(vm.getId()).stream().map(a -> a.getValue()).toList();
+            List<String> tags = tagMapper.listByVulnerabilityId(vm.getId()).stream().map(t -> t.getCode()).filter(Objects::nonNull).toList();
+            put(toDoc(vm, aliases, tags, new HashMap<>(), new HashMap<>()));
+        } catch (Exception e) {
+            log.warn("[LocalSearch] indexOne failed uuid={} : {}", uuid, e.getMessage());
+        }
+    }
+
+    // 事务中的写在提交后再读取并更新索引：回滚不留下幻影文档，同一事务内的多次修改以提交后的状态为准
+    private static void afterCommit(Runnable r) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    r.run();
+                }
+            });
+        } else {
+            r.run();
+        }
+    }
+
+    public Page search(Query query) {
+        String q = query.q() == null || query.q().isBlank() ? null : lower(query.q().trim());
+        boolean byRelevance = SeekCursor.isRelevance(query.sortBy());
+        boolean asc = SeekCursor.isAsc(query.sortOrder());
+        boolean bySeverity = SeekCursor.SORT_SEVERITY.equals(SeekCursor.sortKey(query.sortBy()));
+        List<Object> after = query.seek() == null ? null : query.seek().searchAfter();
+
+        Comparator<Hit> order = byRelevance
+                ? Comparator.<Hit>comparingDouble(h -> h.score).reversed().thenComparing(h -> h.doc.modifiedMillis(), Comparator.reverseOrder())
+                : bySeverity ? Comparator.comparingDouble(h -> h.doc.severity()) : Comparator.comparingLong(h -> h.doc.modifiedMillis());
+        if (!byRelevance && !asc) order = order.reversed();
+        Comparator<Hit> tie = Comparator.comparingLong(h -> h.doc.vm().getId());
+        order = order.thenComparing(asc || byRelevance ? tie : tie.reversed());
+
+        int k = Math.max(1, query.offset() + query.limit());
+        PriorityQueue<Hit> top = new PriorityQueue<>(order.reversed());
+        long total = 0;
+        lock.readLock().lock();
+        try {
+            for (Doc d : candidates(q, query.identifierPrefix())) {
+                if (!matchesFilters(d, query)) continue;
+                double score = 0;
+                if (q != null) {
+                    score = score(d, q);
+                    if (score <= 0) continue;
+                }
+                total++;
+                Hit h = new Hit(d, score);
+                if (after != null && !isAfter(h, after, bySeverity, asc)) continue;
+                if (top.size() < k) top.add(h);
+                else if (order.compare(h, top.peek()) < 0) {
+                    top.poll();
+                    top.add(h);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Hit> sorted = new ArrayList<>(top);
+        sorted.sort(order);
+        List<Hit> page = sorted.subList(Math.min(query.offset(), sorted.size()), sorted.size());
+        String next = null;
+        if (!byRelevance && page.size() >= query.limit()) {
+            Doc last = page.get(page.size() - 1).doc;
+            Object sv = bySeverity ? (Object) last.severity() : (Object) last.modifiedMillis();
+            next = SeekCursor.after(sv, last.vm().getId(), last.vm().getUuid(), query.sortBy(), query.sortOrder()).encode();
+        }
+        return new Page(page.stream().map(h -> h.doc.vm()).toList(), total, next);
+    }
+
+    private static final class Hit {
+        final Doc doc;
+        final double score;
+
+        Hit(Doc doc, double score) {
+            this.doc = doc;
+            this.score = score;
+        }
+    }
+
+    // 与 search_after / SQL 游标语义一致：排序值相同时按 id 续查
+    private static boolean isAfter(Hit h, List<Object> after, boolean bySeverity, boolean asc) {
+        int c;
+        if (bySeverity) c = Double.compare(h.doc.severity(), ((Number) after.get(0)).doubleValue());
+        else c = Long.compare(h.doc.modifiedMillis(), ((Number) after.get(0)).longValue());
+        if (c == 0) c = Long.compare(h.doc.vm().getId(), ((Number) after.get(1)).longValue());
+        return asc ? c > 0 : c < 0;
+    }
+
+    private Collection<Doc> candidates(String q, String identifierPrefix) {
+        if (identifierPrefix != null && !identifierPrefix.isBlank()) {
+            String p = lower(identifierPrefix.trim());
+            List<Doc> out = new ArrayList<>();
+            for (String uuid : byIdentifier.subMap(p, true, p + Character.MAX_VALUE, true).values()) {
+                Doc d = docs.get(uuid);
+                if (d != null) out.add(d);
+            }
+            return out;
+        }
+        if (q == null || q.codePointCount(0, q.length()) < 2) return docs.values();
+        Set<String> grams = bigrams(q);
+        if (grams.isEmpty()) return docs.values();
+        List<Set<String>> lists = new ArrayList<>();
+        for (String g : grams) {
+            Set<String> p = postings.get(g);
+            if (p == null) return List.of();
+            lists.add(p);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        List<Doc> out = new ArrayList<>();
+        outer:
+        for (String uuid : lists.get(0)) {
+            for (int i = 1; i < lists.size(); i++) if (!lists.get(i).contains(uuid)) continue outer;
+            Doc d = docs.get(uuid);
+            if (d != null) out.add(d);
+        }
+        return out;
+    }
+
+    private static boolean matchesFilters(Doc d, Query query) {
+        VulnerabilityMetadata vm = d.vm();
+        String status = vm.getStatus() == null ? null : vm.getStatus().name();
+        if (query.visibility() != null && !query.visibility().allows(d.organizationUuid(), d.orgIsPublic(), status)) return false;
+        if (query.identifierPrefix() != null && !query.identifierPrefix().isBlank() && !d.identifier().startsWith(lower(query.identifierPrefix().trim()))) return false;
+        if (query.languages() != null && !query.languages().isEmpty()) {
+            if (vm.getLanguage() == null || !query.languages().contains(lower(vm.getLanguage().name()))) return false;
+        }
+        if (query.status() != null && !query.status().isBlank() && !query.status().trim().equalsIgnoreCase(status)) return false;
+        if (query.categoryCode() != null && !query.categoryCode().isBlank() && !query.categoryCode().trim().equals(d.categoryCode())) return false;
+        if (query.organizationUuid() != null && !query.organizationUuid().isBlank() && !query.organizationUuid().trim().equals(d.organizationUuid())) return false;
+        double sev = d.severity();
+        if (query.severityLevels() != null && !query.severityLevels().isEmpty()) {
+            boolean any = (query.severityLevels().contains("CRITICAL") && sev >= 9.0)
+                    || (query.severityLevels().contains("HIGH") && sev >= 7.0 && sev < 9.0)
+                    || (query.severityLevels().contains("MEDIUM") && sev >= 4.0 && sev < 7.0)
+                    || (query.severityLevels().contains("LOW") && sev >= 0.0 && sev < 4.0);
+            if (!any) return false;
+        }
+        if (query.severityGe() != null && sev < query.severityGe()) return false;
+        if (query.severityLe() != null && sev > query.severityLe()) return false;
+        return true;
+    }
+
+    // 字段权重与 ES 查询保持一致：identifier^5, aliases^3, summary^2, tagCodes^1.5, details
+    private static double score(Doc d, String q) {
+        double s = 0;
+        if (d.identifier().contains(q)) s += d.identifier().equals(q) ? 10 : 5;
+        for (String a : d.aliases()) if (a.contains(q)) { s += 3; break; }
+        if (d.summary().contains(q)) s += 2;
+        for (String t : d.tagCodes()) if (t.contains(q)) { s += 1.5; break; }
+        if (d.details().contains(q)) s += 1;
+        return s;
+    }
+
+    private Doc toDoc(VulnerabilityMetadata vm, List<String> aliases, List<String> tagCodes,
+                      Map<Long, String> categoryCodes, Map<Long, Organization> orgs) {
+        String categoryCode = null;
+        if (vm.getCategoryId() != null) {
+            categoryCode = categoryCodes.computeIfAbsent(vm.getCategoryId(), id -> {
+                Category c = categoryMapper.findById(id);
+                return c == null ? "" : c.getCode();
+            });
+            if (categoryCode.isEmpty()) categoryCode = null;
+        }
+        Organization org = null;
+        if (vm.getOrganizationId() != null) {
+            org = orgs.computeIfAbsent(vm.getOrganizationId(), organizationMapper::findById);
+        }
+        return new Doc(vm, lower(vm.getIdentifier()), lower(vm.getSummary()), lower(vm.getDetails()),
+                aliases.stream().filter(Objects::nonNull).map(LocalSearchIndex::lower).toList(),
+                tagCodes.stream().filter(Objects::nonNull).map(LocalSearchIndex::lower).toList(),
+                categoryCode,
+                org == null ? null : org.getUuid(),
+                org != null && Boolean.TRUE.equals(org.getIsPublic()));
+    }
+
+    private void put(Doc d) {
+        String uuid = d.vm().getUuid();
+        lock.writeLock().lock();
+        try {
+            removeLocked(uuid);
+            docs.put(uuid, d);
+            byIdentifier.put(d.identifier(), uuid);
+            for (String g : docGrams(d)) postings.computeIfAbsent(g, x -> ConcurrentHashMap.newKeySet()).add(uuid);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(String uuid) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(uuid);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(String uuid) {
+        Doc old = docs.remove(uuid);
+        if (old == null) return;
+        byIdentifier.remove(old.identifier(), uuid);
+        for (String g : docGrams(old)) {
+            Set<String> p = postings.get(g);
+            if (p == null) continue;
+            p.remove(uuid);
+            if (p.isEmpty()) postings.remove(g);
+        }
+    }
+
+    private static Set<String> docGrams(Doc d) {
+        Set<String> out = new HashSet<>();
+        out.addAll(bigrams(d.identifier()));
+        out.addAll(bigrams(d.summary()));
+        out.addAll(bigrams(d.details()));
+        for (String a : d.aliases()) out.addAll(bigrams(a));
+        for (String t : d.tagCodes()) out.addAll(bigrams(t));
+        return out;
+    }
+
+    // 按码点切分，避免把代理对拆开
+    static Set<String> bigrams(String s) {
+        Set<String> out = new HashSet<>();
+        if (s == null) return out;
+        int[] cps = s.codePoints().toArray();
+        for (int i = 0; i + 1 < cps.length; i++) {
+            if (Character.isWhitespace(cps[i]) || Character.isWhitespace(cps[i + 1])) continue;
+            out.add(new String(cps, i, 2));
+        }
+        return out;
+    }
+
+    private static String lower(String s) {
+        return s == null ? "" : s.toLowerCase(Locale.ROOT);
+    }
+}
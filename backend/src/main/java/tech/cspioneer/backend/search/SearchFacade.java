@@ -1,24 +1,36 @@
 package tech.cspioneer.backend.search;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.entity.ContentType;
 import org.apache.http.nio.entity.NStringEntity;
+import org.elasticsearch.client.Cancellable;
 import org.elasticsearch.client.Request;
 import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
 import org.elasticsearch.client.RestClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import tech.cspioneer.backend.common.ApiException;
+import tech.cspioneer.backend.common.SeekCursor;
 import tech.cspioneer.backend.entity.Organization;
 import tech.cspioneer.backend.entity.User;
 import tech.cspioneer.backend.entity.VulnerabilityMetadata;
 import tech.cspioneer.backend.mapper.LnkUserOrganizationMapper;
 import tech.cspioneer.backend.mapper.OrganizationMapper;
 import tech.cspioneer.backend.mapper.UserMapper;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataMapper;
+import tech.cspioneer.backend.service.VulnerabilityVisibilityService;
 import tech.cspioneer.backend.service.VulnerabilityService;
 
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 @Component
 @Slf4j
@@ -30,21 +42,71 @@ public class SearchFacade {
     private final UserMapper userMapper;
     private final OrganizationMapper organizationMapper;
     private final LnkUserOrganizationMapper lnkUserOrganizationMapper;
+    private final LocalSearchIndex local; // may be null unless search.engine=local
+    private final SuggestIndex suggestIndex; // may be null when search.suggest.enabled=false
+    private final VulnerabilityMetadataMapper vmMapper;
+    private final VulnerabilityVisibilityService visibilityService;
+    private final MeterRegistry meterRegistry; // may be null
+    private final EsCircuitBreaker breaker;
+    private final ThreadPoolExecutor hedgePool; // null 表示未开启对冲
+    // 各引擎/原因的请求数，供 /admin/search/stats 查看
+    private final Map<String, LongAdder> served = new ConcurrentHashMap<>();
+
+    // 分面每个维度最多返回的取值数，与 SQL 路径共用配置
+    @Value("${vuln.facets.max-buckets:50}")
+    private int facetMaxBuckets = 50;
 
     public SearchFacade(SearchProperties props,
                         VulnerabilityService vulnService,
                         org.springframework.beans.factory.ObjectProvider<RestClient> esProvider,
+                        org.springframework.beans.factory.ObjectProvider<LocalSearchIndex> localProvider,
+                        org.springframework.beans.factory.ObjectProvider<SuggestIndex> suggestProvider,
                         UserMapper userMapper,
                         OrganizationMapper organizationMapper,
-                        LnkUserOrganizationMapper lnkUserOrganizationMapper) {
-        this.props = props; this.vulnService = vulnService; this.es = esProvider.getIfAvailable();
+                        LnkUserOrganizationMapper lnkUserOrganizationMapper,
+                        VulnerabilityMetadataMapper vmMapper,
+                        VulnerabilityVisibilityService visibilityService,
+                        org.springframework.beans.factory.ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.props = props; this.vulnService = vulnService; this.es = esProvider.getIfAvailable(); this.local = localProvider.getIfAvailable();
+        this.suggestIndex = suggestProvider.getIfAvailable();
         this.userMapper = userMapper; this.organizationMapper = organizationMapper; this.lnkUserOrganizationMapper = lnkUserOrganizationMapper;
+        this.vmMapper = vmMapper;
+        this.visibilityService = visibilityService;
+        this.meterRegistry = meterRegistryProvider.getIfAvailable();
+        var cfg = props.getEs().getResilience();
+        this.breaker = new EsCircuitBreaker(cfg);
+        if (cfg.getHedgeDelayMs() > 0) {
+            int n = Math.max(1, cfg.getHedgeThreads());
+            AtomicInteger seq = new AtomicInteger();
+            // 队列有界：SQL 也拥堵时不再对冲，仍等待 ES 或超时回退
+            this.hedgePool = new ThreadPoolExecutor(n, n, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(n * 4), r -> {
+                Thread t = new Thread(r, "search-hedge-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        } else {
+            this.hedgePool = null;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (hedgePool != null) hedgePool.shutdownNow();
     }
 
     public boolean isEsEnabled() {
         return "es".equalsIgnoreCase(props.getEngine()) && props.getEs().isEnabled() && es != null;
     }
 
+    public boolean isLocalEnabled() {
+        return "local".equalsIgnoreCase(props.getEngine()) && local != null;
+    }
+
+    /** 是否由检索引擎（ES 或进程内索引）处理 /vulns/search */
+    public boolean isEngineEnabled() {
+        return isEsEnabled() || isLocalEnabled();
+    }
+
     public Result search(String languages,
                          String severityLevels,
                          Float severityGe,
@@ -59,40 +121,83 @@ public class SearchFacade {
                          String sortBy,
                          String sortOrder,
                          boolean withTotal) {
-        if (!isEsEnabled()) throw new IllegalStateException("ES disabled");
+        return search(languages, severityLevels, severityGe, severityLe, status, q, identifierPrefix, organizationUuid, category,
+                page, size, sortBy, sortOrder, withTotal, null);
+    }
 
-        String enforcedStatus = status;
-        if (organizationUuid != null && !organizationUuid.isBlank()) {
-            Organization org = organizationMapper.findByUuid(organizationUuid);
-            if (org == null) throw new ApiException(404, "组织不存在");
-            if (!isAdmin()) {
-                String userUuid = currentUserUuid();
-                if (userUuid != null) {
-                    User user = userMapper.findByUuid(userUuid);
-                    var link = (user == null || org.getId() == null) ? null : lnkUserOrganizationMapper.findByOrgIdAndUserId(org.getId(), user.getId());
-                    boolean isMember = (link != null);
-                    if (!isMember) {
-                        if (Boolean.TRUE.equals(org.getIsPublic())) {
-                            if (enforcedStatus == null || enforcedStatus.isBlank()) enforcedStatus = tech.cspioneer.backend.enums.VulnerabilityStatus.ACTIVE.name();
-                        } else {
-                            throw new ApiException(404, "组织不存在");
-                        }
-                    }
-                }
-            }
+    /**
+     * cursor 非空时使用 search_after 续查（from 固定为 0），排序追加 id 作为次序键保证翻页稳定（与 SQL 同序）；
+     * 游标与 SQL 列表通用，ES 不可用回退 SQL 时可继续翻页。
+     */
+    public Result search(String languages,
+                         String severityLevels,
+                         Float severityGe,
+                         Float severityLe,
+                         String status,
+                         String q,
+                         String identifierPrefix,
+                         String organizationUuid,
+                         String category,
+                         int page,
+                         int size,
+                         String sortBy,
+                         String sortOrder,
+                         boolean withTotal,
+                         String cursor) {
+        return search(languages, severityLevels, severityGe, severityLe, status, q, identifierPrefix, organizationUuid, category,
+                page, size, sortBy, sortOrder, withTotal, cursor, false);
+    }
+
+    /**
+     * withFacets=true 时一并返回分面计数：ES 在同一次 _search 中附带 terms/range 聚合（外层 filter 聚合施加与水合相同的可见性），
+     * 进程内索引与 SQL 回退路径使用 {@link VulnerabilityService#facets} 的分组查询。
+     */
+    public Result search(String languages,
+                         String severityLevels,
+                         Float severityGe,
+                         Float severityLe,
+                         String status,
+                         String q,
+                         String identifierPrefix,
+                         String organizationUuid,
+                         String category,
+                         int page,
+                         int size,
+                         String sortBy,
+                         String sortOrder,
+                         boolean withTotal,
+                         String cursor,
+                         boolean withFacets) {
+        if (isLocalEnabled()) {
+            Result res = searchLocal(languages, severityLevels, severityGe, severityLe, status, q, identifierPrefix, organizationUuid, category,
+                    page, size, sortBy, sortOrder, withTotal, cursor);
+            if (!withFacets) return res;
+            return new Result(res.items(), res.total(), res.nextCursor(),
+                    sqlFacets(languages, severityLevels, severityGe, severityLe, status, q, identifierPrefix, organizationUuid, category));
         }
+        if (!isEsEnabled()) throw new IllegalStateException("ES disabled");
+
+        String enforcedStatus = resolveEnforcedStatus(organizationUuid, status);
+
+        SeekCursor seek = SeekCursor.decode(cursor, sortBy, sortOrder);
+        List<Object> searchAfter = seek == null ? null : seek.searchAfter();
+        if (seek != null && searchAfter == null) throw new ApiException(400, "游标无效");
 
         String readAlias = props.getEs().getReadAlias();
-        int from = Math.max(0, (page <= 1 ? 0 : (page - 1) * Math.max(1, size)));
+        int from = seek != null ? 0 : Math.max(0, (page <= 1 ? 0 : (page - 1) * Math.max(1, size)));
         int sizeLimit = Math.max(1, Math.min(100, size));
 
         Map<String, Object> body = new LinkedHashMap<>();
         body.put("from", from);
         body.put("size", sizeLimit);
+        String order = SeekCursor.isAsc(sortOrder) ? "asc" : "desc";
         Map<String, Object> sort = new LinkedHashMap<>();
-        if ("severity".equalsIgnoreCase(sortBy)) sort.put("severityNum", Map.of("order", ("asc".equalsIgnoreCase(sortOrder) ? "asc" : "desc")));
-        else sort.put("modified", Map.of("order", ("asc".equalsIgnoreCase(sortOrder) ? "asc" : "desc")));
-        body.put("sort", List.of(sort));
+        if (SeekCursor.isRelevance(sortBy)) sort.put("_score", Map.of("order", "desc"));
+        else if (SeekCursor.SORT_SEVERITY.equals(SeekCursor.sortKey(sortBy))) sort.put("severityNum", Map.of("order", order));
+        else sort.put("modified", Map.of("order", order));
+        // 同值次序键与 SQL、进程内索引一致（id）；重建前的旧索引缺少 id 映射时按 long 处理
+        body.put("sort", List.of(sort, Map.of("id", Map.of("order", order, "unmapped_type", "long"))));
+        if (searchAfter != null) body.put("search_after", searchAfter);
 
         List<Object> must = new ArrayList<>();
         List<Object> filter = new ArrayList<>();
@@ -126,11 +231,47 @@ public class SearchFacade {
         Map<String, Object> query = Map.of("bool", Map.of("must", must, "filter", filter));
         body.put("query", query);
         if (withTotal) body.put("track_total_hits", true);
+        SearchVisibility visibility = currentVisibility();
+        if (withFacets) body.put("aggs", Map.of("visible", Map.of("filter", visibility.toEsFilter(), "aggs", facetAggs())));
 
+        Request req = new Request("POST", "/" + readAlias + "/_search");
         try {
-            Request req = new Request("POST", "/" + readAlias + "/_search");
             req.setEntity(new NStringEntity(M.writeValueAsString(body), ContentType.APPLICATION_JSON));
-            Response resp = es.performRequest(req);
+        } catch (Exception e) {
+            throw new ApiException(1500, "搜索服务不可用");
+        }
+        var cfg = props.getEs().getResilience();
+        boolean fallback = props.getEs().isAutoFallback();
+        java.util.function.Supplier<Result> sql = () -> sqlResult(languages, severityLevels, severityGe, severityLe, enforcedStatus, q,
+                identifierPrefix, organizationUuid, category, page, size, sortBy, sortOrder, withTotal, cursor, withFacets);
+        long t0 = System.nanoTime();
+        // 熔断打开：不等 ES，直接 SQL
+        long permit = breaker.tryAcquire();
+        if (permit == EsCircuitBreaker.NO_PERMIT) {
+            if (!fallback) throw new ApiException(1500, "搜索服务不可用");
+            return served("sql", "breaker_open", t0, sql.get());
+        }
+        CompletableFuture<Response> call = sendAsync(req, permit);
+        CompletableFuture<Result> hedge = null;
+        String reason;
+        try {
+            long budget = Math.max(1, cfg.getTimeoutMs());
+            Response resp = null;
+            if (fallback && hedgePool != null && cfg.getHedgeDelayMs() < budget) {
+                try {
+                    resp = call.get(cfg.getHedgeDelayMs(), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException slow) {
+                    hedge = startHedge(sql);
+                    if (hedge != null) {
+                        CompletableFuture.anyOf(call, hedge).get(remainingMs(t0, budget), TimeUnit.MILLISECONDS);
+                        if (hedge.isDone() && hedge.join() != null && !call.isDone()) {
+                            call.completeExceptionally(new HedgeWon());
+                            return served("sql", "hedge", t0, hedge.join());
+                        }
+                    }
+                }
+            }
+            if (resp == null) resp = call.get(remainingMs(t0, budget), TimeUnit.MILLISECONDS);
             Map<?,?> parsed = M.readValue(new java.io.InputStreamReader(resp.getEntity().getContent(), StandardCharsets.UTF_8), Map.class);
             Map hits = (Map) parsed.get("hits");
             long total = -1;
@@ -138,85 +279,360 @@ public class SearchFacade {
                 Object val = totalMap.get("value");
                 if (val instanceof Number n) total = n.longValue();
             }
-            List<Map<String, Object>> views = new ArrayList<>();
             List<Map> items = (List<Map>) hits.get("hits");
-            if (items != null) {
-                for (Map h : items) {
-                    Map src = (Map) h.get("_source");
-                    if (src == null) continue;
-                    Object id = src.get("uuid");
-                    if (id == null) continue;
-                    try {
-                        VulnerabilityMetadata vm = vulnService.getByUuid(String.valueOf(id));
-                        Map<String, Object> view = new HashMap<>();
-                        view.put("uuid", vm.getUuid());
-                        view.put("identifier", vm.getIdentifier());
-                        view.put("summary", vm.getSummary());
-                        view.put("details", vm.getDetails());
-                        view.put("severityNum", vm.getSeverityNum());
-                        view.put("modified", vm.getModified());
-                        view.put("submitted", vm.getSubmitted());
-                        view.put("published", vm.getPublished());
-                        view.put("withdrawn", vm.getWithdrawn());
-                        view.put("language", vm.getLanguage());
-                        view.put("status", vm.getStatus());
-                        view.put("schemaVersion", vm.getSchemaVersion());
-                        view.put("confirmedType", vm.getConfirmedType());
-                        views.add(view);
-                    } catch (Exception ignore) {}
-                }
+            // 若 ES 零命中，且允许自动降级，则回退 SQL（提升体验）；带游标的零命中表示已翻到末尾，不回退
+            if ((items == null || items.isEmpty()) && seek == null && fallback && cfg.isFallbackOnEmpty()) {
+                Result hedged = hedge != null && hedge.isDone() ? hedge.join() : null;
+                return served("sql", "empty", t0, hedged != null ? hedged : sql.get());
             }
-            // 若 ES 零命中，且允许自动降级，则回退 SQL（提升体验）
-            if ((items == null || items.isEmpty()) && props.getEs().isAutoFallback()) {
-                List<VulnerabilityMetadata> sqlItems = vulnService.list(null, enforcedStatus, identifierPrefix, q, languages, severityLevels, severityGe, severityLe, null, null, null, organizationUuid, category, null, null, null, null, sortBy, sortOrder, page, size);
-                long sqlTotal = vulnService.count(null, enforcedStatus, identifierPrefix, q, languages, severityLevels, severityGe, severityLe, null, null, null, organizationUuid, category, null, null, null, null);
-                List<Map<String, Object>> sqlViews = sqlItems.stream().map(vm -> {
-                    Map<String, Object> v = new HashMap<>();
-                    v.put("uuid", vm.getUuid());
-                    v.put("identifier", vm.getIdentifier());
-                    v.put("summary", vm.getSummary());
-                    v.put("details", vm.getDetails());
-                    v.put("severityNum", vm.getSeverityNum());
-                    v.put("modified", vm.getModified());
-                    v.put("submitted", vm.getSubmitted());
-                    v.put("published", vm.getPublished());
-                    v.put("withdrawn", vm.getWithdrawn());
-                    v.put("language", vm.getLanguage());
-                    v.put("status", vm.getStatus());
-                    v.put("schemaVersion", vm.getSchemaVersion());
-                    v.put("confirmedType", vm.getConfirmedType());
-                    return v; }).toList();
-                return new Result(sqlViews, sqlTotal);
+            List<Map<String, Object>> views = items == null || items.isEmpty() ? List.of() : hydrate(items, visibility);
+            String nextCursor = null;
+            // 下一页游标取自最后一个命中的 sort 值（即使该条不可见也不影响续查位置）
+            if (items != null && !SeekCursor.isRelevance(sortBy) && items.size() >= sizeLimit && items.get(items.size() - 1).get("sort") instanceof List<?> sv
+                    && sv.size() >= 2 && sv.get(1) instanceof Number lastId) {
+                Map last = items.get(items.size() - 1);
+                Object lastUuid = last.get("_source") instanceof Map ls ? ls.get("uuid") : null;
+                nextCursor = SeekCursor.after(sv.get(0), lastId.longValue(), lastUuid == null ? null : String.valueOf(lastUuid), sortBy, sortOrder).encode();
             }
-            return new Result(views, total);
+            return served("es", "primary", t0, new Result(views, total, nextCursor, withFacets ? parseFacets(parsed.get("aggregations")) : null));
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            reason = "timeout";
+            log.warn("[ES] search exceeded budget {}ms", cfg.getTimeoutMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            call.cancel(true);
+            throw new ApiException(1500, "搜索服务不可用");
         } catch (Exception e) {
-            log.warn("[ES] search failed: {}", e.getMessage());
-            if (props.getEs().isAutoFallback()) {
-                List<VulnerabilityMetadata> items = vulnService.list(null, status, identifierPrefix, q, languages, severityLevels, severityGe, severityLe, null, null, null, organizationUuid, category, null, null, null, null, sortBy, sortOrder, page, size);
-                long total = vulnService.count(null, status, identifierPrefix, q, languages, severityLevels, severityGe, severityLe, null, null, null, organizationUuid, category, null, null, null, null);
-                List<Map<String, Object>> views = items.stream().map(vm -> {
-                    Map<String, Object> v = new HashMap<>();
-                    v.put("uuid", vm.getUuid());
-                    v.put("identifier", vm.getIdentifier());
-                    v.put("summary", vm.getSummary());
-                    v.put("details", vm.getDetails());
-                    v.put("severityNum", vm.getSeverityNum());
-                    v.put("modified", vm.getModified());
-                    v.put("submitted", vm.getSubmitted());
-                    v.put("published", vm.getPublished());
-                    v.put("withdrawn", vm.getWithdrawn());
-                    v.put("language", vm.getLanguage());
-                    v.put("status", vm.getStatus());
-                    v.put("schemaVersion", vm.getSchemaVersion());
-                    v.put("confirmedType", vm.getConfirmedType());
-                    return v; }).toList();
-                return new Result(views, total);
+            reason = "error";
+            log.warn("[ES] search failed: {}", e instanceof ExecutionException && e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        }
+        if (!fallback) throw new ApiException(1500, "搜索服务不可用");
+        // 已启动的对冲查询直接复用
+        Result hedged = hedge == null ? null : hedge.join();
+        return served("sql", reason, t0, hedged != null ? hedged : sql.get());
+    }
+
+    /** 编号/别名前缀补全；索引未构建完成时返回空列表 */
+    public List<SuggestIndex.Suggestion> suggest(String prefix, int limit) {
+        if (suggestIndex == null) throw new ApiException(400, "自动补全未启用");
+        if (!suggestIndex.isReady() || prefix == null || prefix.isBlank()) return List.of();
+        return suggestIndex.suggest(prefix, limit, currentVisibility());
+    }
+
+    public boolean isSuggestReady() {
+        return suggestIndex != null && suggestIndex.isReady();
+    }
+
+    // 进程内索引：过滤、可见性与排序均在内存完成，命中直接返回索引中的记录，无逐条回表；索引未就绪时回退 SQL
+    private Result searchLocal(String languages, String severityLevels, Float severityGe, Float severityLe, String status, String q,
+                               String identifierPrefix, String organizationUuid, String category,
+                               int page, int size, String sortBy, String sortOrder, boolean withTotal, String cursor) {
+        String enforcedStatus = resolveEnforcedStatus(organizationUuid, status);
+        SeekCursor seek = SeekCursor.decode(cursor, sortBy, sortOrder);
+        if (seek != null && seek.searchAfter() == null) throw new ApiException(400, "游标无效");
+        if (!local.isReady()) {
+            List<VulnerabilityMetadata> items = vulnService.list(null, enforcedStatus, identifierPrefix, q, languages, severityLevels, severityGe, severityLe, null, null, null, organizationUuid, category, null, null, null, null, sortBy, sortOrder, page, size, cursor);
+            long total = withTotal ? vulnService.count(null, enforcedStatus, identifierPrefix, q, languages, severityLevels, severityGe, severityLe, null, null, null, organizationUuid, category, null, null, null, null) : -1;
+            return new Result(items.stream().map(this::toView).toList(), total, SeekCursor.next(items, size, sortBy, sortOrder));
+        }
+        int limit = Math.max(1, Math.min(100, size));
+        int offset = seek != null ? 0 : Math.max(0, (page <= 1 ? 0 : (page - 1) * limit));
+        Set<String> langs = new HashSet<>();
+        if (languages != null) for (String l : languages.split(",")) if (!l.isBlank()) langs.add(l.trim().toLowerCase(Locale.ROOT));
+        Set<String> levels = new HashSet<>();
+        if (severityLevels != null) for (String l : severityLevels.split(",")) if (!l.isBlank()) levels.add(l.trim().toUpperCase(Locale.ROOT));
+        var res = local.search(new LocalSearchIndex.Query(langs, levels, severityGe, severityLe, enforcedStatus, q, identifierPrefix,
+                organizationUuid, category, sortBy, sortOrder, seek, offset, limit, currentVisibility()));
+        return new Result(res.items().stream().map(this::toView).toList(), withTotal ? res.total() : -1, res.nextCursor());
+    }
+
+    // 对冲查询先返回时放弃 ES 调用：中止 HTTP 请求，但不计入熔断窗口（ES 只是比对冲延迟慢，并非故障）
+    private static final class HedgeWon extends CancellationException {
+        HedgeWon() {
+            super("hedge won");
+        }
+    }
+
+    // 异步发送：超出预算时取消 future 即中止 HTTP 请求；结果（含超时取消）计入熔断窗口，对冲胜出的放弃只归还许可
+    private CompletableFuture<Response> sendAsync(Request req, long permit) {
+        long t0 = System.nanoTime();
+        CompletableFuture<Response> f = new CompletableFuture<>();
+        Cancellable cancellable;
+        try {
+            cancellable = es.performRequestAsync(req, new ResponseListener() {
+                @Override
+                public void onSuccess(Response response) { f.complete(response); }
+
+                @Override
+                public void onFailure(Exception exception) { f.completeExceptionally(exception); }
+            });
+        } catch (RuntimeException e) {
+            f.completeExceptionally(e);
+            cancellable = null;
+        }
+        Cancellable c = cancellable;
+        f.whenComplete((r, ex) -> {
+            if (ex instanceof CancellationException && c != null) c.cancel();
+            if (ex instanceof HedgeWon) {
+                breaker.release(permit);
+                return;
             }
-            throw new ApiException(1500, "搜索服务不可用");
+            // 4xx 为请求本身的问题，不计为 ES 故障
+            boolean ok = ex == null || (unwrap(ex) instanceof ResponseException re && re.getResponse().getStatusLine().getStatusCode() < 500);
+            breaker.record(permit, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0), ok);
+        });
+        return f;
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
+    // 在对冲线程中以当前请求的身份执行 SQL 查询；失败返回 null（仍等待 ES）
+    private CompletableFuture<Result> startHedge(java.util.function.Supplier<Result> sql) {
+        var sc = org.springframework.security.core.context.SecurityContextHolder.createEmptyContext();
+        sc.setAuthentication(org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication());
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                org.springframework.security.core.context.SecurityContextHolder.setContext(sc);
+                try {
+                    return sql.get();
+                } finally {
+                    org.springframework.security.core.context.SecurityContextHolder.clearContext();
+                }
+            }, hedgePool).exceptionally(ex -> {
+                log.debug("[search] hedge query failed: {}", ex.getMessage());
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    private static long remainingMs(long t0, long budgetMs) {
+        return Math.max(1, budgetMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+    }
+
+    // 记录由哪个引擎返回及原因（primary/hedge/breaker_open/timeout/error/empty）
+    private Result served(String engine, String reason, long t0, Result result) {
+        long nanos = System.nanoTime() - t0;
+        served.computeIfAbsent(engine + ":" + reason, k -> new LongAdder()).increment();
+        if (meterRegistry != null) {
+            meterRegistry.counter("search.requests", "engine", engine, "reason", reason).increment();
+            meterRegistry.timer("search.latency", "engine", engine).record(nanos, TimeUnit.NANOSECONDS);
+        }
+        return result;
+    }
+
+    private Result sqlResult(String languages, String severityLevels, Float severityGe, Float severityLe, String status, String q,
+                             String identifierPrefix, String organizationUuid, String category,
+                             int page, int size, String sortBy, String sortOrder, boolean withTotal, String cursor, boolean withFacets) {
+        List<VulnerabilityMetadata> items = vulnService.list(null, status, identifierPrefix, q, languages, severityLevels, severityGe, severityLe, null, null, null, organizationUuid, category, null, null, null, null, sortBy, sortOrder, page, size, cursor);
+        long total = withTotal ? vulnService.count(null, status, identifierPrefix, q, languages, severityLevels, severityGe, severityLe, null, null, null, organizationUuid, category, null, null, null, null) : -1;
+        return new Result(items.stream().map(this::toView).toList(), total, SeekCursor.next(items, size, sortBy, sortOrder),
+                withFacets ? sqlFacets(languages, severityLevels, severityGe, severityLe, status, q, identifierPrefix, organizationUuid, category) : null);
+    }
+
+    /** 熔断状态与各引擎返回次数 */
+    public Map<String, Object> resilienceStats() {
+        Map<String, Object> m = new LinkedHashMap<>(breaker.stats());
+        Map<String, Long> counts = new TreeMap<>();
+        served.forEach((k, v) -> counts.put(k, v.sum()));
+        m.put("served", counts);
+        if (hedgePool != null) m.put("hedgeActive", hedgePool.getActiveCount());
+        return m;
+    }
+
+    private Map<String, Object> facetAggs() {
+        int n = Math.max(1, facetMaxBuckets);
+        Map<String, Object> aggs = new LinkedHashMap<>();
+        aggs.put("language", Map.of("terms", Map.of("field", "language", "size", n)));
+        aggs.put("severity", Map.of("range", Map.of("field", "severityNum", "keyed", true, "ranges", List.of(
+                Map.of("key", "CRITICAL", "from", 9.0),
+                Map.of("key", "HIGH", "from", 7.0, "to", 9.0),
+                Map.of("key", "MEDIUM", "from", 4.0, "to", 7.0),
+                Map.of("key", "LOW", "from", 0.0, "to", 4.0)))));
+        aggs.put("status", Map.of("terms", Map.of("field", "status", "size", n)));
+        aggs.put("category", Map.of("terms", Map.of("field", "categoryCode", "size", n)));
+        aggs.put("tag", Map.of("terms", Map.of("field", "tagCodes", "size", n)));
+        return aggs;
+    }
+
+    // 聚合结果转为与 SQL 路径相同的结构：维度 -> 取值 -> 条数（不含 0）
+    static Map<String, Map<String, Long>> parseFacets(Object aggregations) {
+        Map<String, Map<String, Long>> out = new LinkedHashMap<>();
+        Map<?, ?> visible = aggregations instanceof Map<?, ?> a && a.get("visible") instanceof Map<?, ?> v ? v : Map.of();
+        for (String dim : VulnerabilityService.FACET_DIMENSIONS) {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            Object buckets = visible.get(dim) instanceof Map<?, ?> agg ? agg.get("buckets") : null;
+            if (buckets instanceof List<?> list) {
+                for (Object b : list) {
+                    if (b instanceof Map<?, ?> bm && bm.get("key") != null && bm.get("doc_count") instanceof Number c && c.longValue() > 0) {
+                        counts.put(String.valueOf(bm.get("key")), c.longValue());
+                    }
+                }
+            } else if (buckets instanceof Map<?, ?> keyed) {
+                for (var e : keyed.entrySet()) {
+                    if (e.getValue() instanceof Map<?, ?> bm && bm.get("doc_count") instanceof Number c && c.longValue() > 0) {
+                        counts.put(String.valueOf(e.getKey()), c.longValue());
+                    }
+                }
+            }
+            out.put(dim, counts);
+        }
+        return out;
+    }
+
+    private Map<String, Map<String, Long>> sqlFacets(String languages, String severityLevels, Float severityGe, Float severityLe, String status, String q,
+                                                     String identifierPrefix, String organizationUuid, String category) {
+        return vulnService.facets(null, status, identifierPrefix, q, languages, severityLevels, severityGe, severityLe, null, null, null,
+                organizationUuid, category, null, null, null, null);
+    }
+
+    /**
+     * ES 命中水合。source 模式直接用 _source 渲染（缺少 schemaVersion 的旧文档按 db 处理，重建索引后消失）；
+     * db 模式以一次 IN 查询批量回表。两种模式均按 currentVisibility 在内存中判定可见性，保持 ES 命中顺序。
+     * 组织是否公开不取 _source 中的 orgIsPublic（组织可见性变更到索引重建完成前可能陈旧），按本页涉及的组织一次查询实时判定。
+     */
+    List<Map<String, Object>> hydrate(List<Map> hits, SearchVisibility visibility) {
+        boolean fromSource = !"db".equalsIgnoreCase(props.getEs().getHydration());
+        List<String> order = new ArrayList<>();
+        Map<String, Map<String, Object>> byUuid = new HashMap<>();
+        List<String> toLoad = new ArrayList<>();
+        List<Map> sources = new ArrayList<>();
+        for (Map h : hits) {
+            if (!(h.get("_source") instanceof Map src) || src.get("uuid") == null) continue;
+            String uuid = String.valueOf(src.get("uuid"));
+            order.add(uuid);
+            if (fromSource && src.containsKey("schemaVersion")) {
+                sources.add(src);
+            } else {
+                toLoad.add(uuid);
+            }
+        }
+        if (!sources.isEmpty()) {
+            Set<String> publicOrgs = publicOrgs(sources, visibility);
+            for (Map src : sources) {
+                String orgUuid = str(src.get("organizationUuid"));
+                if (visibility.allows(orgUuid, orgUuid != null && publicOrgs.contains(orgUuid), str(src.get("status")))) {
+                    byUuid.put(String.valueOf(src.get("uuid")), sourceView(src));
+                }
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            List<VulnerabilityMetadata> vms = vmMapper.listByUuids(toLoad);
+            Set<Long> orgIds = new HashSet<>();
+            for (var vm : vms) if (vm.getOrganizationId() != null) orgIds.add(vm.getOrganizationId());
+            Map<Long, Organization> orgs = new HashMap<>();
+            if (!orgIds.isEmpty()) for (var o : organizationMapper.listByIds(orgIds)) orgs.put(o.getId(), o);
+            for (var vm : vms) {
+                Organization o = vm.getOrganizationId() == null ? null : orgs.get(vm.getOrganizationId());
+                String status = vm.getStatus() == null ? null : vm.getStatus().name();
+                if (visibility.allows(o == null ? null : o.getUuid(), o != null && Boolean.TRUE.equals(o.getIsPublic()), status)) {
+                    byUuid.put(vm.getUuid(), toView(vm));
+                }
+            }
+        }
+        List<Map<String, Object>> views = new ArrayList<>(order.size());
+        for (String uuid : order) {
+            Map<String, Object> v = byUuid.get(uuid);
+            if (v != null) views.add(v);
+        }
+        return views;
+    }
+
+    // 命中所属组织中当前公开的组织（管理员与成员组织无需判定，不查库）
+    private Set<String> publicOrgs(List<Map> sources, SearchVisibility visibility) {
+        if (visibility.all()) return Set.of();
+        Set<String> orgUuids = new HashSet<>();
+        for (Map src : sources) {
+            String orgUuid = str(src.get("organizationUuid"));
+            if (orgUuid != null && (visibility.fullOrgs() == null || !visibility.fullOrgs().contains(orgUuid))) orgUuids.add(orgUuid);
+        }
+        if (orgUuids.isEmpty()) return Set.of();
+        Set<String> out = new HashSet<>();
+        for (var o : organizationMapper.listVisibilityByUuids(orgUuids)) {
+            if (Boolean.TRUE.equals(o.getIsPublic())) out.add(o.getUuid());
         }
+        return out;
+    }
+
+    private static Map<String, Object> sourceView(Map src) {
+        Map<String, Object> v = new HashMap<>();
+        for (String k : List.of("uuid", "identifier", "summary", "details", "severityNum", "modified", "submitted",
+                "published", "withdrawn", "language", "status", "schemaVersion", "confirmedType")) {
+            v.put(k, src.get(k));
+        }
+        return v;
+    }
+
+    private static String str(Object o) {
+        return o == null ? null : o.toString();
     }
 
-    public record Result(List<Map<String, Object>> items, long total) {}
+    // 当前请求的可见范围：成员组织一次性加载，供 ES 水合与进程内索引复用
+    private SearchVisibility currentVisibility() {
+        if (isAdmin()) return new SearchVisibility(true, Set.of(), false);
+        var auth = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getDetails() instanceof tech.cspioneer.backend.security.ApiKeyContext ctx && "ORG".equalsIgnoreCase(ctx.getSubjectType())) {
+            return new SearchVisibility(false, ctx.getOrgUuid() == null ? Set.of() : Set.of(ctx.getOrgUuid()), true);
+        }
+        String userUuid = currentUserUuid();
+        User user = userUuid == null ? null : userMapper.findByUuid(userUuid);
+        Set<String> memberOrgs = user == null ? Set.of() : visibilityService.memberOrgs(user.getId()).uuids();
+        return new SearchVisibility(false, memberOrgs, false);
+    }
+
+    private Map<String, Object> toView(VulnerabilityMetadata vm) {
+        Map<String, Object> v = new HashMap<>();
+        v.put("uuid", vm.getUuid());
+        v.put("identifier", vm.getIdentifier());
+        v.put("summary", vm.getSummary());
+        v.put("details", vm.getDetails());
+        v.put("severityNum", vm.getSeverityNum());
+        v.put("modified", vm.getModified());
+        v.put("submitted", vm.getSubmitted());
+        v.put("published", vm.getPublished());
+        v.put("withdrawn", vm.getWithdrawn());
+        v.put("language", vm.getLanguage());
+        v.put("status", vm.getStatus());
+        v.put("schemaVersion", vm.getSchemaVersion());
+        v.put("confirmedType", vm.getConfirmedType());
+        return v;
+    }
+
+    // 指定组织时校验访问权：私有组织仅成员可查；公开组织的非成员仅查 ACTIVE
+    private String resolveEnforcedStatus(String organizationUuid, String status) {
+        String enforcedStatus = status;
+        if (organizationUuid != null && !organizationUuid.isBlank()) {
+            Organization org = organizationMapper.findByUuid(organizationUuid);
+            if (org == null) throw new ApiException(404, "组织不存在");
+            if (!isAdmin()) {
+                String userUuid = currentUserUuid();
+                if (userUuid != null) {
+                    User user = userMapper.findByUuid(userUuid);
+                    var link = (user == null || org.getId() == null) ? null : lnkUserOrganizationMapper.findByOrgIdAndUserId(org.getId(), user.getId());
+                    boolean isMember = (link != null);
+                    if (!isMember) {
+                        if (Boolean.TRUE.equals(org.getIsPublic())) {
+                            if (enforcedStatus == null || enforcedStatus.isBlank()) enforcedStatus = tech.cspioneer.backend.enums.VulnerabilityStatus.ACTIVE.name();
+                        } else {
+                            throw new ApiException(404, "组织不存在");
+                        }
+                    }
+                }
+            }
+        }
+        return enforcedStatus;
+    }
+
+    /** facets 仅在请求分面时非空 */
+    public record Result(List<Map<String, Object>> items, long total, String nextCursor, Map<String, Map<String, Long>> facets) {
+        public Result(List<Map<String, Object>> items, long total, String nextCursor) {
+            this(items, total, nextCursor, null);
+        }
+    }
 
     private String currentUserUuid() {
         var auth = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
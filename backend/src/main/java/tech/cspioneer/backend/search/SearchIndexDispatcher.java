@@ -0,0 +1,126 @@
+package tech.cspioneer.backend.search;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tech.cspioneer.backend.service.OutboxService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 漏洞增删改后的索引分发。共享索引（ES）开启发件箱时经发件箱投递（由抢到事件的实例写入），否则直接写入；
+ * 进程内索引（LocalSearchIndex、SuggestIndex）始终由本实例直接写入（其内部在事务提交后生效），
+ * 并在提交后经 Redis 频道通知其他实例刷新各自的进程内索引（频道不可用时其他实例等待下次全量重建）。
+ */
+@Component
+@Slf4j
+public class SearchIndexDispatcher {
+    static final String CHANNEL = "search:local-index";
+    private static final String OP_INDEX = "I";
+    private static final String OP_DELETE = "D";
+
+    @Value("${search.local-index.broadcast:true}")
+    private boolean broadcast = true;
+
+    private final OutboxService outboxService;
+    private final StringRedisTemplate redis;
+    private final List<SearchIndexer> indexers;
+    private final List<SearchIndexer> localIndexers;
+    // 区分本实例发出的消息
+    private final String nodeId = UUID.randomUUID().toString();
+    private RedisMessageListenerContainer listener;
+
+    public SearchIndexDispatcher(OutboxService outboxService,
+                                 StringRedisTemplate redis,
+                                 ObjectProvider<SearchIndexer> indexerProvider) {
+        this.outboxService = outboxService;
+        this.redis = redis;
+        this.indexers = indexerProvider.orderedStream().toList();
+        this.localIndexers = indexers.stream().filter(i -> !i.isShared()).toList();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!broadcast || localIndexers.isEmpty()) return;
+        try {
+            listener = new RedisMessageListenerContainer();
+            listener.setConnectionFactory(redis.getConnectionFactory());
+            listener.addMessageListener((message, pattern) -> onMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(CHANNEL));
+            listener.afterPropertiesSet();
+            listener.start();
+        } catch (Exception e) {
+            log.warn("[search-index] subscribe {} failed: {}", CHANNEL, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (listener != null) {
+            try { listener.stop(); listener.destroy(); } catch (Exception ignore) {}
+        }
+    }
+
+    /** 按当前数据库状态重建该漏洞的索引文档；须在写入漏洞的事务内调用 */
+    public void index(String uuid) {
+        dispatch(OP_INDEX, uuid);
+    }
+
+    /** 从各索引删除该漏洞；须在写入漏洞的事务内调用 */
+    public void delete(String uuid) {
+        dispatch(OP_DELETE, uuid);
+    }
+
+    private void dispatch(String op, String uuid) {
+        if (uuid == null) return;
+        boolean useOutbox = outboxService != null && outboxService.isEnabled();
+        if (useOutbox) outboxService.publish(OP_INDEX.equals(op) ? OutboxService.VULN_INDEX : OutboxService.VULN_DELETE, uuid, null);
+        for (var indexer : useOutbox ? localIndexers : indexers) apply(indexer, op, uuid);
+        if (broadcast && !localIndexers.isEmpty()) afterCommit(() -> publish(op, uuid));
+    }
+
+    private void publish(String op, String uuid) {
+        try {
+            redis.convertAndSend(CHANNEL, nodeId + ":" + op + ":" + uuid);
+        } catch (Exception e) {
+            log.warn("[search-index] publish {} uuid={} failed: {}", op, uuid, e.getMessage());
+        }
+    }
+
+    // 其他实例的写：已提交，直接刷新本实例的进程内索引，不再转发
+    void onMessage(String body) {
+        String[] parts = body.split(":", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) return;
+        for (var indexer : localIndexers) apply(indexer, parts[1], parts[2]);
+    }
+
+    private static void apply(SearchIndexer indexer, String op, String uuid) {
+        try {
+            if (OP_DELETE.equals(op)) indexer.deleteOne(uuid);
+            else indexer.indexOne(uuid);
+        } catch (Exception ignore) {}
+    }
+
+    private static void afterCommit(Runnable r) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    r.run();
+                }
+            });
+        } else {
+            r.run();
+        }
+    }
+}
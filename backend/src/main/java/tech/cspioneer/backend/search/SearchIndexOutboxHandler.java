@@ -0,0 +1,43 @@
+package tech.cspioneer.backend.search;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import tech.cspioneer.backend.entity.OutboxEvent;
+import tech.cspioneer.backend.service.OutboxHandler;
+import tech.cspioneer.backend.service.OutboxService;
+
+import java.util.*;
+
+/**
+ * 发件箱 → 共享检索索引（ES）：一批事件按 uuid 合并（同一 uuid 取最后一条），一次性同步写入。
+ * 事件只由抢到它的实例处理，进程内索引不经发件箱（见 SearchIndexDispatcher）。
+ */
+@Component
+public class SearchIndexOutboxHandler implements OutboxHandler {
+    private final List<SearchIndexer> indexers;
+
+    public SearchIndexOutboxHandler(ObjectProvider<SearchIndexer> indexerProvider) {
+        this.indexers = indexerProvider.orderedStream().filter(SearchIndexer::isShared).toList();
+    }
+
+    @Override
+    public Set<String> eventTypes() {
+        return Set.of(OutboxService.VULN_INDEX, OutboxService.VULN_DELETE);
+    }
+
+    @Override
+    public Set<Long> handle(List<OutboxEvent> events) throws Exception {
+        if (indexers.isEmpty()) return Set.of();
+        Map<String, String> last = new LinkedHashMap<>();
+        for (var e : events) last.put(e.getAggregateUuid(), e.getEventType());
+        List<String> upserts = new ArrayList<>();
+        List<String> deletes = new ArrayList<>();
+        last.forEach((uuid, type) -> (OutboxService.VULN_DELETE.equals(type) ? deletes : upserts).add(uuid));
+        Set<String> failedUuids = new HashSet<>();
+        for (var indexer : indexers) failedUuids.addAll(indexer.applyNow(upserts, deletes));
+        if (failedUuids.isEmpty()) return Set.of();
+        Set<Long> failed = new HashSet<>();
+        for (var e : events) if (failedUuids.contains(e.getAggregateUuid())) failed.add(e.getId());
+        return failed;
+    }
+}
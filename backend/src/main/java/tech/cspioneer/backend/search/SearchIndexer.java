@@ -0,0 +1,36 @@
+package tech.cspioneer.backend.search;
+
+/**
+ * 检索索引的写入端：漏洞增删改后由业务服务调用，ES 与进程内引擎各自实现。
+ */
+public interface SearchIndexer {
+    /** 全量重建，返回写入文档数 */
+    int reindexAll();
+
+    void indexOne(String uuid);
+
+    void deleteOne(String uuid);
+
+    /**
+     * 是否为各实例共享的外部索引（如 ES）：共享索引经发件箱由任一实例写入一次；
+     * 进程内索引每个实例各有一份，由 SearchIndexDispatcher 直接写入并广播给其他实例。
+     */
+    default boolean isShared() {
+        return false;
+    }
+
+    /**
+     * 同步批量应用（发件箱分发用）：upserts 按当前数据库状态重建，deletes 删除；返回需重试的 uuid。
+     * 默认逐条调用 indexOne/deleteOne。
+     */
+    default java.util.Set<String> applyNow(java.util.Collection<String> upserts, java.util.Collection<String> deletes) throws Exception {
+        upserts.forEach(this::indexOne);
+        deletes.forEach(this::deleteOne);
+        return java.util.Set.of();
+    }
+
+    /** 运行状态（队列深度、文档数等），供管理端查看 */
+    default java.util.Map<String, Object> stats() {
+        return java.util.Map.of();
+    }
+}
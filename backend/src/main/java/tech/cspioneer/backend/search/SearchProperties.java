@@ -4,7 +4,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties(prefix = "search")
 public class SearchProperties {
-    private String engine = "sql"; // sql | es
+    private String engine = "sql"; // sql | es | local（进程内索引）
     private Es es = new Es();
 
     public String getEngine() { return engine; }
@@ -24,6 +24,10 @@ public class SearchProperties {
         private boolean autoBootstrap = true;
         private boolean bootstrapReindex = true;
         private boolean autoFallback = true;
+        private String hydration = "source"; // source（直接用 _source 渲染）| db（按 uuid 批量回表）
+        private Queue queue = new Queue();
+        private Reindex reindex = new Reindex();
+        private Resilience resilience = new Resilience();
 
         public boolean isEnabled() { return enabled; }
         public void setEnabled(boolean enabled) { this.enabled = enabled; }
@@ -47,8 +51,93 @@ public class SearchProperties {
         public void setBootstrapReindex(boolean bootstrapReindex) { this.bootstrapReindex = bootstrapReindex; }
         public boolean isAutoFallback() { return autoFallback; }
         public void setAutoFallback(boolean autoFallback) { this.autoFallback = autoFallback; }
+        public String getHydration() { return hydration; }
+        public void setHydration(String hydration) { this.hydration = hydration; }
+        public Queue getQueue() { return queue; }
+        public void setQueue(Queue queue) { this.queue = queue; }
+        public Reindex getReindex() { return reindex; }
+        public void setReindex(Reindex reindex) { this.reindex = reindex; }
+        public Resilience getResilience() { return resilience; }
+        public void setResilience(Resilience resilience) { this.resilience = resilience; }
 
         public String currentIndexName() { return indexPrefix + "_" + indexVersion; }
+
+        /** 增量索引队列：按间隔批量刷出，失败指数退避重试 */
+        public static class Queue {
+            private long flushIntervalMs = 1000;
+            private int batchSize = 500;
+            private int maxRetries = 5;
+            private long initialBackoffMs = 1000;
+            private long maxBackoffMs = 60000;
+            private String refresh = "false"; // false（按索引 refresh_interval）| wait_for
+
+            public long getFlushIntervalMs() { return flushIntervalMs; }
+            public void setFlushIntervalMs(long flushIntervalMs) { this.flushIntervalMs = flushIntervalMs; }
+            public int getBatchSize() { return batchSize; }
+            public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+            public int getMaxRetries() { return maxRetries; }
+            public void setMaxRetries(int maxRetries) { this.maxRetries = maxRetries; }
+            public long getInitialBackoffMs() { return initialBackoffMs; }
+            public void setInitialBackoffMs(long initialBackoffMs) { this.initialBackoffMs = initialBackoffMs; }
+            public long getMaxBackoffMs() { return maxBackoffMs; }
+            public void setMaxBackoffMs(long maxBackoffMs) { this.maxBackoffMs = maxBackoffMs; }
+            public String getRefresh() { return refresh; }
+            public void setRefresh(String refresh) { this.refresh = refresh; }
+        }
+
+        /** 全量重建：读库页大小、并发 _bulk 数、单批字节上限与逐条重试 */
+        public static class Reindex {
+            private int pageSize = 1000;
+            private int concurrency = 4;
+            private long bulkBytes = 5L * 1024 * 1024;
+            private int maxRetries = 3;
+            private long retryBackoffMs = 500;
+
+            public int getPageSize() { return pageSize; }
+            public void setPageSize(int pageSize) { this.pageSize = pageSize; }
+            public int getConcurrency() { return concurrency; }
+            public void setConcurrency(int concurrency) { this.concurrency = concurrency; }
+            public long getBulkBytes() { return bulkBytes; }
+            public void setBulkBytes(long bulkBytes) { this.bulkBytes = bulkBytes; }
+            public int getMaxRetries() { return maxRetries; }
+            public void setMaxRetries(int maxRetries) { this.maxRetries = maxRetries; }
+            public long getRetryBackoffMs() { return retryBackoffMs; }
+            public void setRetryBackoffMs(long retryBackoffMs) { this.retryBackoffMs = retryBackoffMs; }
+        }
+
+        /** 检索容错：单次请求的 ES 时间预算、对冲 SQL 的启动延迟与熔断阈值 */
+        public static class Resilience {
+            private long timeoutMs = 1500;
+            private long hedgeDelayMs = 0; // 0 关闭对冲
+            private int hedgeThreads = 4;
+            private boolean fallbackOnEmpty = true;
+            private int windowSize = 100;
+            private int minCalls = 20;
+            private double failureRateThreshold = 50;
+            private int latencyPercentile = 99;
+            private long slowCallMs = 1000;
+            private long openMs = 30000;
+
+            public long getTimeoutMs() { return timeoutMs; }
+            public void setTimeoutMs(long timeoutMs) { this.timeoutMs = timeoutMs; }
+            public long getHedgeDelayMs() { return hedgeDelayMs; }
+            public void setHedgeDelayMs(long hedgeDelayMs) { this.hedgeDelayMs = hedgeDelayMs; }
+            public int getHedgeThreads() { return hedgeThreads; }
+            public void setHedgeThreads(int hedgeThreads) { this.hedgeThreads = hedgeThreads; }
+            public boolean isFallbackOnEmpty() { return fallbackOnEmpty; }
+            public void setFallbackOnEmpty(boolean fallbackOnEmpty) { this.fallbackOnEmpty = fallbackOnEmpty; }
+            public int getWindowSize() { return windowSize; }
+            public void setWindowSize(int windowSize) { this.windowSize = windowSize; }
+            public int getMinCalls() { return minCalls; }
+            public void setMinCalls(int minCalls) { this.minCalls = minCalls; }
+            public double getFailureRateThreshold() { return failureRateThreshold; }
+            public void setFailureRateThreshold(double failureRateThreshold) { this.failureRateThreshold = failureRateThreshold; }
+            public int getLatencyPercentile() { return latencyPercentile; }
+            public void setLatencyPercentile(int latencyPercentile) { this.latencyPercentile = latencyPercentile; }
+            public long getSlowCallMs() { return slowCallMs; }
+            public void setSlowCallMs(long slowCallMs) { this.slowCallMs = slowCallMs; }
+            public long getOpenMs() { return openMs; }
+            public void setOpenMs(long openMs) { this.openMs = openMs; }
+        }
     }
 }
-
@@ -0,0 +1,37 @@
+package tech.cspioneer.backend.search;
+
+import tech.cspioneer.backend.enums.VulnerabilityStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 检索结果的内存可见性判定，规则与 VulnerabilityService.getByUuid 一致：
+ * all=管理员；fullOrgs 内的组织全部可见；其余公开组织仅 ACTIVE、私有组织不可见；
+ * 个人漏洞在 personalActiveOnly（组织 Key）时仅 ACTIVE。
+ * {@link #toEsFilter()} 是同一规则的 ES 查询形式（用于聚合计数），两者需同步修改。
+ */
+public record SearchVisibility(boolean all, Set<String> fullOrgs, boolean personalActiveOnly) {
+
+    public boolean allows(String organizationUuid, boolean orgIsPublic, String status) {
+        if (all) return true;
+        boolean active = VulnerabilityStatus.ACTIVE.name().equals(status);
+        if (organizationUuid == null) return !personalActiveOnly || active;
+        if (fullOrgs != null && fullOrgs.contains(organizationUuid)) return true;
+        return orgIsPublic && active;
+    }
+
+    /** 等价于 allows 的 ES bool 过滤 */
+    public Map<String, Object> toEsFilter() {
+        if (all) return Map.of("match_all", Map.of());
+        Map<String, Object> active = Map.of("term", Map.of("status", VulnerabilityStatus.ACTIVE.name()));
+        Map<String, Object> noOrg = Map.of("bool", Map.of("must_not", List.of(Map.of("exists", Map.of("field", "organizationUuid")))));
+        List<Object> should = new ArrayList<>();
+        should.add(personalActiveOnly ? Map.of("bool", Map.of("filter", List.of(noOrg, active))) : noOrg);
+        if (fullOrgs != null && !fullOrgs.isEmpty()) should.add(Map.of("terms", Map.of("organizationUuid", List.copyOf(fullOrgs))));
+        should.add(Map.of("bool", Map.of("filter", List.of(Map.of("term", Map.of("orgIsPublic", true)), active))));
+        return Map.of("bool", Map.of("should", should, "minimum_should_match", 1));
+    }
+}
@@ -0,0 +1,313 @@
+package tech.cspioneer.backend.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tech.cspioneer.backend.entity.Organization;
+import tech.cspioneer.backend.entity.VulnerabilityMetadata;
+import tech.cspioneer.backend.enums.VulnerabilityStatus;
+import tech.cspioneer.backend.mapper.OrganizationMapper;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataAliasMapper;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataMapper;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 编号/别名自动补全：启动后把 identifier 与 alias 的小写值排成有序数组（keys 与平行的 int 下标数组），
+ * 前缀查询为一次二分定位加顺序扫描，不访问数据库。
+ * 增量更新写入覆盖层（uuid -> 最新条目或删除标记），查询时覆盖层优先于快照；覆盖层达到 compact-threshold 后在内存中合并成新快照。
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "search.suggest", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SuggestIndex implements SearchIndexer {
+    private static final int SCAN_PAGE = 1000;
+    public static final int MAX_LIMIT = 20;
+
+    private final VulnerabilityMetadataMapper vmMapper;
+    private final VulnerabilityMetadataAliasMapper aliasMapper;
+    private final OrganizationMapper organizationMapper;
+
+    @Value("${search.suggest.compact-threshold:2000}")
+    private int compactThreshold = 2000;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private final Map<String, Overlay> overlay = new ConcurrentHashMap<>();
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private volatile boolean ready = false;
+    private volatile long lastBuildMs = 0;
+
+    public SuggestIndex(VulnerabilityMetadataMapper vmMapper,
+                        VulnerabilityMetadataAliasMapper aliasMapper,
+                        OrganizationMapper organizationMapper) {
+        this.vmMapper = vmMapper;
+        this.aliasMapper = aliasMapper;
+        this.organizationMapper = organizationMapper;
+    }
+
+    /** 一条漏洞的可见性判定字段与展示编号 */
+    record Entry(String uuid, String identifier, String organizationUuid, boolean orgIsPublic, String status) {}
+
+    /** 覆盖层条目；entry 为 null 表示已删除 */
+    record Overlay(Entry entry, List<String> values) {}
+
+    /** matched 为命中的原始值（编号或别名） */
+    public record Suggestion(String uuid, String identifier, String matched) {}
+
+    /** 不可变快照：keys 升序（小写），values 为对应原始值，refs[i] 为 keys[i] 所属 entries 下标 */
+    static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new String[0], new String[0], new int[0], new Entry[0]);
+        final String[] keys;
+        final String[] values;
+        final int[] refs;
+        final Entry[] entries;
+
+        Snapshot(String[] keys, String[] values, int[] refs, Entry[] entries) {
+            this.keys = keys;
+            this.values = values;
+            this.refs = refs;
+            this.entries = entries;
+        }
+
+        static Snapshot build(List<Overlay> docs) {
+            record Key(String key, String value, int ref) {}
+            List<Key> all = new ArrayList<>();
+            Entry[] entries = new Entry[docs.size()];
+            for (int i = 0; i < docs.size(); i++) {
+                Overlay d = docs.get(i);
+                entries[i] = d.entry();
+                Set<String> seen = new HashSet<>();
+                for (String v : d.values()) {
+                    String k = lower(v);
+                    if (!k.isEmpty() && seen.add(k)) all.add(new Key(k, v, i));
+                }
+            }
+            all.sort(Comparator.comparing(Key::key).thenComparing(Key::ref));
+            String[] keys = new String[all.size()];
+            String[] values = new String[all.size()];
+            int[] refs = new int[all.size()];
+            for (int i = 0; i < all.size(); i++) {
+                keys[i] = all.get(i).key();
+                values[i] = all.get(i).value();
+                refs[i] = all.get(i).ref();
+            }
+            return new Snapshot(keys, values, refs, entries);
+        }
+
+        // 第一个 >= prefix 的位置
+        int lowerBound(String prefix) {
+            int lo = 0, hi = keys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid].compareTo(prefix) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        Thread t = new Thread(() -> {
+            try {
+                reindexAll();
+            } catch (Exception e) {
+                log.warn("[Suggest] 启动构建失败: {}", e.getMessage());
+            }
+        }, "suggest-index-build");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * 按前缀返回可见的漏洞，每条漏洞最多出现一次（取最小的命中值），按命中值升序。
+     */
+    public List<Suggestion> suggest(String prefix, int limit, SearchVisibility visibility) {
+        if (prefix == null) return List.of();
+        String p = lower(prefix.trim());
+        if (p.isEmpty()) return List.of();
+        int n = Math.max(1, Math.min(MAX_LIMIT, limit));
+        Snapshot s = snapshot;
+        // 候选：快照中按序取前 n 个，覆盖层中全部命中，合并后再取前 n 个
+        TreeMap<String, Suggestion> byKey = new TreeMap<>();
+        Set<String> taken = new HashSet<>();
+        for (int i = s.lowerBound(p); i < s.keys.length && s.keys[i].startsWith(p) && taken.size() < n; i++) {
+            Entry e = s.entries[s.refs[i]];
+            if (overlay.containsKey(e.uuid()) || !visible(e, visibility) || !taken.add(e.uuid())) continue;
+            byKey.put(s.keys[i] + '\0' + e.uuid(), new Suggestion(e.uuid(), e.identifier(), s.values[i]));
+        }
+        for (Overlay o : overlay.values()) {
+            Entry e = o.entry();
+            if (e == null || !visible(e, visibility)) continue;
+            String best = null, bestValue = null;
+            for (String v : o.values()) {
+                String k = lower(v);
+                if (k.startsWith(p) && (best == null || k.compareTo(best) < 0)) {
+                    best = k;
+                    bestValue = v;
+                }
+            }
+            if (best != null) byKey.put(best + '\0' + e.uuid(), new Suggestion(e.uuid(), e.identifier(), bestValue));
+        }
+        List<Suggestion> out = new ArrayList<>(n);
+        for (Suggestion sg : byKey.values()) {
+            if (out.size() >= n) break;
+            out.add(sg);
+        }
+        return out;
+    }
+
+    private static boolean visible(Entry e, SearchVisibility v) {
+        return v.allows(e.organizationUuid(), e.orgIsPublic(), e.status());
+    }
+
+    @Override
+    public int reindexAll() {
+        buildLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            List<Overlay> docs = new ArrayList<>();
+            Map<Long, Organization> orgs = new HashMap<>();
+            long lastId = 0;
+            while (true) {
+                List<VulnerabilityMetadata> batch = vmMapper.scanForIndexing(lastId, SCAN_PAGE);
+                if (batch == null || batch.isEmpty()) break;
+                List<Long> ids = new ArrayList<>();
+                Set<Long> orgIds = new HashSet<>();
+                for (var vm : batch) {
+                    if (vm.getId() != null) ids.add(vm.getId());
+                    if (vm.getOrganizationId() != null && !orgs.containsKey(vm.getOrganizationId())) orgIds.add(vm.getOrganizationId());
+                }
+                if (!orgIds.isEmpty()) for (var o : organizationMapper.listByIds(orgIds)) orgs.put(o.getId(), o);
+                Map<Long, List<String>> aliases = new HashMap<>();
+                if (!ids.isEmpty()) {
+                    for (var a : aliasMapper.listByVulnerabilityIds(ids)) {
+                        if (a.getValue() != null) aliases.computeIfAbsent(a.getVulnerabilityMetadataId(), k -> new ArrayList<>()).add(a.getValue());
+                    }
+                }
+                for (var vm : batch) {
+                    if (vm.getId() != null && vm.getId() > lastId) lastId = vm.getId();
+                    Overlay d = toDoc(vm, aliases.getOrDefault(vm.getId(), List.of()), vm.getOrganizationId() == null ? null : orgs.get(vm.getOrganizationId()));
+                    if (d.entry() != null) docs.add(d);
+                }
+                if (batch.size() < SCAN_PAGE) break;
+            }
+            // 构建期间到达的增量保留在覆盖层中，优先于本次扫描结果
+            snapshot = Snapshot.build(docs);
+            ready = true;
+            lastBuildMs = System.currentTimeMillis() - start;
+            log.info("[Suggest] 构建完成 docs={} keys={} elapsedMs={}", docs.size(), snapshot.keys.length, lastBuildMs);
+            return docs.size();
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    @Override
+    public void indexOne(String uuid) {
+        afterCommit(() -> refresh(uuid));
+    }
+
+    @Override
+    public void deleteOne(String uuid) {
+        afterCommit(() -> {
+            overlay.put(uuid, new Overlay(null, List.of()));
+            maybeCompact();
+        });
+    }
+
+    private void refresh(String uuid) {
+        try {
+            VulnerabilityMetadata vm = vmMapper.findByUuid(uuid);
+            if (vm == null) {
+                overlay.put(uuid, new Overlay(null, List.of()));
+            } else {
+                List<String> aliases = aliasMapper.listByVulnerabilityId(vm.getId()).stream().map(a -> a.getValue()).filter(Objects::nonNull).toList();
+                Organization org = vm.getOrganizationId() == null ? null : organizationMapper.findById(vm.getOrganizationId());
+                overlay.put(uuid, toDoc(vm, aliases, org));
+            }
+            maybeCompact();
+        } catch (Exception e) {
+            log.warn("[Suggest] indexOne failed uuid={} : {}", uuid, e.getMessage());
+        }
+    }
+
+    // 事务中的写在提交后再更新，回滚的写不影响补全结果
+    private static void afterCommit(Runnable r) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    r.run();
+                }
+            });
+        } else {
+            r.run();
+        }
+    }
+
+    private void maybeCompact() {
+        if (overlay.size() >= Math.max(1, compactThreshold)) compact();
+    }
+
+    /** 把覆盖层合并进新快照；全量构建进行中时跳过（构建结束后覆盖层仍然生效） */
+    void compact() {
+        if (!buildLock.tryLock()) return;
+        try {
+            Map<String, Overlay> pending = new HashMap<>(overlay);
+            if (pending.isEmpty()) return;
+            Snapshot s = snapshot;
+            List<Overlay> docs = new ArrayList<>(s.entries.length + pending.size());
+            Map<Integer, List<String>> valuesByRef = new HashMap<>();
+            for (int i = 0; i < s.keys.length; i++) valuesByRef.computeIfAbsent(s.refs[i], k -> new ArrayList<>()).add(s.values[i]);
+            for (int i = 0; i < s.entries.length; i++) {
+                if (!pending.containsKey(s.entries[i].uuid())) docs.add(new Overlay(s.entries[i], valuesByRef.getOrDefault(i, List.of())));
+            }
+            for (Overlay o : pending.values()) if (o.entry() != null) docs.add(o);
+            snapshot = Snapshot.build(docs);
+            // 合并期间又有更新的 uuid 保留在覆盖层
+            pending.forEach(overlay::remove);
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private static Overlay toDoc(VulnerabilityMetadata vm, List<String> aliases, Organization org) {
+        if (vm.getStatus() == VulnerabilityStatus.DELETED || vm.getUuid() == null) return new Overlay(null, List.of());
+        List<String> values = new ArrayList<>(aliases.size() + 1);
+        if (vm.getIdentifier() != null) values.add(vm.getIdentifier());
+        values.addAll(aliases);
+        Entry e = new Entry(vm.getUuid(), vm.getIdentifier(),
+                org == null ? null : org.getUuid(),
+                org != null && Boolean.TRUE.equals(org.getIsPublic()),
+                vm.getStatus() == null ? null : vm.getStatus().name());
+        return new Overlay(e, List.copyOf(values));
+    }
+
+    private static String lower(String s) {
+        return s == null ? "" : s.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Snapshot s = snapshot;
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("ready", ready);
+        m.put("docs", s.entries.length);
+        m.put("keys", s.keys.length);
+        m.put("overlay", overlay.size());
+        m.put("lastBuildMs", lastBuildMs);
+        return m;
+    }
+}
@@ -51,6 +51,7 @@ public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
                 details.setUserUuid(ctx.userUuid);
                 details.setOrgUuid(ctx.orgUuid);
                 details.setApiKeyUuid(ctx.key.getUuid());
+                details.setApiKeyId(ctx.key.getId());
                 details.setScopes(ctx.key.getScopes());
                 auth.setDetails(details);
                 SecurityContextHolder.getContext().setAuthentication(auth);
@@ -5,6 +5,7 @@ public class ApiKeyContext {
     private String userUuid;
     private String orgUuid;
     private String apiKeyUuid;
+    private Long apiKeyId;
     private String scopes;
 
     public String getSubjectType() { return subjectType; }
@@ -15,6 +16,8 @@ public class ApiKeyContext {
     public void setOrgUuid(String orgUuid) { this.orgUuid = orgUuid; }
     public String getApiKeyUuid() { return apiKeyUuid; }
     public void setApiKeyUuid(String apiKeyUuid) { this.apiKeyUuid = apiKeyUuid; }
+    public Long getApiKeyId() { return apiKeyId; }
+    public void setApiKeyId(Long apiKeyId) { this.apiKeyId = apiKeyId; }
     public String getScopes() { return scopes; }
     public void setScopes(String scopes) { this.scopes = scopes; }
 }
@@ -6,22 +6,25 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
-import tech.cspioneer.backend.entity.ApiKey;
 import tech.cspioneer.backend.entity.ApiKeyUsageLog;
-import tech.cspioneer.backend.mapper.ApiKeyMapper;
-import tech.cspioneer.backend.mapper.ApiKeyUsageLogMapper;
+import tech.cspioneer.backend.service.ApiKeyUsageRecorder;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Component
 public class ApiKeyUsageLogFilter extends OncePerRequestFilter {
-    private final ApiKeyUsageLogMapper logMapper;
-    private final ApiKeyMapper apiKeyMapper;
+    // api_key_usage_log / api_key_usage_rollup 列宽：超长值会使整批 INSERT 失败
+    static final int IP_MAX_LENGTH = 45;
+    static final int METHOD_MAX_LENGTH = 10;
+    static final int PATH_MAX_LENGTH = 512;
+    static final int PATH_TEMPLATE_MAX_LENGTH = 255;
 
-    public ApiKeyUsageLogFilter(ApiKeyUsageLogMapper logMapper, ApiKeyMapper apiKeyMapper) {
-        this.logMapper = logMapper;
-        this.apiKeyMapper = apiKeyMapper;
+    private final ApiKeyUsageRecorder recorder;
+
+    public ApiKeyUsageLogFilter(ApiKeyUsageRecorder recorder) {
+        this.recorder = recorder;
     }
 
     @Override
@@ -31,20 +34,22 @@ public class ApiKeyUsageLogFilter extends OncePerRequestFilter {
         } finally {
             var auth = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
             if (auth != null && auth.getDetails() instanceof ApiKeyContext ctx) {
-                if (ctx.getApiKeyUuid() != null) {
-                    ApiKey key = apiKeyMapper.findByUuid(ctx.getApiKeyUuid());
-                    if (key != null) {
-                        ApiKeyUsageLog log = new ApiKeyUsageLog();
-                        log.setUuid(UUID.randomUUID().toString());
-                        log.setApiKeyId(key.getId());
-                        log.setRequestIpAddress(clientIp(request));
-                        log.setRequestMethod(request.getMethod());
-                        log.setRequestPath(request.getRequestURI());
-                        log.setResponseStatusCode(response.getStatus());
-                        String ua = request.getHeader("User-Agent");
-                        log.setUserAgent(ua);
-                        try { logMapper.insert(log); } catch (Exception ignored) {}
-                    }
+                // Key ID 由认证过滤器放入上下文；记录交给缓冲批量写入，请求线程不访问数据库
+                if (ctx.getApiKeyId() != null) {
+                    ApiKeyUsageLog log = new ApiKeyUsageLog();
+                    log.setUuid(UUID.randomUUID().toString());
+                    log.setApiKeyId(ctx.getApiKeyId());
+                    log.setRequestTimestamp(LocalDateTime.now());
+                    log.setRequestIpAddress(truncate(clientIp(request), IP_MAX_LENGTH));
+                    log.setRequestMethod(truncate(request.getMethod(), METHOD_MAX_LENGTH));
+                    log.setRequestPath(truncate(request.getRequestURI(), PATH_MAX_LENGTH));
+                    // 由 DispatcherServlet 写入的路由模板，供使用量按路径汇总；未匹配到处理器时为空
+                    Object pattern = request.getAttribute(org.springframework.web.servlet.HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                    if (pattern != null) log.setPathTemplate(truncate(pattern.toString(), PATH_TEMPLATE_MAX_LENGTH));
+                    log.setResponseStatusCode(response.getStatus());
+                    String ua = request.getHeader("User-Agent");
+                    log.setUserAgent(ua);
+                    try { recorder.record(log); } catch (Exception ignored) {}
                 }
             }
         }
@@ -57,5 +62,9 @@ public class ApiKeyUsageLogFilter extends OncePerRequestFilter {
         if (ip != null && !ip.isBlank()) return ip;
         return req.getRemoteAddr();
     }
+
+    private static String truncate(String s, int max) {
+        return s == null || s.length() <= max ? s : s.substring(0, max);
+    }
 }
 
@@ -24,6 +24,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final TokenRevocationService tokenRevocationService;
+    private volatile String tokenPrefix; // 去掉首尾空白后的前缀，首次请求时解析
 
     public JwtAuthenticationFilter(JwtService jwtService, TokenRevocationService tokenRevocationService) {
         this.jwtService = jwtService;
@@ -33,9 +34,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         String header = request.getHeader(HttpHeaders.AUTHORIZATION);
-        String tokenPrefix = jwtService.getTokenPrefix().trim();
-        if (header != null && header.startsWith(tokenPrefix)) {
-            String token = header.substring(tokenPrefix.length()).trim();
+        String prefix = tokenPrefix();
+        if (header != null && header.startsWith(prefix)) {
+            String token = header.substring(prefix.length()).trim();
             try {
                 JwtService.TokenInfo info = jwtService.parseAccessToken(token);
                 if (info != null && tokenRevocationService.isIssuedAfter(info.getSubjectUuid(), info.getIssuedAt())) {
@@ -56,4 +57,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    private String tokenPrefix() {
+        String p = tokenPrefix;
+        if (p == null) {
+            String configured = jwtService.getTokenPrefix();
+            p = configured == null ? "Bearer" : configured.trim();
+            tokenPrefix = p;
+        }
+        return p;
+    }
 }
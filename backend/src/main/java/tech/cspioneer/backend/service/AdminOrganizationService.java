@@ -18,17 +18,20 @@ public class AdminOrganizationService {
     private final tech.cspioneer.backend.mapper.VulnerabilityMetadataMapper vmMapper;
     private final tech.cspioneer.backend.mapper.OrgInviteLinkMapper inviteLinkMapper;
     private final tech.cspioneer.backend.mapper.NotificationMapper notificationMapper;
+    private final VulnerabilityVisibilityService visibilityService;
 
     public AdminOrganizationService(OrganizationMapper organizationMapper,
                                     UserMapper userMapper,
                                     tech.cspioneer.backend.mapper.VulnerabilityMetadataMapper vmMapper,
                                     tech.cspioneer.backend.mapper.OrgInviteLinkMapper inviteLinkMapper,
-                                    tech.cspioneer.backend.mapper.NotificationMapper notificationMapper) {
+                                    tech.cspioneer.backend.mapper.NotificationMapper notificationMapper,
+                                    VulnerabilityVisibilityService visibilityService) {
         this.organizationMapper = organizationMapper;
         this.userMapper = userMapper;
         this.vmMapper = vmMapper;
         this.inviteLinkMapper = inviteLinkMapper;
         this.notificationMapper = notificationMapper;
+        this.visibilityService = visibilityService;
     }
 
     public record Page<T>(List<T> items, long total) {}
@@ -112,8 +115,10 @@ public class AdminOrganizationService {
             patch.setIsPublic(isPublic);
             patch.setAllowJoinRequest(allowJoinRequest);
             patch.setAllowInviteLink(allowInviteLink);
+            Organization before = isPublic != null ? organizationMapper.findByUuid(orgUuid) : null;
             organizationMapper.updateBasic(patch);
             updated = organizationMapper.findByUuid(orgUuid);
+            if (before != null && !isPublic.equals(before.getIsPublic())) visibilityService.orgVisibilityChanged(before.getId());
         }
         if (updated == null) updated = organizationMapper.findByUuid(orgUuid);
         return updated;
@@ -166,8 +171,8 @@ public class AdminOrganizationService {
         int limit = Math.max(1, Math.min(100, size <= 0 ? 10 : size));
         int offset = Math.max(0, page <= 0 ? 0 : (page - 1) * limit);
 
-        long vulnTotal = vmMapper.countByFiltersAdv(null, null, null, null, null, null, o.getId(), null, null, null, null, null, false, false, false, false, null, null, null, false, false);
-        var vulns = vmMapper.listByFiltersAdv(null, null, null, null, null, null, o.getId(), null, null, null, null, null, false, false, false, false, null, null, "vm.modified DESC", limit, offset, null, false, false);
+        long vulnTotal = vmMapper.countByFiltersAdv(null, null, null, null, null, null, o.getId(), null, null, null, null, null, false, false, false, false, null, null, null, false, false, null, null);
+        var vulns = vmMapper.listByFiltersAdv(null, null, null, null, null, null, o.getId(), null, null, null, null, null, false, false, false, false, null, null, "vm.modified DESC", limit, offset, null, false, false, null, null, false);
         var members = organizationMapper.listMembers(o.getId());
 
         java.util.Map<String, Object> data = new java.util.LinkedHashMap<>();
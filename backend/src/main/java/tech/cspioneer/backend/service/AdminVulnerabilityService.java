@@ -59,7 +59,9 @@ public class AdminVulnerabilityService {
                                      PointsPolicyService pointsPolicyService,
                                      PointsService pointsService,
                                      OrganizationMapper organizationMapper,
-                                     org.springframework.beans.factory.ObjectProvider<tech.cspioneer.backend.search.EsIndexer> esIndexerProvider) {
+                                     VulnerabilityCountService countService,
+                                     OutboxService outboxService,
+                                     tech.cspioneer.backend.search.SearchIndexDispatcher indexDispatcher) {
         this.vmMapper = vmMapper;
         this.userMapper = userMapper;
         this.notificationMapper = notificationMapper;
@@ -82,10 +84,18 @@ public class AdminVulnerabilityService {
         this.pointsPolicyService = pointsPolicyService;
         this.pointsService = pointsService;
         this.organizationMapper = organizationMapper;
-        this.esIndexer = esIndexerProvider.getIfAvailable();
+        this.countService = countService;
+        this.outboxService = outboxService;
+        this.indexDispatcher = indexDispatcher;
     }
 
-    private final tech.cspioneer.backend.search.EsIndexer esIndexer;
+    private final tech.cspioneer.backend.search.SearchIndexDispatcher indexDispatcher;
+    private final VulnerabilityCountService countService;
+    private final OutboxService outboxService;
+
+    private boolean useOutbox() {
+        return outboxService != null && outboxService.isEnabled();
+    }
 
     @Transactional
     public VulnerabilityMetadata updateStatus(String adminUuid, String vulnUuid, String status, String rejectReason) {
@@ -119,9 +129,8 @@ public class AdminVulnerabilityService {
             notificationMapper.insert(n);
             try { notificationMapper.updateActionUrlByUuid(n.getUuid(), "/vulnerabilities/" + updated.getUuid()); } catch (Exception ignore) {}
         }
-        if (esIndexer != null && updated != null) {
-            try { esIndexer.indexOne(updated.getUuid()); } catch (Exception ignore) {}
-        }
+        if (updated != null) indexDispatcher.index(updated.getUuid());
+        if (countService != null) countService.invalidate();
 
         // 当审核将状态置为 ACTIVE 时，发放 PUBLISHED 积分（幂等保护）
         try {
@@ -133,19 +142,23 @@ public class AdminVulnerabilityService {
                     var org = organizationMapper.findById(updated.getOrganizationId());
                     if (org != null) orgUuid = org.getUuid();
                 }
-                PointsPolicyService.PreviewReq r = new PointsPolicyService.PreviewReq();
-                r.event = "PUBLISHED";
-                r.severityNum = updated.getSeverityNum() == null ? null : updated.getSeverityNum().doubleValue();
-                r.severityLevel = null;
-                var out = (orgUuid != null && !orgUuid.isBlank()) ? pointsPolicyService.previewForOrg(orgUuid, r) : pointsPolicyService.preview(r);
-                String idem = "vuln:" + updated.getUuid() + ":PUBLISHED";
-                String refType = "VULN";
-                String reason = "VULN_PUBLISHED";
-                if (submitterUuid != null && out.userDelta != 0) {
-                    pointsService.addUserPoints(submitterUuid, out.userDelta, reason, refType, updated.getUuid(), idem);
-                }
-                if (orgUuid != null && !orgUuid.isBlank() && out.orgDelta != 0) {
-                    pointsService.addOrgPoints(orgUuid, out.orgDelta, reason, refType, updated.getUuid(), idem);
+                if (useOutbox()) {
+                    VulnerabilityService.publishPointsEvent(outboxService, submitterUuid, orgUuid, "PUBLISHED", updated.getSeverityNum(), updated.getUuid());
+                } else {
+                    PointsPolicyService.PreviewReq r = new PointsPolicyService.PreviewReq();
+                    r.event = "PUBLISHED";
+                    r.severityNum = updated.getSeverityNum() == null ? null : updated.getSeverityNum().doubleValue();
+                    r.severityLevel = null;
+                    var out = (orgUuid != null && !orgUuid.isBlank()) ? pointsPolicyService.previewForOrg(orgUuid, r) : pointsPolicyService.preview(r);
+                    String idem = "vuln:" + updated.getUuid() + ":PUBLISHED";
+                    String refType = "VULN";
+                    String reason = "VULN_PUBLISHED";
+                    if (submitterUuid != null && out.userDelta != 0) {
+                        pointsService.addUserPoints(submitterUuid, out.userDelta, reason, refType, updated.getUuid(), idem);
+                    }
+                    if (orgUuid != null && !orgUuid.isBlank() && out.orgDelta != 0) {
+                        pointsService.addOrgPoints(orgUuid, out.orgDelta, reason, refType, updated.getUuid(), idem);
+                    }
                 }
             }
         } catch (Exception ignore) {}
@@ -158,8 +171,7 @@ public class AdminVulnerabilityService {
         if (vm == null) throw new ApiException(404, "漏洞不存在");
         // 软删除：设置状态为 DELETED，并更新时间
         vmMapper.updateStatusReviewByUuid(vulnUuid, tech.cspioneer.backend.enums.VulnerabilityStatus.DELETED.getCode(), null, false, null, null);
-        if (esIndexer != null) {
-            try { esIndexer.deleteOne(vulnUuid); } catch (Exception ignore) {}
-        }
+        indexDispatcher.delete(vulnUuid);
+        if (countService != null) countService.invalidate();
     }
 }
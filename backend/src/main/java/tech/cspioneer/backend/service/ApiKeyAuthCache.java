@@ -0,0 +1,198 @@
+package tech.cspioneer.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tech.cspioneer.backend.mapper.ApiKeyMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * API Key 认证缓存：按 前缀+密钥哈希 缓存已校验的认证上下文（含主体 UUID、组织 UUID），命中时不访问数据库。
+ * 条目在 TTL 或 Key 自身过期时间到达时失效；吊销/修改时本实例立即失效（事务内的写在提交后再失效一次），
+ * 并经 Redis 频道通知其他实例。last_used_time/last_used_ip 先记在内存，按固定间隔合并为一条批量 UPDATE 回写。
+ */
+@Service
+@Slf4j
+public class ApiKeyAuthCache {
+    static final String EVICT_CHANNEL = "apikey:evict";
+    // api_key.last_used_ip 列宽
+    static final int IP_MAX_LENGTH = 45;
+
+    @Value("${apikey.auth-cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${apikey.auth-cache.ttl-seconds:60}")
+    private long ttlSeconds = 60;
+
+    @Value("${apikey.auth-cache.max-entries:10000}")
+    private int maxEntries = 10000;
+
+    @Value("${apikey.last-used.flush-interval-ms:5000}")
+    private long flushIntervalMs = 5000;
+
+    private final ApiKeyMapper apiKeyMapper;
+    private final StringRedisTemplate redis;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    // 每次失效递增；加载前后代数不一致的结果不入缓存，避免与吊销并发时把旧状态写回
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<Long, ApiKeyMapper.LastUse> pendingUses = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+    private RedisMessageListenerContainer listener;
+
+    private record Entry(ApiKeyService.AuthContext ctx, long expiresAt) {}
+
+    public ApiKeyAuthCache(ApiKeyMapper apiKeyMapper, StringRedisTemplate redis) {
+        this.apiKeyMapper = apiKeyMapper;
+        this.redis = redis;
+    }
+
+    @PostConstruct
+    public void init() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "apikey-last-used-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(100, flushIntervalMs);
+        flusher.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+        if (!enabled) return;
+        try {
+            listener = new RedisMessageListenerContainer();
+            listener.setConnectionFactory(redis.getConnectionFactory());
+            listener.addMessageListener((message, pattern) -> evictLocal(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(EVICT_CHANNEL));
+            listener.afterPropertiesSet();
+            listener.start();
+        } catch (Exception e) {
+            // 订阅失败时其他实例的吊销需等 TTL 过期才生效
+            log.warn("[apikey-cache] subscribe {} failed: {}", EVICT_CHANNEL, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (listener != null) {
+            try { listener.stop(); listener.destroy(); } catch (Exception ignore) {}
+        }
+        if (flusher != null) flusher.shutdownNow();
+        flushSafely();
+    }
+
+    /**
+     * @param prefix 密钥前缀
+     * @param hash   密钥哈希
+     * @param loader 未命中时的数据库校验，返回 null 表示无效 Key（不缓存）
+     */
+    public ApiKeyService.AuthContext get(String prefix, String hash, Supplier<ApiKeyService.AuthContext> loader) {
+        if (!enabled || ttlSeconds <= 0) return loader.get();
+        String cacheKey = prefix + ":" + hash;
+        long now = System.currentTimeMillis();
+        Entry e = cache.get(cacheKey);
+        if (e != null && e.expiresAt() > now) return e.ctx();
+
+        long gen = generation.get();
+        ApiKeyService.AuthContext ctx = loader.get();
+        if (ctx != null && generation.get() == gen) {
+            long expiresAt = now + ttlSeconds * 1000L;
+            LocalDateTime keyExpire = ctx.key.getExpireTime();
+            if (keyExpire != null) expiresAt = Math.min(expiresAt, keyExpire.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            if (cache.size() >= maxEntries) {
+                cache.entrySet().removeIf(en -> en.getValue().expiresAt() <= now);
+                if (cache.size() >= maxEntries) cache.clear();
+            }
+            cache.put(cacheKey, new Entry(ctx, expiresAt));
+        }
+        return ctx;
+    }
+
+    /** 记录一次成功使用，由后台定时合并回写；IP 来自请求头，超出列宽的部分截断 */
+    public void recordUse(Long apiKeyId, String ip) {
+        if (apiKeyId == null) return;
+        if (ip != null && ip.length() > IP_MAX_LENGTH) ip = ip.substring(0, IP_MAX_LENGTH);
+        pendingUses.put(apiKeyId, new ApiKeyMapper.LastUse(apiKeyId, LocalDateTime.now(), ip));
+    }
+
+    /** Key 被吊销或修改后调用：本实例立即失效，并通知其他实例 */
+    public void evict(String keyUuid) {
+        if (keyUuid == null) return;
+        evictAndPublish(keyUuid);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictAndPublish(keyUuid);
+                }
+            });
+        }
+    }
+
+    private void evictAndPublish(String keyUuid) {
+        evictLocal(keyUuid);
+        if (!enabled) return;
+        try {
+            redis.convertAndSend(EVICT_CHANNEL, keyUuid);
+        } catch (Exception e) {
+            log.warn("[apikey-cache] publish evict key={} failed: {}", keyUuid, e.getMessage());
+        }
+    }
+
+    void evictLocal(String keyUuid) {
+        generation.incrementAndGet();
+        cache.values().removeIf(en -> en.ctx().key != null && keyUuid.equals(en.ctx().key.getUuid()));
+    }
+
+    /** 回写积累的最近使用记录，返回写入条数 */
+    public int flush() {
+        if (pendingUses.isEmpty()) return 0;
+        List<ApiKeyMapper.LastUse> batch = new ArrayList<>();
+        for (Long id : new ArrayList<>(pendingUses.keySet())) {
+            ApiKeyMapper.LastUse u = pendingUses.remove(id);
+            if (u != null) batch.add(u);
+        }
+        if (batch.isEmpty()) return 0;
+        try {
+            apiKeyMapper.touchBatch(batch);
+            return batch.size();
+        } catch (RuntimeException e) {
+            log.warn("[apikey-cache] flush last-used batch size={} failed, retrying per key: {}", batch.size(), e.getMessage());
+        }
+        // 逐行重试，仍失败的记录丢弃：最近使用记录仅供参考，Key 下次使用时会重新记录，不让一行坏数据阻塞所有 Key
+        int written = 0;
+        for (var u : batch) {
+            try {
+                apiKeyMapper.touchBatch(List.of(u));
+                written++;
+            } catch (RuntimeException e) {
+                log.warn("[apikey-cache] drop last-used key={} msg={}", u.id(), e.getMessage());
+            }
+        }
+        return written;
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("[apikey-cache] flush last-used failed: {}", e.getMessage());
+        }
+    }
+}
@@ -36,16 +36,21 @@ public class ApiKeyService {
     private final OrganizationMapper organizationMapper;
     private final LnkUserOrganizationMapper lnkUserOrganizationMapper;
     private final ApiKeyUsageLogMapper apiKeyUsageLogMapper;
+    private final ApiKeyAuthCache authCache;
+    private final ApiKeyUsageRollupService usageRollupService;
 
     @Value("${apikey.prefix:cosv}")
     private String apiKeyPrefix;
 
-    public ApiKeyService(ApiKeyMapper apiKeyMapper, UserMapper userMapper, OrganizationMapper organizationMapper, LnkUserOrganizationMapper lnkUserOrganizationMapper, ApiKeyUsageLogMapper apiKeyUsageLogMapper) {
+    public ApiKeyService(ApiKeyMapper apiKeyMapper, UserMapper userMapper, OrganizationMapper organizationMapper, LnkUserOrganizationMapper lnkUserOrganizationMapper, ApiKeyUsageLogMapper apiKeyUsageLogMapper,
+                         ApiKeyAuthCache authCache, ApiKeyUsageRollupService usageRollupService) {
         this.apiKeyMapper = apiKeyMapper;
         this.userMapper = userMapper;
         this.organizationMapper = organizationMapper;
         this.lnkUserOrganizationMapper = lnkUserOrganizationMapper;
         this.apiKeyUsageLogMapper = apiKeyUsageLogMapper;
+        this.authCache = authCache;
+        this.usageRollupService = usageRollupService;
     }
 
     public static class CreatedKey {
@@ -130,6 +135,7 @@ public class ApiKeyService {
         }
         if (!allowed) throw new ApiException(1012, "权限不足");
         apiKeyMapper.updateStatus(keyUuid, ApiKeyStatus.REVOKED.name());
+        authCache.evict(keyUuid);
     }
 
     public static class UsagePage {
@@ -139,6 +145,31 @@ public class ApiKeyService {
     }
 
     public UsagePage usage(String userUuid, String keyUuid, int page, int size, String fromTs, String toTs) {
+        ApiKey key = requireUsageAccess(userUuid, keyUuid);
+        int limit = Math.max(1, Math.min(100, size <= 0 ? 20 : size));
+        int offset = Math.max(0, page <= 0 ? 0 : (page - 1) * limit);
+        Long apiKeyId = key.getId();
+        var items = apiKeyUsageLogMapper.listByApiKey(apiKeyId, emptyToNull(fromTs), emptyToNull(toTs), limit, offset);
+        long total = apiKeyUsageLogMapper.countByApiKey(apiKeyId, emptyToNull(fromTs), emptyToNull(toTs));
+        return new UsagePage(items, total);
+    }
+
+    // 按粒度（MINUTE/HOUR/DAY）的请求数时间序列与状态类别分布，读汇总表
+    public java.util.Map<String, Object> usageStats(String userUuid, String keyUuid, String granularity, String fromTs, String toTs) {
+        ApiKey key = requireUsageAccess(userUuid, keyUuid);
+        var range = ApiKeyUsageRollupService.range(granularity, parseTime(fromTs), parseTime(toTs));
+        return usageRollupService.series(key.getId(), range);
+    }
+
+    // 区间内请求最多的路由模板
+    public java.util.List<java.util.Map<String, Object>> usagePaths(String userUuid, String keyUuid, String granularity, String fromTs, String toTs, int limit) {
+        ApiKey key = requireUsageAccess(userUuid, keyUuid);
+        var range = ApiKeyUsageRollupService.range(granularity, parseTime(fromTs), parseTime(toTs));
+        return usageRollupService.topPaths(key.getId(), range, limit);
+    }
+
+    // 使用记录仅创建者或所属组织管理员可查看
+    private ApiKey requireUsageAccess(String userUuid, String keyUuid) {
         User user = requireUser(userUuid);
         ApiKey key = apiKeyMapper.findByUuid(keyUuid);
         if (key == null) throw new ApiException(404, "密钥不存在");
@@ -148,31 +179,37 @@ public class ApiKeyService {
             if (link != null && link.getRole() == OrganizationRole.ADMIN) allowed = true;
         }
         if (!allowed) throw new ApiException(1012, "权限不足");
-        int limit = Math.max(1, Math.min(100, size <= 0 ? 20 : size));
-        int offset = Math.max(0, page <= 0 ? 0 : (page - 1) * limit);
-        Long apiKeyId = key.getId();
-        var items = apiKeyUsageLogMapper.listByApiKey(apiKeyId, emptyToNull(fromTs), emptyToNull(toTs), limit, offset);
-        long total = apiKeyUsageLogMapper.countByApiKey(apiKeyId, emptyToNull(fromTs), emptyToNull(toTs));
-        return new UsagePage(items, total);
+        return key;
+    }
+
+    // 支持 yyyy-MM-dd、yyyy-MM-dd HH:mm:ss、ISO-8601（带时区时换算为本地时间）
+    private LocalDateTime parseTime(String s) {
+        s = emptyToNull(s);
+        if (s == null) return null;
+        try {
+            if (s.length() == 10) return java.time.LocalDate.parse(s).atStartOfDay();
+            String t = s.replace(' ', 'T');
+            try {
+                return LocalDateTime.parse(t);
+            } catch (java.time.format.DateTimeParseException e) {
+                return OffsetDateTime.parse(t).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            }
+        } catch (java.time.format.DateTimeParseException e) {
+            throw new ApiException(400, "时间格式无效");
+        }
     }
 
     private String emptyToNull(String s) { return (s == null || s.isBlank()) ? null : s; }
 
-    public ApiKey validateAndTouch(String headerValue, String ip) {
+    // 解析请求头中的 Key，返回 {前缀, 密钥哈希}；格式不符返回 null
+    private String[] prefixAndHash(String headerValue) {
         if (headerValue == null || headerValue.isBlank()) return null;
         String token = headerValue.trim();
         // 支持两种格式："ApiKey <token>" 或直接传 token
         if (token.toLowerCase().startsWith("apikey ")) token = token.substring(7).trim();
         String[] parts = token.split("_");
         if (parts.length < 3) return null;
-        String prefix = parts[1];
-        String secret = parts[2];
-        String hash = sha256Hex(secret);
-        ApiKey k = apiKeyMapper.findActiveByPrefixAndHash(prefix, hash);
-        if (k != null) {
-            apiKeyMapper.touch(k.getId(), ip);
-        }
-        return k;
+        return new String[]{parts[1], sha256Hex(parts[2])};
     }
 
     public static class AuthContext {
@@ -182,8 +219,19 @@ public class ApiKeyService {
         public String subjectType; // USER or ORG
     }
 
+    /**
+     * 校验 Key 并解析认证主体。已校验过的 Key 从 {@link ApiKeyAuthCache} 取得，不访问数据库；
+     * 最近使用时间/IP 由缓存合并后批量回写。
+     */
     public AuthContext validateAndResolveContext(String headerValue, String ip) {
-        ApiKey k = validateAndTouch(headerValue, ip);
+        String[] ph = prefixAndHash(headerValue);
+        if (ph == null) return null;
+        AuthContext ctx = authCache.get(ph[0], ph[1], () -> resolveContext(apiKeyMapper.findActiveByPrefixAndHash(ph[0], ph[1])));
+        if (ctx != null) authCache.recordUse(ctx.key.getId(), ip);
+        return ctx;
+    }
+
+    private AuthContext resolveContext(ApiKey k) {
         if (k == null) return null;
         AuthContext ctx = new AuthContext();
         ctx.key = k;
@@ -271,6 +319,7 @@ public class ApiKeyService {
                 description, descProvided,
                 scopesStr, scopesProvided,
                 expireTime, expireProvided);
+        authCache.evict(keyUuid);
 
         return apiKeyMapper.findByUuid(keyUuid);
     }
@@ -0,0 +1,173 @@
+package tech.cspioneer.backend.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import tech.cspioneer.backend.entity.ApiKeyUsageLog;
+import tech.cspioneer.backend.mapper.ApiKeyUsageLogMapper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * API Key 使用日志的缓冲写入：请求线程只把记录放入有界环形缓冲，后台线程每 flush-interval-ms
+ * 或累计 batch-size 条时以多行 INSERT 写入。缓冲满时按 overflow-policy 处理：
+ * DROP 丢弃并计数；CALLER_RUNS 由请求线程直接写入该条（以请求延迟换取不丢日志）。
+ * 每批写入成功后累加到使用量汇总表（见 {@link ApiKeyUsageRollupService}）。
+ */
+@Service
+@Slf4j
+public class ApiKeyUsageRecorder {
+
+    @Value("${apikey.usage-log.buffer-size:8192}")
+    private int bufferSize = 8192;
+
+    @Value("${apikey.usage-log.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${apikey.usage-log.flush-interval-ms:1000}")
+    private long flushIntervalMs = 1000;
+
+    @Value("${apikey.usage-log.overflow-policy:DROP}")
+    private String overflowPolicy = "DROP";
+
+    private final ApiKeyUsageLogMapper logMapper;
+    private final ApiKeyUsageRollupService rollupService;
+    private final MeterRegistry meterRegistry;
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private BoundedRingBuffer<ApiKeyUsageLog> buffer;
+    private volatile Thread drainer;
+    private volatile boolean running;
+
+    public ApiKeyUsageRecorder(ApiKeyUsageLogMapper logMapper, ApiKeyUsageRollupService rollupService,
+                               ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.logMapper = logMapper;
+        this.rollupService = rollupService;
+        this.meterRegistry = meterRegistryProvider.getIfAvailable();
+    }
+
+    @PostConstruct
+    public void init() {
+        buffer = new BoundedRingBuffer<>(Math.max(16, bufferSize));
+        running = true;
+        Thread t = new Thread(this::drainLoop, "apikey-usage-drain");
+        t.setDaemon(true);
+        drainer = t;
+        t.start();
+        if (meterRegistry != null) {
+            FunctionCounter.builder("apikey.usage_log.events", enqueued, LongAdder::sum).tag("result", "enqueued").register(meterRegistry);
+            FunctionCounter.builder("apikey.usage_log.events", dropped, LongAdder::sum).tag("result", "dropped").register(meterRegistry);
+            FunctionCounter.builder("apikey.usage_log.events", written, LongAdder::sum).tag("result", "written").register(meterRegistry);
+            FunctionCounter.builder("apikey.usage_log.events", failed, LongAdder::sum).tag("result", "failed").register(meterRegistry);
+            Gauge.builder("apikey.usage_log.buffer", buffer, BoundedRingBuffer::size).register(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        Thread t = drainer;
+        if (t != null) {
+            LockSupport.unpark(t);
+            try { t.join(TimeUnit.SECONDS.toMillis(5)); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+    }
+
+    /** 请求线程调用，不访问数据库（CALLER_RUNS 且缓冲已满时除外） */
+    public void record(ApiKeyUsageLog entry) {
+        if (entry == null) return;
+        if (buffer.offer(entry)) {
+            enqueued.increment();
+            if (buffer.size() >= batchSize) LockSupport.unpark(drainer);
+            return;
+        }
+        if ("CALLER_RUNS".equalsIgnoreCase(overflowPolicy)) {
+            write(List.of(entry));
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private void drainLoop() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(10, flushIntervalMs));
+        long lastFlush = System.nanoTime();
+        while (running) {
+            if (buffer.size() >= batchSize || System.nanoTime() - lastFlush >= intervalNanos) {
+                drainSafely();
+                lastFlush = System.nanoTime();
+            }
+            LockSupport.parkNanos(this, Math.max(0, intervalNanos - (System.nanoTime() - lastFlush)) + 1);
+        }
+        drainSafely(); // 停止前写出剩余记录
+    }
+
+    // 单次写出的任何异常（含汇总更新）只记日志，不终止写出线程，否则缓冲填满后使用记录全部丢弃
+    private void drainSafely() {
+        try {
+            drainOnce();
+        } catch (Throwable t) {
+            log.warn("[apikey-usage] drain failed: {}", t.toString());
+        }
+    }
+
+    /** 取出当前缓冲中的全部记录，按 batch-size 分批写入，返回写入条数 */
+    int drainOnce() {
+        int total = 0;
+        List<ApiKeyUsageLog> batch = new ArrayList<>(Math.max(1, batchSize));
+        for (ApiKeyUsageLog e; (e = buffer.poll()) != null; ) {
+            batch.add(e);
+            if (batch.size() >= Math.max(1, batchSize)) {
+                total += write(batch);
+                batch = new ArrayList<>(Math.max(1, batchSize));
+            }
+        }
+        if (!batch.isEmpty()) total += write(batch);
+        return total;
+    }
+
+    private int write(List<ApiKeyUsageLog> batch) {
+        try {
+            logMapper.insertBatch(batch);
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                // 使用日志非关键数据：单条写入失败计数后丢弃
+                failed.increment();
+                log.warn("[apikey-usage] insert 1 row failed: {}", e.getMessage());
+                return 0;
+            }
+            // 多行 INSERT 中一条违反约束即整批失败：逐条重试，只丢弃坏记录
+            log.warn("[apikey-usage] insert {} rows failed, retrying per row: {}", batch.size(), e.getMessage());
+            int n = 0;
+            for (ApiKeyUsageLog entry : batch) n += write(List.of(entry));
+            return n;
+        }
+        written.add(batch.size());
+        rollupService.apply(batch);
+        return batch.size();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("buffered", buffer == null ? 0 : buffer.size());
+        m.put("capacity", buffer == null ? 0 : buffer.capacity());
+        m.put("enqueued", enqueued.sum());
+        m.put("dropped", dropped.sum());
+        m.put("written", written.sum());
+        m.put("failed", failed.sum());
+        return m;
+    }
+}
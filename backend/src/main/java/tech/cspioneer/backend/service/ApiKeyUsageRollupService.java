@@ -0,0 +1,286 @@
+package tech.cspioneer.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import tech.cspioneer.backend.common.ApiException;
+import tech.cspioneer.backend.entity.ApiKeyUsageLog;
+import tech.cspioneer.backend.mapper.ApiKeyUsageLogMapper;
+import tech.cspioneer.backend.mapper.ApiKeyUsageRollupMapper;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * API Key 使用量汇总：原始日志每批写入后，按 分钟/小时/天 桶、路由模板、状态类别累加到 api_key_usage_rollup；
+ * 统计接口只读汇总表，查询代价只与桶数有关，与请求量无关。后台按保留期分批清理原始日志与细粒度汇总。
+ */
+@Service
+@Slf4j
+public class ApiKeyUsageRollupService {
+    public static final String MINUTE = "MINUTE";
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+    static final List<String> STATUS_CLASSES = List.of("2xx", "3xx", "4xx", "5xx");
+
+    private static final int DELETE_CHUNK = 5000;
+    private static final int MAX_TEMPLATE_LEN = 255;
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|\\d+|[0-9a-fA-F]{24,}");
+
+    @Value("${apikey.usage-log.retention-days:30}")
+    private int logRetentionDays = 30;
+
+    @Value("${apikey.usage-rollup.minute-retention-hours:48}")
+    private int minuteRetentionHours = 48;
+
+    @Value("${apikey.usage-rollup.hour-retention-days:90}")
+    private int hourRetentionDays = 90;
+
+    // 0 表示天级汇总永久保留
+    @Value("${apikey.usage-rollup.day-retention-days:0}")
+    private int dayRetentionDays = 0;
+
+    @Value("${apikey.usage-rollup.prune-interval-minutes:60}")
+    private long pruneIntervalMinutes = 60;
+
+    private final ApiKeyUsageRollupMapper rollupMapper;
+    private final ApiKeyUsageLogMapper logMapper;
+    private ScheduledExecutorService pruner;
+
+    public ApiKeyUsageRollupService(ApiKeyUsageRollupMapper rollupMapper, ApiKeyUsageLogMapper logMapper) {
+        this.rollupMapper = rollupMapper;
+        this.logMapper = logMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (pruneIntervalMinutes <= 0) return;
+        pruner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "apikey-usage-prune");
+            t.setDaemon(true);
+            return t;
+        });
+        pruner.scheduleWithFixedDelay(this::pruneSafely, 1, pruneIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pruner != null) pruner.shutdownNow();
+    }
+
+    /** 累加一批已写入的原始日志；失败只记录告警（汇总略少于原始日志，不影响请求） */
+    public void apply(List<ApiKeyUsageLog> batch) {
+        List<ApiKeyUsageRollupMapper.Row> rows = aggregate(batch);
+        if (rows.isEmpty()) return;
+        try {
+            rollupMapper.upsert(rows);
+        } catch (Exception e) {
+            log.warn("[apikey-usage] rollup {} rows failed: {}", rows.size(), e.getMessage());
+        }
+    }
+
+    /** 把一批日志合并为汇总增量；按主键排序，多实例并发累加时加锁顺序一致，避免死锁 */
+    static List<ApiKeyUsageRollupMapper.Row> aggregate(List<ApiKeyUsageLog> batch) {
+        Map<String, long[]> counts = new LinkedHashMap<>();
+        Map<String, ApiKeyUsageRollupMapper.Row> proto = new LinkedHashMap<>();
+        for (ApiKeyUsageLog l : batch) {
+            if (l == null || l.getApiKeyId() == null) continue;
+            LocalDateTime ts = l.getRequestTimestamp() != null ? l.getRequestTimestamp() : LocalDateTime.now();
+            String template = l.getPathTemplate() != null ? truncate(l.getPathTemplate()) : pathTemplate(l.getRequestPath());
+            String statusClass = statusClass(l.getResponseStatusCode());
+            for (String unit : List.of(MINUTE, HOUR, DAY)) {
+                LocalDateTime start = bucketStart(unit, ts);
+                String k = l.getApiKeyId() + "|" + unit + "|" + start + "|" + template + "|" + statusClass;
+                long[] c = counts.computeIfAbsent(k, x -> new long[1]);
+                c[0]++;
+                proto.putIfAbsent(k, new ApiKeyUsageRollupMapper.Row(l.getApiKeyId(), unit, start, template, statusClass, 0));
+            }
+        }
+        List<ApiKeyUsageRollupMapper.Row> rows = new ArrayList<>(proto.size());
+        for (var e : proto.entrySet()) {
+            var p = e.getValue();
+            rows.add(new ApiKeyUsageRollupMapper.Row(p.apiKeyId(), p.bucketUnit(), p.bucketStart(), p.pathTemplate(), p.statusClass(), counts.get(e.getKey())[0]));
+        }
+        rows.sort(Comparator.comparing(ApiKeyUsageRollupMapper.Row::apiKeyId)
+                .thenComparing(ApiKeyUsageRollupMapper.Row::bucketUnit)
+                .thenComparing(ApiKeyUsageRollupMapper.Row::bucketStart)
+                .thenComparing(ApiKeyUsageRollupMapper.Row::pathTemplate)
+                .thenComparing(ApiKeyUsageRollupMapper.Row::statusClass));
+        return rows;
+    }
+
+    /** 无路由模板时的兜底：去掉查询串，UUID/数字/长十六进制段替换为 {id}，避免模板基数随资源数增长 */
+    static String pathTemplate(String path) {
+        if (path == null || path.isBlank()) return "/";
+        int q = path.indexOf('?');
+        if (q >= 0) path = path.substring(0, q);
+        String[] segs = path.split("/", -1);
+        for (int i = 0; i < segs.length; i++) {
+            if (!segs[i].isEmpty() && ID_SEGMENT.matcher(segs[i]).matches()) segs[i] = "{id}";
+        }
+        return truncate(String.join("/", segs));
+    }
+
+    static String statusClass(Integer status) {
+        if (status == null || status >= 500) return "5xx";
+        if (status < 300) return "2xx";
+        return (status / 100) + "xx";
+    }
+
+    static LocalDateTime bucketStart(String unit, LocalDateTime ts) {
+        return switch (unit) {
+            case MINUTE -> ts.truncatedTo(ChronoUnit.MINUTES);
+            case HOUR -> ts.truncatedTo(ChronoUnit.HOURS);
+            default -> ts.truncatedTo(ChronoUnit.DAYS);
+        };
+    }
+
+    private static String truncate(String s) {
+        return s.length() > MAX_TEMPLATE_LEN ? s.substring(0, MAX_TEMPLATE_LEN) : s;
+    }
+
+    /** 查询区间：按粒度补齐缺省值并限制最大桶数 */
+    public record Range(String unit, LocalDateTime from, LocalDateTime to) {}
+
+    public static Range range(String granularity, LocalDateTime from, LocalDateTime to) {
+        String unit = granularity == null || granularity.isBlank() ? HOUR : granularity.trim().toUpperCase();
+        Duration step;
+        Duration defaultSpan;
+        Duration maxSpan;
+        switch (unit) {
+            case MINUTE -> { step = Duration.ofMinutes(1); defaultSpan = Duration.ofHours(1); maxSpan = Duration.ofHours(6); }
+            case HOUR -> { step = Duration.ofHours(1); defaultSpan = Duration.ofHours(24); maxSpan = Duration.ofDays(7); }
+            case DAY -> { step = Duration.ofDays(1); defaultSpan = Duration.ofDays(30); maxSpan = Duration.ofDays(366); }
+            default -> throw new ApiException(400, "不支持的统计粒度");
+        }
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        end = bucketStart(unit, end).plus(step); // 包含 to 所在的桶
+        LocalDateTime start = from != null ? bucketStart(unit, from) : end.minus(defaultSpan);
+        if (!start.isBefore(end)) throw new ApiException(400, "时间范围无效");
+        if (Duration.between(start, end).compareTo(maxSpan) > 0) start = end.minus(maxSpan);
+        return new Range(unit, start, end);
+    }
+
+    /** 时间序列（缺失的桶补 0）与区间内各状态类别合计 */
+    public Map<String, Object> series(Long apiKeyId, Range r) {
+        Map<LocalDateTime, Map<String, Long>> buckets = new LinkedHashMap<>();
+        for (LocalDateTime t = r.from(); t.isBefore(r.to()); t = step(r.unit(), t)) buckets.put(t, emptyMix());
+        Map<String, Long> mix = emptyMix();
+        long total = 0;
+        for (Map<String, Object> row : rollupMapper.series(apiKeyId, r.unit(), r.from(), r.to())) {
+            LocalDateTime t = toLocalDateTime(row.get("bucketStart"));
+            String sc = String.valueOf(row.get("statusClass"));
+            long n = ((Number) row.get("requestCount")).longValue();
+            buckets.computeIfAbsent(t, x -> emptyMix()).merge(sc, n, Long::sum);
+            mix.merge(sc, n, Long::sum);
+            total += n;
+        }
+        List<Map<String, Object>> points = new ArrayList<>(buckets.size());
+        for (var e : buckets.entrySet()) {
+            Map<String, Object> p = new LinkedHashMap<>();
+            p.put("bucket", e.getKey().toString());
+            p.put("total", e.getValue().values().stream().mapToLong(Long::longValue).sum());
+            p.put("byStatus", e.getValue());
+            points.add(p);
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("granularity", r.unit());
+        m.put("from", r.from().toString());
+        m.put("to", r.to().toString());
+        m.put("total", total);
+        m.put("statusMix", mix);
+        m.put("series", points);
+        return m;
+    }
+
+    /** 区间内请求最多的路由模板 */
+    public List<Map<String, Object>> topPaths(Long apiKeyId, Range r, int limit) {
+        int n = Math.max(1, Math.min(50, limit <= 0 ? 10 : limit));
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (Map<String, Object> row : rollupMapper.topPaths(apiKeyId, r.unit(), r.from(), r.to(), n)) {
+            Map<String, Long> mix = new LinkedHashMap<>();
+            for (String sc : STATUS_CLASSES) mix.put(sc, ((Number) row.get("c" + sc)).longValue());
+            Map<String, Object> p = new LinkedHashMap<>();
+            p.put("path", row.get("pathTemplate"));
+            p.put("total", ((Number) row.get("requestCount")).longValue());
+            p.put("byStatus", mix);
+            out.add(p);
+        }
+        return out;
+    }
+
+    private static LocalDateTime step(String unit, LocalDateTime t) {
+        return switch (unit) {
+            case MINUTE -> t.plusMinutes(1);
+            case HOUR -> t.plusHours(1);
+            default -> t.plusDays(1);
+        };
+    }
+
+    private static Map<String, Long> emptyMix() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        for (String sc : STATUS_CLASSES) m.put(sc, 0L);
+        return m;
+    }
+
+    private static LocalDateTime toLocalDateTime(Object v) {
+        if (v instanceof LocalDateTime t) return t;
+        if (v instanceof java.sql.Timestamp ts) return ts.toLocalDateTime();
+        return LocalDateTime.parse(String.valueOf(v).replace(' ', 'T'));
+    }
+
+    /** 按保留期清理原始日志与各粒度汇总，返回删除行数 */
+    public long prune() {
+        LocalDateTime now = LocalDateTime.now();
+        long deleted = 0;
+        if (logRetentionDays > 0) {
+            LocalDateTime before = now.minusDays(logRetentionDays);
+            deleted += deleteInChunks(() -> logMapper.deleteBefore(before, DELETE_CHUNK));
+        }
+        if (minuteRetentionHours > 0) {
+            LocalDateTime before = now.minusHours(minuteRetentionHours);
+            deleted += deleteInChunks(() -> rollupMapper.deleteBefore(MINUTE, before, DELETE_CHUNK));
+        }
+        if (hourRetentionDays > 0) {
+            LocalDateTime before = now.minusDays(hourRetentionDays);
+            deleted += deleteInChunks(() -> rollupMapper.deleteBefore(HOUR, before, DELETE_CHUNK));
+        }
+        if (dayRetentionDays > 0) {
+            LocalDateTime before = now.minusDays(dayRetentionDays);
+            deleted += deleteInChunks(() -> rollupMapper.deleteBefore(DAY, before, DELETE_CHUNK));
+        }
+        return deleted;
+    }
+
+    private static long deleteInChunks(java.util.function.IntSupplier chunk) {
+        long total = 0;
+        int n;
+        do {
+            n = chunk.getAsInt();
+            total += n;
+        } while (n >= DELETE_CHUNK);
+        return total;
+    }
+
+    private void pruneSafely() {
+        try {
+            long n = prune();
+            if (n > 0) log.info("[apikey-usage] pruned {} rows", n);
+        } catch (Exception e) {
+            log.warn("[apikey-usage] prune failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package tech.cspioneer.backend.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 有界无锁环形缓冲（多生产者、单消费者）：每个槽位带序号，生产者 CAS 领取写位置后写入元素并发布序号，
+ * 消费者只在序号已发布时读取。容量取不小于给定值的 2 的幂；满时 offer 立即返回 false，不阻塞。
+ */
+final class BoundedRingBuffer<T> {
+    private final Object[] items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head = 0; // 仅消费者线程写
+
+    BoundedRingBuffer(int requestedCapacity) {
+        int cap = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.items = new Object[cap];
+        this.sequences = new AtomicLongArray(cap);
+        for (int i = 0; i < cap; i++) sequences.set(i, i);
+        this.mask = cap - 1;
+    }
+
+    int capacity() {
+        return items.length;
+    }
+
+    /** 近似元素数（并发下仅供监控与触发批量写入） */
+    int size() {
+        long n = tail.get() - head;
+        return (int) Math.max(0, Math.min(items.length, n));
+    }
+
+    boolean offer(T item) {
+        long pos = tail.get();
+        for (;;) {
+            int idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    items[idx] = item;
+                    sequences.set(idx, pos + 1); // 发布
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false; // 满：消费者尚未释放该槽位
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /** 仅由单个消费者线程调用；空或下一个槽位尚未发布时返回 null */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long pos = head;
+        int idx = (int) (pos & mask);
+        if (sequences.get(idx) != pos + 1) return null;
+        T item = (T) items[idx];
+        items[idx] = null;
+        sequences.set(idx, pos + items.length); // 释放给下一轮生产者
+        head = pos + 1;
+        return item;
+    }
+}
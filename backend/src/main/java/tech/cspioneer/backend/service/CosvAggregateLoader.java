@@ -0,0 +1,204 @@
+package tech.cspioneer.backend.service;
+
+import org.springframework.stereotype.Component;
+import tech.cspioneer.backend.entity.*;
+import tech.cspioneer.backend.mapper.*;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * COSV 聚合加载器：按一组漏洞ID对每张子表各发起一次 IN 查询，在内存中拼装为聚合对象。
+ * 查询次数与包/范围/署名数量无关。当前用于详情视图与更新时的子表比对；
+ * ES 索引文档只冗余别名与标签，由 EsIndexer 按页各一次 IN 查询加载，不经此类。
+ * 需要批量组装完整 COSV 的路径（如导出）应使用 {@link #loadAll}，而非逐条调用 {@link #load}。
+ */
+@Component
+public class CosvAggregateLoader {
+    // 单条 IN 语句的最大参数个数，超出时分片查询
+    private static final int CHUNK = 500;
+
+    private final VulnerabilityMetadataAliasMapper aliasMapper;
+    private final VulnerabilityMetadataRelatedMapper relatedMapper;
+    private final VulnerabilityMetadataReferenceMapper referenceMapper;
+    private final VulnerabilityMetadataCweMapper cweMapper;
+    private final VulnerabilityMetadataTimelineMapper timelineMapper;
+    private final VulnerabilityMetadataSeverityMapper severityMapper;
+    private final VulnerabilityAffectedPackageMapper affectedPackageMapper;
+    private final VulnerabilityAffectedCommitMapper affectedCommitMapper;
+    private final VulnerabilityAffectedRangeMapper affectedRangeMapper;
+    private final VulnerabilityAffectedRangeEventMapper affectedRangeEventMapper;
+    private final VulnerabilityAffectedVersionMapper affectedVersionMapper;
+    private final VulnerabilityPatchDetailMapper patchDetailMapper;
+    private final VulnerabilityPatchBranchMapper patchBranchMapper;
+    private final VulnerabilityPatchTagMapper patchTagMapper;
+    private final VulnerabilityContributorMapper contributorMapper;
+    private final VulnerabilityCreditMapper creditMapper;
+    private final VulnerabilityCreditContactMapper creditContactMapper;
+    private final VulnerabilityExploitStatusMapper exploitStatusMapper;
+
+    public CosvAggregateLoader(VulnerabilityMetadataAliasMapper aliasMapper,
+                               VulnerabilityMetadataRelatedMapper relatedMapper,
+                               VulnerabilityMetadataReferenceMapper referenceMapper,
+                               VulnerabilityMetadataCweMapper cweMapper,
+                               VulnerabilityMetadataTimelineMapper timelineMapper,
+                               VulnerabilityMetadataSeverityMapper severityMapper,
+                               VulnerabilityAffectedPackageMapper affectedPackageMapper,
+                               VulnerabilityAffectedCommitMapper affectedCommitMapper,
+                               VulnerabilityAffectedRangeMapper affectedRangeMapper,
+                               VulnerabilityAffectedRangeEventMapper affectedRangeEventMapper,
+                               VulnerabilityAffectedVersionMapper affectedVersionMapper,
+                               VulnerabilityPatchDetailMapper patchDetailMapper,
+                               VulnerabilityPatchBranchMapper patchBranchMapper,
+                               VulnerabilityPatchTagMapper patchTagMapper,
+                               VulnerabilityContributorMapper contributorMapper,
+                               VulnerabilityCreditMapper creditMapper,
+                               VulnerabilityCreditContactMapper creditContactMapper,
+                               VulnerabilityExploitStatusMapper exploitStatusMapper) {
+        this.aliasMapper = aliasMapper;
+        this.relatedMapper = relatedMapper;
+        this.referenceMapper = referenceMapper;
+        this.cweMapper = cweMapper;
+        this.timelineMapper = timelineMapper;
+        this.severityMapper = severityMapper;
+        this.affectedPackageMapper = affectedPackageMapper;
+        this.affectedCommitMapper = affectedCommitMapper;
+        this.affectedRangeMapper = affectedRangeMapper;
+        this.affectedRangeEventMapper = affectedRangeEventMapper;
+        this.affectedVersionMapper = affectedVersionMapper;
+        this.patchDetailMapper = patchDetailMapper;
+        this.patchBranchMapper = patchBranchMapper;
+        this.patchTagMapper = patchTagMapper;
+        this.contributorMapper = contributorMapper;
+        this.creditMapper = creditMapper;
+        this.creditContactMapper = creditContactMapper;
+        this.exploitStatusMapper = exploitStatusMapper;
+    }
+
+    /** 单个漏洞的 COSV 子表聚合（各列表均按写入顺序排列，非 null） */
+    public static class CosvAggregate {
+        public final List<VulnerabilityMetadataAlias> aliases = new ArrayList<>();
+        public final List<VulnerabilityMetadataRelated> related = new ArrayList<>();
+        public final List<VulnerabilityMetadataReference> references = new ArrayList<>();
+        public final List<VulnerabilityMetadataCwe> cwes = new ArrayList<>();
+        public final List<VulnerabilityMetadataTimeline> timeline = new ArrayList<>();
+        public final List<VulnerabilityMetadataSeverity> severities = new ArrayList<>();
+        public final List<AffectedNode> affected = new ArrayList<>();
+        public final List<PatchNode> patchDetails = new ArrayList<>();
+        public final List<VulnerabilityContributor> contributors = new ArrayList<>();
+        public final List<CreditNode> credits = new ArrayList<>();
+        public final List<VulnerabilityExploitStatus> exploitStatus = new ArrayList<>();
+    }
+
+    public static class AffectedNode {
+        public final VulnerabilityAffectedPackage pkg;
+        public final List<VulnerabilityAffectedCommit> commits = new ArrayList<>();
+        public final List<RangeNode> ranges = new ArrayList<>();
+        public final List<VulnerabilityAffectedVersion> versions = new ArrayList<>();
+        AffectedNode(VulnerabilityAffectedPackage pkg) { this.pkg = pkg; }
+    }
+
+    public static class RangeNode {
+        public final VulnerabilityAffectedRange range;
+        public final List<VulnerabilityAffectedRangeEvent> events = new ArrayList<>();
+        RangeNode(VulnerabilityAffectedRange range) { this.range = range; }
+    }
+
+    public static class PatchNode {
+        public final VulnerabilityPatchDetail detail;
+        public final List<VulnerabilityPatchBranch> branches = new ArrayList<>();
+        public final List<VulnerabilityPatchTag> tags = new ArrayList<>();
+        PatchNode(VulnerabilityPatchDetail detail) { this.detail = detail; }
+    }
+
+    public static class CreditNode {
+        public final VulnerabilityCredit credit;
+        public final List<VulnerabilityCreditContact> contacts = new ArrayList<>();
+        CreditNode(VulnerabilityCredit credit) { this.credit = credit; }
+    }
+
+    public CosvAggregate load(Long vulnerabilityId) {
+        if (vulnerabilityId == null) return new CosvAggregate();
+        return loadAll(List.of(vulnerabilityId)).get(vulnerabilityId);
+    }
+
+    /**
+     * 批量加载：返回的 Map 对每个传入ID都有一个（可能为空的）聚合，迭代顺序与入参一致。
+     */
+    public Map<Long, CosvAggregate> loadAll(Collection<Long> vulnerabilityIds) {
+        Map<Long, CosvAggregate> out = new LinkedHashMap<>();
+        if (vulnerabilityIds == null) return out;
+        for (Long id : vulnerabilityIds) if (id != null) out.computeIfAbsent(id, k -> new CosvAggregate());
+        if (out.isEmpty()) return out;
+        List<Long> ids = new ArrayList<>(out.keySet());
+
+        for (var e : fetch(ids, aliasMapper::listByVulnerabilityIds)) out.get(e.getVulnerabilityMetadataId()).aliases.add(e);
+        for (var e : fetch(ids, relatedMapper::listByVulnerabilityIds)) out.get(e.getVulnerabilityMetadataId()).related.add(e);
+        for (var e : fetch(ids, referenceMapper::listByVulnerabilityIds)) out.get(e.getVulnerabilityMetadataId()).references.add(e);
+        for (var e : fetch(ids, cweMapper::listByVulnerabilityIds)) out.get(e.getVulnerabilityMetadataId()).cwes.add(e);
+        for (var e : fetch(ids, timelineMapper::listByVulnerabilityIds)) out.get(e.getVulnerabilityMetadataId()).timeline.add(e);
+        for (var e : fetch(ids, severityMapper::listByVulnerabilityIds)) out.get(e.getVulnerabilityMetadataId()).severities.add(e);
+        for (var e : fetch(ids, contributorMapper::listByVulnerabilityIds)) out.get(e.getVulnerabilityMetadataId()).contributors.add(e);
+        for (var e : fetch(ids, exploitStatusMapper::listByVulnerabilityIds)) out.get(e.getVulnerabilityMetadataId()).exploitStatus.add(e);
+
+        // affected: package -> commit/range/version, range -> event
+        Map<Long, AffectedNode> pkgById = new LinkedHashMap<>();
+        for (var p : fetch(ids, affectedPackageMapper::listByVulnerabilityIds)) {
+            AffectedNode n = new AffectedNode(p);
+            pkgById.put(p.getId(), n);
+            out.get(p.getVulnerabilityMetadataId()).affected.add(n);
+        }
+        if (!pkgById.isEmpty()) {
+            List<Long> pkgIds = new ArrayList<>(pkgById.keySet());
+            for (var c : fetch(pkgIds, affectedCommitMapper::listByPackageIds)) pkgById.get(c.getPackageId()).commits.add(c);
+            for (var v : fetch(pkgIds, affectedVersionMapper::listByPackageIds)) pkgById.get(v.getPackageId()).versions.add(v);
+            Map<Long, RangeNode> rangeById = new LinkedHashMap<>();
+            for (var r : fetch(pkgIds, affectedRangeMapper::listByPackageIds)) {
+                RangeNode n = new RangeNode(r);
+                rangeById.put(r.getId(), n);
+                pkgById.get(r.getPackageId()).ranges.add(n);
+            }
+            if (!rangeById.isEmpty()) {
+                for (var ev : fetch(new ArrayList<>(rangeById.keySet()), affectedRangeEventMapper::listByRangeIds)) rangeById.get(ev.getRangeId()).events.add(ev);
+            }
+        }
+
+        // patch_details -> branches/tags
+        Map<Long, PatchNode> patchById = new LinkedHashMap<>();
+        for (var pd : fetch(ids, patchDetailMapper::listByVulnerabilityIds)) {
+            PatchNode n = new PatchNode(pd);
+            patchById.put(pd.getId(), n);
+            out.get(pd.getVulnerabilityMetadataId()).patchDetails.add(n);
+        }
+        if (!patchById.isEmpty()) {
+            List<Long> pdIds = new ArrayList<>(patchById.keySet());
+            for (var b : fetch(pdIds, patchBranchMapper::listByPatchDetailIds)) patchById.get(b.getPatchDetailId()).branches.add(b);
+            for (var t : fetch(pdIds, patchTagMapper::listByPatchDetailIds)) patchById.get(t.getPatchDetailId()).tags.add(t);
+        }
+
+        // credits -> contacts
+        Map<Long, CreditNode> creditById = new LinkedHashMap<>();
+        for (var cr : fetch(ids, creditMapper::listByVulnerabilityIds)) {
+            CreditNode n = new CreditNode(cr);
+            creditById.put(cr.getId(), n);
+            out.get(cr.getVulnerabilityMetadataId()).credits.add(n);
+        }
+        if (!creditById.isEmpty()) {
+            for (var cc : fetch(new ArrayList<>(creditById.keySet()), creditContactMapper::listByCreditIds)) creditById.get(cc.getCreditId()).contacts.add(cc);
+        }
+        return out;
+    }
+
+    private static <T> List<T> fetch(List<Long> ids, Function<List<Long>, List<T>> query) {
+        if (ids.size() <= CHUNK) {
+            List<T> r = query.apply(ids);
+            return r == null ? List.of() : r;
+        }
+        List<T> all = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += CHUNK) {
+            List<T> r = query.apply(ids.subList(i, Math.min(ids.size(), i + CHUNK)));
+            if (r != null) all.addAll(r);
+        }
+        return all;
+    }
+}
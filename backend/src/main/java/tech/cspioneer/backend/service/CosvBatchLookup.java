@@ -0,0 +1,194 @@
+package tech.cspioneer.backend.service;
+
+import tech.cspioneer.backend.entity.Category;
+import tech.cspioneer.backend.entity.Tag;
+import tech.cspioneer.backend.mapper.CategoryMapper;
+import tech.cspioneer.backend.mapper.TagMapper;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataAliasMapper;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataMapper;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 批次级查找缓存：导入/预检前收集一批记录中的编号、别名、分类与标签，
+ * 每类用 IN 查询一次解析，逐条校验改为查内存表。仅在单次批量操作内有效，不跨请求共享。
+ * 键按小写比较，与库表 *_ci 排序规则一致。线程安全，可被导入引擎的多个工作线程共用。
+ */
+class CosvBatchLookup {
+    // 单条 IN 语句的最大参数个数
+    private static final int CHUNK = 500;
+    // ConcurrentHashMap 不允许 null 值：以空串表示"已查询但不存在"
+    private static final String MISSING = "";
+
+    private final VulnerabilityMetadataMapper vmMapper;
+    private final VulnerabilityMetadataAliasMapper aliasMapper;
+    private final CategoryMapper categoryMapper;
+    private final TagMapper tagMapper;
+
+    private final Map<String, String> identifierToUuid = new ConcurrentHashMap<>();
+    private final Map<String, String> aliasToUuid = new ConcurrentHashMap<>();
+    private final Map<String, String> categoryByCode = new ConcurrentHashMap<>();
+    private final Map<String, String> categoryByName = new ConcurrentHashMap<>();
+    private final Map<String, String> tagByCode = new ConcurrentHashMap<>();
+    private final Map<String, String> tagByName = new ConcurrentHashMap<>();
+
+    CosvBatchLookup(VulnerabilityMetadataMapper vmMapper,
+                    VulnerabilityMetadataAliasMapper aliasMapper,
+                    CategoryMapper categoryMapper,
+                    TagMapper tagMapper) {
+        this.vmMapper = vmMapper;
+        this.aliasMapper = aliasMapper;
+        this.categoryMapper = categoryMapper;
+        this.tagMapper = tagMapper;
+    }
+
+    /** 待解析的键集合；重复调用 prefetch 时仅查询尚未缓存的键 */
+    static class Keys {
+        final Set<String> identifiers = new LinkedHashSet<>();
+        final Set<String> aliases = new LinkedHashSet<>();
+        final Set<String> categories = new LinkedHashSet<>(); // 分类编码或名称
+        final Set<String> tags = new LinkedHashSet<>();       // 标签编码或名称
+
+        void identifier(String v) { add(identifiers, v); }
+        void alias(String v) { add(aliases, v); }
+        void category(String v) { add(categories, v); }
+        void tag(String v) { add(tags, v); }
+
+        private static void add(Set<String> set, String v) {
+            if (v != null && !v.isBlank()) set.add(v.trim());
+        }
+    }
+
+    void prefetch(Keys keys) {
+        List<String> ids = missing(keys.identifiers, identifierToUuid);
+        if (!ids.isEmpty()) {
+            for (var row : fetch(ids, vmMapper::findUuidsByIdentifiers)) {
+                put(identifierToUuid, row.get("identifier"), row.get("uuid"));
+            }
+            ids.forEach(v -> identifierToUuid.putIfAbsent(key(v), MISSING));
+        }
+        List<String> aliases = missing(keys.aliases, aliasToUuid);
+        if (!aliases.isEmpty()) {
+            for (var row : fetch(aliases, aliasMapper::findOwnersByValues)) {
+                put(aliasToUuid, row.get("value"), row.get("uuid"));
+            }
+            aliases.forEach(v -> aliasToUuid.putIfAbsent(key(v), MISSING));
+        }
+        List<String> cats = new ArrayList<>();
+        for (String v : keys.categories) if (!categoryByCode.containsKey(key(v))) cats.add(v);
+        if (!cats.isEmpty()) {
+            for (Category c : fetch(cats, categoryMapper::listByCodesOrNames)) {
+                put(categoryByCode, c.getCode(), c.getCode());
+                put(categoryByName, c.getName(), c.getCode());
+            }
+            // 名称未精确命中的保留给 categoryCodeByName 做模糊匹配
+            for (String v : cats) categoryByCode.putIfAbsent(key(v), MISSING);
+        }
+        List<String> tags = new ArrayList<>();
+        for (String v : keys.tags) if (!tagByCode.containsKey(key(v)) || !tagByName.containsKey(key(v))) tags.add(v);
+        if (!tags.isEmpty()) {
+            for (Tag t : fetch(tags, tagMapper::listByCodesOrNames)) {
+                put(tagByCode, t.getCode(), t.getCode());
+                put(tagByName, t.getName(), t.getCode());
+            }
+            for (String v : tags) {
+                tagByCode.putIfAbsent(key(v), MISSING);
+                tagByName.putIfAbsent(key(v), MISSING);
+            }
+        }
+    }
+
+    /** 按编号查已存在漏洞的 uuid；未预取的键回退为单条查询 */
+    String vulnerabilityUuid(String identifier) {
+        if (identifier == null || identifier.isBlank()) return null;
+        return get(identifierToUuid, identifier, v -> {
+            var vm = vmMapper.findByIdentifier(v);
+            return vm == null ? null : vm.getUuid();
+        });
+    }
+
+    /** 别名当前归属漏洞的 uuid，无归属返回 null */
+    String aliasOwner(String alias) {
+        if (alias == null || alias.isBlank()) return null;
+        return get(aliasToUuid, alias, aliasMapper::findVulnerabilityUuidByAlias);
+    }
+
+    boolean categoryExists(String code) {
+        if (code == null || code.isBlank()) return false;
+        return get(categoryByCode, code, v -> {
+            Category c = categoryMapper.findByCode(v);
+            return c == null ? null : c.getCode();
+        }) != null;
+    }
+
+    /** 先按编码、再按名称精确匹配，最后退回模糊匹配（每个名称至多查询一次），返回分类编码 */
+    String categoryCodeByName(String name) {
+        if (name == null || name.isBlank()) return null;
+        if (categoryExists(name)) return categoryByCode.get(key(name));
+        return get(categoryByName, name, v -> {
+            var list = categoryMapper.list(v, 1, 0);
+            return list == null || list.isEmpty() ? null : list.get(0).getCode();
+        });
+    }
+
+    boolean tagExists(String code) {
+        if (code == null || code.isBlank()) return false;
+        return get(tagByCode, code, v -> {
+            Tag t = tagMapper.findByCode(v);
+            return t == null ? null : t.getCode();
+        }) != null;
+    }
+
+    /** 先按编码、再按名称匹配，返回标签编码 */
+    String tagCode(String codeOrName) {
+        if (codeOrName == null || codeOrName.isBlank()) return null;
+        if (tagExists(codeOrName)) return tagByCode.get(key(codeOrName));
+        return get(tagByName, codeOrName, v -> {
+            Tag t = tagMapper.findByName(v);
+            return t == null ? null : t.getCode();
+        });
+    }
+
+    /** 本批次内写入成功后登记，使后续记录看到新建的编号与别名 */
+    void recordWrite(String identifier, String uuid, Collection<String> aliases) {
+        if (uuid == null) return;
+        if (identifier != null && !identifier.isBlank()) identifierToUuid.put(key(identifier), uuid);
+        if (aliases != null) for (String a : aliases) if (a != null && !a.isBlank()) aliasToUuid.put(key(a), uuid);
+    }
+
+    private static String get(Map<String, String> cache, String raw, Function<String, String> loader) {
+        String v = raw.trim();
+        String hit = cache.get(key(v));
+        if (hit == null) {
+            hit = Optional.ofNullable(loader.apply(v)).orElse(MISSING);
+            cache.putIfAbsent(key(v), hit);
+        }
+        return hit.isEmpty() ? null : hit;
+    }
+
+    private static List<String> missing(Set<String> values, Map<String, String> cache) {
+        List<String> out = new ArrayList<>();
+        for (String v : values) if (!cache.containsKey(key(v))) out.add(v);
+        return out;
+    }
+
+    private static void put(Map<String, String> cache, Object k, Object v) {
+        if (k == null || v == null) return;
+        cache.put(key(k.toString()), v.toString());
+    }
+
+    private static String key(String v) {
+        return v.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static <T> List<T> fetch(List<String> values, Function<List<String>, List<T>> query) {
+        List<T> all = new ArrayList<>();
+        for (int i = 0; i < values.size(); i += CHUNK) {
+            List<T> r = query.apply(values.subList(i, Math.min(values.size(), i + CHUNK)));
+            if (r != null) all.addAll(r);
+        }
+        return all;
+    }
+}
@@ -0,0 +1,373 @@
+package tech.cspioneer.backend.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import tech.cspioneer.backend.common.ApiException;
+import tech.cspioneer.backend.entity.CosvImportJob;
+import tech.cspioneer.backend.entity.CosvImportJobItem;
+import tech.cspioneer.backend.entity.User;
+import tech.cspioneer.backend.mapper.CosvImportJobItemMapper;
+import tech.cspioneer.backend.mapper.CosvImportJobMapper;
+import tech.cspioneer.backend.mapper.UserMapper;
+
+import java.security.Principal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * COSV 批量导入后台任务：提交后立即返回任务ID，由后台执行器调用流式导入引擎执行。
+ * 逐条结果与计数在块事务内写入，与业务数据一同提交；续跑时跳过已记录的序号，即从最后提交的块之后继续。
+ * 多实例部署时任务由提交（或续跑）的实例持有并定期续约，只回收租约过期的任务；取消标记写入数据库，由持有实例轮询。
+ */
+@Slf4j
+@Service
+public class CosvImportJobService {
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+    public static final String CANCELLED = "CANCELLED";
+
+    private final CosvImportJobMapper jobMapper;
+    private final CosvImportJobItemMapper itemMapper;
+    private final UserMapper userMapper;
+    private final CosvImportService importService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 本实例持有的任务：取消标记与本次运行开始时间
+    private final Map<Long, AtomicBoolean> cancelFlags = new ConcurrentHashMap<>();
+    private final Map<Long, Long> runStartedAt = new ConcurrentHashMap<>();
+    // 写入 owner_id，续约、取消轮询与结束任务均按此限定
+    private final String instanceId = UUID.randomUUID().toString();
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService heartbeat;
+
+    @Value("${cosv.import-job.concurrency:2}")
+    private int concurrency = 2;
+
+    @Value("${cosv.import-job.queue-capacity:100}")
+    private int queueCapacity = 100;
+
+    @Value("${cosv.import-job.recover-stale:true}")
+    private boolean recoverStale = true;
+
+    @Value("${cosv.import-job.heartbeat-ms:10000}")
+    private long heartbeatMs = 10000;
+
+    @Value("${cosv.import-job.lease-ms:60000}")
+    private long leaseMs = 60000;
+
+    public CosvImportJobService(CosvImportJobMapper jobMapper,
+                                CosvImportJobItemMapper itemMapper,
+                                UserMapper userMapper,
+                                CosvImportService importService) {
+        this.jobMapper = jobMapper;
+        this.itemMapper = itemMapper;
+        this.userMapper = userMapper;
+        this.importService = importService;
+    }
+
+    @PostConstruct
+    public void init() {
+        int n = Math.max(1, concurrency);
+        AtomicInteger seq = new AtomicInteger();
+        executor = new ThreadPoolExecutor(n, n, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+            Thread t = new Thread(r, "cosv-import-job-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cosv-import-job-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1000, heartbeatMs);
+        heartbeat.scheduleWithFixedDelay(this::tick, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cancelFlags.values().forEach(f -> f.set(true));
+        if (heartbeat != null) heartbeat.shutdownNow();
+        if (executor != null) executor.shutdownNow();
+    }
+
+    // 续约本实例持有的任务、同步其他实例写入的取消标记、回收租约过期的任务
+    void tick() {
+        try {
+            if (!cancelFlags.isEmpty()) {
+                jobMapper.heartbeat(instanceId);
+                for (Long id : jobMapper.listCancelRequested(instanceId)) {
+                    AtomicBoolean flag = cancelFlags.get(id);
+                    if (flag != null) flag.set(true);
+                }
+            }
+            if (recoverStale) {
+                int recovered = jobMapper.failStale("任务所在实例已停止，任务中断，可续跑", leaseSeconds());
+                if (recovered > 0) log.warn("[COSV] import jobs with expired lease recovered count={}", recovered);
+            }
+        } catch (Exception e) {
+            log.warn("[COSV] import job heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    // 租约至少覆盖两次续约，避免一次续约延迟即被其他实例回收
+    private long leaseSeconds() {
+        long ms = Math.max(leaseMs, 2 * Math.max(1000, heartbeatMs));
+        return (ms + 999) / 1000;
+    }
+
+    public Map<String, Object> submit(Principal principal,
+                                      String rawFileUuid,
+                                      String action,
+                                      String conflictPolicy,
+                                      String publishPolicy,
+                                      String organizationUuid,
+                                      String language,
+                                      String categoryCode,
+                                      List<String> tagCodes) {
+        // 同步校验文件与组织权限，错误立即返回
+        var ctx = importService.resolveBatchContext(principal.getName(), rawFileUuid, organizationUuid);
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("userUuid", ctx.user().getUuid());
+        params.put("rawFileUuid", rawFileUuid);
+        params.put("action", action);
+        params.put("conflictPolicy", conflictPolicy);
+        params.put("publishPolicy", publishPolicy);
+        params.put("organizationUuid", ctx.organizationUuid());
+        params.put("language", language);
+        params.put("categoryCode", categoryCode);
+        params.put("tagCodes", tagCodes == null ? List.of() : tagCodes);
+
+        CosvImportJob job = new CosvImportJob();
+        job.setUuid(UUID.randomUUID().toString());
+        job.setRawCosvFileId(ctx.rawFile().getId());
+        job.setUserId(ctx.user().getId());
+        job.setOrganizationId(ctx.organizationId());
+        job.setOwnerId(instanceId);
+        try {
+            job.setParams(objectMapper.writeValueAsString(params));
+        } catch (Exception e) {
+            throw new ApiException(500, "任务参数序列化失败");
+        }
+        jobMapper.insert(job);
+        dispatch(job.getId());
+        log.info("[COSV] import job submitted job={} rawFile={} user={}", job.getUuid(), rawFileUuid, ctx.user().getUuid());
+        return view(jobMapper.findById(job.getId()));
+    }
+
+    public Map<String, Object> get(Principal principal, String jobUuid) {
+        return view(requireJob(principal, jobUuid));
+    }
+
+    public List<Map<String, Object>> listMine(Principal principal, int page, int size) {
+        User u = requireUser(principal);
+        int limit = Math.max(1, Math.min(size, 100));
+        int offset = Math.max(0, (Math.max(page, 1) - 1) * limit);
+        return jobMapper.listByUser(u.getId(), limit, offset).stream().map(this::view).toList();
+    }
+
+    public long countMine(Principal principal) {
+        return jobMapper.countByUser(requireUser(principal).getId());
+    }
+
+    public List<CosvImportJobItem> listItems(Principal principal, String jobUuid, String status, int page, int size) {
+        CosvImportJob job = requireJob(principal, jobUuid);
+        int limit = Math.max(1, Math.min(size, 500));
+        int offset = Math.max(0, (Math.max(page, 1) - 1) * limit);
+        return itemMapper.listByJobId(job.getId(), normalizeItemStatus(status), limit, offset);
+    }
+
+    public long countItems(Principal principal, String jobUuid, String status) {
+        return itemMapper.countByJobId(requireJob(principal, jobUuid).getId(), normalizeItemStatus(status));
+    }
+
+    public Map<String, Object> cancel(Principal principal, String jobUuid) {
+        CosvImportJob job = requireJob(principal, jobUuid);
+        if (PENDING.equals(job.getStatus()) && jobMapper.cancelPending(job.getId(), "已取消") > 0) {
+            cancelFlags.computeIfPresent(job.getId(), (k, f) -> { f.set(true); return f; });
+        } else if (RUNNING.equals(job.getStatus()) || PENDING.equals(job.getStatus())) {
+            // 持有实例（可能是其他实例）在下次续约时读到标记，停止读取新记录；已入队的块处理完毕后任务置为 CANCELLED
+            if (jobMapper.requestCancel(job.getId()) == 0) throw new ApiException(409, "任务状态已变化，请刷新后重试");
+            AtomicBoolean flag = cancelFlags.get(job.getId());
+            if (flag != null) flag.set(true);
+        } else {
+            throw new ApiException(400, "任务已结束，无法取消");
+        }
+        log.info("[COSV] import job cancel requested job={}", jobUuid);
+        return view(jobMapper.findById(job.getId()));
+    }
+
+    public Map<String, Object> resume(Principal principal, String jobUuid) {
+        CosvImportJob job = requireJob(principal, jobUuid);
+        String st = job.getStatus();
+        if (!FAILED.equals(st) && !CANCELLED.equals(st)) throw new ApiException(400, "仅失败或已取消的任务可续跑");
+        if (jobMapper.requeue(job.getId(), st, instanceId) == 0) throw new ApiException(409, "任务状态已变化，请刷新后重试");
+        dispatch(job.getId());
+        log.info("[COSV] import job resumed job={}", jobUuid);
+        return view(jobMapper.findById(job.getId()));
+    }
+
+    private void dispatch(Long jobId) {
+        SecurityContext sc = SecurityContextHolder.createEmptyContext();
+        sc.setAuthentication(SecurityContextHolder.getContext().getAuthentication());
+        cancelFlags.put(jobId, new AtomicBoolean(false));
+        try {
+            executor.execute(() -> runJob(jobId, sc));
+        } catch (RejectedExecutionException e) {
+            cancelFlags.remove(jobId);
+            jobMapper.finish(jobId, instanceId, FAILED, "任务队列已满，请稍后续跑", 0L);
+            throw new ApiException(429, "导入任务排队已满，请稍后再试");
+        }
+    }
+
+    void runJob(Long jobId, SecurityContext sc) {
+        AtomicBoolean cancelled = cancelFlags.computeIfAbsent(jobId, k -> new AtomicBoolean(false));
+        long t0 = System.currentTimeMillis();
+        SecurityContextHolder.setContext(sc);
+        try {
+            if (cancelled.get() || jobMapper.markRunning(jobId, instanceId) == 0) return; // 排队期间已被取消
+            runStartedAt.put(jobId, t0);
+            CosvImportJob job = jobMapper.findById(jobId);
+            Map<String, Object> p = objectMapper.readValue(job.getParams(), new TypeReference<Map<String, Object>>() {});
+            @SuppressWarnings("unchecked")
+            List<String> tags = p.get("tagCodes") instanceof List<?> l ? (List<String>) l : List.of();
+
+            BitSet done = new BitSet();
+            for (Integer i : itemMapper.listIndexesByJobId(jobId)) if (i != null) done.set(i);
+            int skipped = done.cardinality();
+
+            var ctx = importService.resolveBatchContext(str(p.get("userUuid")), str(p.get("rawFileUuid")), str(p.get("organizationUuid")));
+            var summary = importService.runBatch(ctx, str(p.get("action")), str(p.get("conflictPolicy")),
+                    str(p.get("language")), str(p.get("categoryCode")), tags,
+                    r -> {}, done::get, cancelled, results -> writeItems(jobId, results));
+
+            long elapsed = System.currentTimeMillis() - t0;
+            String status;
+            String message = null;
+            if (summary.cancelled()) {
+                status = CANCELLED;
+                message = "已取消";
+            } else if (summary.total() == 0 && skipped == 0) {
+                status = FAILED;
+                message = "文件中未解析到任何记录";
+            } else {
+                status = SUCCEEDED;
+                CosvImportJob cur = jobMapper.findById(jobId);
+                if (cur != null && cur.getFailed() != null && cur.getFailed() > 0) message = "部分记录失败: " + cur.getFailed();
+            }
+            jobMapper.finish(jobId, instanceId, status, message, elapsed);
+            log.info("[COSV] import job finished job={} status={} total={} skipped={} elapsedMs={} rps={}",
+                    job.getUuid(), status, summary.total(), skipped, elapsed, String.format("%.1f", summary.recordsPerSec()));
+        } catch (Exception e) {
+            long elapsed = System.currentTimeMillis() - t0;
+            log.warn("[COSV] import job failed id={} msg={}", jobId, e.getMessage());
+            try {
+                jobMapper.finish(jobId, instanceId, FAILED, truncate(e.getMessage()), elapsed);
+            } catch (Exception ex) {
+                log.warn("[COSV] import job status update failed id={} msg={}", jobId, ex.getMessage());
+            }
+        } finally {
+            cancelFlags.remove(jobId);
+            runStartedAt.remove(jobId);
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    // 块事务内调用：逐条结果与计数随业务数据一同提交
+    private void writeItems(Long jobId, List<CosvIngestEngine.ItemResult> results) {
+        if (results.isEmpty()) return;
+        List<CosvImportJobItem> rows = new ArrayList<>(results.size());
+        int ok = 0;
+        for (var r : results) {
+            Map<String, Object> d = r.data() == null ? Map.of() : r.data();
+            CosvImportJobItem it = new CosvImportJobItem();
+            it.setJobId(jobId);
+            it.setItemIndex(r.index());
+            it.setStatus(r.ok() ? "OK" : "ERROR");
+            it.setAction(str(d.get("action")));
+            it.setVulnerabilityUuid(str(d.get("uuid")));
+            it.setIdentifier(str(d.get("identifier")));
+            it.setMessage(truncate(str(d.get("message"))));
+            rows.add(it);
+            if (r.ok()) ok++;
+        }
+        itemMapper.insertBatch(rows);
+        jobMapper.addProgress(jobId, rows.size(), ok, rows.size() - ok);
+    }
+
+    private Map<String, Object> view(CosvImportJob job) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        if (job == null) return m;
+        long elapsed = job.getElapsedMs() == null ? 0L : job.getElapsedMs();
+        Long started = runStartedAt.get(job.getId());
+        if (RUNNING.equals(job.getStatus()) && started != null) elapsed += System.currentTimeMillis() - started;
+        int processed = job.getProcessed() == null ? 0 : job.getProcessed();
+        String rawFileUuid = null;
+        try {
+            if (job.getParams() != null) rawFileUuid = str(objectMapper.readTree(job.getParams()).path("rawFileUuid").asText(null));
+        } catch (Exception ignore) {}
+        m.put("jobUuid", job.getUuid());
+        m.put("rawFileUuid", rawFileUuid);
+        m.put("status", job.getStatus());
+        m.put("processed", processed);
+        m.put("success", job.getSuccess());
+        m.put("failed", job.getFailed());
+        m.put("elapsedMs", elapsed);
+        m.put("recordsPerSec", elapsed <= 0 ? 0.0 : Math.round(processed * 10000.0 / elapsed) / 10.0);
+        m.put("cancelRequested", Boolean.TRUE.equals(job.getCancelRequested())
+                || Optional.ofNullable(cancelFlags.get(job.getId())).map(AtomicBoolean::get).orElse(false));
+        m.put("message", job.getMessage());
+        m.put("startedAt", job.getStartedAt());
+        m.put("finishedAt", job.getFinishedAt());
+        m.put("createTime", job.getCreateTime());
+        return m;
+    }
+
+    private CosvImportJob requireJob(Principal principal, String jobUuid) {
+        CosvImportJob job = jobMapper.findByUuid(jobUuid);
+        if (job == null) throw new ApiException(404, "导入任务不存在");
+        if (!isAdmin() && !requireUser(principal).getId().equals(job.getUserId())) throw new ApiException(1012, "无权访问该导入任务");
+        return job;
+    }
+
+    private User requireUser(Principal principal) {
+        User u = userMapper.findByUuid(principal.getName());
+        if (u == null || u.getStatus() == null) throw new ApiException(1005, "用户状态异常");
+        return u;
+    }
+
+    private boolean isAdmin() {
+        var auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || auth.getAuthorities() == null) return false;
+        for (var a : auth.getAuthorities()) {
+            if ("ROLE_ADMIN".equals(a.getAuthority())) return true;
+        }
+        return false;
+    }
+
+    private static String normalizeItemStatus(String status) {
+        if (status == null || status.isBlank()) return null;
+        String s = status.trim().toUpperCase(Locale.ROOT);
+        if (!"OK".equals(s) && !"ERROR".equals(s)) throw new ApiException(400, "status 仅支持 OK|ERROR");
+        return s;
+    }
+
+    private static String str(Object o) {
+        return o == null ? null : o.toString();
+    }
+
+    private static String truncate(String s) {
+        return s == null || s.length() <= 1000 ? s : s.substring(0, 1000);
+    }
+}
@@ -27,6 +27,7 @@ public class CosvImportService {
     private final CategoryMapper categoryMapper;
     private final TagMapper tagMapper;
     private final VulnerabilityService vulnService;
+    private final CosvIngestEngine ingestEngine;
 
     private final ObjectMapper snakeMapper;
 
@@ -38,7 +39,8 @@ public class CosvImportService {
                              VulnerabilityMetadataAliasMapper aliasMapper,
                              CategoryMapper categoryMapper,
                              TagMapper tagMapper,
-                             VulnerabilityService vulnService) {
+                             VulnerabilityService vulnService,
+                             CosvIngestEngine ingestEngine) {
         this.rawMapper = rawMapper;
         this.userMapper = userMapper;
         this.organizationMapper = organizationMapper;
@@ -48,6 +50,7 @@ public class CosvImportService {
         this.categoryMapper = categoryMapper;
         this.tagMapper = tagMapper;
         this.vulnService = vulnService;
+        this.ingestEngine = ingestEngine;
         this.snakeMapper = new ObjectMapper();
         this.snakeMapper.setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
     }
@@ -128,10 +131,11 @@ public class CosvImportService {
         }
 
         // Category/Tag/Language validation (allow per-item override via database_specific)
+        CosvBatchLookup lookup = lookupFor(cosv == null ? List.of() : List.of(cosv), null, null);
         String perItemCat = resolvePerItemCategoryCode(cosv);
-        if (perItemCat == null) perItemCat = resolvePerItemCategoryByName(cosv);
+        if (perItemCat == null) perItemCat = resolvePerItemCategoryByName(cosv, lookup);
         List<String> perItemTags = resolvePerItemTagCodes(cosv);
-        if (perItemTags == null || perItemTags.isEmpty()) perItemTags = resolvePerItemTagByNames(cosv);
+        if (perItemTags == null || perItemTags.isEmpty()) perItemTags = resolvePerItemTagByNames(cosv, lookup);
         String effectiveCategory = perItemCat != null ? perItemCat : normalizeCode(categoryCode);
         List<String> effectiveTags = (perItemTags != null && !perItemTags.isEmpty())
                 ? perItemTags
@@ -187,16 +191,15 @@ public class CosvImportService {
                 .orElseThrow(() -> new ApiException(404, "原始文件不存在"));
         List<CosvUpsert> list = readCosvList(rf);
         if (list.isEmpty()) throw new ApiException(400, "文件中未解析到任何记录");
+        // 预先批量解析编号/别名/分类/标签，逐条校验只查内存
+        CosvBatchLookup lookup = lookupFor(list, categoryCode, tagCodes);
         List<Map<String, Object>> items = new ArrayList<>();
         int idx = 0;
         for (CosvUpsert cosv : list) {
             Map<String, Object> one = new LinkedHashMap<>();
             String targetUuid = null;
             String cosvId = cosv != null ? cosv.getId() : null;
-            if (cosvId != null && !cosvId.isBlank()) {
-                var existing = vmMapper.findByIdentifier(cosvId.trim());
-                if (existing != null) targetUuid = existing.getUuid();
-            }
+            if (cosvId != null && !cosvId.isBlank()) targetUuid = lookup.vulnerabilityUuid(cosvId);
             String m = Optional.ofNullable(mode).orElse("AUTO");
             String suggestedAction = (targetUuid != null ? "UPDATE" : ("UPDATE".equalsIgnoreCase(m) ? "UPDATE" : "CREATE"));
 
@@ -204,7 +207,7 @@ public class CosvImportService {
             if (cosv != null && cosv.getAliases() != null) {
                 for (String a : cosv.getAliases()) {
                     if (a == null || a.isBlank()) continue;
-                    String vu = aliasMapper.findVulnerabilityUuidByAlias(a.trim());
+                    String vu = lookup.aliasOwner(a);
                     if (vu != null && (targetUuid == null || !targetUuid.equals(vu))) {
                         Map<String, Object> c = new LinkedHashMap<>(); c.put("type", "ALIAS_CONFLICT"); c.put("alias", a); c.put("vulnerabilityUuid", vu); conflicts.add(c);
                     }
@@ -212,11 +215,11 @@ public class CosvImportService {
             }
             // Per-item override for category/tags
             String perItemCatB = resolvePerItemCategoryCode(cosv);
-            if (perItemCatB == null) perItemCatB = resolvePerItemCategoryByName(cosv);
+            if (perItemCatB == null) perItemCatB = resolvePerItemCategoryByName(cosv, lookup);
             List<String> perItemTagsB = resolvePerItemTagCodes(cosv);
-            if (perItemTagsB == null || perItemTagsB.isEmpty()) perItemTagsB = resolvePerItemTagByNames(cosv);
+            if (perItemTagsB == null || perItemTagsB.isEmpty()) perItemTagsB = resolvePerItemTagByNames(cosv, lookup);
             String normCategory = perItemCatB != null ? perItemCatB : normalizeCode(categoryCode);
-            if (normCategory != null && categoryMapper.findByCode(normCategory) == null) {
+            if (normCategory != null && !lookup.categoryExists(normCategory)) {
                 Map<String, Object> cc = new LinkedHashMap<>(); cc.put("type", "CATEGORY_NOT_FOUND"); cc.put("categoryCode", normCategory); conflicts.add(cc);
             }
             List<String> effTags = (perItemTagsB != null && !perItemTagsB.isEmpty())
@@ -225,7 +228,7 @@ public class CosvImportService {
             if (effTags != null) {
                 for (String t : effTags) {
                     if (t == null || t.isBlank()) continue; String tt = normalizeCode(t);
-                    if (tagMapper.countByCode(tt) == 0) {
+                    if (!lookup.tagExists(tt)) {
                         Map<String, Object> cc = new LinkedHashMap<>(); cc.put("type", "TAG_NOT_FOUND"); cc.put("tagCode", tt); conflicts.add(cc);
                     }
                 }
@@ -333,10 +336,11 @@ public class CosvImportService {
         }
 
         // 允许 per-item 覆盖分类/标签（database_specific.category_code / tag_codes）
+        CosvBatchLookup lookup = lookupFor(List.of(cosv), null, null);
         String overrideCat = resolvePerItemCategoryCode(cosv);
-        if (overrideCat == null) overrideCat = resolvePerItemCategoryByName(cosv);
+        if (overrideCat == null) overrideCat = resolvePerItemCategoryByName(cosv, lookup);
         List<String> overrideTags = resolvePerItemTagCodes(cosv);
-        if (overrideTags == null || overrideTags.isEmpty()) overrideTags = resolvePerItemTagByNames(cosv);
+        if (overrideTags == null || overrideTags.isEmpty()) overrideTags = resolvePerItemTagByNames(cosv, lookup);
         String effectiveCategory = overrideCat != null ? overrideCat : normalizeCode(categoryCode);
         List<String> effectiveTags = (overrideTags != null && !overrideTags.isEmpty())
                 ? overrideTags
@@ -380,7 +384,7 @@ public class CosvImportService {
         return resp;
     }
 
-    @Transactional
+    // 不在整体事务中执行：由导入引擎按块提交，单条失败仅影响自身
     public Map<String, Object> ingestBatch(Principal principal,
                                            String rawFileUuid,
                                            String action,
@@ -390,7 +394,28 @@ public class CosvImportService {
                                            String language,
                                            String categoryCode,
                                            List<String> tagCodes) {
-        User user = requireUserByUuid(principal.getName());
+        BatchContext ctx = resolveBatchContext(principal.getName(), rawFileUuid, organizationUuid);
+        List<Map<String, Object>> results = new ArrayList<>();
+        CosvIngestEngine.Summary summary = runBatch(ctx, action, conflictPolicy, language, categoryCode, tagCodes,
+                r -> { Map<String, Object> m = new LinkedHashMap<>(); m.put("index", r.index()); m.putAll(r.data()); results.add(m); },
+                i -> false, new java.util.concurrent.atomic.AtomicBoolean(false), null);
+        if (summary.total() == 0) throw new ApiException(400, "文件中未解析到任何记录");
+        results.sort(Comparator.comparingInt(m -> (Integer) m.get("index")));
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("rawFileUuid", rawFileUuid);
+        out.put("total", summary.total());
+        out.put("success", summary.success());
+        out.put("failed", summary.failed());
+        out.put("elapsedMs", summary.elapsedMs());
+        out.put("items", results);
+        return out;
+    }
+
+    /** 批量导入上下文：操作用户、原始文件与最终归属组织（同步导入与后台任务共用） */
+    public record BatchContext(User user, RawCosvFile rawFile, Long organizationId, String organizationUuid) {}
+
+    public BatchContext resolveBatchContext(String userUuid, String rawFileUuid, String organizationUuid) {
+        User user = requireUserByUuid(userUuid);
         RawCosvFile rf = Optional.ofNullable(rawMapper.findByUuid(rawFileUuid))
                 .orElseThrow(() -> new ApiException(404, "原始文件不存在"));
         Long orgId = rf.getOrganizationId();
@@ -403,89 +428,115 @@ public class CosvImportService {
         } else if (orgId != null) {
             var org = organizationMapper.findById(orgId); finalOrgUuid = org != null ? org.getUuid() : null;
         }
-        List<CosvUpsert> list = readCosvList(rf);
-        if (list.isEmpty()) throw new ApiException(400, "文件中未解析到任何记录");
-        List<Map<String, Object>> results = new ArrayList<>();
-        int success = 0, failed = 0;
-        for (var cosv : list) {
-            Map<String, Object> r = new LinkedHashMap<>();
-            try {
-                // resolve fields
-                String summary = Optional.ofNullable(cosv.getSummary()).filter(s -> !s.isBlank()).orElseThrow(() -> new ApiException(400, "summary 缺失"));
-                String details = Optional.ofNullable(cosv.getDetails()).filter(s -> !s.isBlank()).orElse("");
-            Float sev = null;
-            if (cosv.getSeverity() != null) {
-                for (var s : cosv.getSeverity()) {
-                    if (s == null) continue;
-                    Float n = s.getScoreNum();
-                    if (n == null && s.getScore() != null) n = tryParseScoreNum(s.getScore());
-                    if (n != null) { if (sev == null || n > sev) sev = n; }
-                }
+        return new BatchContext(user, rf, orgId, finalOrgUuid);
+    }
+
+    /**
+     * 以流式引擎执行批量导入。skip/cancelled 用于后台任务的续跑与取消，chunkJournal 可为空。
+     */
+    public CosvIngestEngine.Summary runBatch(BatchContext ctx,
+                                             String action,
+                                             String conflictPolicy,
+                                             String language,
+                                             String categoryCode,
+                                             List<String> tagCodes,
+                                             java.util.function.Consumer<CosvIngestEngine.ItemResult> journal,
+                                             java.util.function.IntPredicate skip,
+                                             java.util.concurrent.atomic.AtomicBoolean cancelled,
+                                             CosvIngestEngine.ChunkJournal chunkJournal) {
+        CosvBatchLookup lookup = newLookup();
+        CosvIngestEngine.ItemHandler handler = new CosvIngestEngine.ItemHandler() {
+            @Override
+            public void prepare(List<CosvUpsert> chunk) {
+                lookup.prefetch(collectKeys(chunk, categoryCode, tagCodes));
             }
-                if (sev == null) throw new ApiException(400, "severityNum 缺失");
-                String lang = language; if (lang == null || lang.isBlank()) { if (cosv.getAffected() != null) for (var a : cosv.getAffected()) { if (a != null && a.getPkg() != null && a.getPkg().getLanguage() != null && !a.getPkg().getLanguage().isBlank()) { lang = a.getPkg().getLanguage(); break; } } }
-                if (lang == null || lang.isBlank()) throw new ApiException(400, "language 缺失");
-                String cosvId = cosv.getId();
-                String targetUuid = null;
-                if (cosvId != null && !cosvId.isBlank()) { var existing = vmMapper.findByIdentifier(cosvId.trim()); if (existing != null) targetUuid = existing.getUuid(); }
-                String act = action == null ? "AUTO" : action;
-                if ("AUTO".equalsIgnoreCase(act)) act = (targetUuid != null) ? "UPDATE" : "CREATE";
-
-                // alias conflict policy
-                if (cosv.getAliases() != null && "SKIP_ALIAS".equalsIgnoreCase(conflictPolicy)) {
-                    List<String> filtered = new ArrayList<>();
-                    for (String a : cosv.getAliases()) { if (a == null || a.isBlank()) continue; String vu = aliasMapper.findVulnerabilityUuidByAlias(a.trim()); if (vu == null || (targetUuid != null && targetUuid.equals(vu))) filtered.add(a); }
-                    cosv.setAliases(filtered);
-                } else if (cosv.getAliases() != null) {
-                    for (String a : cosv.getAliases()) { if (a == null || a.isBlank()) continue; String vu = aliasMapper.findVulnerabilityUuidByAlias(a.trim()); if (vu != null && (targetUuid == null || !targetUuid.equals(vu))) throw new ApiException(1015, "别名冲突: " + a); }
-                }
 
-                // effective codes (allow per-item overrides via database_specific)
+            @Override
+            public Map<String, Object> handle(CosvUpsert cosv) {
+                return ingestItem(ctx.user(), ctx.rawFile(), ctx.organizationUuid(), action, conflictPolicy, language, categoryCode, tagCodes, cosv, lookup);
+            }
+        };
+        try (var reader = openRecordReader(ctx.rawFile())) {
+            return ingestEngine.run(reader, handler, journal, skip, cancelled, chunkJournal);
+        } catch (java.io.IOException e) {
+            throw new ApiException(400, "COSV批量解析失败: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> ingestItem(User user, RawCosvFile rf, String finalOrgUuid,
+                                           String action, String conflictPolicy,
+                                           String language, String categoryCode, List<String> tagCodes,
+                                           CosvUpsert cosv, CosvBatchLookup lookup) {
+        Map<String, Object> r = new LinkedHashMap<>();
+        // resolve fields
+        String summary = Optional.ofNullable(cosv.getSummary()).filter(s -> !s.isBlank()).orElseThrow(() -> new ApiException(400, "summary 缺失"));
+        String details = Optional.ofNullable(cosv.getDetails()).filter(s -> !s.isBlank()).orElse("");
+        Float sev = null;
+        if (cosv.getSeverity() != null) {
+            for (var s : cosv.getSeverity()) {
+                if (s == null) continue;
+                Float n = s.getScoreNum();
+                if (n == null && s.getScore() != null) n = tryParseScoreNum(s.getScore());
+                if (n != null) { if (sev == null || n > sev) sev = n; }
+            }
+        }
+        if (sev == null) throw new ApiException(400, "severityNum 缺失");
+        String lang = language; if (lang == null || lang.isBlank()) { if (cosv.getAffected() != null) for (var a : cosv.getAffected()) { if (a != null && a.getPkg() != null && a.getPkg().getLanguage() != null && !a.getPkg().getLanguage().isBlank()) { lang = a.getPkg().getLanguage(); break; } } }
+        if (lang == null || lang.isBlank()) throw new ApiException(400, "language 缺失");
+        String cosvId = cosv.getId();
+        String targetUuid = null;
+        if (cosvId != null && !cosvId.isBlank()) targetUuid = lookup.vulnerabilityUuid(cosvId);
+        String act = action == null ? "AUTO" : action;
+        if ("AUTO".equalsIgnoreCase(act)) act = (targetUuid != null) ? "UPDATE" : "CREATE";
+
+        // alias conflict policy
+        if (cosv.getAliases() != null && "SKIP_ALIAS".equalsIgnoreCase(conflictPolicy)) {
+            List<String> filtered = new ArrayList<>();
+            for (String a : cosv.getAliases()) { if (a == null || a.isBlank()) continue; String vu = lookup.aliasOwner(a); if (vu == null || (targetUuid != null && targetUuid.equals(vu))) filtered.add(a); }
+            cosv.setAliases(filtered);
+        } else if (cosv.getAliases() != null) {
+            for (String a : cosv.getAliases()) { if (a == null || a.isBlank()) continue; String vu = lookup.aliasOwner(a); if (vu != null && (targetUuid == null || !targetUuid.equals(vu))) throw new ApiException(1015, "别名冲突: " + a); }
+        }
+
+        // effective codes (allow per-item overrides via database_specific)
         String perItemCat = resolvePerItemCategoryCode(cosv);
-        if (perItemCat == null) perItemCat = resolvePerItemCategoryByName(cosv);
+        if (perItemCat == null) perItemCat = resolvePerItemCategoryByName(cosv, lookup);
         List<String> perItemTags = resolvePerItemTagCodes(cosv);
-        if (perItemTags == null || perItemTags.isEmpty()) perItemTags = resolvePerItemTagByNames(cosv);
-                String normCat = perItemCat != null ? perItemCat : normalizeCode(categoryCode);
-                List<String> normTags = (perItemTags != null && !perItemTags.isEmpty())
-                        ? perItemTags
-                        : (tagCodes == null ? List.of() : tagCodes.stream().filter(Objects::nonNull).map(this::normalizeCode).filter(Objects::nonNull).toList());
-
-                // Pre-validate dictionary & language to avoid 500
-                if (normCat != null) {
-                    var cc = categoryMapper.findByCode(normCat);
-                    if (cc == null) throw new ApiException(400, "分类不存在");
-                }
-                if (normTags != null) {
-                    for (String t : normTags) { if (t == null || t.isBlank()) continue; if (tagMapper.findByCode(t) == null) throw new ApiException(400, "标签不存在: " + t); }
-                }
-                try { tech.cspioneer.backend.enums.ProgrammingLanguage.fromCode(lang); } catch (Exception e) { throw new ApiException(400, "语言非法"); }
-
-                // validate ranges.events before touching DB
-                validateRangesEvents(cosv);
-                if ("UPDATE".equalsIgnoreCase(act)) {
-                    if (targetUuid == null) throw new ApiException(1001, "未找到可更新的目标");
-                    var updated = vulnService.updateWithRaw(user.getUuid(), targetUuid, summary, details, sev, lang, null, normCat, cosv, rf.getId());
-                    // apply tags on update
-                    if (normTags != null) {
-                        for (String t : normTags) { if (t == null || t.isBlank()) continue; vulnService.addTag(user.getUuid(), updated.getUuid(), t); }
-                    }
-                    r.put("status", "OK"); r.put("action", "UPDATE"); r.put("uuid", updated.getUuid()); r.put("identifier", updated.getIdentifier()); success++;
-                } else {
-                    var created = vulnService.createWithRaw(user.getUuid(), finalOrgUuid, summary, details, sev, lang, normCat, normTags, null, cosv, rf.getId());
-                    r.put("status", "OK"); r.put("action", "CREATE"); r.put("uuid", created.getUuid()); r.put("identifier", created.getIdentifier()); success++;
-                }
-            } catch (Exception ex) {
-                r.put("status", "ERROR"); r.put("message", ex.getMessage()); failed++;
+        if (perItemTags == null || perItemTags.isEmpty()) perItemTags = resolvePerItemTagByNames(cosv, lookup);
+        String normCat = perItemCat != null ? perItemCat : normalizeCode(categoryCode);
+        List<String> normTags = (perItemTags != null && !perItemTags.isEmpty())
+                ? perItemTags
+                : (tagCodes == null ? List.of() : tagCodes.stream().filter(Objects::nonNull).map(this::normalizeCode).filter(Objects::nonNull).toList());
+
+        // Pre-validate dictionary & language to avoid 500
+        if (normCat != null && !lookup.categoryExists(normCat)) throw new ApiException(400, "分类不存在");
+        if (normTags != null) {
+            for (String t : normTags) { if (t == null || t.isBlank()) continue; if (!lookup.tagExists(t)) throw new ApiException(400, "标签不存在: " + t); }
+        }
+        try { tech.cspioneer.backend.enums.ProgrammingLanguage.fromCode(lang); } catch (Exception e) { throw new ApiException(400, "语言非法"); }
+
+        // validate ranges.events before touching DB
+        validateRangesEvents(cosv);
+        if ("UPDATE".equalsIgnoreCase(act)) {
+            if (targetUuid == null) throw new ApiException(1001, "未找到可更新的目标");
+            var updated = vulnService.updateWithRaw(user.getUuid(), targetUuid, summary, details, sev, lang, null, normCat, cosv, rf.getId());
+            // apply tags on update
+            if (normTags != null) {
+                for (String t : normTags) { if (t == null || t.isBlank()) continue; vulnService.addTag(user.getUuid(), updated.getUuid(), t); }
             }
-            results.add(r);
+            r.put("status", "OK"); r.put("action", "UPDATE"); r.put("uuid", updated.getUuid()); r.put("identifier", updated.getIdentifier());
+            lookup.recordWrite(cosvId, updated.getUuid(), cosv.getAliases());
+        } else {
+            var created = vulnService.createWithRaw(user.getUuid(), finalOrgUuid, summary, details, sev, lang, normCat, normTags, null, cosv, rf.getId());
+            r.put("status", "OK"); r.put("action", "CREATE"); r.put("uuid", created.getUuid()); r.put("identifier", created.getIdentifier());
+            lookup.recordWrite(created.getIdentifier(), created.getUuid(), cosv.getAliases());
         }
-        Map<String, Object> out = new LinkedHashMap<>();
-        out.put("rawFileUuid", rawFileUuid);
-        out.put("total", results.size());
-        out.put("success", success);
-        out.put("failed", failed);
-        out.put("items", results);
-        return out;
+        return r;
+    }
+
+    private CosvRecordReader openRecordReader(RawCosvFile rf) throws java.io.IOException {
+        byte[] content = rf.getContent() == null ? new byte[0] : rf.getContent();
+        return CosvRecordReader.open(new java.io.ByteArrayInputStream(content), snakeMapper);
     }
 
     private CosvUpsert readCosv(RawCosvFile rf) {
@@ -588,53 +639,86 @@ public class CosvImportService {
     }
 
     // Optional: resolve by names (category_name/tag_names) to platform codes
-    private String resolvePerItemCategoryByName(CosvUpsert cosv) {
+    private String resolvePerItemCategoryByName(CosvUpsert cosv, CosvBatchLookup lookup) {
+        String name = perItemCategoryName(cosv);
+        if (name == null) return null;
+        try {
+            return normalizeCode(lookup.categoryCodeByName(name));
+        } catch (Exception ignore) {
+            return null;
+        }
+    }
+
+    private List<String> resolvePerItemTagByNames(CosvUpsert cosv, CosvBatchLookup lookup) {
+        List<String> names = perItemTagNames(cosv);
+        if (names == null) return null;
+        List<String> out = new ArrayList<>();
+        for (String nm : names) {
+            String code = lookup.tagCode(nm);
+            if (code != null) out.add(normalizeCode(code));
+        }
+        return out.isEmpty() ? null : out;
+    }
+
+    private String perItemCategoryName(CosvUpsert cosv) {
         if (cosv == null) return null;
-        Object ds = cosv.getDatabaseSpecific();
-        if (ds instanceof Map<?, ?> m) {
+        if (cosv.getDatabaseSpecific() instanceof Map<?, ?> m) {
             Object v = null;
             if (m.containsKey("category_name")) v = m.get("category_name");
             else if (m.containsKey("categoryName")) v = m.get("categoryName");
             if (v == null) return null;
-            String name = String.valueOf(v).trim(); if (name.isEmpty()) return null;
-            try {
-                var c = categoryMapper.findByCode(name);
-                if (c != null) return normalizeCode(c.getCode());
-            } catch (Exception ignore) {}
-            try {
-                // there is no direct findByName in mapper; emulate via list(q)
-                var list = categoryMapper.list(name, 1, 0);
-                if (list != null && !list.isEmpty()) return normalizeCode(list.get(0).getCode());
-            } catch (Exception ignore) {}
+            String name = String.valueOf(v).trim();
+            return name.isEmpty() ? null : name;
         }
         return null;
     }
 
-    private List<String> resolvePerItemTagByNames(CosvUpsert cosv) {
+    private List<String> perItemTagNames(CosvUpsert cosv) {
         if (cosv == null) return null;
-        Object ds = cosv.getDatabaseSpecific();
-        List<String> out = new ArrayList<>();
-        if (ds instanceof Map<?, ?> m) {
+        if (cosv.getDatabaseSpecific() instanceof Map<?, ?> m) {
             Object v = null;
             if (m.containsKey("tag_names")) v = m.get("tag_names");
             else if (m.containsKey("tagNames")) v = m.get("tagNames");
             if (v == null) return null;
             List<String> names = new ArrayList<>();
             if (v instanceof List<?> arr) {
-                for (Object e : arr) { if (e != null) names.add(String.valueOf(e).trim()); }
+                for (Object e : arr) { if (e != null) { String t = String.valueOf(e).trim(); if (!t.isEmpty()) names.add(t); } }
             } else {
-                String s = String.valueOf(v);
-                for (String p : s.split(",")) { String t = p == null ? null : p.trim(); if (t != null && !t.isEmpty()) names.add(t); }
-            }
-            for (String nm : names) {
-                if (nm == null || nm.isBlank()) continue;
-                // try code
-                var t = tagMapper.findByCode(nm);
-                if (t == null) t = tagMapper.findByName(nm);
-                if (t != null && t.getCode() != null) out.add(normalizeCode(t.getCode()));
+                for (String p : String.valueOf(v).split(",")) { String t = p == null ? null : p.trim(); if (t != null && !t.isEmpty()) names.add(t); }
             }
+            return names;
         }
-        return out.isEmpty() ? null : out;
+        return null;
+    }
+
+    // ----- batch lookup -----
+    private CosvBatchLookup newLookup() {
+        return new CosvBatchLookup(vmMapper, aliasMapper, categoryMapper, tagMapper);
+    }
+
+    private CosvBatchLookup lookupFor(Collection<CosvUpsert> items, String categoryCode, List<String> tagCodes) {
+        CosvBatchLookup lookup = newLookup();
+        lookup.prefetch(collectKeys(items, categoryCode, tagCodes));
+        return lookup;
+    }
+
+    // 收集一批记录涉及的全部查找键（含 database_specific 中的逐条覆盖）
+    private CosvBatchLookup.Keys collectKeys(Collection<CosvUpsert> items, String categoryCode, List<String> tagCodes) {
+        CosvBatchLookup.Keys keys = new CosvBatchLookup.Keys();
+        keys.category(normalizeCode(categoryCode));
+        if (tagCodes != null) for (String t : tagCodes) keys.tag(normalizeCode(t));
+        for (CosvUpsert cosv : items) {
+            if (cosv == null) continue;
+            keys.identifier(cosv.getId());
+            if (cosv.getAliases() != null) cosv.getAliases().forEach(keys::alias);
+            keys.category(resolvePerItemCategoryCode(cosv));
+            keys.category(perItemCategoryName(cosv));
+            List<String> codes = resolvePerItemTagCodes(cosv);
+            if (codes != null) codes.forEach(keys::tag);
+            List<String> names = perItemTagNames(cosv);
+            if (names != null) names.forEach(keys::tag);
+        }
+        return keys;
     }
 
     private void validateRangesEvents(CosvUpsert cosv) {
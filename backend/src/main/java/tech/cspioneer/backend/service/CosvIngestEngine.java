@@ -0,0 +1,286 @@
+package tech.cspioneer.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.cspioneer.backend.dto.CosvUpsert;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * COSV 流式批量导入引擎：读取线程按记录 id 哈希分发到各工作线程的有界队列，
+ * 工作线程按块（chunk）提交事务，块内每条记录使用保存点，单条失败不影响同块其他记录。
+ * 同一 id 的记录总在同一工作线程内按文件顺序处理，避免并发重复创建。
+ * 线程池大小为 workers × max-concurrent-runs，同时运行的导入数由信号量限制，保证每次导入都能拿到全部工作线程。
+ */
+@Slf4j
+@Component
+public class CosvIngestEngine {
+
+    /** 单条记录处理逻辑，返回写入结果（status/action/uuid/identifier 等） */
+    @FunctionalInterface
+    public interface ItemHandler {
+        Map<String, Object> handle(CosvUpsert cosv);
+
+        /** 块开始前调用（事务外），可用于批量预取本块所需的查找数据 */
+        default void prepare(List<CosvUpsert> chunk) {}
+    }
+
+    /** 单条结果日志：仅在所属块提交（或回滚）后产出 */
+    public record ItemResult(int index, boolean ok, Map<String, Object> data) {}
+
+    /** 块内结果持久化：在块事务内调用，与该块的业务写入一同提交或回滚 */
+    @FunctionalInterface
+    public interface ChunkJournal {
+        void write(List<ItemResult> results);
+    }
+
+    public record Summary(int total, int success, int failed, long elapsedMs, boolean cancelled) {
+        public double recordsPerSec() { return elapsedMs <= 0 ? total : total * 1000.0 / elapsedMs; }
+    }
+
+    private static final List<CosvRecordReader.Record> EOF = List.of();
+
+    private final TransactionTemplate chunkTx;
+    private final TransactionTemplate itemTx;
+    private ExecutorService pool;
+    private Semaphore runPermits;
+
+    @Value("${cosv.ingest.workers:4}")
+    private int workers = 4;
+
+    @Value("${cosv.ingest.chunk-size:200}")
+    private int chunkSize = 200;
+
+    @Value("${cosv.ingest.queue-capacity:2}")
+    private int queueCapacity = 2;
+
+    @Value("${cosv.ingest.max-concurrent-runs:3}")
+    private int maxConcurrentRuns = 3;
+
+    // 读取线程入队等待的检查间隔：期间发现对应工作线程已退出则中止导入，避免永久阻塞
+    private static final long ENQUEUE_POLL_MS = 500;
+
+    public CosvIngestEngine(PlatformTransactionManager txManager) {
+        this.chunkTx = new TransactionTemplate(txManager);
+        this.chunkTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.itemTx = new TransactionTemplate(txManager);
+        this.itemTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+    }
+
+    @PostConstruct
+    public void init() {
+        int runs = Math.max(1, maxConcurrentRuns);
+        int threads = Math.max(1, workers) * runs;
+        AtomicInteger seq = new AtomicInteger();
+        ThreadPoolExecutor tpe = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "cosv-ingest-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        tpe.allowCoreThreadTimeOut(true);
+        this.pool = tpe;
+        this.runPermits = new Semaphore(runs, true);
+    }
+
+    @PreDestroy
+    public void shutdown() { if (pool != null) pool.shutdownNow(); }
+
+    public Summary run(CosvRecordReader reader, ItemHandler handler, Consumer<ItemResult> journal) {
+        return run(reader, handler, journal, i -> false, new AtomicBoolean(false));
+    }
+
+    /**
+     * @param skip      返回 true 的记录序号直接跳过（用于断点续跑）
+     * @param cancelled 置为 true 后停止读取新记录，已入队的块照常处理完毕
+     */
+    public Summary run(CosvRecordReader reader, ItemHandler handler, Consumer<ItemResult> journal,
+                       java.util.function.IntPredicate skip, AtomicBoolean cancelled) {
+        return run(reader, handler, journal, skip, cancelled, null);
+    }
+
+    /**
+     * @param chunkJournal 非空时在块事务内写入结果；块提交失败或解析失败的记录另起事务写入
+     */
+    public Summary run(CosvRecordReader reader, ItemHandler handler, Consumer<ItemResult> journal,
+                       java.util.function.IntPredicate skip, AtomicBoolean cancelled, ChunkJournal chunkJournal) {
+        try {
+            runPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("导入被中断", e);
+        }
+        try {
+            return runChunks(reader, handler, journal, skip, cancelled, chunkJournal);
+        } finally {
+            runPermits.release();
+        }
+    }
+
+    private Summary runChunks(CosvRecordReader reader, ItemHandler handler, Consumer<ItemResult> journal,
+                              java.util.function.IntPredicate skip, AtomicBoolean cancelled, ChunkJournal chunkJournal) {
+        long t0 = System.currentTimeMillis();
+        int n = Math.max(1, workers);
+        int size = Math.max(1, chunkSize);
+        SecurityContext sc = SecurityContextHolder.getContext();
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Consumer<ItemResult> sink = r -> {
+            if (r.ok()) success.incrementAndGet(); else failed.incrementAndGet();
+            synchronized (journal) { journal.accept(r); }
+        };
+
+        List<BlockingQueue<List<CosvRecordReader.Record>>> queues = new ArrayList<>(n);
+        List<Future<?>> futures = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            BlockingQueue<List<CosvRecordReader.Record>> q = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+            queues.add(q);
+            futures.add(pool.submit(() -> work(q, handler, sink, chunkJournal, sc)));
+        }
+
+        List<List<CosvRecordReader.Record>> buffers = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) buffers.add(new ArrayList<>(size));
+        int total = 0;
+        try {
+            CosvRecordReader.Record rec;
+            while (!cancelled.get() && (rec = reader.next()) != null) {
+                if (skip.test(rec.index())) continue;
+                total++;
+                if (rec.error() != null) {
+                    ItemResult r = new ItemResult(rec.index(), false, error(rec.error()));
+                    writeSeparately(chunkJournal, List.of(r));
+                    sink.accept(r);
+                    continue;
+                }
+                int p = Math.floorMod(Objects.hashCode(rec.cosv().getId()), n);
+                List<CosvRecordReader.Record> buf = buffers.get(p);
+                buf.add(rec);
+                if (buf.size() >= size) {
+                    enqueue(queues.get(p), buf, futures.get(p));
+                    buffers.set(p, new ArrayList<>(size));
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                if (!buffers.get(i).isEmpty()) enqueue(queues.get(i), buffers.get(i), futures.get(i));
+                enqueue(queues.get(i), EOF, futures.get(i));
+            }
+            for (Future<?> f : futures) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("导入被中断", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("导入工作线程异常: " + e.getCause().getMessage(), e.getCause());
+        } catch (java.io.IOException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new tech.cspioneer.backend.common.ApiException(400, "COSV批量解析失败: " + e.getMessage());
+        } catch (RuntimeException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw e;
+        }
+        long elapsed = System.currentTimeMillis() - t0;
+        Summary s = new Summary(total, success.get(), failed.get(), elapsed, cancelled.get());
+        log.info("[COSV] ingest finished total={} success={} failed={} elapsedMs={} rps={}",
+                s.total(), s.success(), s.failed(), s.elapsedMs(), String.format("%.1f", s.recordsPerSec()));
+        return s;
+    }
+
+    // 限时入队：工作线程在收到 EOF 前退出（被中断等）时队列不再被消费，此时中止导入而不是一直阻塞
+    private static void enqueue(BlockingQueue<List<CosvRecordReader.Record>> q, List<CosvRecordReader.Record> item,
+                                Future<?> worker) throws InterruptedException {
+        while (!q.offer(item, ENQUEUE_POLL_MS, TimeUnit.MILLISECONDS)) {
+            if (worker.isDone()) throw new IllegalStateException("导入工作线程已退出");
+        }
+    }
+
+    private void work(BlockingQueue<List<CosvRecordReader.Record>> q, ItemHandler handler,
+                      Consumer<ItemResult> sink, ChunkJournal chunkJournal, SecurityContext sc) {
+        SecurityContextHolder.setContext(sc);
+        try {
+            while (true) {
+                List<CosvRecordReader.Record> chunk = q.take();
+                if (chunk == EOF) return;
+                try {
+                    processChunk(chunk, handler, sink, chunkJournal);
+                } catch (Throwable t) {
+                    // 块处理中的意外异常（含 Error）：整块记为失败，继续消费后续块
+                    log.error("[COSV] ingest chunk failed size={}", chunk.size(), t);
+                    List<ItemResult> failedResults = new ArrayList<>(chunk.size());
+                    for (var rec : chunk) failedResults.add(new ItemResult(rec.index(), false, error("块处理异常: " + t)));
+                    writeSeparately(chunkJournal, failedResults);
+                    deliver(failedResults, sink);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private void processChunk(List<CosvRecordReader.Record> chunk, ItemHandler handler, Consumer<ItemResult> sink,
+                              ChunkJournal chunkJournal) {
+        List<ItemResult> results = new ArrayList<>(chunk.size());
+        try {
+            handler.prepare(chunk.stream().map(CosvRecordReader.Record::cosv).toList());
+            chunkTx.executeWithoutResult(st -> {
+                results.clear();
+                for (var rec : chunk) {
+                    try {
+                        Map<String, Object> r = itemTx.execute(its -> handler.handle(rec.cosv()));
+                        results.add(new ItemResult(rec.index(), true, r));
+                    } catch (Exception ex) {
+                        results.add(new ItemResult(rec.index(), false, error(ex.getMessage())));
+                    }
+                }
+                if (chunkJournal != null) chunkJournal.write(results);
+            });
+        } catch (Exception ex) {
+            // 块提交失败：块内成功记录均已回滚
+            log.warn("[COSV] ingest chunk commit failed size={} msg={}", chunk.size(), ex.getMessage());
+            results.clear();
+            for (var rec : chunk) results.add(new ItemResult(rec.index(), false, error("块提交失败: " + ex.getMessage())));
+            writeSeparately(chunkJournal, results);
+        }
+        deliver(results, sink);
+    }
+
+    // 逐条产出结果：单条日志写入异常不影响其余记录
+    private static void deliver(List<ItemResult> results, Consumer<ItemResult> sink) {
+        for (var r : results) {
+            try {
+                sink.accept(r);
+            } catch (RuntimeException ex) {
+                log.warn("[COSV] ingest journal failed index={} msg={}", r.index(), ex.getMessage());
+            }
+        }
+    }
+
+    private void writeSeparately(ChunkJournal chunkJournal, List<ItemResult> results) {
+        if (chunkJournal == null) return;
+        try {
+            chunkTx.executeWithoutResult(st -> chunkJournal.write(results));
+        } catch (Exception ex) {
+            log.warn("[COSV] ingest journal write failed size={} msg={}", results.size(), ex.getMessage());
+        }
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("status", "ERROR");
+        r.put("message", message);
+        return r;
+    }
+}
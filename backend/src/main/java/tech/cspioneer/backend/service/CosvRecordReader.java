@@ -0,0 +1,127 @@
+package tech.cspioneer.backend.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import tech.cspioneer.backend.dto.CosvUpsert;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * COSV 批量文件的流式读取器，逐条产出记录，内存占用与单条记录大小相关而非整个文件。
+ * 支持 NDJSON（逐行解析，坏行记为单条错误后继续）、JSON 数组、{"items":[...]} 包装与单个对象。
+ */
+public class CosvRecordReader implements Closeable {
+
+    /** 单条记录：cosv 与 error 二选一；index 从 0 开始，按文件顺序递增 */
+    public record Record(int index, CosvUpsert cosv, String error) {}
+
+    private final ObjectMapper mapper;
+    private final BufferedReader lines;        // NDJSON 模式
+    private final MappingIterator<JsonNode> values; // 数组/拼接 JSON 模式
+    private final Deque<JsonNode> pending = new ArrayDeque<>();
+    private final Closeable source;
+    private int index = 0;
+
+    private CosvRecordReader(ObjectMapper mapper, BufferedReader lines, MappingIterator<JsonNode> values, Closeable source) {
+        this.mapper = mapper;
+        this.lines = lines;
+        this.values = values;
+        this.source = source;
+    }
+
+    public static CosvRecordReader open(InputStream in, ObjectMapper mapper) throws IOException {
+        BufferedInputStream bin = new BufferedInputStream(in, 64 * 1024);
+        bin.mark(2 << 20);
+        int first = firstNonWhitespace(bin);
+        if (first == '{' && firstLineIsObject(bin, mapper)) {
+            bin.reset();
+            return new CosvRecordReader(mapper, new BufferedReader(new InputStreamReader(bin, StandardCharsets.UTF_8)), null, bin);
+        }
+        bin.reset();
+        JsonParser p = mapper.getFactory().createParser(bin);
+        if (first == '[') {
+            if (p.nextToken() != JsonToken.START_ARRAY) throw new IOException("期望 JSON 数组");
+            p.nextToken();
+        }
+        MappingIterator<JsonNode> it = mapper.readerFor(JsonNode.class).readValues(p);
+        return new CosvRecordReader(mapper, null, it, p);
+    }
+
+    /** 读取下一条记录；文件结束返回 null */
+    public Record next() throws IOException {
+        while (true) {
+            if (!pending.isEmpty()) return convert(pending.pollFirst());
+            if (lines != null) {
+                String line = lines.readLine();
+                if (line == null) return null;
+                String s = line.trim();
+                if (s.isEmpty()) continue;
+                JsonNode node;
+                try {
+                    node = mapper.readTree(s);
+                } catch (Exception e) {
+                    return new Record(index++, null, "JSON解析失败: " + e.getMessage());
+                }
+                if (!expand(node)) return convert(node);
+            } else {
+                if (!values.hasNextValue()) return null;
+                JsonNode node = values.nextValue();
+                if (!expand(node)) return convert(node);
+            }
+        }
+    }
+
+    // {"items":[...]} 包装：展开为多条
+    private boolean expand(JsonNode node) {
+        if (node != null && node.isObject() && node.size() == 1 && node.has("items") && node.get("items").isArray()) {
+            for (JsonNode el : node.get("items")) pending.addLast(el);
+            return true;
+        }
+        return false;
+    }
+
+    private Record convert(JsonNode node) {
+        int i = index++;
+        try {
+            CosvUpsert cosv = mapper.treeToValue(node, CosvUpsert.class);
+            if (cosv == null) return new Record(i, null, "空记录");
+            return new Record(i, cosv, null);
+        } catch (Exception e) {
+            return new Record(i, null, "COSV解析失败: " + e.getMessage());
+        }
+    }
+
+    private static int firstNonWhitespace(InputStream in) throws IOException {
+        int c;
+        do { c = in.read(); } while (c != -1 && Character.isWhitespace(c));
+        return c;
+    }
+
+    // 首行本身就是完整对象即视为 NDJSON；否则为跨行的单个对象/包装
+    private static boolean firstLineIsObject(InputStream in, ObjectMapper mapper) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        buf.write('{');
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            buf.write(c);
+            if (buf.size() >= (1 << 20) - 2) return false;
+        }
+        try {
+            return mapper.readTree(buf.toByteArray()).isObject();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (values != null) values.close();
+        source.close();
+    }
+}
@@ -3,19 +3,35 @@ package tech.cspioneer.backend.service;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+/**
+ * 签发与校验 JWT。Algorithm/JWTVerifier 线程安全，启动时按密钥构建一次并复用。
+ * 密钥轮换：当前密钥签名时在头部写入 kid（security.jwt.kid）；security.jwt.previous-keys 中的旧密钥
+ * （kid:secret，逗号分隔）只用于校验，待旧令牌过期后移除。无 kid 的令牌依次尝试当前密钥与旧密钥。
+ */
 @Service
 public class JwtService {
     @Value("${security.jwt.secret}")
     private String secret;
+    @Value("${security.jwt.kid:}")
+    private String kid = "";
+    @Value("${security.jwt.previous-keys:}")
+    private String previousKeys = "";
     @Value("${security.jwt.issuer:cosv-horizon}")
     private String issuer;
     @Value("${security.jwt.access-ttl:PT15M}")
@@ -25,8 +41,35 @@ public class JwtService {
     @Value("${security.jwt.token-prefix:Bearer }")
     private String tokenPrefix;
 
-    private Algorithm algorithm() {
-        return Algorithm.HMAC256(secret);
+    private Algorithm signingAlgorithm;
+    private Map<String, JWTVerifier> verifiersByKid;
+    private List<JWTVerifier> kidlessVerifiers;
+
+    @PostConstruct
+    public void init() {
+        signingAlgorithm = Algorithm.HMAC256(secret);
+        Map<String, JWTVerifier> byKid = new LinkedHashMap<>();
+        List<JWTVerifier> kidless = new ArrayList<>();
+        JWTVerifier current = verifier(signingAlgorithm);
+        kidless.add(current);
+        if (kid != null && !kid.isBlank()) byKid.put(kid.trim(), current);
+        if (previousKeys != null && !previousKeys.isBlank()) {
+            for (String part : previousKeys.split(",")) {
+                int i = part.indexOf(':');
+                if (i <= 0 || i == part.length() - 1) {
+                    throw new IllegalStateException("security.jwt.previous-keys 格式应为 kid:secret[,kid:secret]");
+                }
+                JWTVerifier v = verifier(Algorithm.HMAC256(part.substring(i + 1).trim()));
+                byKid.putIfAbsent(part.substring(0, i).trim(), v);
+                kidless.add(v);
+            }
+        }
+        verifiersByKid = Map.copyOf(byKid);
+        kidlessVerifiers = List.copyOf(kidless);
+    }
+
+    private JWTVerifier verifier(Algorithm algorithm) {
+        return JWT.require(algorithm).withIssuer(issuer).build();
     }
 
     public String getTokenPrefix() {
@@ -35,20 +78,20 @@ public class JwtService {
 
     public String generateAccessToken(String userUuid, String role) {
         Instant now = Instant.now();
-        return JWT.create()
+        return builder()
                 .withIssuer(issuer)
                 .withSubject(userUuid)
                 .withClaim("typ", "access")
                 .withClaim("role", role)
                 .withIssuedAt(Date.from(now))
                 .withExpiresAt(Date.from(now.plus(accessTtl)))
-                .sign(algorithm());
+                .sign(signingAlgorithm);
     }
 
     public String generateRefreshToken(String userUuid, String role, String jti) {
         Instant now = Instant.now();
         String id = (jti != null && !jti.isBlank()) ? jti : UUID.randomUUID().toString();
-        return JWT.create()
+        return builder()
                 .withIssuer(issuer)
                 .withJWTId(id)
                 .withSubject(userUuid)
@@ -56,7 +99,7 @@ public class JwtService {
                 .withClaim("role", role)
                 .withIssuedAt(Date.from(now))
                 .withExpiresAt(Date.from(now.plus(refreshTtl)))
-                .sign(algorithm());
+                .sign(signingAlgorithm);
     }
 
     public TokenInfo parseAccessToken(String token) {
@@ -75,9 +118,31 @@ public class JwtService {
         return toInfo(jwt);
     }
 
+    private com.auth0.jwt.JWTCreator.Builder builder() {
+        com.auth0.jwt.JWTCreator.Builder b = JWT.create();
+        if (kid != null && !kid.isBlank()) b.withKeyId(kid.trim());
+        return b;
+    }
+
+    // 只解码一次：按头部 kid 选择校验器，再校验已解码的令牌
     private DecodedJWT baseVerify(String token) {
-        JWTVerifier verifier = JWT.require(algorithm()).withIssuer(issuer).build();
-        return verifier.verify(token);
+        DecodedJWT decoded = JWT.decode(token);
+        String tokenKid = decoded.getKeyId();
+        if (tokenKid != null) {
+            JWTVerifier v = verifiersByKid.get(tokenKid);
+            if (v == null) throw new JWTVerificationException("unknown kid");
+            return v.verify(decoded);
+        }
+        // 仅签名不匹配时换下一个密钥；过期等声明错误直接抛出
+        SignatureVerificationException last = null;
+        for (JWTVerifier v : kidlessVerifiers) {
+            try {
+                return v.verify(decoded);
+            } catch (SignatureVerificationException e) {
+                last = e;
+            }
+        }
+        throw last;
     }
 
     public long ttlSecondsUntil(Instant expiresAt) {
@@ -31,13 +31,16 @@ public class OrganizationService {
     private final UserMapper userMapper;
     private final NotificationMapper notificationMapper;
     private final tech.cspioneer.backend.mapper.OrgInviteLinkMapper inviteLinkMapper;
+    private final VulnerabilityVisibilityService visibilityService;
 
-    public OrganizationService(OrganizationMapper organizationMapper, LnkUserOrganizationMapper lnkMapper, UserMapper userMapper, NotificationMapper notificationMapper, tech.cspioneer.backend.mapper.OrgInviteLinkMapper inviteLinkMapper) {
+    public OrganizationService(OrganizationMapper organizationMapper, LnkUserOrganizationMapper lnkMapper, UserMapper userMapper, NotificationMapper notificationMapper, tech.cspioneer.backend.mapper.OrgInviteLinkMapper inviteLinkMapper,
+                               VulnerabilityVisibilityService visibilityService) {
         this.organizationMapper = organizationMapper;
         this.lnkMapper = lnkMapper;
         this.userMapper = userMapper;
         this.notificationMapper = notificationMapper;
         this.inviteLinkMapper = inviteLinkMapper;
+        this.visibilityService = visibilityService;
     }
 
     public static class Page<T> {
@@ -86,6 +89,7 @@ public class OrganizationService {
         link.setUserId(user.getId());
         link.setRole(OrganizationRole.ADMIN);
         lnkMapper.insert(link);
+        visibilityService.membershipChanged(user.getId());
         // 返回数据库最新数据，确保 dateCreated 等由 DB 填充的字段不为 null
         return organizationMapper.findByUuid(org.getUuid());
     }
@@ -226,10 +230,12 @@ public class OrganizationService {
         if (avatar != null) org.setAvatar(avatar);
         if (description != null) org.setDescription(description);
         if (freeText != null) org.setFreeText(freeText);
+        boolean visibilityChanged = isPublic != null && !isPublic.equals(org.getIsPublic());
         if (isPublic != null) org.setIsPublic(isPublic);
         if (allowJoinRequest != null) org.setAllowJoinRequest(allowJoinRequest);
         if (allowInviteLink != null) org.setAllowInviteLink(allowInviteLink);
         organizationMapper.updateBasic(org);
+        if (visibilityChanged) visibilityService.orgVisibilityChanged(org.getId());
         return organizationMapper.findByUuid(orgUuid);
     }
 
@@ -421,6 +427,7 @@ public class OrganizationService {
             link.setUserId(n.getUserId());
             link.setRole(tech.cspioneer.backend.enums.OrganizationRole.MEMBER);
             lnkMapper.insert(link);
+            visibilityService.membershipChanged(n.getUserId());
         }
         notificationMapper.updateStatus(requestUuid, tech.cspioneer.backend.enums.NotificationStatus.ACCEPTED, true);
     }
@@ -455,6 +462,7 @@ public class OrganizationService {
         link.setUserId(target.getId());
         link.setRole(OrganizationRole.fromCode(role));
         lnkMapper.insert(link);
+        visibilityService.membershipChanged(target.getId());
     }
 
     @Transactional
@@ -508,6 +516,7 @@ public class OrganizationService {
         if (lnkMapper.delete(org.getId(), member.getId()) == 0) {
             throw new ApiException(404, "成员不存在");
         }
+        visibilityService.membershipChanged(member.getId());
     }
 
     @Transactional
@@ -528,6 +537,7 @@ public class OrganizationService {
             link.setUserId(user.getId());
             link.setRole(OrganizationRole.MEMBER);
             lnkMapper.insert(link);
+            visibilityService.membershipChanged(user.getId());
         }
         notificationMapper.updateStatus(inviteUuid, NotificationStatus.ACCEPTED, true);
         // 通知邀请发起人
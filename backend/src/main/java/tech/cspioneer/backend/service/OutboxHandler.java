@@ -0,0 +1,16 @@
+package tech.cspioneer.backend.service;
+
+import tech.cspioneer.backend.entity.OutboxEvent;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 发件箱事件消费者：按事件类型注册，由 OutboxRelay 按批调用。投递语义为至少一次，实现需幂等。
+ */
+public interface OutboxHandler {
+    Set<String> eventTypes();
+
+    /** 返回处理失败、需退避重试的事件 id；抛异常视为整批失败 */
+    Set<Long> handle(List<OutboxEvent> events) throws Exception;
+}
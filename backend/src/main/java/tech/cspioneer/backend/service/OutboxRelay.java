@@ -0,0 +1,162 @@
+package tech.cspioneer.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.cspioneer.backend.entity.OutboxEvent;
+import tech.cspioneer.backend.mapper.OutboxEventMapper;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发件箱中继：定时以 FOR UPDATE SKIP LOCKED 锁定一批到期事件并写入租约后提交，再在事务外按类型分发给 OutboxHandler；
+ * 成功的事件删除，失败的按指数退避改期，尝试次数达到上限后置为 FAILED 不再重试。
+ * 多实例并行运行时各自领取不同的行；实例宕机时租约到期后事件被重新领取，处理器须幂等。
+ */
+@Service
+@Slf4j
+public class OutboxRelay {
+    private final OutboxEventMapper outboxMapper;
+    private final TransactionTemplate tx;
+    private final ObjectProvider<OutboxHandler> handlerProvider;
+    private Map<String, OutboxHandler> handlers;
+    private ScheduledExecutorService scheduler;
+
+    @Value("${outbox.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${outbox.relay.poll-interval-ms:500}")
+    private long pollIntervalMs = 500;
+
+    @Value("${outbox.relay.batch-size:200}")
+    private int batchSize = 200;
+
+    @Value("${outbox.relay.max-backoff-seconds:300}")
+    private long maxBackoffSeconds = 300;
+
+    @Value("${outbox.relay.max-attempts:10}")
+    private int maxAttempts = 10;
+
+    @Value("${outbox.relay.lease-seconds:60}")
+    private long leaseSeconds = 60;
+
+    public OutboxRelay(OutboxEventMapper outboxMapper,
+                       PlatformTransactionManager txManager,
+                       ObjectProvider<OutboxHandler> handlerProvider) {
+        this.outboxMapper = outboxMapper;
+        this.tx = new TransactionTemplate(txManager);
+        this.handlerProvider = handlerProvider;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "outbox-relay");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(50, pollIntervalMs);
+        scheduler.scheduleWithFixedDelay(this::drain, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    private void drain() {
+        try {
+            // 满批说明仍有积压，继续领取
+            while (relayOnce() >= Math.max(1, batchSize)) {
+            }
+        } catch (Exception e) {
+            log.warn("[Outbox] relay failed: {}", e.getMessage());
+        }
+    }
+
+    /** 领取并分发一批，返回领取条数 */
+    public int relayOnce() {
+        List<OutboxEvent> events = claim();
+        if (events.isEmpty()) return 0;
+        Map<String, List<OutboxEvent>> byType = new LinkedHashMap<>();
+        for (var e : events) byType.computeIfAbsent(e.getEventType(), k -> new ArrayList<>()).add(e);
+        Map<Long, String> failed = new HashMap<>();
+        for (var entry : byType.entrySet()) {
+            OutboxHandler h = handlers().get(entry.getKey());
+            if (h == null) {
+                entry.getValue().forEach(e -> failed.put(e.getId(), "no handler"));
+                continue;
+            }
+            try {
+                Set<Long> bad = h.handle(entry.getValue());
+                if (bad != null) bad.forEach(id -> failed.put(id, "handler reported failure"));
+            } catch (Exception ex) {
+                String msg = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+                entry.getValue().forEach(e -> failed.put(e.getId(), msg));
+            }
+        }
+        List<Long> done = events.stream().map(OutboxEvent::getId).filter(id -> !failed.containsKey(id)).toList();
+        if (!done.isEmpty()) outboxMapper.deleteByIds(done);
+        int parked = 0;
+        for (var e : events) {
+            String err = failed.get(e.getId());
+            if (err == null) continue;
+            if (err.length() > 1000) err = err.substring(0, 1000);
+            // attempts 为领取前的次数，本次领取已计一次
+            int attempts = e.getAttempts() == null ? 0 : e.getAttempts();
+            if (attempts + 1 >= Math.max(1, maxAttempts)) {
+                outboxMapper.markFailed(e.getId(), err);
+                parked++;
+            } else {
+                outboxMapper.reschedule(e.getId(), err, backoffSeconds(attempts));
+            }
+        }
+        if (!failed.isEmpty()) log.warn("[Outbox] {} of {} events failed, {} parked as FAILED", failed.size(), events.size(), parked);
+        return events.size();
+    }
+
+    // 短事务内锁定并写入租约，提交后再分发，外部调用不持有行锁
+    private List<OutboxEvent> claim() {
+        List<OutboxEvent> events = tx.execute(status -> {
+            List<OutboxEvent> locked = outboxMapper.lockAvailable(Math.max(1, batchSize));
+            if (locked == null || locked.isEmpty()) return List.<OutboxEvent>of();
+            outboxMapper.claim(locked.stream().map(OutboxEvent::getId).toList(), Math.max(1, leaseSeconds));
+            return locked;
+        });
+        return events == null ? List.of() : events;
+    }
+
+    long backoffSeconds(int attempts) {
+        return Math.min(Math.max(1, maxBackoffSeconds), 1L << Math.min(20, attempts));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("pending", outboxMapper.countPending());
+        m.put("failed", outboxMapper.countFailed());
+        LocalDateTime oldest = outboxMapper.oldestCreateTime();
+        m.put("lagSeconds", oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).getSeconds());
+        return m;
+    }
+
+    private Map<String, OutboxHandler> handlers() {
+        if (handlers == null) {
+            Map<String, OutboxHandler> m = new HashMap<>();
+            handlerProvider.orderedStream().forEach(h -> h.eventTypes().forEach(t -> m.put(t, h)));
+            handlers = m;
+        }
+        return handlers;
+    }
+}
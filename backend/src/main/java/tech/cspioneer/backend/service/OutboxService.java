@@ -0,0 +1,59 @@
+package tech.cspioneer.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import tech.cspioneer.backend.entity.OutboxEvent;
+import tech.cspioneer.backend.mapper.OutboxEventMapper;
+
+import java.util.Map;
+
+/**
+ * 事务发件箱写入端：在业务事务内插入事件，与数据变更同时提交或回滚，由 OutboxRelay 异步分发。
+ * 需先执行 sql/migrations/20251105_add_outbox_event.sql 并开启 outbox.enabled。
+ */
+@Service
+@Slf4j
+public class OutboxService {
+    public static final String VULN_INDEX = "VULN_INDEX";
+    public static final String VULN_DELETE = "VULN_DELETE";
+    public static final String VULN_POINTS = "VULN_POINTS";
+
+    private final OutboxEventMapper outboxMapper;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${outbox.enabled:false}")
+    private boolean enabled = false;
+
+    public OutboxService(OutboxEventMapper outboxMapper) {
+        this.outboxMapper = outboxMapper;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** 必须在业务事务内调用；写入失败随业务事务一起回滚 */
+    public void publish(String eventType, String aggregateUuid, Map<String, Object> payload) {
+        OutboxEvent e = new OutboxEvent();
+        e.setEventType(eventType);
+        e.setAggregateUuid(aggregateUuid);
+        try {
+            e.setPayload(payload == null || payload.isEmpty() ? null : objectMapper.writeValueAsString(payload));
+        } catch (com.fasterxml.jackson.core.JsonProcessingException ex) {
+            throw new IllegalStateException("outbox payload 序列化失败", ex);
+        }
+        outboxMapper.insert(e);
+    }
+
+    public Map<String, Object> readPayload(OutboxEvent e) {
+        if (e.getPayload() == null || e.getPayload().isBlank()) return Map.of();
+        try {
+            return objectMapper.readValue(e.getPayload(), new com.fasterxml.jackson.core.type.TypeReference<Map<String, Object>>() {});
+        } catch (Exception ex) {
+            log.warn("[Outbox] payload 解析失败 id={} : {}", e.getId(), ex.getMessage());
+            return Map.of();
+        }
+    }
+}
@@ -1,34 +1,98 @@
 package tech.cspioneer.backend.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * 用户级 JWT 吊销水位（jwt:invalidAfter:&lt;uuid&gt;，早于该时刻签发的令牌失效）。
+ * 读取走进程内近缓存：未吊销（EPOCH）同样缓存，TTL 内不访问 Redis；revokeAll 立即更新本实例，
+ * 并经 Redis 频道把新水位推送给其他实例（频道不可用时其他实例最长陈旧 TTL）。
+ * 水位只增不减，并发加载与推送按较大值合并；Redis 读取失败时沿用已过期的缓存值。
+ */
 @Service
+@Slf4j
 public class TokenRevocationService {
+    static final String REVOKE_CHANNEL = "jwt:revoke";
+
+    @Value("${jwt.revocation.cache.enabled:true}")
+    private boolean cacheEnabled = true;
+
+    @Value("${jwt.revocation.cache.ttl-seconds:30}")
+    private long cacheTtlSeconds = 30;
+
+    @Value("${jwt.revocation.cache.max-entries:50000}")
+    private int cacheMaxEntries = 50000;
+
     private final StringRedisTemplate redis;
+    final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private RedisMessageListenerContainer listener;
+
+    record Entry(long invalidAfter, long expiresAt) {}
 
     public TokenRevocationService(StringRedisTemplate redis) {
         this.redis = redis;
     }
 
+    @PostConstruct
+    public void init() {
+        if (!cacheEnabled) return;
+        try {
+            listener = new RedisMessageListenerContainer();
+            listener.setConnectionFactory(redis.getConnectionFactory());
+            listener.addMessageListener((message, pattern) -> onRevokeMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(REVOKE_CHANNEL));
+            listener.afterPropertiesSet();
+            listener.start();
+        } catch (Exception e) {
+            log.warn("[jwt-revocation] subscribe {} failed: {}", REVOKE_CHANNEL, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (listener != null) {
+            try { listener.stop(); listener.destroy(); } catch (Exception ignore) {}
+        }
+    }
+
     public void revokeAll(String userUuid) {
         if (userUuid == null || userUuid.isBlank()) return;
         String key = keyOf(userUuid);
-        String now = String.valueOf(Instant.now().getEpochSecond());
-        redis.opsForValue().set(key, now);
+        long now = Instant.now().getEpochSecond();
+        redis.opsForValue().set(key, String.valueOf(now));
+        remember(userUuid, now);
+        if (!cacheEnabled) return;
+        try {
+            redis.convertAndSend(REVOKE_CHANNEL, userUuid + ":" + now);
+        } catch (Exception e) {
+            log.warn("[jwt-revocation] publish user={} failed: {}", userUuid, e.getMessage());
+        }
     }
 
     public Instant getInvalidAfter(String userUuid) {
-        String v = redis.opsForValue().get(keyOf(userUuid));
-        if (v == null) return Instant.EPOCH; // no revocation set
+        if (!cacheEnabled || cacheTtlSeconds <= 0) return Instant.ofEpochSecond(load(userUuid));
+        Entry e = cache.get(userUuid);
+        if (e != null && e.expiresAt() > System.currentTimeMillis()) return Instant.ofEpochSecond(e.invalidAfter());
+        long v;
         try {
-            long epoch = Long.parseLong(v);
-            return Instant.ofEpochSecond(epoch);
-        } catch (NumberFormatException e) {
-            return Instant.EPOCH;
+            v = load(userUuid);
+        } catch (RuntimeException ex) {
+            if (e == null) throw ex;
+            log.warn("[jwt-revocation] load user={} failed, serving cached watermark: {}", userUuid, ex.getMessage());
+            return Instant.ofEpochSecond(e.invalidAfter());
         }
+        return Instant.ofEpochSecond(remember(userUuid, v));
     }
 
     public boolean isIssuedAfter(String userUuid, Instant issuedAt) {
@@ -37,6 +101,40 @@ public class TokenRevocationService {
         return issuedAt.isAfter(invalidAfter);
     }
 
+    // 读取 Redis 中的水位（秒），未设置返回 0
+    private long load(String userUuid) {
+        String v = redis.opsForValue().get(keyOf(userUuid));
+        if (v == null) return 0; // no revocation set
+        try {
+            return Long.parseLong(v);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // 写入缓存并刷新 TTL，保留较大的水位；返回合并后的值
+    private long remember(String userUuid, long invalidAfter) {
+        if (!cacheEnabled || cacheTtlSeconds <= 0) return invalidAfter;
+        long now = System.currentTimeMillis();
+        if (cache.size() >= cacheMaxEntries && !cache.containsKey(userUuid)) {
+            cache.entrySet().removeIf(en -> en.getValue().expiresAt() <= now);
+            if (cache.size() >= cacheMaxEntries) cache.clear();
+        }
+        long expiresAt = now + cacheTtlSeconds * 1000L;
+        Entry merged = cache.merge(userUuid, new Entry(invalidAfter, expiresAt),
+                (old, neu) -> new Entry(Math.max(old.invalidAfter(), neu.invalidAfter()), neu.expiresAt()));
+        return merged.invalidAfter();
+    }
+
+    void onRevokeMessage(String body) {
+        int i = body.lastIndexOf(':');
+        if (i <= 0) return;
+        try {
+            remember(body.substring(0, i), Long.parseLong(body.substring(i + 1)));
+        } catch (NumberFormatException e) {
+            log.warn("[jwt-revocation] bad message: {}", body);
+        }
+    }
+
     private String keyOf(String userUuid) { return "jwt:invalidAfter:" + userUuid; }
 }
-
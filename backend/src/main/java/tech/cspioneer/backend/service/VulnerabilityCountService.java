@@ -0,0 +1,136 @@
+package tech.cspioneer.backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 漏洞列表总数缓存：按"规范化过滤条件 + 可见性类别"签名缓存 COUNT 结果，短 TTL 过期。
+ * 估算模式下计数在 estimate-cap 处截断（如返回 10000 并标记 approximate，前端显示"10,000+"）。
+ * 漏洞增删改时整体失效（事务内的写在提交后再失效一次，避免并发读把旧值写回缓存）。
+ * 分面计数（各维度取值的条数）按同一签名另行缓存，TTL 与失效规则相同。
+ * 缓存为进程内，多实例间的陈旧窗口不超过 TTL。其他依赖漏洞数据的缓存可通过 {@link #onInvalidate} 挂在同一失效时机上。
+ */
+@Service
+@Slf4j
+public class VulnerabilityCountService {
+
+    @Value("${vuln.count.cache-ttl-seconds:30}")
+    private long ttlSeconds = 30;
+
+    @Value("${vuln.count.max-entries:10000}")
+    private int maxEntries = 10000;
+
+    @Value("${vuln.count.estimate-cap:10000}")
+    private int estimateCap = 10000;
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private final Map<String, FacetEntry> facetCache = new ConcurrentHashMap<>();
+    // 每次失效递增；计算前后代数不一致的结果不入缓存
+    private final AtomicLong generation = new AtomicLong();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    private record Entry(long value, long generation, long expiresAt) {}
+
+    private record FacetEntry(Map<String, Map<String, Long>> value, long generation, long expiresAt) {}
+
+    /** 总数结果；approximate=true 表示实际数量不少于 value */
+    public record Total(long value, boolean approximate) {}
+
+    /**
+     * @param signature 过滤条件与可见性类别的规范化签名
+     * @param estimate  是否使用截断计数
+     * @param counter   实际计数，参数为截断上限（null 表示精确计数）
+     */
+    public Total get(String signature, boolean estimate, Function<Integer, Long> counter) {
+        Integer cap = estimate && estimateCap > 0 ? estimateCap : null;
+        String key = (cap == null ? "exact|" : "cap" + cap + "|") + signature;
+        long gen = generation.get();
+        long now = System.currentTimeMillis();
+        Entry e = cache.get(key);
+        if (e != null && e.generation() == gen && e.expiresAt() > now) return toTotal(e.value(), cap);
+
+        Long counted = counter.apply(cap);
+        long value = counted == null ? 0L : counted;
+        if (ttlSeconds > 0 && generation.get() == gen) {
+            if (cache.size() >= maxEntries) evict(now);
+            cache.put(key, new Entry(value, gen, now + ttlSeconds * 1000L));
+        }
+        return toTotal(value, cap);
+    }
+
+    /**
+     * @param signature 过滤条件与可见性类别的规范化签名
+     * @param loader    实际计算，返回 维度 -> (取值 -> 条数)
+     */
+    public Map<String, Map<String, Long>> facets(String signature, Supplier<Map<String, Map<String, Long>>> loader) {
+        long gen = generation.get();
+        long now = System.currentTimeMillis();
+        FacetEntry e = facetCache.get(signature);
+        if (e != null && e.generation() == gen && e.expiresAt() > now) return e.value();
+
+        Map<String, Map<String, Long>> value = loader.get();
+        if (ttlSeconds > 0 && generation.get() == gen) {
+            if (facetCache.size() >= maxEntries) {
+                facetCache.entrySet().removeIf(en -> en.getValue().expiresAt() <= now || en.getValue().generation() != gen);
+                if (facetCache.size() >= maxEntries) facetCache.clear();
+            }
+            facetCache.put(signature, new FacetEntry(value, gen, now + ttlSeconds * 1000L));
+        }
+        return value;
+    }
+
+    /** 注册失效回调，与本缓存同时触发（含提交后那一次） */
+    public void onInvalidate(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /** 漏洞数据变更后调用；处于事务中时于提交后再失效一次 */
+    public void invalidate() {
+        clearAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clearAll();
+                }
+            });
+        }
+    }
+
+    private void clearAll() {
+        generation.incrementAndGet();
+        cache.clear();
+        facetCache.clear();
+        for (Runnable l : listeners) {
+            try {
+                l.run();
+            } catch (Exception e) {
+                log.warn("[count-cache] invalidate listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private Total toTotal(long value, Integer cap) {
+        return new Total(value, cap != null && value >= cap);
+    }
+
+    private void evict(long now) {
+        long gen = generation.get();
+        cache.entrySet().removeIf(en -> en.getValue().expiresAt() <= now || en.getValue().generation() != gen);
+        if (cache.size() >= maxEntries) {
+            log.debug("[count-cache] 条目数达到上限 {}，清空", maxEntries);
+            cache.clear();
+        }
+    }
+}
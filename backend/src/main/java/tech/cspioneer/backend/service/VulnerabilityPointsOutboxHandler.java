@@ -0,0 +1,63 @@
+package tech.cspioneer.backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.cspioneer.backend.common.ApiException;
+import tech.cspioneer.backend.entity.OutboxEvent;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 发件箱 → 积分发放：每条事件独立事务，单条失败不影响同批其他事件；积分流水按幂等键去重，重复投递无副作用。
+ */
+@Component
+@Slf4j
+public class VulnerabilityPointsOutboxHandler implements OutboxHandler {
+    private final VulnerabilityService vulnService;
+    private final OutboxService outboxService;
+    private final TransactionTemplate eventTx;
+
+    public VulnerabilityPointsOutboxHandler(VulnerabilityService vulnService,
+                                            OutboxService outboxService,
+                                            PlatformTransactionManager txManager) {
+        this.vulnService = vulnService;
+        this.outboxService = outboxService;
+        this.eventTx = new TransactionTemplate(txManager);
+        this.eventTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public Set<String> eventTypes() {
+        return Set.of(OutboxService.VULN_POINTS);
+    }
+
+    @Override
+    public Set<Long> handle(List<OutboxEvent> events) {
+        Set<Long> failed = new HashSet<>();
+        for (var e : events) {
+            Map<String, Object> p = outboxService.readPayload(e);
+            Float severity = p.get("severityNum") instanceof Number n ? n.floatValue() : null;
+            try {
+                eventTx.executeWithoutResult(s -> vulnService.applyPointsEvent(
+                        str(p.get("userUuid")), str(p.get("orgUuid")), str(p.get("event")), severity, e.getAggregateUuid()));
+            } catch (ApiException ex) {
+                // 用户/组织已不存在等业务错误重试无意义，直接丢弃
+                log.warn("[Outbox] points event dropped id={} : {}", e.getId(), ex.getMessage());
+            } catch (Exception ex) {
+                log.warn("[Outbox] points event failed id={} : {}", e.getId(), ex.getMessage());
+                failed.add(e.getId());
+            }
+        }
+        return failed;
+    }
+
+    private static String str(Object o) {
+        return o == null ? null : o.toString();
+    }
+}
@@ -0,0 +1,283 @@
+package tech.cspioneer.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import tech.cspioneer.backend.entity.User;
+import tech.cspioneer.backend.mapper.UserMapper;
+import tech.cspioneer.backend.security.ApiKeyContext;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 漏洞列表/检索的 Redis 结果缓存：键为"接口 + 可见性类别 + 规范化参数"，可见性类别为
+ * admin、public（无组织成员身份的用户）、org:{组织Key 所属组织}、member:{成员组织集合摘要}，同类用户共享结果。
+ * 新鲜期内直接返回；过期但仍在 stale 窗口内时先返回旧值，再由一个实例（Redis 锁）在后台刷新。
+ * 同一实例内同一键的并发未命中只计算一次。漏洞写入后递增 Redis 中的代数，旧代数条目全部失效（不做 stale 返回）。
+ */
+@Service
+@Slf4j
+public class VulnerabilityQueryCache {
+    private static final String PREFIX = "vq:";
+    private static final String GEN_KEY = PREFIX + "gen";
+
+    @Value("${vuln.query-cache.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${vuln.query-cache.fresh-seconds:30}")
+    private long freshSeconds = 30;
+
+    @Value("${vuln.query-cache.stale-seconds:120}")
+    private long staleSeconds = 120;
+
+    // 后台刷新锁的持有时长，应大于一次查询的耗时
+    @Value("${vuln.query-cache.refresh-lock-ms:10000}")
+    private long refreshLockMs = 10000;
+
+    private final StringRedisTemplate redis;
+    private final ObjectMapper objectMapper;
+    private final UserMapper userMapper;
+    private final VulnerabilityVisibilityService visibilityService;
+    private final Map<String, CompletableFuture<Map<String, Object>>> inFlight = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor refresher;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private record Cached(String gen, long freshUntil, Map<String, Object> data) {}
+
+    public VulnerabilityQueryCache(StringRedisTemplate redis,
+                                   ObjectMapper objectMapper,
+                                   UserMapper userMapper,
+                                   VulnerabilityVisibilityService visibilityService,
+                                   VulnerabilityCountService countService,
+                                   ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.redis = redis;
+        this.objectMapper = objectMapper;
+        this.userMapper = userMapper;
+        this.visibilityService = visibilityService;
+        this.refresher = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(100), r -> {
+            Thread t = new Thread(r, "vuln-query-cache-refresh");
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+        // 与总数缓存同一失效时机（含事务提交后）
+        countService.onInvalidate(this::invalidate);
+        MeterRegistry registry = meterRegistryProvider.getIfAvailable();
+        if (registry != null) {
+            FunctionCounter.builder("vuln.query_cache.requests", hits, LongAdder::sum).tag("result", "hit").register(registry);
+            FunctionCounter.builder("vuln.query_cache.requests", staleHits, LongAdder::sum).tag("result", "stale").register(registry);
+            FunctionCounter.builder("vuln.query_cache.requests", misses, LongAdder::sum).tag("result", "miss").register(registry);
+            FunctionCounter.builder("vuln.query_cache.requests", errors, LongAdder::sum).tag("result", "error").register(registry);
+            Gauge.builder("vuln.query_cache.hit_ratio", this, VulnerabilityQueryCache::hitRatio).register(registry);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param endpoint 接口名（list/search）
+     * @param params   {@link #params} 生成的规范化参数串
+     * @param loader   实际查询，返回响应 data
+     */
+    public Map<String, Object> get(String endpoint, String params, Supplier<Map<String, Object>> loader) {
+        if (!enabled) return loader.get();
+        String key = PREFIX + endpoint + ":" + visibilityClass() + ":" + sha256(params);
+        String gen;
+        Cached cached;
+        try {
+            List<String> vals = redis.opsForValue().multiGet(List.of(GEN_KEY, key));
+            gen = vals == null || vals.get(0) == null ? "0" : vals.get(0);
+            cached = vals == null ? null : parse(vals.get(1));
+        } catch (Exception e) {
+            errors.increment();
+            log.debug("[query-cache] redis read failed: {}", e.getMessage());
+            return loader.get();
+        }
+        if (cached != null && gen.equals(cached.gen())) {
+            if (System.currentTimeMillis() < cached.freshUntil()) {
+                hits.increment();
+                return cached.data();
+            }
+            staleHits.increment();
+            refreshAsync(key, gen, loader);
+            return cached.data();
+        }
+        misses.increment();
+        return loadOnce(key, gen, loader);
+    }
+
+    /** 漏洞数据变更：递增代数，所有实例的旧条目随即失效 */
+    public void invalidate() {
+        if (!enabled) return;
+        try {
+            redis.opsForValue().increment(GEN_KEY);
+        } catch (Exception e) {
+            log.warn("[query-cache] invalidate failed: {}", e.getMessage());
+        }
+    }
+
+    // 同一键的并发未命中只执行一次 loader，其余请求等待其结果
+    private Map<String, Object> loadOnce(String key, String gen, Supplier<Map<String, Object>> loader) {
+        CompletableFuture<Map<String, Object>> mine = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            try {
+                return running.get(refreshLockMs, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                return loader.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return loader.get();
+            } catch (TimeoutException e) {
+                return loader.get();
+            }
+        }
+        try {
+            Map<String, Object> data = loader.get();
+            store(key, gen, data);
+            mine.complete(data);
+            return data;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private void refreshAsync(String key, String gen, Supplier<Map<String, Object>> loader) {
+        if (inFlight.containsKey(key)) return;
+        try {
+            Boolean locked = redis.opsForValue().setIfAbsent(key + ":lock", "1", Duration.ofMillis(refreshLockMs));
+            if (!Boolean.TRUE.equals(locked)) return; // 其他实例正在刷新
+        } catch (Exception e) {
+            return;
+        }
+        SecurityContext sc = SecurityContextHolder.createEmptyContext();
+        sc.setAuthentication(SecurityContextHolder.getContext().getAuthentication());
+        refresher.execute(() -> {
+            SecurityContextHolder.setContext(sc);
+            try {
+                loadOnce(key, gen, loader);
+            } catch (Exception e) {
+                log.debug("[query-cache] refresh failed key={} : {}", key, e.getMessage());
+            } finally {
+                SecurityContextHolder.clearContext();
+                try { redis.delete(key + ":lock"); } catch (Exception ignore) {}
+            }
+        });
+    }
+
+    private void store(String key, String gen, Map<String, Object> data) {
+        try {
+            Map<String, Object> v = new LinkedHashMap<>();
+            v.put("g", gen);
+            v.put("f", System.currentTimeMillis() + freshSeconds * 1000L);
+            v.put("d", data);
+            redis.opsForValue().set(key, objectMapper.writeValueAsString(v), Duration.ofSeconds(Math.max(1, freshSeconds + staleSeconds)));
+        } catch (Exception e) {
+            errors.increment();
+            log.debug("[query-cache] redis write failed: {}", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cached parse(String json) {
+        if (json == null) return null;
+        try {
+            Map<String, Object> v = objectMapper.readValue(json, Map.class);
+            if (!(v.get("d") instanceof Map<?, ?> d) || !(v.get("f") instanceof Number f)) return null;
+            return new Cached(String.valueOf(v.get("g")), f.longValue(), (Map<String, Object>) d);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 可见性类别：结果只取决于此类别与查询参数。
+     * 普通用户按所属组织集合区分，不属于任何组织的用户与匿名结果相同，归入 public。
+     */
+    String visibilityClass() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || auth.getName() == null) return "public";
+        if (auth.getAuthorities() != null) {
+            for (var a : auth.getAuthorities()) if ("ROLE_ADMIN".equals(a.getAuthority())) return "admin";
+        }
+        if (auth.getDetails() instanceof ApiKeyContext ctx && "ORG".equalsIgnoreCase(ctx.getSubjectType())) {
+            return "org:" + ctx.getOrgUuid();
+        }
+        User user = userMapper.findByUuid(auth.getName());
+        if (user == null) return "public";
+        List<Long> orgIds = visibilityService.memberOrgs(user.getId()).ids();
+        return orgIds.isEmpty() ? "public" : "member:" + sha256(orgIds.toString()).substring(0, 16);
+    }
+
+    /** 规范化参数串：键值成对传入，忽略空值，逗号分隔的多值排序去重，键按字母序 */
+    public static String params(Object... kv) {
+        TreeMap<String, String> m = new TreeMap<>();
+        for (int i = 0; i + 1 < kv.length; i += 2) {
+            Object v = kv[i + 1];
+            if (v == null) continue;
+            String s = v.toString().trim();
+            if (s.isEmpty()) continue;
+            if (s.indexOf(',') >= 0) {
+                s = String.join(",", new TreeSet<>(Arrays.stream(s.split(",")).map(String::trim).filter(x -> !x.isEmpty()).toList()));
+            }
+            m.put(String.valueOf(kv[i]), s);
+        }
+        return m.toString();
+    }
+
+    private static String sha256(String s) {
+        try {
+            byte[] h = MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(h);
+        } catch (Exception e) {
+            return Integer.toHexString(s.hashCode());
+        }
+    }
+
+    private double hitRatio() {
+        long h = hits.sum() + staleHits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0d : (double) h / total;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("hits", hits.sum());
+        m.put("staleHits", staleHits.sum());
+        m.put("misses", misses.sum());
+        m.put("errors", errors.sum());
+        m.put("hitRatio", hitRatio());
+        m.put("inFlight", inFlight.size());
+        return m;
+    }
+}
@@ -3,6 +3,7 @@ package tech.cspioneer.backend.service;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import tech.cspioneer.backend.common.ApiException;
 import tech.cspioneer.backend.entity.*;
 import tech.cspioneer.backend.mapper.*;
@@ -54,6 +55,9 @@ public class VulnerabilityService {
     private final VulnerabilityExploitStatusMapper exploitStatusMapper;
     private final PointsPolicyService pointsPolicyService;
     private final PointsService pointsService;
+    private final CosvAggregateLoader cosvAggregateLoader;
+    private final VulnerabilityCountService countService;
+    private final VulnerabilityVisibilityService visibilityService;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -96,7 +100,11 @@ public class VulnerabilityService {
                                 VulnerabilityExploitStatusMapper exploitStatusMapper,
                                 PointsPolicyService pointsPolicyService,
                                 PointsService pointsService,
-                                org.springframework.beans.factory.ObjectProvider<tech.cspioneer.backend.search.EsIndexer> esIndexerProvider) {
+                                CosvAggregateLoader cosvAggregateLoader,
+                                VulnerabilityCountService countService,
+                                VulnerabilityVisibilityService visibilityService,
+                                OutboxService outboxService,
+                                tech.cspioneer.backend.search.SearchIndexDispatcher indexDispatcher) {
         this.vmMapper = vmMapper;
         this.projectMapper = projectMapper;
         this.tagMapper = tagMapper;
@@ -128,10 +136,36 @@ public class VulnerabilityService {
         this.exploitStatusMapper = exploitStatusMapper;
         this.pointsPolicyService = pointsPolicyService;
         this.pointsService = pointsService;
-        this.esIndexer = esIndexerProvider.getIfAvailable();
+        this.cosvAggregateLoader = cosvAggregateLoader;
+        this.countService = countService;
+        this.visibilityService = visibilityService;
+        this.outboxService = outboxService;
+        this.indexDispatcher = indexDispatcher;
     }
 
-    private final tech.cspioneer.backend.search.EsIndexer esIndexer;
+    // 检索索引写入（ES 经发件箱或直接写入，进程内索引直接写入并广播）
+    private final tech.cspioneer.backend.search.SearchIndexDispatcher indexDispatcher;
+    // 启用时索引与积分经事务发件箱异步分发
+    private final OutboxService outboxService;
+
+    // 更新路径子表写入：true=按自然键差异写入；false=提供即整体替换（旧行为）
+    @Value("${cosv.update.diff-children:true}")
+    private boolean diffChildren = true;
+
+    // SQL 全文检索：q 走 FULLTEXT(ngram) 索引（需执行 20251104_add_vm_fulltext_ngram.sql）
+    @Value("${search.sql.fulltext:false}")
+    private boolean sqlFulltext = false;
+    // 与 MySQL ngram_token_size 默认值一致；更短的 q 无法命中 ngram 索引
+    private static final int NGRAM_TOKEN_SIZE = 2;
+    // 全文索引是否在 innodb_ft_enable_stopword=ON 下建立（迁移脚本已关闭停用词；旧索引未重建时置 true）。
+    // ngram 分词器会丢弃包含停用词的词元，此时含停用词的 q 改走 LIKE，避免结果少于 LIKE
+    @Value("${search.sql.fulltext-stopwords:false}")
+    private boolean fulltextStopwords = false;
+    // InnoDB 默认停用词表（INFORMATION_SCHEMA.INNODB_FT_DEFAULT_STOPWORD）
+    private static final List<String> INNODB_DEFAULT_STOPWORDS = List.of(
+            "a", "about", "an", "are", "as", "at", "be", "by", "com", "de", "en", "for", "from", "how", "i", "in",
+            "is", "it", "la", "of", "on", "or", "that", "the", "this", "to", "was", "what", "when", "where", "who",
+            "will", "with", "und", "www");
 
     // 兼容旧构造已移除：统一使用完整构造函数，避免装配歧义
 
@@ -182,8 +216,29 @@ public class VulnerabilityService {
                                             String submittedFrom, String submittedTo, String modifiedFrom, String modifiedTo,
                                             String sortBy, String sortOrder,
                                             int page, int size) {
+        return list(language, status, identifierPrefix, q, languagesCSV, severityLevelsCSV, severityGe, severityLe, tagName, tagCode,
+                mine, organizationUuid, categoryCode, submittedFrom, submittedTo, modifiedFrom, modifiedTo,
+                sortBy, sortOrder, page, size, null);
+    }
+
+    /**
+     * cursor 非空时按键集分页（忽略 page）：从游标记录之后继续，耗时与翻页深度无关。
+     * 下一页游标可用 {@link tech.cspioneer.backend.common.SeekCursor#next} 由本页结果生成。
+     */
+    public List<VulnerabilityMetadata> list(String language, String status, String identifierPrefix, String q, String languagesCSV, String severityLevelsCSV, Float severityGe, Float severityLe, String tagName,
+                                            String tagCode,
+                                            Boolean mine,
+                                            String organizationUuid,
+                                            String categoryCode,
+                                            String submittedFrom, String submittedTo, String modifiedFrom, String modifiedTo,
+                                            String sortBy, String sortOrder,
+                                            int page, int size,
+                                            String cursor) {
         int limit = Math.max(1, Math.min(100, size <= 0 ? 20 : size));
-        int offset = Math.max(0, page <= 0 ? 0 : (page - 1) * limit);
+        tech.cspioneer.backend.common.SeekCursor seek = tech.cspioneer.backend.common.SeekCursor.decode(cursor, sortBy, sortOrder);
+        String ftq = fulltextQuery(q);
+        boolean byRelevance = tech.cspioneer.backend.common.SeekCursor.isRelevance(sortBy);
+        int offset = seek != null ? 0 : Math.max(0, page <= 0 ? 0 : (page - 1) * limit);
         String orderBy = resolveOrderBy(sortBy, sortOrder);
         Long orgFilter = null;
         Long categoryId = null;
@@ -199,29 +254,7 @@ public class VulnerabilityService {
             Organization org = organizationMapper.findByUuid(organizationUuid);
             if (org == null) throw new ApiException(404, "组织不存在");
             if (org.getStatus() == OrganizationStatus.DELETED) throw new ApiException(404, "组织不存在");
-            if (auth != null && auth.getDetails() instanceof tech.cspioneer.backend.security.ApiKeyContext ctx && "ORG".equalsIgnoreCase(ctx.getSubjectType())) {
-                // 组织API Key仅能查询其所属组织
-                if (ctx.getOrgUuid() != null && !organizationUuid.equals(ctx.getOrgUuid())) {
-                    throw new ApiException(1012, "组织Key无权读取其他组织漏洞");
-                }
-            } else if (auth != null && auth.getName() != null) {
-                // 普通用户：管理员放行；非管理员则：公开组织允许查看（仅已发布），私有组织要求为成员
-                if (!isAdmin()) {
-                    User user = requireUserByUuid(auth.getName());
-                    LnkUserOrganization link = lnkUserOrgMapper.findByOrgIdAndUserId(org.getId(), user.getId());
-                    boolean isMember = (link != null);
-                    if (!isMember) {
-                        if (Boolean.TRUE.equals(org.getIsPublic())) {
-                            // 非成员查看公开组织：限制为已发布漏洞
-                            if (status == null || status.isBlank()) {
-                                status = tech.cspioneer.backend.enums.VulnerabilityStatus.ACTIVE.name();
-                            }
-                        } else {
-                            ensureMember(org.getId(), user.getId());
-                        }
-                    }
-                }
-            }
+            status = orgFilterStatus(org, organizationUuid, status, currentUserId);
             orgFilter = org.getId();
         } else {
             // 未显式指定组织
@@ -272,9 +305,10 @@ public class VulnerabilityService {
                     emptyToNull(submittedFrom), emptyToNull(submittedTo), emptyToNull(modifiedFrom), emptyToNull(modifiedTo),
                     sevCritical, sevHigh, sevMedium, sevLow,
                     severityGe, severityLe,
-                    orderBy, limit, offset);
+                    orderBy, limit, offset, seek, ftq, byRelevance);
         }
-        // 默认全量过滤
+        // 默认全量过滤（可见性按 visibility_class + 成员组织判定）
+        List<Long> memberOrgIds = enforceVisibility ? visibilityService.memberOrgs(currentUserId).ids() : List.of();
         return vmMapper.listByFiltersAdv(
                 langs, emptyToNull(status), emptyToNull(identifierPrefix), emptyToNull(q), emptyToNull(tagName), emptyToNull(tagCode),
                 orgFilter, categoryId,
@@ -282,7 +316,7 @@ public class VulnerabilityService {
                 sevCritical, sevHigh, sevMedium, sevLow,
                 severityGe, severityLe,
                 orderBy, limit, offset,
-                currentUserId, enforceVisibility, restrictPublicToActive);
+                memberOrgIds, enforceVisibility, restrictPublicToActive, seek, ftq, byRelevance);
     }
 
     public long count(String language, String status, String identifierPrefix, String q, String languagesCSV, String severityLevelsCSV, Float severityGe, Float severityLe, String tagName,
@@ -291,6 +325,154 @@ public class VulnerabilityService {
                       String organizationUuid,
                       String categoryCode,
                       String submittedFrom, String submittedTo, String modifiedFrom, String modifiedTo) {
+        return countTotal(language, status, identifierPrefix, q, languagesCSV, severityLevelsCSV, severityGe, severityLe, tagName, tagCode,
+                mine, organizationUuid, categoryCode, submittedFrom, submittedTo, modifiedFrom, modifiedTo, false).value();
+    }
+
+    /**
+     * 带缓存的总数：同一过滤条件与可见性类别在 TTL 内复用结果；estimate=true 时截断计数（approximate 表示"N+"）。
+     */
+    public VulnerabilityCountService.Total countTotal(String language, String status, String identifierPrefix, String q, String languagesCSV, String severityLevelsCSV, Float severityGe, Float severityLe, String tagName,
+                      String tagCode,
+                      Boolean mine,
+                      String organizationUuid,
+                      String categoryCode,
+                      String submittedFrom, String submittedTo, String modifiedFrom, String modifiedTo,
+                      boolean estimate) {
+        FilterScope sc = resolveFilterScope(language, status, languagesCSV, mine, organizationUuid, categoryCode);
+        boolean sevCritical = hasLevel(severityLevelsCSV, "CRITICAL");
+        boolean sevHigh = hasLevel(severityLevelsCSV, "HIGH");
+        boolean sevMedium = hasLevel(severityLevelsCSV, "MEDIUM");
+        boolean sevLow = hasLevel(severityLevelsCSV, "LOW");
+
+        if (log.isDebugEnabled()) {
+            log.debug("count() adv filters -> q='{}', identifierPrefix='{}', langs='{}', status='{}', sevLevels='{}', sevGe={}, sevLe={}, org={}, cat={}",
+                    q, identifierPrefix, sc.langs(), sc.status(), severityLevelsCSV, severityGe, severityLe, organizationUuid, categoryCode);
+        }
+        String signature = countSignature(sc.mine() ? "mine" : "adv", sc.visibilityKey(), sc.scopeKey(),
+                sc.langs(), sc.status(), identifierPrefix, q, tagName, tagCode, sc.categoryId(),
+                submittedFrom, submittedTo, modifiedFrom, modifiedTo, severityLevelsCSV, severityGe, severityLe);
+        if (sc.mine()) {
+            return cachedCount(signature, estimate, cap -> vmMapper.countMineByFiltersAdv(
+                    sc.currentUserId(), sc.adminOrgIds(),
+                    sc.langs(), emptyToNull(sc.status()), emptyToNull(identifierPrefix), emptyToNull(q), emptyToNull(tagName), emptyToNull(tagCode),
+                    sc.categoryId(),
+                    emptyToNull(submittedFrom), emptyToNull(submittedTo), emptyToNull(modifiedFrom), emptyToNull(modifiedTo),
+                    sevCritical, sevHigh, sevMedium, sevLow,
+                    severityGe, severityLe, cap, fulltextQuery(q)));
+        }
+        return cachedCount(signature, estimate, cap -> vmMapper.countByFiltersAdv(
+                sc.langs(), emptyToNull(sc.status()), emptyToNull(identifierPrefix), emptyToNull(q), emptyToNull(tagName), emptyToNull(tagCode),
+                sc.orgFilter(), sc.categoryId(),
+                emptyToNull(submittedFrom), emptyToNull(submittedTo), emptyToNull(modifiedFrom), emptyToNull(modifiedTo),
+                sevCritical, sevHigh, sevMedium, sevLow,
+                severityGe, severityLe,
+                sc.memberOrgIds(), sc.enforceVisibility(), sc.restrictPublicToActive(), cap, fulltextQuery(q)));
+    }
+
+    /** 分面维度：语言、严重度等级、状态、分类代码、标签代码 */
+    public static final List<String> FACET_DIMENSIONS = List.of("language", "severity", "status", "category", "tag");
+
+    // 每个维度最多返回的取值数（按条数降序）
+    @Value("${vuln.facets.max-buckets:50}")
+    private int facetMaxBuckets = 50;
+
+    /**
+     * 当前过滤条件下各维度的取值计数（维度 -> 取值 -> 条数），可见性规则与 list 一致。
+     * 每个维度一条 GROUP BY 查询，结果与总数共用签名并按同一 TTL 缓存；计数基于完整过滤条件（含该维度自身的过滤）。
+     */
+    public Map<String, Map<String, Long>> facets(String language, String status, String identifierPrefix, String q, String languagesCSV, String severityLevelsCSV, Float severityGe, Float severityLe, String tagName,
+                                                 String tagCode,
+                                                 Boolean mine,
+                                                 String organizationUuid,
+                                                 String categoryCode,
+                                                 String submittedFrom, String submittedTo, String modifiedFrom, String modifiedTo) {
+        FilterScope sc = resolveFilterScope(language, status, languagesCSV, mine, organizationUuid, categoryCode);
+        boolean sevCritical = hasLevel(severityLevelsCSV, "CRITICAL");
+        boolean sevHigh = hasLevel(severityLevelsCSV, "HIGH");
+        boolean sevMedium = hasLevel(severityLevelsCSV, "MEDIUM");
+        boolean sevLow = hasLevel(severityLevelsCSV, "LOW");
+        int limit = Math.max(1, facetMaxBuckets);
+        String ftq = fulltextQuery(q);
+        String signature = countSignature(sc.mine() ? "facet-mine" : "facet", sc.visibilityKey(), sc.scopeKey(),
+                sc.langs(), sc.status(), identifierPrefix, q, tagName, tagCode, sc.categoryId(),
+                submittedFrom, submittedTo, modifiedFrom, modifiedTo, severityLevelsCSV, severityGe, severityLe) + "|n=" + limit;
+        java.util.function.Supplier<Map<String, Map<String, Long>>> loader = () -> {
+            Map<String, Map<String, Long>> out = new java.util.LinkedHashMap<>();
+            for (String dim : FACET_DIMENSIONS) {
+                List<Map<String, Object>> rows = sc.mine()
+                        ? vmMapper.facetMineByFiltersAdv(dim, sc.currentUserId(), sc.adminOrgIds(),
+                            sc.langs(), emptyToNull(sc.status()), emptyToNull(identifierPrefix), emptyToNull(q), emptyToNull(tagName), emptyToNull(tagCode),
+                            sc.categoryId(),
+                            emptyToNull(submittedFrom), emptyToNull(submittedTo), emptyToNull(modifiedFrom), emptyToNull(modifiedTo),
+                            sevCritical, sevHigh, sevMedium, sevLow,
+                            severityGe, severityLe, limit, ftq)
+                        : vmMapper.facetByFiltersAdv(dim,
+                            sc.langs(), emptyToNull(sc.status()), emptyToNull(identifierPrefix), emptyToNull(q), emptyToNull(tagName), emptyToNull(tagCode),
+                            sc.orgFilter(), sc.categoryId(),
+                            emptyToNull(submittedFrom), emptyToNull(submittedTo), emptyToNull(modifiedFrom), emptyToNull(modifiedTo),
+                            sevCritical, sevHigh, sevMedium, sevLow,
+                            severityGe, severityLe,
+                            sc.memberOrgIds(), sc.enforceVisibility(), sc.restrictPublicToActive(), limit, ftq);
+                out.put(dim, facetCounts(rows));
+            }
+            return out;
+        };
+        return countService == null ? loader.get() : countService.facets(signature, loader);
+    }
+
+    private static Map<String, Long> facetCounts(List<Map<String, Object>> rows) {
+        Map<String, Long> m = new java.util.LinkedHashMap<>();
+        if (rows == null) return m;
+        for (Map<String, Object> r : rows) {
+            Object k = r.get("k");
+            if (k == null) continue; // 未设置分类/严重度的记录不计入
+            m.put(k.toString(), r.get("cnt") instanceof Number n ? n.longValue() : 0L);
+        }
+        return m;
+    }
+
+    /**
+     * 计数与分面共用的查询范围（与 list 的权限判定一致）：显式组织的成员/组织 Key 校验、
+     * 全局可见性开关，以及规范化后的状态、语言与分类过滤。
+     */
+    private record FilterScope(Long currentUserId, Long orgFilter, String status, String langs, Long categoryId,
+                               boolean enforceVisibility, boolean restrictPublicToActive,
+                               boolean mine, List<Long> adminOrgIds, List<Long> memberOrgIds) {
+        // 可见性类别：未启用可见性过滤时结果与用户无关（管理员/组织Key/指定组织），否则按成员组织集合区分（无组织者与匿名共用一类）
+        String visibilityKey() {
+            if (mine) return "u=" + currentUserId;
+            return enforceVisibility ? "vis=m" + memberOrgIds + (restrictPublicToActive ? ":active" : "") : "vis=all";
+        }
+
+        String scopeKey() {
+            return mine ? "admOrgs=" + adminOrgIds : "org=" + orgFilter;
+        }
+    }
+
+    /**
+     * 显式组织过滤的访问校验，返回应施加的 status：组织 Key 仅能查询所属组织；管理员不限；
+     * 其他调用方（含匿名）非成员时，公开组织仅已发布漏洞、私有组织拒绝。
+     * 匿名与不属于任何组织的用户因此结果一致（查询缓存将二者归入同一可见性类别）。
+     */
+    private String orgFilterStatus(Organization target, String organizationUuid, String status, Long currentUserId) {
+        var auth = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getDetails() instanceof tech.cspioneer.backend.security.ApiKeyContext ctx && "ORG".equalsIgnoreCase(ctx.getSubjectType())) {
+            if (ctx.getOrgUuid() != null && !organizationUuid.equals(ctx.getOrgUuid())) {
+                throw new ApiException(1012, "组织Key无权读取其他组织漏洞");
+            }
+            return status;
+        }
+        if (isAdmin()) return status;
+        boolean isMember = currentUserId != null && lnkUserOrgMapper.findByOrgIdAndUserId(target.getId(), currentUserId) != null;
+        if (isMember) return status;
+        if (!Boolean.TRUE.equals(target.getIsPublic())) throw new ApiException(1012, "权限不足");
+        // 非成员查看公开组织：限制为已发布漏洞
+        return status == null || status.isBlank() ? VulnerabilityStatus.ACTIVE.name() : status;
+    }
+
+    private FilterScope resolveFilterScope(String language, String status, String languagesCSV, Boolean mine,
+                                           String organizationUuid, String categoryCode) {
         Long orgFilter = null;
         var auth = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
         Long currentUserId = null;
@@ -303,27 +485,7 @@ public class VulnerabilityService {
             Organization org = organizationMapper.findByUuid(organizationUuid);
             if (org == null) throw new ApiException(404, "组织不存在");
             if (org.getStatus() == OrganizationStatus.DELETED) throw new ApiException(404, "组织不存在");
-            if (auth != null && auth.getDetails() instanceof tech.cspioneer.backend.security.ApiKeyContext ctx && "ORG".equalsIgnoreCase(ctx.getSubjectType())) {
-                if (ctx.getOrgUuid() != null && !organizationUuid.equals(ctx.getOrgUuid())) {
-                    throw new ApiException(1012, "组织Key无权读取其他组织漏洞");
-                }
-            } else if (auth != null && auth.getName() != null) {
-                if (!isAdmin()) {
-                    User user = requireUserByUuid(auth.getName());
-                    LnkUserOrganization link = lnkUserOrgMapper.findByOrgIdAndUserId(org.getId(), user.getId());
-                    boolean isMember = (link != null);
-                    if (!isMember) {
-                        if (Boolean.TRUE.equals(org.getIsPublic())) {
-                            // 统计公开组织的已发布漏洞
-                            if (status == null || status.isBlank()) {
-                                status = tech.cspioneer.backend.enums.VulnerabilityStatus.ACTIVE.name();
-                            }
-                        } else {
-                            ensureMember(org.getId(), user.getId());
-                        }
-                    }
-                }
-            }
+            status = orgFilterStatus(org, organizationUuid, status, currentUserId);
             orgFilter = org.getId();
         } else {
             // 未显式指定组织
@@ -341,20 +503,13 @@ public class VulnerabilityService {
             Category c = categoryMapper.findByCode(categoryCode);
             if (c != null) categoryId = c.getId();
         }
-        boolean sevCritical = hasLevel(severityLevelsCSV, "CRITICAL");
-        boolean sevHigh = hasLevel(severityLevelsCSV, "HIGH");
-        boolean sevMedium = hasLevel(severityLevelsCSV, "MEDIUM");
-        boolean sevLow = hasLevel(severityLevelsCSV, "LOW");
         String langs = emptyToNull(normalizeCSV(languagesCSV));
         if (langs == null && language != null && !language.isBlank()) langs = language.trim();
 
-        if (log.isDebugEnabled()) {
-            log.debug("count() adv filters -> q='{}', identifierPrefix='{}', langs='{}', status='{}', sevLevels='{}', sevGe={}, sevLe={}, org={}, cat={}",
-                    q, identifierPrefix, langs, status, severityLevelsCSV, severityGe, severityLe, organizationUuid, categoryCode);
-        }
-        if (Boolean.TRUE.equals(mine)) {
+        java.util.List<Long> adminOrgIds = new java.util.ArrayList<>();
+        boolean isMine = Boolean.TRUE.equals(mine);
+        if (isMine) {
             if (currentUserId == null) throw new ApiException(1012, "未登录");
-            java.util.List<Long> adminOrgIds = new java.util.ArrayList<>();
             try {
                 var orgs = organizationMapper.listByUserId(currentUserId);
                 if (orgs != null) for (var ow : orgs) {
@@ -363,23 +518,79 @@ public class VulnerabilityService {
                     }
                 }
             } catch (Exception ignore) {}
-            return vmMapper.countMineByFiltersAdv(
-                    currentUserId, adminOrgIds,
-                    langs, emptyToNull(status), emptyToNull(identifierPrefix), emptyToNull(q), emptyToNull(tagName), emptyToNull(tagCode),
-                    categoryId,
-                    emptyToNull(submittedFrom), emptyToNull(submittedTo), emptyToNull(modifiedFrom), emptyToNull(modifiedTo),
-                    sevCritical, sevHigh, sevMedium, sevLow,
-                    severityGe, severityLe);
         }
-        return vmMapper.countByFiltersAdv(
-                langs, emptyToNull(status), emptyToNull(identifierPrefix), emptyToNull(q), emptyToNull(tagName), emptyToNull(tagCode),
-                orgFilter, categoryId,
-                emptyToNull(submittedFrom), emptyToNull(submittedTo), emptyToNull(modifiedFrom), emptyToNull(modifiedTo),
-                sevCritical, sevHigh, sevMedium, sevLow,
-                severityGe, severityLe,
-                currentUserId, enforceVisibility, restrictPublicToActive);
+        List<Long> memberOrgIds = enforceVisibility && !isMine ? visibilityService.memberOrgs(currentUserId).ids() : List.of();
+        return new FilterScope(currentUserId, orgFilter, status, langs, categoryId, enforceVisibility, restrictPublicToActive, isMine, adminOrgIds, memberOrgIds);
+    }
+
+    private VulnerabilityCountService.Total cachedCount(String signature, boolean estimate, java.util.function.Function<Integer, Long> counter) {
+        if (countService == null) {
+            Long v = counter.apply(null);
+            return new VulnerabilityCountService.Total(v == null ? 0L : v, false);
+        }
+        return countService.get(signature, estimate, counter);
+    }
+
+    // 规范化的计数签名：空白视为未设置，文本条件忽略大小写（与库表 *_ci 排序规则一致），严重度等级排序去重
+    private String countSignature(String kind, String visibility, String scope,
+                                  String langs, String status, String identifierPrefix, String q, String tagName, String tagCode,
+                                  Long categoryId,
+                                  String submittedFrom, String submittedTo, String modifiedFrom, String modifiedTo,
+                                  String severityLevelsCSV, Float severityGe, Float severityLe) {
+        String levels = severityLevelsCSV == null ? "" : String.join(",", new java.util.TreeSet<>(java.util.Arrays.stream(severityLevelsCSV.split(","))
+                .map(String::trim).filter(x -> !x.isEmpty()).map(x -> x.toUpperCase(java.util.Locale.ROOT)).toList()));
+        String langSet = langs == null ? "" : String.join(",", new java.util.TreeSet<>(java.util.Arrays.stream(langs.split(","))
+                .map(String::trim).filter(x -> !x.isEmpty()).toList()));
+        return String.join("|", kind, visibility, scope,
+                "lang=" + langSet,
+                "st=" + sigPart(status),
+                "idp=" + sigPart(identifierPrefix),
+                "q=" + sigPart(q),
+                "tn=" + sigPart(tagName),
+                "tc=" + sigPart(tagCode),
+                "cat=" + categoryId,
+                "sub=" + sigPart(submittedFrom) + "~" + sigPart(submittedTo),
+                "mod=" + sigPart(modifiedFrom) + "~" + sigPart(modifiedTo),
+                "sev=" + levels,
+                "sevRange=" + severityGe + "~" + severityLe);
+    }
+
+    /**
+     * 全文检索模式下把 q 转为 BOOLEAN MODE 短语（ngram 分词，短语即连续子串匹配）。匹配范围比 LIKE 路径宽：
+     * 编号/摘要/详情与别名中任意位置的子串均命中（LIKE 路径仅匹配编号与别名前缀、摘要子串），与 ES 检索的匹配范围相近。
+     * 未开启全文检索、q 短于 ngram 分词长度，或索引带停用词且 q 的某个词元包含停用词时返回 null，沿用 LIKE 匹配。
+     */
+    private String fulltextQuery(String q) {
+        if (!sqlFulltext || q == null) return null;
+        String t = q.replace('"', ' ').trim();
+        if (t.codePointCount(0, t.length()) < NGRAM_TOKEN_SIZE) return null;
+        if (fulltextStopwords && hitsStopword(t)) return null;
+        return "\"" + t + "\"";
     }
 
+    // 与 ngram 分词一致：按 NGRAM_TOKEN_SIZE 个字符滑动切分（跳过空白），任一词元包含停用词即视为命中
+    private static boolean hitsStopword(String t) {
+        int[] cps = t.toLowerCase(Locale.ROOT).codePoints().toArray();
+        for (int i = 0; i + NGRAM_TOKEN_SIZE <= cps.length; i++) {
+            String token = new String(cps, i, NGRAM_TOKEN_SIZE);
+            if (token.isBlank() || token.chars().anyMatch(Character::isWhitespace)) continue;
+            for (String w : INNODB_DEFAULT_STOPWORDS) {
+                if (token.contains(w)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static String sigPart(String v) {
+        return v == null || v.isBlank() ? "" : v.toLowerCase(java.util.Locale.ROOT);
+    }
+
+    // 漏洞数据（含状态、标签、组织归属）变化后使总数缓存失效
+    private void invalidateCounts() {
+        if (countService != null) countService.invalidate();
+    }
+
+    // 以 vm.id 作为次序键，保证同值记录的顺序稳定（键集分页依赖此顺序）
     private String resolveOrderBy(String sortBy, String sortOrder) {
         String col = "vm.modified";
         if (sortBy != null) {
@@ -388,7 +599,7 @@ public class VulnerabilityService {
             else if (sb.equals("severity")) col = "vm.severity_num";
         }
         String dir = (sortOrder != null && sortOrder.trim().equalsIgnoreCase("asc")) ? "ASC" : "DESC";
-        return col + " " + dir;
+        return col + " " + dir + ", vm.id " + dir;
     }
 
     @Transactional
@@ -527,9 +738,10 @@ public class VulnerabilityService {
 
         VulnerabilityMetadata saved = vmMapper.findByUuid(vm.getUuid());
         // ES 增量索引（可用时）
-        if (esIndexer != null && saved != null) {
+        if (saved != null) {
             safeIndex(saved.getUuid());
         }
+        invalidateCounts();
         // 积分发放：SUBMITTED；若创建即 ACTIVE 再发放 PUBLISHED
         try {
             String orgUuid0 = organizationUuid;
@@ -673,7 +885,8 @@ public class VulnerabilityService {
             }
         }
         VulnerabilityMetadata saved = vmMapper.findByUuid(vm.getUuid());
-        if (esIndexer != null && saved != null) safeIndex(saved.getUuid());
+        if (saved != null) safeIndex(saved.getUuid());
+        invalidateCounts();
         // 积分：SUBMITTED；若创建即 ACTIVE 同时发放 PUBLISHED
         try {
             String orgUuid0 = organizationUuid;
@@ -728,39 +941,21 @@ public class VulnerabilityService {
                 changes.setCategoryId(c.getId());
             }
         }
-        vmMapper.updateBasic(changes);
-        if (clearCategory) {
-            vmMapper.clearCategoryByUuid(vulnUuid);
-        }
-
-        boolean wroteCosvChild = false;
-        // 顶层 COSV 可选更新
-        if (cosv != null) {
-            VulnerabilityMetadata patch = new VulnerabilityMetadata();
-            patch.setUuid(vm.getUuid());
-            patch.setSchemaVersion(cosv.getSchemaVersion());
-            patch.setConfirmedType(cosv.getConfirmedType());
-            patch.setPublished(parseRfc3339Nullable(cosv.getPublished()));
-            patch.setWithdrawn(parseRfc3339Nullable(cosv.getWithdrawn()));
-            patch.setDatabaseSpecific(stringifyJsonOrNull(cosv.getDatabaseSpecific()));
-            vmMapper.updateCosvExtras(patch);
-
-            // 替换式子表更新：仅对提供的子结构执行
-            wroteCosvChild = upsertCosvChildrenOnUpdate(vm, cosv) || wroteCosvChild;
-
-            // severity 聚合回填
-            Float agg = aggregateSeverityNum(cosv.getSeverity(), severityNum);
-            if (agg != null) {
-                VulnerabilityMetadata v2 = new VulnerabilityMetadata();
-                v2.setUuid(vm.getUuid());
-                v2.setSeverityNum(agg);
-                vmMapper.updateBasic(v2);
+        // 差异模式下仅在字段确有变化时写库，避免无变化的重复导入刷新 modified
+        boolean basicChanged = diffChildren ? basicFieldsChanged(vm, changes, clearCategory) : basicFieldsProvided(changes);
+        if (basicChanged || !diffChildren) {
+            vmMapper.updateBasic(changes);
+            if (clearCategory) {
+                vmMapper.clearCategoryByUuid(vulnUuid);
             }
         }
+
+        // 顶层 COSV 可选更新（含子表与 severity 聚合）
+        boolean cosvChanged = cosv != null && applyCosvUpdate(vm, cosv, severityNum);
         VulnerabilityMetadata updated = vmMapper.findByUuid(vulnUuid);
 
-        // 版本链：若有 COSV 字段或子表变化，追加 cosv_file 版本
-        if (cosv != null || changes.getSummary() != null || changes.getDetails() != null || changes.getSeverityNum() != null || changes.getLanguage() != null || changes.getStatus() != null || changes.getCategoryId() != null || wroteCosvChild) {
+        // 版本链：仅当基础字段、COSV 字段或子表确有变化时追加 cosv_file 版本
+        if (basicChanged || cosvChanged) {
             CosvFile file = new CosvFile();
             file.setUuid(UUID.randomUUID().toString());
             file.setIdentifier(updated.getIdentifier());
@@ -806,28 +1001,47 @@ public class VulnerabilityService {
                 }
             } catch (Exception ignore) {}
         }
+        invalidateCounts();
         return updated;
     }
 
     private void awardPointsForEvent(String userUuid, String orgUuid, String event, Float severityNum, String vulnUuid) {
+        if (outboxService != null && outboxService.isEnabled()) {
+            publishPointsEvent(outboxService, userUuid, orgUuid, event, severityNum, vulnUuid);
+            return;
+        }
         try {
-            PointsPolicyService.PreviewReq r = new PointsPolicyService.PreviewReq();
-            r.event = event;
-            r.severityNum = severityNum == null ? null : severityNum.doubleValue();
-            r.severityLevel = null;
-            var out = (orgUuid != null && !orgUuid.isBlank()) ? pointsPolicyService.previewForOrg(orgUuid, r) : pointsPolicyService.preview(r);
-            String idem = "vuln:" + vulnUuid + ":" + event;
-            String refType = "VULN";
-            String reason = "VULN_" + event;
-            if (userUuid != null && out.userDelta != 0) {
-                pointsService.addUserPoints(userUuid, out.userDelta, reason, refType, vulnUuid, idem);
-            }
-            if (orgUuid != null && !orgUuid.isBlank() && out.orgDelta != 0) {
-                pointsService.addOrgPoints(orgUuid, out.orgDelta, reason, refType, vulnUuid, idem);
-            }
+            applyPointsEvent(userUuid, orgUuid, event, severityNum, vulnUuid);
         } catch (Exception ignore) {}
     }
 
+    static void publishPointsEvent(OutboxService outbox, String userUuid, String orgUuid, String event, Float severityNum, String vulnUuid) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("userUuid", userUuid);
+        payload.put("orgUuid", orgUuid);
+        payload.put("event", event);
+        payload.put("severityNum", severityNum);
+        outbox.publish(OutboxService.VULN_POINTS, vulnUuid, payload);
+    }
+
+    /** 按积分策略发放漏洞事件积分（幂等键 vuln:{uuid}:{event}）；发件箱分发时异常向上抛出以便重试 */
+    void applyPointsEvent(String userUuid, String orgUuid, String event, Float severityNum, String vulnUuid) {
+        PointsPolicyService.PreviewReq r = new PointsPolicyService.PreviewReq();
+        r.event = event;
+        r.severityNum = severityNum == null ? null : severityNum.doubleValue();
+        r.severityLevel = null;
+        var out = (orgUuid != null && !orgUuid.isBlank()) ? pointsPolicyService.previewForOrg(orgUuid, r) : pointsPolicyService.preview(r);
+        String idem = "vuln:" + vulnUuid + ":" + event;
+        String refType = "VULN";
+        String reason = "VULN_" + event;
+        if (userUuid != null && out.userDelta != 0) {
+            pointsService.addUserPoints(userUuid, out.userDelta, reason, refType, vulnUuid, idem);
+        }
+        if (orgUuid != null && !orgUuid.isBlank() && out.orgDelta != 0) {
+            pointsService.addOrgPoints(orgUuid, out.orgDelta, reason, refType, vulnUuid, idem);
+        }
+    }
+
     // 兼容旧签名
     @Transactional
     public VulnerabilityMetadata update(String userUuid, String vulnUuid,
@@ -879,36 +1093,20 @@ public class VulnerabilityService {
                 changes.setCategoryId(c.getId());
             }
         }
-        vmMapper.updateBasic(changes);
-        if (clearCategory) {
-            vmMapper.clearCategoryByUuid(vulnUuid);
-        }
-
-        boolean wroteCosvChild = false;
-        if (cosv != null) {
-            VulnerabilityMetadata patch = new VulnerabilityMetadata();
-            patch.setUuid(vm.getUuid());
-            patch.setSchemaVersion(cosv.getSchemaVersion());
-            patch.setConfirmedType(cosv.getConfirmedType());
-            patch.setPublished(parseRfc3339Nullable(cosv.getPublished()));
-            patch.setWithdrawn(parseRfc3339Nullable(cosv.getWithdrawn()));
-            patch.setDatabaseSpecific(stringifyJsonOrNull(cosv.getDatabaseSpecific()));
-            vmMapper.updateCosvExtras(patch);
-
-            wroteCosvChild = upsertCosvChildrenOnUpdate(vm, cosv) || wroteCosvChild;
-
-            Float agg = aggregateSeverityNum(cosv.getSeverity(), severityNum);
-            if (agg != null) {
-                VulnerabilityMetadata v2 = new VulnerabilityMetadata();
-                v2.setUuid(vm.getUuid());
-                v2.setSeverityNum(agg);
-                vmMapper.updateBasic(v2);
+        // 差异模式下仅在字段确有变化时写库，避免无变化的重复导入刷新 modified
+        boolean basicChanged = diffChildren ? basicFieldsChanged(vm, changes, clearCategory) : basicFieldsProvided(changes);
+        if (basicChanged || !diffChildren) {
+            vmMapper.updateBasic(changes);
+            if (clearCategory) {
+                vmMapper.clearCategoryByUuid(vulnUuid);
             }
         }
 
+        boolean cosvChanged = cosv != null && applyCosvUpdate(vm, cosv, severityNum);
+
         VulnerabilityMetadata updated = vmMapper.findByUuid(vulnUuid);
 
-        if (cosv != null || changes.getSummary() != null || changes.getDetails() != null || changes.getSeverityNum() != null || changes.getLanguage() != null || changes.getStatus() != null || changes.getCategoryId() != null || wroteCosvChild) {
+        if (basicChanged || cosvChanged) {
             CosvFile file = new CosvFile();
             file.setUuid(UUID.randomUUID().toString());
             file.setIdentifier(updated.getIdentifier());
@@ -940,11 +1138,16 @@ public class VulnerabilityService {
                 } catch (Exception ignore) {}
             }
         }
+        invalidateCounts();
         return updated;
     }
 
     // ========== COSV 视图聚合 ==========
     public Map<String, Object> buildCosvView(VulnerabilityMetadata vm) {
+        return renderCosvView(vm, cosvAggregateLoader.load(vm.getId()));
+    }
+
+    private Map<String, Object> renderCosvView(VulnerabilityMetadata vm, CosvAggregateLoader.CosvAggregate agg) {
         Map<String, Object> m = new LinkedHashMap<>();
         m.put("id", vm.getIdentifier());
         m.put("schema_version", vm.getSchemaVersion());
@@ -957,51 +1160,45 @@ public class VulnerabilityService {
         m.put("database_specific", parseJsonOrRaw(vm.getDatabaseSpecific()));
 
         // 关联
-        m.put("aliases", aliasMapper.listByVulnerabilityId(vm.getId()).stream().map(a -> a.getValue()).toList());
-        m.put("related", relatedMapper.listByVulnerabilityId(vm.getId()).stream().map(a -> a.getValue()).toList());
-        var refs = referenceMapper.listByVulnerabilityId(vm.getId());
-        m.put("references", refs == null ? List.of() : refs.stream().map(r -> {
+        m.put("aliases", agg.aliases.stream().map(a -> a.getValue()).toList());
+        m.put("related", agg.related.stream().map(a -> a.getValue()).toList());
+        m.put("references", agg.references.stream().map(r -> {
             Map<String, Object> x = new LinkedHashMap<>(); x.put("type", r.getType()); x.put("url", r.getUrl()); return x; }).toList());
 
         // CWE
-        var cwes = cweMapper.listByVulnerabilityId(vm.getId());
-        m.put("cwe_ids", cwes.stream().map(c -> c.getCweId()).filter(Objects::nonNull).toList());
-        m.put("cwe_names", cwes.stream().map(c -> c.getCweName()).filter(Objects::nonNull).toList());
+        m.put("cwe_ids", agg.cwes.stream().map(c -> c.getCweId()).filter(Objects::nonNull).toList());
+        m.put("cwe_names", agg.cwes.stream().map(c -> c.getCweName()).filter(Objects::nonNull).toList());
 
         // 时间线
-        var tls = timelineMapper.listByVulnerabilityId(vm.getId());
-        m.put("time_line", tls.stream().map(t -> {
+        m.put("time_line", agg.timeline.stream().map(t -> {
             Map<String, Object> x = new LinkedHashMap<>(); x.put("type", t.getType()); x.put("value", toRfc3339(t.getValue())); return x; }).toList());
 
         // 危险性（多量表）
-        var sevs = severityMapper.listByVulnerabilityId(vm.getId());
-        m.put("severity", sevs.stream().map(s -> {
+        m.put("severity", agg.severities.stream().map(s -> {
             Map<String, Object> x = new LinkedHashMap<>(); x.put("type", s.getType()); x.put("score", s.getScore()); x.put("level", s.getLevel()); x.put("score_num", s.getScoreNum()); return x; }).toList());
 
         // 受影响面
         List<Map<String, Object>> affected = new ArrayList<>();
-        var pkgs = affectedPackageMapper.listByVulnerabilityId(vm.getId());
-        if (pkgs != null) for (var p : pkgs) {
+        for (var node : agg.affected) {
+            var p = node.pkg;
             Map<String, Object> a = new LinkedHashMap<>();
             Map<String, Object> pkg = new LinkedHashMap<>();
             pkg.put("ecosystem", p.getEcosystem()); pkg.put("name", p.getName()); pkg.put("purl", p.getPurl()); pkg.put("language", p.getLanguage()); pkg.put("repository", p.getRepository()); pkg.put("home_page", p.getHomePage()); pkg.put("edition", p.getEdition());
             // commits
-            var commits = affectedCommitMapper.listByPackageId(p.getId());
-            pkg.put("introduced_commits", commits.stream().filter(c -> "INTRODUCED".equalsIgnoreCase(c.getCommitType())).map(c -> c.getCommitId()).toList());
-            pkg.put("fixed_commits", commits.stream().filter(c -> "FIXED".equalsIgnoreCase(c.getCommitType())).map(c -> c.getCommitId()).toList());
+            pkg.put("introduced_commits", node.commits.stream().filter(c -> "INTRODUCED".equalsIgnoreCase(c.getCommitType())).map(c -> c.getCommitId()).toList());
+            pkg.put("fixed_commits", node.commits.stream().filter(c -> "FIXED".equalsIgnoreCase(c.getCommitType())).map(c -> c.getCommitId()).toList());
             // pkg extensions
             pkg.put("ecosystem_specific", parseJsonOrRaw(p.getEcosystemSpecific()));
             pkg.put("database_specific", parseJsonOrRaw(p.getDatabaseSpecific()));
             a.put("package", pkg);
 
             // ranges
-            var ranges = affectedRangeMapper.listByPackageId(p.getId());
             List<Map<String, Object>> rangeDtos = new ArrayList<>();
-            for (var r : ranges) {
+            for (var rn : node.ranges) {
+                var r = rn.range;
                 Map<String, Object> rd = new LinkedHashMap<>(); rd.put("type", r.getType()); rd.put("repo", r.getRepo());
-                var events = affectedRangeEventMapper.listByRangeId(r.getId());
                 List<Map<String, String>> evDtos = new ArrayList<>();
-                for (var e : events) { Map<String, String> ev = new LinkedHashMap<>(); ev.put(e.getEventType(), e.getValue()); evDtos.add(ev);} 
+                for (var e : rn.events) { Map<String, String> ev = new LinkedHashMap<>(); ev.put(e.getEventType(), e.getValue()); evDtos.add(ev);} 
                 rd.put("events", evDtos);
                 rd.put("database_specific", parseJsonOrRaw(r.getDatabaseSpecific()));
                 rangeDtos.add(rd);
@@ -1009,8 +1206,7 @@ public class VulnerabilityService {
             a.put("ranges", rangeDtos);
 
             // versions
-            var vers = affectedVersionMapper.listByPackageId(p.getId());
-            a.put("versions", vers.stream().map(v -> v.getVersion()).toList());
+            a.put("versions", node.versions.stream().map(v -> v.getVersion()).toList());
 
             // affected-level extensions: 落在 package.database_specific 中的 severity 原文
             a.put("ecosystem_specific", null);
@@ -1020,34 +1216,29 @@ public class VulnerabilityService {
         m.put("affected", affected);
 
         // 扩展
-        var pdls = patchDetailMapper.listByVulnerabilityId(vm.getId());
         List<Map<String, Object>> patchDtos = new ArrayList<>();
-        for (var pd : pdls) {
+        for (var pn : agg.patchDetails) {
+            var pd = pn.detail;
             Map<String, Object> x = new LinkedHashMap<>();
             x.put("patch_url", pd.getPatchUrl()); x.put("issue_url", pd.getIssueUrl()); x.put("main_language", pd.getMainLanguage()); x.put("author", pd.getAuthor()); x.put("committer", pd.getCommitter());
-            var branches = patchBranchMapper.listByPatchDetailId(pd.getId());
-            var tags = patchTagMapper.listByPatchDetailId(pd.getId());
-            x.put("branches", branches.stream().map(b -> b.getName()).toList());
-            x.put("tags", tags.stream().map(t -> t.getName()).toList());
+            x.put("branches", pn.branches.stream().map(b -> b.getName()).toList());
+            x.put("tags", pn.tags.stream().map(t -> t.getName()).toList());
             patchDtos.add(x);
         }
         m.put("patch_details", patchDtos);
 
-        var contribs = contributorMapper.listByVulnerabilityId(vm.getId());
-        m.put("contributors", contribs.stream().map(c -> { Map<String,Object> x=new LinkedHashMap<>(); x.put("org",c.getOrg()); x.put("name",c.getName()); x.put("email",c.getEmail()); x.put("contributions",c.getContributions()); return x;}).toList());
+        m.put("contributors", agg.contributors.stream().map(c -> { Map<String,Object> x=new LinkedHashMap<>(); x.put("org",c.getOrg()); x.put("name",c.getName()); x.put("email",c.getEmail()); x.put("contributions",c.getContributions()); return x;}).toList());
 
-        var credits = creditMapper.listByVulnerabilityId(vm.getId());
         List<Map<String, Object>> creditDtos = new ArrayList<>();
-        for (var cr : credits) {
+        for (var cn : agg.credits) {
+            var cr = cn.credit;
             Map<String, Object> x = new LinkedHashMap<>(); x.put("name", cr.getName()); x.put("type", cr.getType());
-            var contacts = creditContactMapper.listByCreditId(cr.getId());
-            x.put("contact", contacts.stream().map(cc -> cc.getContact()).toList());
+            x.put("contact", cn.contacts.stream().map(cc -> cc.getContact()).toList());
             creditDtos.add(x);
         }
         m.put("credits", creditDtos);
 
-        var exs = exploitStatusMapper.listByVulnerabilityId(vm.getId());
-        m.put("exploit_status", exs.stream().map(e -> e.getStatus()).toList());
+        m.put("exploit_status", agg.exploitStatus.stream().map(e -> e.getStatus()).toList());
 
         return m;
     }
@@ -1068,30 +1259,285 @@ public class VulnerabilityService {
         replaceExploitStatus(vm, cosv.getExploitStatus());
     }
 
+    /**
+     * 更新路径的子表写入，仅处理请求中提供的子结构。
+     * 差异模式下按自然键与现有行对比，只增删改真正变化的行；返回是否有任何写入。
+     */
     private boolean upsertCosvChildrenOnUpdate(VulnerabilityMetadata vm, CosvUpsert cosv) {
+        if (!diffChildren) {
+            boolean changed = false;
+            if (cosv.getAliases() != null) { replaceAliases(vm, cosv.getAliases()); changed = true; }
+            if (cosv.getRelated() != null) { replaceRelated(vm, cosv.getRelated()); changed = true; }
+            if (cosv.getReferences() != null) { replaceReferences(vm, cosv.getReferences()); changed = true; }
+            if (cosv.getCweIds() != null || cosv.getCweNames() != null) { replaceCwe(vm, cosv.getCweIds(), cosv.getCweNames()); changed = true; }
+            if (cosv.getTimeLine() != null) { replaceTimeline(vm, cosv.getTimeLine()); changed = true; }
+            if (cosv.getSeverity() != null) { replaceSeverities(vm, cosv.getSeverity()); changed = true; }
+            if (cosv.getAffected() != null) { replaceAffected(vm, cosv.getAffected()); changed = true; }
+            if (cosv.getPatchDetails() != null) { replacePatchDetails(vm, cosv.getPatchDetails()); changed = true; }
+            if (cosv.getContributors() != null) { replaceContributors(vm, cosv.getContributors()); changed = true; }
+            if (cosv.getCredits() != null) { replaceCredits(vm, cosv.getCredits()); changed = true; }
+            if (cosv.getExploitStatus() != null) { replaceExploitStatus(vm, cosv.getExploitStatus()); changed = true; }
+            return changed;
+        }
+        var cur = cosvAggregateLoader.load(vm.getId());
         boolean changed = false;
-        if (cosv.getAliases() != null) { replaceAliases(vm, cosv.getAliases()); changed = true; }
-        if (cosv.getRelated() != null) { replaceRelated(vm, cosv.getRelated()); changed = true; }
-        if (cosv.getReferences() != null) { replaceReferences(vm, cosv.getReferences()); changed = true; }
-        if (cosv.getCweIds() != null || cosv.getCweNames() != null) { replaceCwe(vm, cosv.getCweIds(), cosv.getCweNames()); changed = true; }
-        if (cosv.getTimeLine() != null) { replaceTimeline(vm, cosv.getTimeLine()); changed = true; }
-        if (cosv.getSeverity() != null) { replaceSeverities(vm, cosv.getSeverity()); changed = true; }
-        if (cosv.getAffected() != null) { replaceAffected(vm, cosv.getAffected()); changed = true; }
-        if (cosv.getPatchDetails() != null) { replacePatchDetails(vm, cosv.getPatchDetails()); changed = true; }
-        if (cosv.getContributors() != null) { replaceContributors(vm, cosv.getContributors()); changed = true; }
-        if (cosv.getCredits() != null) { replaceCredits(vm, cosv.getCredits()); changed = true; }
-        if (cosv.getExploitStatus() != null) { replaceExploitStatus(vm, cosv.getExploitStatus()); changed = true; }
+        if (cosv.getAliases() != null) {
+            var d = diffRows(cur.aliases, aliasRows(vm, cosv.getAliases()), e -> Arrays.asList(e.getValue()));
+            checkAliasConflicts(vm, d.added().stream().map(e -> e.getValue()).toList());
+            changed |= applyLeafDiff(d, e -> e.getId(), aliasMapper::deleteByIds, aliasMapper::insertBatch);
+        }
+        if (cosv.getRelated() != null) {
+            changed |= applyLeafDiff(diffRows(cur.related, relatedRows(vm, cosv.getRelated()), e -> Arrays.asList(e.getValue())),
+                    e -> e.getId(), relatedMapper::deleteByIds, relatedMapper::insertBatch);
+        }
+        if (cosv.getReferences() != null) {
+            changed |= applyLeafDiff(diffRows(cur.references, referenceRows(vm, cosv.getReferences()), e -> Arrays.asList(e.getType(), e.getUrl())),
+                    e -> e.getId(), referenceMapper::deleteByIds, referenceMapper::insertBatch);
+        }
+        if (cosv.getCweIds() != null || cosv.getCweNames() != null) {
+            changed |= applyLeafDiff(diffRows(cur.cwes, cweRows(vm, cosv.getCweIds(), cosv.getCweNames()), e -> Arrays.asList(e.getCweId(), e.getCweName())),
+                    e -> e.getId(), cweMapper::deleteByIds, cweMapper::insertBatch);
+        }
+        if (cosv.getTimeLine() != null) {
+            // timestamp 列为秒精度
+            changed |= applyLeafDiff(diffRows(cur.timeline, timelineRows(vm, cosv.getTimeLine()), e -> Arrays.asList(e.getType(), e.getValue() == null ? null : e.getValue().withNano(0))),
+                    e -> e.getId(), timelineMapper::deleteByIds, timelineMapper::insertBatch);
+        }
+        if (cosv.getSeverity() != null) {
+            changed |= applyLeafDiff(diffRows(cur.severities, severityRows(vm, cosv.getSeverity()), e -> Arrays.asList(e.getType(), e.getScore(), e.getLevel(), roundScore(e.getScoreNum()))),
+                    e -> e.getId(), severityMapper::deleteByIds, severityMapper::insertBatch);
+        }
+        if (cosv.getAffected() != null) changed |= syncAffected(cur.affected, affectedNodes(vm, cosv.getAffected()));
+        if (cosv.getPatchDetails() != null) changed |= syncPatchDetails(cur.patchDetails, patchNodes(vm, cosv.getPatchDetails()));
+        if (cosv.getContributors() != null) {
+            changed |= applyLeafDiff(diffRows(cur.contributors, contributorRows(vm, cosv.getContributors()), e -> Arrays.asList(e.getOrg(), e.getName(), e.getEmail(), e.getContributions())),
+                    e -> e.getId(), contributorMapper::deleteByIds, contributorMapper::insertBatch);
+        }
+        if (cosv.getCredits() != null) changed |= syncCredits(cur.credits, creditNodes(vm, cosv.getCredits()));
+        if (cosv.getExploitStatus() != null) {
+            changed |= applyLeafDiff(diffRows(cur.exploitStatus, exploitStatusRows(vm, cosv.getExploitStatus()), e -> Arrays.asList(e.getStatus())),
+                    e -> e.getId(), exploitStatusMapper::deleteByIds, exploitStatusMapper::insertBatch);
+        }
         return changed;
     }
 
-    private void replaceAliases(VulnerabilityMetadata vm, List<String> values) {
-        if (values == null) return;
-        // 全局唯一校验：任意别名只能归属一个漏洞
-        for (String v : values) {
-            if (v == null) continue;
-            String t = v.trim();
-            if (t.isEmpty()) continue;
-            String conflictUuid = aliasMapper.findVulnerabilityUuidByAlias(t);
+    /**
+     * 更新路径共用：写入顶层 COSV 字段、子表与 severity 聚合。
+     * 差异模式下与当前记录对比，未变化的部分不落库；返回是否有任何变化。
+     */
+    private boolean applyCosvUpdate(VulnerabilityMetadata vm, CosvUpsert cosv, Float severityNum) {
+        VulnerabilityMetadata patch = new VulnerabilityMetadata();
+        patch.setUuid(vm.getUuid());
+        patch.setSchemaVersion(cosv.getSchemaVersion());
+        patch.setConfirmedType(cosv.getConfirmedType());
+        patch.setPublished(parseRfc3339Nullable(cosv.getPublished()));
+        patch.setWithdrawn(parseRfc3339Nullable(cosv.getWithdrawn()));
+        patch.setDatabaseSpecific(stringifyJsonOrNull(cosv.getDatabaseSpecific()));
+        boolean extrasChanged = !diffChildren || cosvExtrasChanged(vm, patch);
+        if (extrasChanged) vmMapper.updateCosvExtras(patch);
+
+        // 子表更新：仅对提供的子结构执行
+        boolean childChanged = upsertCosvChildrenOnUpdate(vm, cosv);
+
+        // severity 聚合回填
+        Float agg = aggregateSeverityNum(cosv.getSeverity(), severityNum);
+        boolean aggChanged = agg != null && (!diffChildren || !Objects.equals(roundScore(agg), roundScore(severityNum != null ? severityNum : vm.getSeverityNum())));
+        if (aggChanged) {
+            VulnerabilityMetadata v2 = new VulnerabilityMetadata();
+            v2.setUuid(vm.getUuid());
+            v2.setSeverityNum(agg);
+            vmMapper.updateBasic(v2);
+        }
+        return extrasChanged || childChanged || aggChanged;
+    }
+
+    private boolean basicFieldsProvided(VulnerabilityMetadata changes) {
+        return changes.getSummary() != null || changes.getDetails() != null || changes.getSeverityNum() != null || changes.getLanguage() != null || changes.getStatus() != null || changes.getCategoryId() != null;
+    }
+
+    private boolean basicFieldsChanged(VulnerabilityMetadata cur, VulnerabilityMetadata changes, boolean clearCategory) {
+        return (changes.getSummary() != null && !changes.getSummary().equals(cur.getSummary()))
+                || (changes.getDetails() != null && !changes.getDetails().equals(cur.getDetails()))
+                || (changes.getSeverityNum() != null && !Objects.equals(roundScore(changes.getSeverityNum()), roundScore(cur.getSeverityNum())))
+                || (changes.getLanguage() != null && changes.getLanguage() != cur.getLanguage())
+                || (changes.getStatus() != null && changes.getStatus() != cur.getStatus())
+                || (changes.getCategoryId() != null && !changes.getCategoryId().equals(cur.getCategoryId()))
+                || (clearCategory && cur.getCategoryId() != null);
+    }
+
+    private boolean cosvExtrasChanged(VulnerabilityMetadata cur, VulnerabilityMetadata patch) {
+        return (patch.getPublished() != null && (cur.getPublished() == null || !patch.getPublished().withNano(0).equals(cur.getPublished().withNano(0))))
+                || (patch.getWithdrawn() != null && (cur.getWithdrawn() == null || !patch.getWithdrawn().withNano(0).equals(cur.getWithdrawn().withNano(0))))
+                || (patch.getSchemaVersion() != null && !patch.getSchemaVersion().equals(cur.getSchemaVersion()))
+                || (patch.getConfirmedType() != null && !patch.getConfirmedType().equals(cur.getConfirmedType()))
+                || (patch.getDatabaseSpecific() != null && !sameJson(patch.getDatabaseSpecific(), cur.getDatabaseSpecific()));
+    }
+
+    // ---- 差异写入 ----
+
+    /** 按自然键（多重集语义）对比：matched 为 (当前行, 目标行)，added 待插入，removed 待删除 */
+    private record RowDiff<T>(List<Map.Entry<T, T>> matched, List<T> added, List<T> removed) {}
+
+    private static <T> RowDiff<T> diffRows(List<T> current, List<T> desired, java.util.function.Function<T, List<Object>> key) {
+        Map<List<Object>, Deque<T>> pool = new HashMap<>();
+        for (T c : current) pool.computeIfAbsent(key.apply(c), k -> new ArrayDeque<>()).add(c);
+        List<Map.Entry<T, T>> matched = new ArrayList<>();
+        List<T> added = new ArrayList<>();
+        for (T d : desired) {
+            Deque<T> q = pool.get(key.apply(d));
+            T c = q == null ? null : q.pollFirst();
+            if (c != null) matched.add(Map.entry(c, d)); else added.add(d);
+        }
+        List<T> removed = new ArrayList<>();
+        for (Deque<T> q : pool.values()) removed.addAll(q);
+        return new RowDiff<>(matched, added, removed);
+    }
+
+    private static <T> boolean applyLeafDiff(RowDiff<T> d, java.util.function.Function<T, Long> idOf,
+                                             java.util.function.Consumer<List<Long>> deleteByIds,
+                                             java.util.function.Consumer<List<T>> insertBatch) {
+        if (!d.removed().isEmpty()) forEachChunk(d.removed().stream().map(idOf).toList(), deleteByIds);
+        forEachChunk(d.added(), insertBatch);
+        return !d.removed().isEmpty() || !d.added().isEmpty();
+    }
+
+    private boolean syncAffected(List<CosvAggregateLoader.AffectedNode> current, List<CosvAggregateLoader.AffectedNode> desired) {
+        var d = diffRows(current, desired, n -> Arrays.asList(n.pkg.getEcosystem(), n.pkg.getName(), n.pkg.getPurl()));
+        boolean changed = false;
+        if (!d.removed().isEmpty()) {
+            List<Long> rangeIds = new ArrayList<>();
+            for (var n : d.removed()) for (var r : n.ranges) rangeIds.add(r.range.getId());
+            List<Long> pkgIds = d.removed().stream().map(n -> n.pkg.getId()).toList();
+            forEachChunk(rangeIds, affectedRangeEventMapper::deleteByRangeIds);
+            forEachChunk(pkgIds, affectedRangeMapper::deleteByPackageIds);
+            forEachChunk(pkgIds, affectedVersionMapper::deleteByPackageIds);
+            forEachChunk(pkgIds, affectedCommitMapper::deleteByPackageIds);
+            forEachChunk(pkgIds, affectedPackageMapper::deleteByIds);
+            changed = true;
+        }
+        List<CosvAggregateLoader.RangeNode> newRanges = new ArrayList<>();
+        for (var e : d.matched()) {
+            var cur = e.getKey();
+            var want = e.getValue();
+            Long pkgId = cur.pkg.getId();
+            want.pkg.setId(pkgId);
+            if (!Objects.equals(cur.pkg.getLanguage(), want.pkg.getLanguage()) || !Objects.equals(cur.pkg.getRepository(), want.pkg.getRepository())
+                    || !Objects.equals(cur.pkg.getHomePage(), want.pkg.getHomePage()) || !Objects.equals(cur.pkg.getEdition(), want.pkg.getEdition())
+                    || !sameJson(cur.pkg.getEcosystemSpecific(), want.pkg.getEcosystemSpecific()) || !sameJson(cur.pkg.getDatabaseSpecific(), want.pkg.getDatabaseSpecific())) {
+                affectedPackageMapper.updateById(want.pkg);
+                changed = true;
+            }
+            for (var c : want.commits) c.setPackageId(pkgId);
+            for (var v : want.versions) v.setPackageId(pkgId);
+            for (var r : want.ranges) r.range.setPackageId(pkgId);
+            changed |= applyLeafDiff(diffRows(cur.commits, want.commits, c -> Arrays.asList(c.getCommitType() == null ? null : c.getCommitType().toUpperCase(Locale.ROOT), c.getCommitId())),
+                    c -> c.getId(), affectedCommitMapper::deleteByIds, affectedCommitMapper::insertBatch);
+            changed |= applyLeafDiff(diffRows(cur.versions, want.versions, v -> Arrays.asList(v.getVersion())),
+                    v -> v.getId(), affectedVersionMapper::deleteByIds, affectedVersionMapper::insertBatch);
+
+            var rd = diffRows(cur.ranges, want.ranges, r -> Arrays.asList(r.range.getType(), r.range.getRepo()));
+            if (!rd.removed().isEmpty()) {
+                List<Long> ids = rd.removed().stream().map(r -> r.range.getId()).toList();
+                affectedRangeEventMapper.deleteByRangeIds(ids);
+                affectedRangeMapper.deleteByIds(ids);
+                changed = true;
+            }
+            newRanges.addAll(rd.added());
+            for (var re : rd.matched()) {
+                Long rangeId = re.getKey().range.getId();
+                if (!sameJson(re.getKey().range.getDatabaseSpecific(), re.getValue().range.getDatabaseSpecific())) {
+                    affectedRangeMapper.updateDatabaseSpecificById(rangeId, re.getValue().range.getDatabaseSpecific());
+                    changed = true;
+                }
+                for (var ev : re.getValue().events) ev.setRangeId(rangeId);
+                changed |= applyLeafDiff(diffRows(re.getKey().events, re.getValue().events, ev -> Arrays.asList(ev.getEventType(), ev.getValue())),
+                        ev -> ev.getId(), affectedRangeEventMapper::deleteByIds, affectedRangeEventMapper::insertBatch);
+            }
+        }
+        if (!newRanges.isEmpty()) { insertRangeNodes(newRanges); changed = true; }
+        if (!d.added().isEmpty()) { insertAffectedNodes(d.added()); changed = true; }
+        return changed;
+    }
+
+    private boolean syncPatchDetails(List<CosvAggregateLoader.PatchNode> current, List<CosvAggregateLoader.PatchNode> desired) {
+        var d = diffRows(current, desired, n -> Arrays.asList(n.detail.getPatchUrl()));
+        boolean changed = false;
+        if (!d.removed().isEmpty()) {
+            List<Long> ids = d.removed().stream().map(n -> n.detail.getId()).toList();
+            patchBranchMapper.deleteByPatchDetailIds(ids);
+            patchTagMapper.deleteByPatchDetailIds(ids);
+            patchDetailMapper.deleteByIds(ids);
+            changed = true;
+        }
+        for (var e : d.matched()) {
+            var cur = e.getKey().detail;
+            var want = e.getValue();
+            want.detail.setId(cur.getId());
+            if (!Objects.equals(cur.getIssueUrl(), want.detail.getIssueUrl()) || !Objects.equals(cur.getMainLanguage(), want.detail.getMainLanguage())
+                    || !Objects.equals(cur.getAuthor(), want.detail.getAuthor()) || !Objects.equals(cur.getCommitter(), want.detail.getCommitter())) {
+                patchDetailMapper.updateById(want.detail);
+                changed = true;
+            }
+            for (var b : want.branches) b.setPatchDetailId(cur.getId());
+            for (var t : want.tags) t.setPatchDetailId(cur.getId());
+            changed |= applyLeafDiff(diffRows(e.getKey().branches, want.branches, b -> Arrays.asList(b.getName())),
+                    b -> b.getId(), patchBranchMapper::deleteByIds, patchBranchMapper::insertBatch);
+            changed |= applyLeafDiff(diffRows(e.getKey().tags, want.tags, t -> Arrays.asList(t.getName())),
+                    t -> t.getId(), patchTagMapper::deleteByIds, patchTagMapper::insertBatch);
+        }
+        if (!d.added().isEmpty()) { insertPatchNodes(d.added()); changed = true; }
+        return changed;
+    }
+
+    private boolean syncCredits(List<CosvAggregateLoader.CreditNode> current, List<CosvAggregateLoader.CreditNode> desired) {
+        var d = diffRows(current, desired, n -> Arrays.asList(n.credit.getName(), n.credit.getType()));
+        boolean changed = false;
+        if (!d.removed().isEmpty()) {
+            List<Long> ids = d.removed().stream().map(n -> n.credit.getId()).toList();
+            creditContactMapper.deleteByCreditIds(ids);
+            creditMapper.deleteByIds(ids);
+            changed = true;
+        }
+        for (var e : d.matched()) {
+            Long creditId = e.getKey().credit.getId();
+            for (var cc : e.getValue().contacts) cc.setCreditId(creditId);
+            changed |= applyLeafDiff(diffRows(e.getKey().contacts, e.getValue().contacts, cc -> Arrays.asList(cc.getContact())),
+                    cc -> cc.getId(), creditContactMapper::deleteByIds, creditContactMapper::insertBatch);
+        }
+        if (!d.added().isEmpty()) { insertCreditNodes(d.added()); changed = true; }
+        return changed;
+    }
+
+    private boolean sameJson(String a, String b) {
+        if (a == null || b == null) return a == null && b == null;
+        if (a.equals(b)) return true;
+        // JSON 列会被 MySQL 规范化（键序/空白），按树结构比较
+        try { return objectMapper.readTree(a).equals(objectMapper.readTree(b)); } catch (Exception e) { return false; }
+    }
+
+    // severity_num 子表列为 DECIMAL(4,1)
+    private static Float roundScore(Float f) { return f == null ? null : Math.round(f * 10f) / 10f; }
+
+    // ---- 全量替换写入 ----
+
+    // 子表写入统一走多行 INSERT（insertBatch），父子关联依赖批量回填的自增主键
+    private static final int BATCH_ROWS = 500;
+
+    private static <T> void forEachChunk(List<T> rows, java.util.function.Consumer<List<T>> action) {
+        for (int i = 0; i < rows.size(); i += BATCH_ROWS) {
+            action.accept(rows.subList(i, Math.min(rows.size(), i + BATCH_ROWS)));
+        }
+    }
+
+    private void checkAliasConflicts(VulnerabilityMetadata vm, List<String> values) {
+        if (values.isEmpty()) return;
+        // 全局唯一校验：任意别名只能归属一个漏洞；alias.value 为不区分大小写的排序规则，比较前统一归一化
+        Map<String, String> owners = new HashMap<>();
+        for (var row : aliasMapper.findOwnersByValues(values)) {
+            owners.putIfAbsent(aliasKey(String.valueOf(row.get("value"))), String.valueOf(row.get("uuid")));
+        }
+        for (String t : values) {
+            String conflictUuid = owners.get(aliasKey(t));
             if (conflictUuid != null) {
                 // 自身别名不算冲突；否则拒绝
                 if (vm.getUuid() == null || !conflictUuid.equals(vm.getUuid())) {
@@ -1099,65 +1545,197 @@ public class VulnerabilityService {
                 }
             }
         }
+    }
+
+    private static String aliasKey(String v) {
+        return v.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void replaceAliases(VulnerabilityMetadata vm, List<String> values) {
+        if (values == null) return;
+        var rows = aliasRows(vm, values);
+        checkAliasConflicts(vm, rows.stream().map(e -> e.getValue()).toList());
         aliasMapper.deleteByVulnerabilityId(vm.getId());
-        for (String v : values) {
-            if (v == null) continue;
-            String t = v.trim();
-            if (t.isEmpty()) continue;
-            tech.cspioneer.backend.entity.VulnerabilityMetadataAlias e = new tech.cspioneer.backend.entity.VulnerabilityMetadataAlias();
-            e.setVulnerabilityMetadataId(vm.getId());
-            e.setValue(t);
-            aliasMapper.insert(e);
-        }
+        forEachChunk(rows, aliasMapper::insertBatch);
     }
 
     private void replaceRelated(VulnerabilityMetadata vm, List<String> values) {
         if (values == null) return;
         relatedMapper.deleteByVulnerabilityId(vm.getId());
-        for (String v : values) { if (v == null || v.isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityMetadataRelated e = new tech.cspioneer.backend.entity.VulnerabilityMetadataRelated(); e.setVulnerabilityMetadataId(vm.getId()); e.setValue(v.trim()); relatedMapper.insert(e);}    }
+        forEachChunk(relatedRows(vm, values), relatedMapper::insertBatch);
+    }
 
     private void replaceReferences(VulnerabilityMetadata vm, List<CosvUpsert.Reference> refs) {
         if (refs == null) return;
         referenceMapper.deleteByVulnerabilityId(vm.getId());
-        for (var r : refs) { if (r == null || r.getUrl() == null || r.getUrl().isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityMetadataReference e = new tech.cspioneer.backend.entity.VulnerabilityMetadataReference(); e.setVulnerabilityMetadataId(vm.getId()); e.setType(r.getType()); e.setUrl(r.getUrl()); referenceMapper.insert(e);}    }
+        forEachChunk(referenceRows(vm, refs), referenceMapper::insertBatch);
+    }
 
     private void replaceCwe(VulnerabilityMetadata vm, List<String> ids, List<String> names) {
         if (ids == null && names == null) return;
         cweMapper.deleteByVulnerabilityId(vm.getId());
-        int n = Math.max(ids == null ? 0 : ids.size(), names == null ? 0 : names.size());
-        for (int i = 0; i < n; i++) {
-            tech.cspioneer.backend.entity.VulnerabilityMetadataCwe e = new tech.cspioneer.backend.entity.VulnerabilityMetadataCwe();
-            e.setVulnerabilityMetadataId(vm.getId());
-            e.setCweId(ids != null && i < ids.size() ? ids.get(i) : null);
-            e.setCweName(names != null && i < names.size() ? names.get(i) : null);
-            cweMapper.insert(e);
-        }
+        forEachChunk(cweRows(vm, ids, names), cweMapper::insertBatch);
     }
 
     private void replaceTimeline(VulnerabilityMetadata vm, List<CosvUpsert.TimePoint> tps) {
         if (tps == null) return;
         timelineMapper.deleteByVulnerabilityId(vm.getId());
-        for (var t : tps) { if (t == null || t.getType() == null || t.getValue() == null) continue; tech.cspioneer.backend.entity.VulnerabilityMetadataTimeline e = new tech.cspioneer.backend.entity.VulnerabilityMetadataTimeline(); e.setVulnerabilityMetadataId(vm.getId()); e.setType(t.getType()); e.setValue(parseRfc3339(t.getValue())); timelineMapper.insert(e);}    }
+        forEachChunk(timelineRows(vm, tps), timelineMapper::insertBatch);
+    }
 
     private void replaceSeverities(VulnerabilityMetadata vm, List<CosvUpsert.SeverityItem> sevs) {
         if (sevs == null) return;
         severityMapper.deleteByVulnerabilityId(vm.getId());
-        for (var s : sevs) { if (s == null) continue; tech.cspioneer.backend.entity.VulnerabilityMetadataSeverity e = new tech.cspioneer.backend.entity.VulnerabilityMetadataSeverity(); e.setVulnerabilityMetadataId(vm.getId()); e.setType(s.getType()); e.setScore(s.getScore()); e.setLevel(s.getLevel()); e.setScoreNum(s.getScoreNum()); severityMapper.insert(e);}    }
+        forEachChunk(severityRows(vm, sevs), severityMapper::insertBatch);
+    }
 
     private void replaceAffected(VulnerabilityMetadata vm, List<CosvUpsert.Affected> list) {
         if (list == null) return;
-        // 删除旧 affected
-        var pkgs = affectedPackageMapper.listByVulnerabilityId(vm.getId());
-        for (var p : pkgs) { // delete child tables first
-            var ranges = affectedRangeMapper.listByPackageId(p.getId());
-            for (var r : ranges) { affectedRangeEventMapper.deleteByRangeId(r.getId()); }
-            affectedRangeMapper.deleteByPackageId(p.getId());
-            affectedVersionMapper.deleteByPackageId(p.getId());
-            affectedCommitMapper.deleteByPackageId(p.getId());
+        var nodes = affectedNodes(vm, list);
+        // 删除旧 affected：先按包ID/范围ID批量删除子表
+        var oldPkgIds = affectedPackageMapper.listByVulnerabilityId(vm.getId()).stream().map(p -> p.getId()).toList();
+        if (!oldPkgIds.isEmpty()) {
+            var oldRangeIds = affectedRangeMapper.listByPackageIds(oldPkgIds).stream().map(r -> r.getId()).toList();
+            forEachChunk(oldRangeIds, affectedRangeEventMapper::deleteByRangeIds);
+            affectedRangeMapper.deleteByPackageIds(oldPkgIds);
+            affectedVersionMapper.deleteByPackageIds(oldPkgIds);
+            affectedCommitMapper.deleteByPackageIds(oldPkgIds);
         }
         affectedPackageMapper.deleteByVulnerabilityId(vm.getId());
+        insertAffectedNodes(nodes);
+    }
+
+    private void replacePatchDetails(VulnerabilityMetadata vm, List<CosvUpsert.PatchDetail> list) {
+        if (list == null) return;
+        var oldIds = patchDetailMapper.listByVulnerabilityId(vm.getId()).stream().map(pd -> pd.getId()).toList();
+        if (!oldIds.isEmpty()) { patchBranchMapper.deleteByPatchDetailIds(oldIds); patchTagMapper.deleteByPatchDetailIds(oldIds); }
+        patchDetailMapper.deleteByVulnerabilityId(vm.getId());
+        insertPatchNodes(patchNodes(vm, list));
+    }
+
+    private void replaceContributors(VulnerabilityMetadata vm, List<CosvUpsert.Contributor> list) {
+        if (list == null) return;
+        contributorMapper.deleteByVulnerabilityId(vm.getId());
+        forEachChunk(contributorRows(vm, list), contributorMapper::insertBatch);
+    }
+
+    private void replaceCredits(VulnerabilityMetadata vm, List<CosvUpsert.Credit> list) {
+        if (list == null) return;
+        var oldIds = creditMapper.listByVulnerabilityId(vm.getId()).stream().map(cr -> cr.getId()).toList();
+        if (!oldIds.isEmpty()) creditContactMapper.deleteByCreditIds(oldIds);
+        creditMapper.deleteByVulnerabilityId(vm.getId());
+        insertCreditNodes(creditNodes(vm, list));
+    }
+
+    private void replaceExploitStatus(VulnerabilityMetadata vm, List<String> list) {
+        if (list == null) return;
+        exploitStatusMapper.deleteByVulnerabilityId(vm.getId());
+        forEachChunk(exploitStatusRows(vm, list), exploitStatusMapper::insertBatch);
+    }
+
+    // 逐层批量插入：包 -> (提交/范围/版本) -> 范围事件
+    private void insertAffectedNodes(List<CosvAggregateLoader.AffectedNode> nodes) {
+        if (nodes.isEmpty()) return;
+        forEachChunk(nodes.stream().map(n -> n.pkg).toList(), affectedPackageMapper::insertBatch);
+        List<tech.cspioneer.backend.entity.VulnerabilityAffectedCommit> commitRows = new ArrayList<>();
+        List<tech.cspioneer.backend.entity.VulnerabilityAffectedVersion> versionRows = new ArrayList<>();
+        List<CosvAggregateLoader.RangeNode> ranges = new ArrayList<>();
+        for (var n : nodes) {
+            Long pkgId = n.pkg.getId();
+            for (var c : n.commits) { c.setPackageId(pkgId); commitRows.add(c); }
+            for (var v : n.versions) { v.setPackageId(pkgId); versionRows.add(v); }
+            for (var r : n.ranges) { r.range.setPackageId(pkgId); ranges.add(r); }
+        }
+        forEachChunk(commitRows, affectedCommitMapper::insertBatch);
+        forEachChunk(versionRows, affectedVersionMapper::insertBatch);
+        insertRangeNodes(ranges);
+    }
+
+    private void insertRangeNodes(List<CosvAggregateLoader.RangeNode> ranges) {
+        if (ranges.isEmpty()) return;
+        forEachChunk(ranges.stream().map(r -> r.range).toList(), affectedRangeMapper::insertBatch);
+        List<tech.cspioneer.backend.entity.VulnerabilityAffectedRangeEvent> eventRows = new ArrayList<>();
+        for (var r : ranges) for (var ev : r.events) { ev.setRangeId(r.range.getId()); eventRows.add(ev); }
+        forEachChunk(eventRows, affectedRangeEventMapper::insertBatch);
+    }
+
+    private void insertPatchNodes(List<CosvAggregateLoader.PatchNode> nodes) {
+        if (nodes.isEmpty()) return;
+        forEachChunk(nodes.stream().map(n -> n.detail).toList(), patchDetailMapper::insertBatch);
+        List<tech.cspioneer.backend.entity.VulnerabilityPatchBranch> branchRows = new ArrayList<>();
+        List<tech.cspioneer.backend.entity.VulnerabilityPatchTag> tagRows = new ArrayList<>();
+        for (var n : nodes) {
+            for (var b : n.branches) { b.setPatchDetailId(n.detail.getId()); branchRows.add(b); }
+            for (var t : n.tags) { t.setPatchDetailId(n.detail.getId()); tagRows.add(t); }
+        }
+        forEachChunk(branchRows, patchBranchMapper::insertBatch);
+        forEachChunk(tagRows, patchTagMapper::insertBatch);
+    }
+
+    private void insertCreditNodes(List<CosvAggregateLoader.CreditNode> nodes) {
+        if (nodes.isEmpty()) return;
+        forEachChunk(nodes.stream().map(n -> n.credit).toList(), creditMapper::insertBatch);
+        List<tech.cspioneer.backend.entity.VulnerabilityCreditContact> contactRows = new ArrayList<>();
+        for (var n : nodes) for (var cc : n.contacts) { cc.setCreditId(n.credit.getId()); contactRows.add(cc); }
+        forEachChunk(contactRows, creditContactMapper::insertBatch);
+    }
+
+    // ---- 目标行构建（替换与差异写入共用） ----
 
-        // 写入新 affected
+    private List<tech.cspioneer.backend.entity.VulnerabilityMetadataAlias> aliasRows(VulnerabilityMetadata vm, List<String> values) {
+        List<tech.cspioneer.backend.entity.VulnerabilityMetadataAlias> rows = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String v : values) {
+            if (v == null) continue;
+            String t = v.trim();
+            if (t.isEmpty() || !seen.add(aliasKey(t))) continue; // 仅大小写不同的别名在唯一索引下视为同一值
+            tech.cspioneer.backend.entity.VulnerabilityMetadataAlias e = new tech.cspioneer.backend.entity.VulnerabilityMetadataAlias();
+            e.setVulnerabilityMetadataId(vm.getId());
+            e.setValue(t);
+            rows.add(e);
+        }
+        return rows;
+    }
+
+    private List<tech.cspioneer.backend.entity.VulnerabilityMetadataRelated> relatedRows(VulnerabilityMetadata vm, List<String> values) {
+        List<tech.cspioneer.backend.entity.VulnerabilityMetadataRelated> rows = new ArrayList<>();
+        for (String v : values) { if (v == null || v.isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityMetadataRelated e = new tech.cspioneer.backend.entity.VulnerabilityMetadataRelated(); e.setVulnerabilityMetadataId(vm.getId()); e.setValue(v.trim()); rows.add(e);}
+        return rows;
+    }
+
+    private List<tech.cspioneer.backend.entity.VulnerabilityMetadataReference> referenceRows(VulnerabilityMetadata vm, List<CosvUpsert.Reference> refs) {
+        List<tech.cspioneer.backend.entity.VulnerabilityMetadataReference> rows = new ArrayList<>();
+        for (var r : refs) { if (r == null || r.getUrl() == null || r.getUrl().isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityMetadataReference e = new tech.cspioneer.backend.entity.VulnerabilityMetadataReference(); e.setVulnerabilityMetadataId(vm.getId()); e.setType(r.getType()); e.setUrl(r.getUrl()); rows.add(e);}
+        return rows;
+    }
+
+    private List<tech.cspioneer.backend.entity.VulnerabilityMetadataCwe> cweRows(VulnerabilityMetadata vm, List<String> ids, List<String> names) {
+        int n = Math.max(ids == null ? 0 : ids.size(), names == null ? 0 : names.size());
+        List<tech.cspioneer.backend.entity.VulnerabilityMetadataCwe> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            tech.cspioneer.backend.entity.VulnerabilityMetadataCwe e = new tech.cspioneer.backend.entity.VulnerabilityMetadataCwe();
+            e.setVulnerabilityMetadataId(vm.getId());
+            e.setCweId(ids != null && i < ids.size() ? ids.get(i) : null);
+            e.setCweName(names != null && i < names.size() ? names.get(i) : null);
+            rows.add(e);
+        }
+        return rows;
+    }
+
+    private List<tech.cspioneer.backend.entity.VulnerabilityMetadataTimeline> timelineRows(VulnerabilityMetadata vm, List<CosvUpsert.TimePoint> tps) {
+        List<tech.cspioneer.backend.entity.VulnerabilityMetadataTimeline> rows = new ArrayList<>();
+        for (var t : tps) { if (t == null || t.getType() == null || t.getValue() == null) continue; tech.cspioneer.backend.entity.VulnerabilityMetadataTimeline e = new tech.cspioneer.backend.entity.VulnerabilityMetadataTimeline(); e.setVulnerabilityMetadataId(vm.getId()); e.setType(t.getType()); e.setValue(parseRfc3339(t.getValue())); rows.add(e);}
+        return rows;
+    }
+
+    private List<tech.cspioneer.backend.entity.VulnerabilityMetadataSeverity> severityRows(VulnerabilityMetadata vm, List<CosvUpsert.SeverityItem> sevs) {
+        List<tech.cspioneer.backend.entity.VulnerabilityMetadataSeverity> rows = new ArrayList<>();
+        for (var s : sevs) { if (s == null) continue; tech.cspioneer.backend.entity.VulnerabilityMetadataSeverity e = new tech.cspioneer.backend.entity.VulnerabilityMetadataSeverity(); e.setVulnerabilityMetadataId(vm.getId()); e.setType(s.getType()); e.setScore(s.getScore()); e.setLevel(s.getLevel()); e.setScoreNum(s.getScoreNum()); rows.add(e);}
+        return rows;
+    }
+
+    private List<CosvAggregateLoader.AffectedNode> affectedNodes(VulnerabilityMetadata vm, List<CosvUpsert.Affected> list) {
+        List<CosvAggregateLoader.AffectedNode> nodes = new ArrayList<>();
         for (var a : list) {
             if (a == null || a.getPkg() == null) continue;
             var ps = a.getPkg();
@@ -1173,62 +1751,69 @@ public class VulnerabilityService {
             }
             if (a.getSeverity() != null) pkgDbSpec.put("severity", a.getSeverity());
             pkg.setDatabaseSpecific(stringifyJsonOrNull(pkgDbSpec.isEmpty() ? null : pkgDbSpec));
-            affectedPackageMapper.insert(pkg);
+            var node = new CosvAggregateLoader.AffectedNode(pkg);
 
             // commits
-            if (ps.getIntroducedCommits() != null) for (String c : ps.getIntroducedCommits()) { if (c == null || c.isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityAffectedCommit ec = new tech.cspioneer.backend.entity.VulnerabilityAffectedCommit(); ec.setPackageId(pkg.getId()); ec.setCommitType("INTRODUCED"); ec.setCommitId(c); affectedCommitMapper.insert(ec);}            
-            if (ps.getFixedCommits() != null) for (String c : ps.getFixedCommits()) { if (c == null || c.isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityAffectedCommit ec = new tech.cspioneer.backend.entity.VulnerabilityAffectedCommit(); ec.setPackageId(pkg.getId()); ec.setCommitType("FIXED"); ec.setCommitId(c); affectedCommitMapper.insert(ec);}            
+            if (ps.getIntroducedCommits() != null) for (String c : ps.getIntroducedCommits()) { if (c == null || c.isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityAffectedCommit ec = new tech.cspioneer.backend.entity.VulnerabilityAffectedCommit(); ec.setCommitType("INTRODUCED"); ec.setCommitId(c); node.commits.add(ec);}
+            if (ps.getFixedCommits() != null) for (String c : ps.getFixedCommits()) { if (c == null || c.isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityAffectedCommit ec = new tech.cspioneer.backend.entity.VulnerabilityAffectedCommit(); ec.setCommitType("FIXED"); ec.setCommitId(c); node.commits.add(ec);}
 
             // ranges
             if (a.getRanges() != null) for (var r : a.getRanges()) {
                 tech.cspioneer.backend.entity.VulnerabilityAffectedRange er = new tech.cspioneer.backend.entity.VulnerabilityAffectedRange();
-                er.setPackageId(pkg.getId()); er.setType(r.getType()); er.setRepo(r.getRepo()); er.setDatabaseSpecific(stringifyJsonOrNull(r.getDatabaseSpecific()));
-                affectedRangeMapper.insert(er);
+                er.setType(r.getType()); er.setRepo(r.getRepo()); er.setDatabaseSpecific(stringifyJsonOrNull(r.getDatabaseSpecific()));
+                var rn = new CosvAggregateLoader.RangeNode(er);
                 if (r.getEvents() != null) for (var ev : r.getEvents()) {
                     if (ev == null || ev.isEmpty() || ev.size() != 1) throw new ApiException(400, "ranges.events 元素必须为单键对象");
                     Map.Entry<String, String> e = ev.entrySet().iterator().next();
                     tech.cspioneer.backend.entity.VulnerabilityAffectedRangeEvent ee = new tech.cspioneer.backend.entity.VulnerabilityAffectedRangeEvent();
-                    ee.setRangeId(er.getId()); ee.setEventType(e.getKey()); ee.setValue(e.getValue());
-                    affectedRangeEventMapper.insert(ee);
+                    ee.setEventType(e.getKey()); ee.setValue(e.getValue());
+                    rn.events.add(ee);
                 }
+                node.ranges.add(rn);
             }
 
             // versions
-            if (a.getVersions() != null) for (String v : a.getVersions()) { if (v == null || v.isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityAffectedVersion ev = new tech.cspioneer.backend.entity.VulnerabilityAffectedVersion(); ev.setPackageId(pkg.getId()); ev.setVersion(v); affectedVersionMapper.insert(ev);}            
+            if (a.getVersions() != null) for (String v : a.getVersions()) { if (v == null || v.isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityAffectedVersion ev = new tech.cspioneer.backend.entity.VulnerabilityAffectedVersion(); ev.setVersion(v); node.versions.add(ev);}
+            nodes.add(node);
         }
+        return nodes;
     }
 
-    private void replacePatchDetails(VulnerabilityMetadata vm, List<CosvUpsert.PatchDetail> list) {
-        if (list == null) return;
-        var olds = patchDetailMapper.listByVulnerabilityId(vm.getId());
-        for (var pd : olds) { patchBranchMapper.deleteByPatchDetailId(pd.getId()); patchTagMapper.deleteByPatchDetailId(pd.getId()); }
-        patchDetailMapper.deleteByVulnerabilityId(vm.getId());
+    private List<CosvAggregateLoader.PatchNode> patchNodes(VulnerabilityMetadata vm, List<CosvUpsert.PatchDetail> list) {
+        List<CosvAggregateLoader.PatchNode> nodes = new ArrayList<>();
         for (var p : list) {
             tech.cspioneer.backend.entity.VulnerabilityPatchDetail e = new tech.cspioneer.backend.entity.VulnerabilityPatchDetail();
             e.setVulnerabilityMetadataId(vm.getId()); e.setPatchUrl(p.getPatchUrl()); e.setIssueUrl(p.getIssueUrl()); e.setMainLanguage(p.getMainLanguage()); e.setAuthor(p.getAuthor()); e.setCommitter(p.getCommitter());
-            patchDetailMapper.insert(e);
-            if (p.getBranches() != null) for (String b : p.getBranches()) { if (b == null || b.isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityPatchBranch br = new tech.cspioneer.backend.entity.VulnerabilityPatchBranch(); br.setPatchDetailId(e.getId()); br.setName(b); patchBranchMapper.insert(br);}            
-            if (p.getTags() != null) for (String t : p.getTags()) { if (t == null || t.isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityPatchTag tg = new tech.cspioneer.backend.entity.VulnerabilityPatchTag(); tg.setPatchDetailId(e.getId()); tg.setName(t); patchTagMapper.insert(tg);}            
+            var node = new CosvAggregateLoader.PatchNode(e);
+            if (p.getBranches() != null) for (String b : p.getBranches()) { if (b == null || b.isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityPatchBranch br = new tech.cspioneer.backend.entity.VulnerabilityPatchBranch(); br.setName(b); node.branches.add(br);}
+            if (p.getTags() != null) for (String t : p.getTags()) { if (t == null || t.isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityPatchTag tg = new tech.cspioneer.backend.entity.VulnerabilityPatchTag(); tg.setName(t); node.tags.add(tg);}
+            nodes.add(node);
         }
+        return nodes;
     }
 
-    private void replaceContributors(VulnerabilityMetadata vm, List<CosvUpsert.Contributor> list) {
-        if (list == null) return;
-        contributorMapper.deleteByVulnerabilityId(vm.getId());
-        for (var c : list) { tech.cspioneer.backend.entity.VulnerabilityContributor e = new tech.cspioneer.backend.entity.VulnerabilityContributor(); e.setVulnerabilityMetadataId(vm.getId()); e.setOrg(c.getOrg()); e.setName(c.getName()); e.setEmail(c.getEmail()); e.setContributions(c.getContributions()); contributorMapper.insert(e);}    }
+    private List<tech.cspioneer.backend.entity.VulnerabilityContributor> contributorRows(VulnerabilityMetadata vm, List<CosvUpsert.Contributor> list) {
+        List<tech.cspioneer.backend.entity.VulnerabilityContributor> rows = new ArrayList<>(list.size());
+        for (var c : list) { tech.cspioneer.backend.entity.VulnerabilityContributor e = new tech.cspioneer.backend.entity.VulnerabilityContributor(); e.setVulnerabilityMetadataId(vm.getId()); e.setOrg(c.getOrg()); e.setName(c.getName()); e.setEmail(c.getEmail()); e.setContributions(c.getContributions()); rows.add(e);}
+        return rows;
+    }
 
-    private void replaceCredits(VulnerabilityMetadata vm, List<CosvUpsert.Credit> list) {
-        if (list == null) return;
-        var olds = creditMapper.listByVulnerabilityId(vm.getId());
-        for (var cr : olds) { creditContactMapper.deleteByCreditId(cr.getId()); }
-        creditMapper.deleteByVulnerabilityId(vm.getId());
-        for (var c : list) { tech.cspioneer.backend.entity.VulnerabilityCredit e = new tech.cspioneer.backend.entity.VulnerabilityCredit(); e.setVulnerabilityMetadataId(vm.getId()); e.setName(c.getName()); e.setType(c.getType()); creditMapper.insert(e); if (c.getContact() != null) for (String ct : c.getContact()) { if (ct == null || ct.isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityCreditContact cc = new tech.cspioneer.backend.entity.VulnerabilityCreditContact(); cc.setCreditId(e.getId()); cc.setContact(ct); creditContactMapper.insert(cc);} }
+    private List<CosvAggregateLoader.CreditNode> creditNodes(VulnerabilityMetadata vm, List<CosvUpsert.Credit> list) {
+        List<CosvAggregateLoader.CreditNode> nodes = new ArrayList<>(list.size());
+        for (var c : list) {
+            tech.cspioneer.backend.entity.VulnerabilityCredit e = new tech.cspioneer.backend.entity.VulnerabilityCredit(); e.setVulnerabilityMetadataId(vm.getId()); e.setName(c.getName()); e.setType(c.getType());
+            var node = new CosvAggregateLoader.CreditNode(e);
+            if (c.getContact() != null) for (String ct : c.getContact()) { if (ct == null || ct.isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityCreditContact cc = new tech.cspioneer.backend.entity.VulnerabilityCreditContact(); cc.setContact(ct); node.contacts.add(cc);}
+            nodes.add(node);
+        }
+        return nodes;
     }
 
-    private void replaceExploitStatus(VulnerabilityMetadata vm, List<String> list) {
-        if (list == null) return;
-        exploitStatusMapper.deleteByVulnerabilityId(vm.getId());
-        for (String s : list) { if (s == null || s.isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityExploitStatus e = new tech.cspioneer.backend.entity.VulnerabilityExploitStatus(); e.setVulnerabilityMetadataId(vm.getId()); e.setStatus(s); exploitStatusMapper.insert(e);}    }
+    private List<tech.cspioneer.backend.entity.VulnerabilityExploitStatus> exploitStatusRows(VulnerabilityMetadata vm, List<String> list) {
+        List<tech.cspioneer.backend.entity.VulnerabilityExploitStatus> rows = new ArrayList<>();
+        for (String s : list) { if (s == null || s.isBlank()) continue; tech.cspioneer.backend.entity.VulnerabilityExploitStatus e = new tech.cspioneer.backend.entity.VulnerabilityExploitStatus(); e.setVulnerabilityMetadataId(vm.getId()); e.setStatus(s); rows.add(e);}
+        return rows;
+    }
 
     private Float aggregateSeverityNum(List<CosvUpsert.SeverityItem> sevs, Float fallback) {
         if (sevs == null || sevs.isEmpty()) return fallback;
@@ -1269,7 +1854,8 @@ public class VulnerabilityService {
         if (t == null) t = tagMapper.findByName(nm);
         if (t == null) throw new ApiException(400, "标签不存在: " + nm);
         linkTagMapper.link(vm.getId(), t.getId());
-        if (esIndexer != null) safeIndex(vm.getUuid());
+        safeIndex(vm.getUuid());
+        invalidateCounts();
     }
 
     @Transactional
@@ -1286,7 +1872,8 @@ public class VulnerabilityService {
             }
         }
         if (t != null) linkTagMapper.unlink(vm.getId(), t.getId());
-        if (esIndexer != null) safeIndex(vm.getUuid());
+        safeIndex(vm.getUuid());
+        invalidateCounts();
     }
 
     @Transactional
@@ -1302,7 +1889,7 @@ public class VulnerabilityService {
     }
 
     private void safeIndex(String uuid) {
-        try { esIndexer.indexOne(uuid); } catch (Exception ignore) {}
+        if (indexDispatcher != null) indexDispatcher.index(uuid);
     }
 
     @Transactional
@@ -1322,10 +1909,9 @@ public class VulnerabilityService {
 
         // 软删除：置状态为 DELETED
         vmMapper.updateStatusReviewByUuid(vulnUuid, tech.cspioneer.backend.enums.VulnerabilityStatus.DELETED.getCode(), null, false, null, null);
-        // ES 删除
-        if (esIndexer != null) {
-            try { esIndexer.deleteOne(vulnUuid); } catch (Exception ignore) {}
-        }
+        // 索引删除
+        if (indexDispatcher != null) indexDispatcher.delete(vulnUuid);
+        invalidateCounts();
     }
 
     @Transactional
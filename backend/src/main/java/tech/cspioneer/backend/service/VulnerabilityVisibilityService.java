@@ -0,0 +1,124 @@
+package tech.cspioneer.backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tech.cspioneer.backend.mapper.OrganizationMapper;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataMapper;
+import tech.cspioneer.backend.search.SearchIndexDispatcher;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 漏洞可见性模型：非管理员可见 = visibility_class 为 PUBLIC，或 organization_id 属于用户的成员组织。
+ * 成员组织集合按用户缓存（短 TTL），成员关系变更时失效本实例缓存（事务内的写在提交后再失效一次），
+ * 其他实例的陈旧窗口不超过 TTL。组织 is_public 变化时刷新该组织下漏洞的 visibility_class，
+ * 并重建这些漏洞的检索索引文档（索引内冗余了 orgIsPublic）。
+ */
+@Service
+@Slf4j
+public class VulnerabilityVisibilityService {
+
+    @Value("${vuln.visibility.member-cache-ttl-seconds:60}")
+    private long ttlSeconds = 60;
+
+    @Value("${vuln.visibility.member-cache-max-entries:10000}")
+    private int maxEntries = 10000;
+
+    private final OrganizationMapper organizationMapper;
+    private final VulnerabilityMetadataMapper vmMapper;
+    private final VulnerabilityCountService countService;
+    private final SearchIndexDispatcher indexDispatcher;
+    private final Map<Long, Entry> cache = new ConcurrentHashMap<>();
+    // 每次失效递增；加载前后代数不一致的结果不入缓存，避免并发读把旧成员关系写回
+    private final AtomicLong generation = new AtomicLong();
+
+    /** 用户所属组织（id 供 SQL 过滤，uuid 供检索引擎可见性判断） */
+    public record MemberOrgs(List<Long> ids, Set<String> uuids) {
+        public static final MemberOrgs NONE = new MemberOrgs(List.of(), Set.of());
+    }
+
+    private record Entry(MemberOrgs value, long expiresAt) {}
+
+    public VulnerabilityVisibilityService(OrganizationMapper organizationMapper,
+                                          VulnerabilityMetadataMapper vmMapper,
+                                          VulnerabilityCountService countService,
+                                          SearchIndexDispatcher indexDispatcher) {
+        this.organizationMapper = organizationMapper;
+        this.vmMapper = vmMapper;
+        this.countService = countService;
+        this.indexDispatcher = indexDispatcher;
+    }
+
+    public MemberOrgs memberOrgs(Long userId) {
+        if (userId == null) return MemberOrgs.NONE;
+        long now = System.currentTimeMillis();
+        Entry e = cache.get(userId);
+        if (e != null && e.expiresAt() > now) return e.value();
+
+        long gen = generation.get();
+        MemberOrgs value = load(userId);
+        if (ttlSeconds > 0 && generation.get() == gen) {
+            if (cache.size() >= maxEntries) {
+                cache.entrySet().removeIf(en -> en.getValue().expiresAt() <= now);
+                if (cache.size() >= maxEntries) cache.clear();
+            }
+            cache.put(userId, new Entry(value, now + ttlSeconds * 1000L));
+        }
+        return value;
+    }
+
+    /** 成员关系变更（加入、移除）后调用 */
+    public void membershipChanged(Long userId) {
+        if (userId == null) return;
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        }
+    }
+
+    /** 组织 is_public 变更后调用：刷新该组织下漏洞的可见性类别与检索索引，并失效依赖可见性的计数/结果缓存 */
+    public void orgVisibilityChanged(Long organizationId) {
+        if (organizationId == null) return;
+        int n = vmMapper.refreshVisibilityClassByOrg(organizationId);
+        log.info("[visibility] org={} visibility changed, refreshed {} vulnerabilities", organizationId, n);
+        reindexOrg(organizationId);
+        countService.invalidate();
+    }
+
+    // 索引文档中的 orgIsPublic 随之失效：按当前数据库状态重建
+    private void reindexOrg(Long organizationId) {
+        List<String> uuids = vmMapper.listUuidsByOrganizationId(organizationId);
+        if (uuids == null || uuids.isEmpty()) return;
+        uuids.forEach(indexDispatcher::index);
+        log.info("[visibility] org={} reindex enqueued for {} vulnerabilities", organizationId, uuids.size());
+    }
+
+    private void evict(Long userId) {
+        generation.incrementAndGet();
+        cache.remove(userId);
+    }
+
+    private MemberOrgs load(Long userId) {
+        var orgs = organizationMapper.listByUserId(userId);
+        if (orgs == null || orgs.isEmpty()) return MemberOrgs.NONE;
+        List<Long> ids = new ArrayList<>();
+        Set<String> uuids = new HashSet<>();
+        for (var ow : orgs) {
+            if (ow == null || ow.getOrganization() == null) continue;
+            if (ow.getOrganization().getId() != null) ids.add(ow.getOrganization().getId());
+            if (ow.getOrganization().getUuid() != null) uuids.add(ow.getOrganization().getUuid());
+        }
+        Collections.sort(ids);
+        return new MemberOrgs(List.copyOf(ids), Set.copyOf(uuids));
+    }
+}
@@ -0,0 +1,70 @@
+package tech.cspioneer.backend.common;
+
+import org.junit.jupiter.api.Test;
+import tech.cspioneer.backend.entity.VulnerabilityMetadata;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeekCursorTests {
+
+    @Test
+    void encodeDecode_roundTripsModifiedAsUtcMillis() {
+        VulnerabilityMetadata vm = new VulnerabilityMetadata();
+        vm.setId(42L);
+        vm.setUuid("u-42");
+        vm.setModified(LocalDateTime.of(2025, 11, 3, 8, 30, 15, 123_000_000));
+
+        String token = SeekCursor.after(vm, null, null).encode();
+        SeekCursor c = SeekCursor.decode(token, "modified", "desc");
+
+        assertEquals("vm.modified", c.getColumn());
+        assertEquals("<", c.getOp());
+        assertEquals(vm.getModified(), c.getValue());
+        assertEquals(42L, c.getId());
+        assertEquals(List.of(vm.getModified().toInstant(java.time.ZoneOffset.UTC).toEpochMilli(), 42L), c.searchAfter());
+    }
+
+    @Test
+    void decode_rejectsCursorWithoutId() {
+        // 旧版 ES 游标只带 uuid，无法在同值记录间续查
+        String legacy = java.util.Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"k\":\"severity\",\"d\":\"desc\",\"v\":7.0,\"u\":\"u-1\"}".getBytes());
+        assertThrows(ApiException.class, () -> SeekCursor.decode(legacy, "severity", "desc"));
+    }
+
+    @Test
+    void decode_rejectsCursorFromDifferentSort() {
+        VulnerabilityMetadata vm = new VulnerabilityMetadata();
+        vm.setId(1L);
+        vm.setSeverityNum(7.5f);
+        String token = SeekCursor.after(vm, "severity", "asc").encode();
+
+        assertEquals(7.5d, SeekCursor.decode(token, "severity", "asc").getValue());
+        ApiException ex = assertThrows(ApiException.class, () -> SeekCursor.decode(token, "severity", "desc"));
+        assertEquals(400, ex.getCode());
+        assertThrows(ApiException.class, () -> SeekCursor.decode("not-a-cursor", "modified", "desc"));
+        assertNull(SeekCursor.decode(" ", "modified", "desc"));
+    }
+
+    @Test
+    void next_onlyWhenPageIsFull() {
+        VulnerabilityMetadata vm = new VulnerabilityMetadata();
+        vm.setId(3L);
+        vm.setModified(LocalDateTime.now());
+        assertNull(SeekCursor.next(List.of(vm), 2, null, null));
+        assertNotNull(SeekCursor.next(List.of(vm, vm), 2, null, null));
+    }
+
+    @Test
+    void relevanceSort_hasNoCursor() {
+        VulnerabilityMetadata vm = new VulnerabilityMetadata();
+        vm.setId(5L);
+        vm.setModified(LocalDateTime.now());
+        assertNull(SeekCursor.next(List.of(vm), 1, "relevance", null));
+        String token = SeekCursor.after(vm, null, null).encode();
+        assertThrows(ApiException.class, () -> SeekCursor.decode(token, "relevance", null));
+    }
+}
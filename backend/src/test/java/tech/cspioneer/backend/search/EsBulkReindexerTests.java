@@ -0,0 +1,70 @@
+package tech.cspioneer.backend.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.entity.StringEntity;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EsBulkReindexerTests {
+
+    private static Response response(String json) throws Exception {
+        Response r = mock(Response.class);
+        when(r.getEntity()).thenReturn(new StringEntity(json, StandardCharsets.UTF_8));
+        return r;
+    }
+
+    private static EsBulkReindexer.Item item(String id) {
+        return new EsBulkReindexer.Item(id, "{\"index\":{\"_id\":\"" + id + "\"}}", "{\"summary\":\"漏洞" + id + "\"}");
+    }
+
+    @Test
+    void splitsByBytesAndRetriesRejectedItems() throws Exception {
+        RestClient es = mock(RestClient.class);
+        List<String> bodies = Collections.synchronizedList(new ArrayList<>());
+        when(es.performRequest(any(Request.class))).thenAnswer(inv -> {
+            Request req = inv.getArgument(0);
+            String body = new String(req.getEntity().getContent().readAllBytes(), StandardCharsets.UTF_8);
+            bodies.add(body);
+            // 第一次见到 b 时返回 429，其余成功
+            boolean rejectB = body.contains("\"_id\":\"b\"") && bodies.stream().filter(x -> x.contains("\"_id\":\"b\"")).count() == 1;
+            StringBuilder items = new StringBuilder();
+            for (String line : body.split("\n")) {
+                if (!line.startsWith("{\"index\"")) continue;
+                if (items.length() > 0) items.append(',');
+                items.append("{\"index\":{\"status\":").append(rejectB && line.contains("\"b\"") ? 429 : 201).append("}}");
+            }
+            return response("{\"errors\":" + rejectB + ",\"items\":[" + items + "]}");
+        });
+        SearchProperties.Es.Reindex cfg = new SearchProperties.Es.Reindex();
+        cfg.setBulkBytes(1024);
+        cfg.setConcurrency(2);
+        cfg.setRetryBackoffMs(1);
+
+        int indexed;
+        try (EsBulkReindexer bulk = new EsBulkReindexer(es, new ObjectMapper(), cfg)) {
+            for (int i = 0; i < 40; i++) bulk.add(item(i == 7 ? "b" : "d" + i));
+            indexed = bulk.finish();
+            assertEquals(0, bulk.failedCount());
+        }
+        assertEquals(40, indexed);
+        assertTrue(bodies.size() > 2, "应按字节数切分为多个批次");
+        assertEquals(2, bodies.stream().filter(x -> x.contains("\"_id\":\"b\"")).count());
+    }
+
+    @Test
+    void utf8Length_countsMultibyteChars() {
+        assertEquals(3, EsBulkReindexer.utf8Length("abc"));
+        assertEquals(6, EsBulkReindexer.utf8Length("漏洞"));
+    }
+}
@@ -0,0 +1,111 @@
+package tech.cspioneer.backend.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EsCircuitBreakerTests {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private SearchProperties.Es.Resilience cfg;
+
+    @BeforeEach
+    void setUp() {
+        cfg = new SearchProperties.Es.Resilience();
+        cfg.setWindowSize(10);
+        cfg.setMinCalls(5);
+        cfg.setFailureRateThreshold(50);
+        cfg.setLatencyPercentile(90);
+        cfg.setSlowCallMs(500);
+        cfg.setOpenMs(10_000);
+    }
+
+    // 放行并立即回报一次调用
+    private static void call(EsCircuitBreaker breaker, long latencyMs, boolean success) {
+        long permit = breaker.tryAcquire();
+        assertNotEquals(EsCircuitBreaker.NO_PERMIT, permit);
+        breaker.record(permit, latencyMs, success);
+    }
+
+    @Test
+    void opensOnFailureRate_thenHalfOpenProbeCloses() {
+        var breaker = new EsCircuitBreaker(cfg, now::get);
+        for (int i = 0; i < 2; i++) call(breaker, 10, true);
+        for (int i = 0; i < 3; i++) call(breaker, 10, false);
+        assertEquals(EsCircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(EsCircuitBreaker.NO_PERMIT, breaker.tryAcquire());
+
+        now.addAndGet(10_000);
+        long probe = breaker.tryAcquire();
+        assertNotEquals(EsCircuitBreaker.NO_PERMIT, probe);
+        assertEquals(EsCircuitBreaker.NO_PERMIT, breaker.tryAcquire(), "半开状态只放行一个探测请求");
+        breaker.record(probe, 20, true);
+        assertEquals(EsCircuitBreaker.State.CLOSED, breaker.state());
+        assertNotEquals(EsCircuitBreaker.NO_PERMIT, breaker.tryAcquire());
+    }
+
+    @Test
+    void opensOnLatencyPercentile_andSlowProbeReopens() {
+        var breaker = new EsCircuitBreaker(cfg, now::get);
+        for (int i = 0; i < 4; i++) call(breaker, 50, true);
+        assertEquals(EsCircuitBreaker.State.CLOSED, breaker.state());
+        call(breaker, 2000, true);
+        assertEquals(EsCircuitBreaker.State.OPEN, breaker.state());
+
+        now.addAndGet(10_000);
+        call(breaker, 900, true);
+        assertEquals(EsCircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(2L, breaker.stats().get("trips"));
+    }
+
+    @Test
+    void staysClosedBelowMinCalls() {
+        var breaker = new EsCircuitBreaker(cfg, now::get);
+        for (int i = 0; i < 4; i++) call(breaker, 5000, false);
+        assertEquals(EsCircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void lateResultsFromEarlierGenerations_areIgnored() {
+        var breaker = new EsCircuitBreaker(cfg, now::get);
+        long stale1 = breaker.tryAcquire();
+        long stale2 = breaker.tryAcquire();
+        for (int i = 0; i < 5; i++) call(breaker, 10, false);
+        assertEquals(EsCircuitBreaker.State.OPEN, breaker.state());
+
+        now.addAndGet(10_000);
+        long probe = breaker.tryAcquire();
+        // 打开前发出的请求在半开期间迟到：不当作探测结果
+        breaker.record(stale1, 10, true);
+        assertEquals(EsCircuitBreaker.State.HALF_OPEN, breaker.state());
+        breaker.record(stale2, 3000, false);
+        assertEquals(EsCircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertEquals(EsCircuitBreaker.NO_PERMIT, breaker.tryAcquire(), "探测仍在进行");
+
+        breaker.record(probe, 20, true);
+        assertEquals(EsCircuitBreaker.State.CLOSED, breaker.state());
+        // 关闭后同样不计入新窗口
+        breaker.record(stale2, 3000, false);
+        assertEquals(0, breaker.stats().get("windowCalls"));
+    }
+
+    @Test
+    void releasedHalfOpenProbe_letsNextRequestProbe() {
+        var breaker = new EsCircuitBreaker(cfg, now::get);
+        for (int i = 0; i < 5; i++) call(breaker, 10, false);
+        assertEquals(EsCircuitBreaker.State.OPEN, breaker.state());
+
+        now.addAndGet(10_000);
+        long probe = breaker.tryAcquire();
+        assertNotEquals(EsCircuitBreaker.NO_PERMIT, probe);
+        breaker.release(probe);
+        assertEquals(EsCircuitBreaker.State.HALF_OPEN, breaker.state());
+        long next = breaker.tryAcquire();
+        assertNotEquals(EsCircuitBreaker.NO_PERMIT, next, "放弃的探测不应卡住半开状态");
+        breaker.record(next, 10, true);
+        assertEquals(EsCircuitBreaker.State.CLOSED, breaker.state());
+    }
+}
@@ -0,0 +1,62 @@
+package tech.cspioneer.backend.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EsIndexQueueTests {
+
+    @Test
+    void flushOnce_coalescesRepeatedUuidsKeepingLastOp() {
+        List<Map<String, EsIndexQueue.Op>> batches = new ArrayList<>();
+        EsIndexQueue queue = new EsIndexQueue(b -> { batches.add(new LinkedHashMap<>(b)); return Set.of(); }, new SearchProperties.Es.Queue());
+
+        queue.offer("a", EsIndexQueue.Op.INDEX);
+        queue.offer("b", EsIndexQueue.Op.INDEX);
+        queue.offer("a", EsIndexQueue.Op.INDEX);
+        queue.offer("b", EsIndexQueue.Op.DELETE);
+        assertEquals(2, queue.depth());
+
+        assertEquals(2, queue.flushOnce());
+        assertEquals(1, batches.size());
+        assertEquals(Map.of("a", EsIndexQueue.Op.INDEX, "b", EsIndexQueue.Op.DELETE), batches.get(0));
+        assertEquals(0, queue.depth());
+        assertEquals(2L, queue.flushedCount());
+    }
+
+    @Test
+    void flushOnce_requeuesFailuresWithBackoffAndDropsAfterMaxRetries() {
+        SearchProperties.Es.Queue cfg = new SearchProperties.Es.Queue();
+        cfg.setInitialBackoffMs(0);
+        cfg.setMaxBackoffMs(0);
+        cfg.setMaxRetries(2);
+        EsIndexQueue queue = new EsIndexQueue(b -> { throw new IllegalStateException("es down"); }, cfg);
+
+        queue.offer("a", EsIndexQueue.Op.INDEX);
+        assertEquals(1, queue.flushOnce());
+        assertEquals(1, queue.depth());
+        assertEquals(1, queue.flushOnce());
+        assertEquals(1, queue.flushOnce());
+        assertEquals(0, queue.depth());
+        assertEquals(2L, queue.retriedCount());
+        assertEquals(1L, queue.droppedCount());
+    }
+
+    @Test
+    void flushOnce_holdsBackEntriesUntilBackoffExpires() {
+        SearchProperties.Es.Queue cfg = new SearchProperties.Es.Queue();
+        cfg.setInitialBackoffMs(60000);
+        EsIndexQueue queue = new EsIndexQueue(b -> b.keySet(), cfg);
+
+        queue.offer("a", EsIndexQueue.Op.INDEX);
+        queue.flushOnce();
+        assertEquals(1, queue.depth());
+        assertEquals(0, queue.flushOnce());
+
+        // 新的变更覆盖退避中的条目，立即可刷
+        queue.offer("a", EsIndexQueue.Op.DELETE);
+        assertEquals(1, queue.flushOnce());
+    }
+}
@@ -0,0 +1,115 @@
+package tech.cspioneer.backend.search;
+
+import org.apache.http.entity.StringEntity;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import tech.cspioneer.backend.common.ApiException;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EsIndexRebuilderTests {
+
+    private static final String OLD = "cosv_vulnerabilities_v1_20250101000000";
+
+    private final RestClient es = mock(RestClient.class);
+    private final EsIndexer indexer = mock(EsIndexer.class);
+    private final VulnerabilityMetadataMapper vmMapper = mock(VulnerabilityMetadataMapper.class);
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> aliasBodies = Collections.synchronizedList(new ArrayList<>());
+    private EsIndexRebuilder rebuilder;
+
+    private static Response response(String json) {
+        Response r = mock(Response.class);
+        when(r.getEntity()).thenReturn(new StringEntity(json, StandardCharsets.UTF_8));
+        return r;
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(es.performRequest(any(Request.class))).thenAnswer(inv -> {
+            Request req = inv.getArgument(0);
+            calls.add(req.getMethod() + " " + req.getEndpoint());
+            if (req.getEndpoint().equals("/_aliases")) {
+                aliasBodies.add(new String(req.getEntity().getContent().readAllBytes(), StandardCharsets.UTF_8));
+            }
+            if (req.getEndpoint().startsWith("/_alias/")) return response("{\"" + OLD + "\":{\"aliases\":{}}}");
+            if (req.getEndpoint().endsWith("/_count")) return response("{\"count\":2}");
+            return response("{\"acknowledged\":true}");
+        });
+        when(indexer.reindexInto(anyString())).thenReturn(2);
+        when(indexer.drainCapture()).thenReturn(Set.of());
+        when(indexer.replayInto(any(), anyString())).thenReturn(Set.of());
+        when(vmMapper.countForIndexing()).thenReturn(2L);
+        rebuilder = new EsIndexRebuilder(es, new SearchProperties(), indexer, vmMapper);
+    }
+
+    private String newIndex() {
+        return calls.stream().filter(c -> c.startsWith("PUT /")).findFirst().orElseThrow().substring("PUT ".length());
+    }
+
+    @Test
+    void rebuild_swapsAliasesAndDropsOldIndex() throws Exception {
+        Map<String, Object> out = rebuilder.rebuild();
+
+        String index = "/" + out.get("index");
+        assertEquals(index, newIndex());
+        assertEquals(2L, out.get("count"));
+        assertFalse(out.containsKey("warning"));
+        assertEquals(1, aliasBodies.size());
+        String actions = aliasBodies.get(0);
+        assertTrue(actions.contains("\"index\":\"" + OLD + "\"") && actions.contains("\"remove\""), actions);
+        assertTrue(actions.contains("\"index\":\"" + out.get("index") + "\"") && actions.contains("\"add\""), actions);
+        assertTrue(calls.contains("DELETE /" + OLD));
+        assertFalse(calls.contains("DELETE " + index));
+        // 切换与最后一轮重放期间暂停增量刷出
+        InOrder order = inOrder(indexer, es);
+        order.verify(indexer).pauseFlushes();
+        order.verify(es).performRequest(argThat(r -> r.getEndpoint().equals("/_aliases")));
+        order.verify(indexer).replayInto(any(), eq(out.get("index").toString()));
+        order.verify(indexer).resumeFlushes();
+        verify(indexer).stopCapture();
+    }
+
+    @Test
+    void rebuild_failureBeforeSwap_dropsNewIndexAndKeepsAliases() {
+        when(vmMapper.countForIndexing()).thenReturn(3L);
+
+        ApiException e = assertThrows(ApiException.class, () -> rebuilder.rebuild());
+
+        assertEquals(1500, e.getCode());
+        assertTrue(calls.contains("DELETE " + newIndex()));
+        assertTrue(aliasBodies.isEmpty());
+        assertFalse(calls.contains("DELETE /" + OLD));
+        verify(indexer, never()).pauseFlushes();
+        verify(indexer).stopCapture();
+    }
+
+    @Test
+    void rebuild_replayFailureAfterSwap_reportsSuccessAndRequeues() throws Exception {
+        // 核对阶段无增量；切换后最后一轮重放拿到 u1 且 _bulk 失败
+        when(indexer.drainCapture()).thenReturn(Set.of(), Set.of("u1"));
+        when(indexer.replayInto(eq(Set.of("u1")), anyString())).thenThrow(new IOException("boom"));
+
+        Map<String, Object> out = rebuilder.rebuild();
+
+        String index = "/" + out.get("index");
+        assertEquals(1, aliasBodies.size());
+        assertNotNull(out.get("warning"));
+        assertFalse(calls.contains("DELETE " + index));
+        assertTrue(calls.contains("DELETE /" + OLD));
+        verify(indexer).indexOne("u1");
+        verify(indexer).resumeFlushes();
+        verify(indexer).stopCapture();
+    }
+}
@@ -0,0 +1,124 @@
+package tech.cspioneer.backend.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.cspioneer.backend.common.SeekCursor;
+import tech.cspioneer.backend.entity.Organization;
+import tech.cspioneer.backend.entity.VulnerabilityMetadata;
+import tech.cspioneer.backend.enums.VulnerabilityStatus;
+import tech.cspioneer.backend.mapper.*;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LocalSearchIndexTests {
+
+    private VulnerabilityMetadataMapper vmMapper;
+    private LocalSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        vmMapper = mock(VulnerabilityMetadataMapper.class);
+        VulnerabilityMetadataAliasMapper aliasMapper = mock(VulnerabilityMetadataAliasMapper.class);
+        TagMapper tagMapper = mock(TagMapper.class);
+        OrganizationMapper orgMapper = mock(OrganizationMapper.class);
+        Organization priv = new Organization();
+        priv.setUuid("org-priv");
+        priv.setIsPublic(false);
+        when(orgMapper.findById(9L)).thenReturn(priv);
+        when(aliasMapper.listByVulnerabilityIds(anyList())).thenReturn(List.of());
+        when(tagMapper.listCodesByVulnerabilityIds(anyList())).thenReturn(List.of());
+        when(vmMapper.scanForIndexing(eq(0L), anyInt())).thenReturn(List.of(
+                vm(1L, "COSV-2025-0001", "SQL 注入 in login", 9.1f, VulnerabilityStatus.ACTIVE, null, 1),
+                vm(2L, "COSV-2025-0002", "XSS in comments", 5.0f, VulnerabilityStatus.ACTIVE, null, 2),
+                vm(3L, "COSV-2025-0003", "SQL 注入 in search", 7.5f, VulnerabilityStatus.ACTIVE, 9L, 3),
+                vm(4L, "COSV-2025-0004", "SQL 注入 draft", 3.0f, VulnerabilityStatus.DELETED, null, 4)));
+        index = new LocalSearchIndex(vmMapper, aliasMapper, tagMapper, mock(CategoryMapper.class), orgMapper);
+        assertEquals(3, index.reindexAll());
+        assertTrue(index.isReady());
+    }
+
+    private static VulnerabilityMetadata vm(long id, String identifier, String summary, float sev,
+                                            VulnerabilityStatus status, Long orgId, int day) {
+        VulnerabilityMetadata vm = new VulnerabilityMetadata();
+        vm.setId(id);
+        vm.setUuid("u" + id);
+        vm.setIdentifier(identifier);
+        vm.setSummary(summary);
+        vm.setSeverityNum(sev);
+        vm.setStatus(status);
+        vm.setOrganizationId(orgId);
+        vm.setModified(LocalDateTime.of(2025, 1, day, 0, 0));
+        return vm;
+    }
+
+    private static LocalSearchIndex.Query query(String q, String sortBy, SeekCursor seek, int limit, SearchVisibility v) {
+        return new LocalSearchIndex.Query(null, null, null, null, null, q, null, null, null,
+                sortBy, "desc", seek, 0, limit, v);
+    }
+
+    @Test
+    void search_matchesSubstringAndAppliesVisibility() {
+        var anon = new SearchVisibility(false, Set.of(), false);
+        var anonPage = index.search(query("sql 注入", "relevance", null, 10, anon));
+        assertEquals(List.of("u1"), anonPage.items().stream().map(VulnerabilityMetadata::getUuid).toList());
+
+        var member = new SearchVisibility(false, Set.of("org-priv"), false);
+        var memberPage = index.search(query("sql 注入", "relevance", null, 10, member));
+        assertEquals(2, memberPage.total());
+        assertNull(memberPage.nextCursor());
+    }
+
+    @Test
+    void search_keysetCursorWalksAllPages() {
+        var admin = new SearchVisibility(true, Set.of(), false);
+        var first = index.search(query(null, "modified", null, 2, admin));
+        assertEquals(List.of("u3", "u2"), first.items().stream().map(VulnerabilityMetadata::getUuid).toList());
+        assertNotNull(first.nextCursor());
+
+        var second = index.search(query(null, "modified", SeekCursor.decode(first.nextCursor(), "modified", "desc"), 2, admin));
+        assertEquals(List.of("u1"), second.items().stream().map(VulnerabilityMetadata::getUuid).toList());
+    }
+
+    @Test
+    void deleteOne_removesFromPostings() {
+        index.deleteOne("u2");
+        var admin = new SearchVisibility(true, Set.of(), false);
+        assertEquals(0, index.search(query("xss", "relevance", null, 10, admin)).total());
+    }
+
+    @Test
+    void writesInsideTransaction_applyOnlyAfterCommit() {
+        var admin = new SearchVisibility(true, Set.of(), false);
+        when(vmMapper.findByUuid("u5")).thenReturn(vm(5L, "COSV-2025-0005", "XSS in profile", 6.0f, VulnerabilityStatus.ACTIVE, null, 5));
+
+        // 回滚：提交前的写不生效
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.indexOne("u5");
+            index.deleteOne("u2");
+            assertEquals(1, index.search(query("xss", "relevance", null, 10, admin)).total());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(1, index.search(query("xss", "relevance", null, 10, admin)).total());
+        verify(vmMapper, never()).findByUuid("u5");
+
+        // 提交：提交后按当时的数据库状态更新
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.indexOne("u5");
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(2, index.search(query("xss", "relevance", null, 10, admin)).total());
+    }
+}
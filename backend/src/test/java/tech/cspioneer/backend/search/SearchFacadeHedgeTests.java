@@ -0,0 +1,67 @@
+package tech.cspioneer.backend.search;
+
+import org.elasticsearch.client.Cancellable;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import tech.cspioneer.backend.mapper.*;
+import tech.cspioneer.backend.service.VulnerabilityService;
+import tech.cspioneer.backend.service.VulnerabilityVisibilityService;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings({"unchecked", "rawtypes"})
+class SearchFacadeHedgeTests {
+
+    private RestClient es;
+    private Cancellable cancellable;
+    private SearchFacade facade;
+
+    @BeforeEach
+    void setUp() {
+        SearchProperties props = new SearchProperties();
+        props.setEngine("es");
+        props.getEs().setEnabled(true);
+        var cfg = props.getEs().getResilience();
+        cfg.setHedgeDelayMs(5);
+        cfg.setTimeoutMs(5_000);
+        cfg.setWindowSize(10);
+        cfg.setMinCalls(3);
+        cfg.setFailureRateThreshold(50);
+        // ES 一直不返回（比对冲延迟慢，但未超时）
+        es = mock(RestClient.class);
+        cancellable = mock(Cancellable.class);
+        when(es.performRequestAsync(any(), any())).thenReturn(cancellable);
+        ObjectProvider esProvider = mock(ObjectProvider.class);
+        when(esProvider.getIfAvailable()).thenReturn(es);
+        facade = new SearchFacade(props, mock(VulnerabilityService.class), esProvider, mock(ObjectProvider.class), mock(ObjectProvider.class),
+                mock(UserMapper.class), mock(OrganizationMapper.class), mock(LnkUserOrganizationMapper.class),
+                mock(VulnerabilityMetadataMapper.class), mock(VulnerabilityVisibilityService.class), mock(ObjectProvider.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        facade.shutdown();
+    }
+
+    @Test
+    void hedgeWins_doNotOpenBreaker() {
+        for (int i = 0; i < 10; i++) {
+            var res = facade.search(null, null, null, null, null, null, null, null, null, 1, 10, null, null, false, null, false);
+            assertTrue(res.items().isEmpty());
+        }
+
+        Map<String, Object> stats = facade.resilienceStats();
+        assertEquals("CLOSED", stats.get("state"));
+        assertEquals(0, stats.get("windowCalls"), "对冲胜出取消的 ES 调用不计入窗口");
+        assertEquals(10L, ((Map) stats.get("served")).get("sql:hedge"));
+        verify(es, times(10)).performRequestAsync(any(), any());
+        verify(cancellable, times(10)).cancel();
+    }
+}
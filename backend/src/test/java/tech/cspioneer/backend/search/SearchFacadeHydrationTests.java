@@ -0,0 +1,142 @@
+package tech.cspioneer.backend.search;
+
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import tech.cspioneer.backend.entity.Organization;
+import tech.cspioneer.backend.entity.VulnerabilityMetadata;
+import tech.cspioneer.backend.enums.VulnerabilityStatus;
+import tech.cspioneer.backend.mapper.*;
+import tech.cspioneer.backend.service.VulnerabilityService;
+import tech.cspioneer.backend.service.VulnerabilityVisibilityService;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings({"unchecked", "rawtypes"})
+class SearchFacadeHydrationTests {
+
+    private SearchProperties props;
+    private VulnerabilityMetadataMapper vmMapper;
+    private OrganizationMapper orgMapper;
+    private SearchFacade facade;
+
+    @BeforeEach
+    void setUp() {
+        props = new SearchProperties();
+        vmMapper = mock(VulnerabilityMetadataMapper.class);
+        orgMapper = mock(OrganizationMapper.class);
+        facade = new SearchFacade(props, mock(VulnerabilityService.class), mock(ObjectProvider.class), mock(ObjectProvider.class), mock(ObjectProvider.class),
+                mock(UserMapper.class), orgMapper, mock(LnkUserOrganizationMapper.class), vmMapper, mock(VulnerabilityVisibilityService.class), mock(ObjectProvider.class));
+    }
+
+    private static Map hit(String uuid, String orgUuid, Boolean orgIsPublic, String status) {
+        Map<String, Object> src = new HashMap<>();
+        src.put("uuid", uuid);
+        src.put("identifier", "COSV-" + uuid);
+        src.put("status", status);
+        src.put("schemaVersion", "1.0.0");
+        src.put("organizationUuid", orgUuid);
+        src.put("orgIsPublic", orgIsPublic);
+        return Map.of("_source", src);
+    }
+
+    private static Organization org(String uuid, boolean isPublic) {
+        Organization o = new Organization();
+        o.setUuid(uuid);
+        o.setIsPublic(isPublic);
+        return o;
+    }
+
+    @Test
+    void sourceMode_rendersFromSourceWithoutDbAndFiltersVisibility() {
+        when(orgMapper.listVisibilityByUuids(anyCollection())).thenReturn(List.of(org("org-priv", false), org("org-pub", true)));
+        List<Map> hits = List.of(
+                hit("a", null, null, "ACTIVE"),
+                hit("b", "org-priv", false, "ACTIVE"),
+                hit("c", "org-pub", true, "PENDING"),
+                hit("d", "org-pub", true, "ACTIVE"));
+
+        var anon = facade.hydrate(hits, new SearchVisibility(false, Set.of(), false));
+        assertEquals(List.of("a", "d"), anon.stream().map(v -> v.get("uuid")).toList());
+        assertEquals("COSV-a", anon.get(0).get("identifier"));
+
+        var member = facade.hydrate(hits, new SearchVisibility(false, Set.of("org-priv"), false));
+        assertEquals(List.of("a", "b", "d"), member.stream().map(v -> v.get("uuid")).toList());
+        verifyNoInteractions(vmMapper);
+
+        // 管理员不判定组织可见性
+        clearInvocations(orgMapper);
+        assertEquals(4, facade.hydrate(hits, new SearchVisibility(true, Set.of(), false)).size());
+        verifyNoInteractions(orgMapper);
+    }
+
+    @Test
+    void sourceMode_usesLiveOrgVisibilityOverStaleSource() {
+        // 组织已转为私有，索引文档尚未重建
+        when(orgMapper.listVisibilityByUuids(anyCollection())).thenReturn(List.of(org("org-was-pub", false)));
+        List<Map> hits = List.of(hit("a", "org-was-pub", true, "ACTIVE"), hit("b", null, null, "ACTIVE"));
+
+        var anon = facade.hydrate(hits, new SearchVisibility(false, Set.of(), false));
+        assertEquals(List.of("b"), anon.stream().map(v -> v.get("uuid")).toList());
+
+        var member = facade.hydrate(hits, new SearchVisibility(false, Set.of("org-was-pub"), false));
+        assertEquals(List.of("a", "b"), member.stream().map(v -> v.get("uuid")).toList());
+        verify(orgMapper, times(1)).listVisibilityByUuids(anyCollection());
+    }
+
+    @Test
+    void dbMode_loadsPageWithOneQueryAndKeepsHitOrder() {
+        props.getEs().setHydration("db");
+        Organization priv = new Organization();
+        priv.setId(9L);
+        priv.setUuid("org-priv");
+        priv.setIsPublic(false);
+        when(vmMapper.listByUuids(anyCollection())).thenReturn(List.of(vm("b", 9L), vm("a", null)));
+        when(orgMapper.listByIds(anyCollection())).thenReturn(List.of(priv));
+
+        var views = facade.hydrate(List.of(hit("a", null, null, "ACTIVE"), hit("b", null, null, "ACTIVE")),
+                new SearchVisibility(false, Set.of(), false));
+
+        assertEquals(List.of("a"), views.stream().map(v -> v.get("uuid")).toList());
+        verify(vmMapper, times(1)).listByUuids(anyCollection());
+        verify(vmMapper, never()).findByUuid(any());
+    }
+
+    private static VulnerabilityMetadata vm(String uuid, Long orgId) {
+        VulnerabilityMetadata vm = new VulnerabilityMetadata();
+        vm.setUuid(uuid);
+        vm.setOrganizationId(orgId);
+        vm.setStatus(VulnerabilityStatus.ACTIVE);
+        return vm;
+    }
+
+    @Test
+    void parseFacets_readsTermsAndKeyedRangeBuckets() {
+        Map<String, Object> visible = new HashMap<>();
+        visible.put("language", Map.of("buckets", List.of(Map.of("key", "JAVA", "doc_count", 7), Map.of("key", "GO", "doc_count", 2))));
+        visible.put("severity", Map.of("buckets", Map.of(
+                "CRITICAL", Map.of("doc_count", 1), "HIGH", Map.of("doc_count", 0), "LOW", Map.of("doc_count", 8))));
+        visible.put("tag", Map.of("buckets", List.of()));
+
+        var facets = SearchFacade.parseFacets(Map.of("visible", visible));
+
+        assertEquals(VulnerabilityService.FACET_DIMENSIONS, List.copyOf(facets.keySet()));
+        assertEquals(Map.of("JAVA", 7L, "GO", 2L), facets.get("language"));
+        assertEquals(Map.of("CRITICAL", 1L, "LOW", 8L), facets.get("severity"));
+        assertTrue(facets.get("status").isEmpty());
+        assertTrue(facets.get("tag").isEmpty());
+    }
+
+    @Test
+    void visibilityEsFilter_matchesAllOnlyForAdmin() {
+        assertEquals(Map.of("match_all", Map.of()), new SearchVisibility(true, Set.of(), false).toEsFilter());
+        Map<?, ?> bool = (Map<?, ?>) new SearchVisibility(false, Set.of("org-priv"), false).toEsFilter().get("bool");
+        assertEquals(3, ((List<?>) bool.get("should")).size());
+        assertEquals(1, bool.get("minimum_should_match"));
+    }
+}
@@ -0,0 +1,95 @@
+package tech.cspioneer.backend.search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import tech.cspioneer.backend.service.OutboxService;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class SearchIndexDispatcherTests {
+
+    private OutboxService outbox;
+    private StringRedisTemplate redis;
+    private SearchIndexer es;
+    private SearchIndexer local;
+    private SearchIndexDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        outbox = mock(OutboxService.class);
+        redis = mock(StringRedisTemplate.class);
+        es = mock(SearchIndexer.class);
+        when(es.isShared()).thenReturn(true);
+        local = mock(SearchIndexer.class);
+        ObjectProvider<SearchIndexer> provider = mock(ObjectProvider.class);
+        when(provider.orderedStream()).thenAnswer(inv -> Stream.of(es, local));
+        dispatcher = new SearchIndexDispatcher(outbox, redis, provider);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void outbox_carriesOnlySharedIndexers_localOnesWrittenAndBroadcastAfterCommit() {
+        when(outbox.isEnabled()).thenReturn(true);
+        TransactionSynchronizationManager.initSynchronization();
+
+        dispatcher.index("v1");
+        dispatcher.delete("v2");
+
+        verify(outbox).publish(OutboxService.VULN_INDEX, "v1", null);
+        verify(outbox).publish(OutboxService.VULN_DELETE, "v2", null);
+        verify(es, never()).indexOne(any());
+        verify(local).indexOne("v1");
+        verify(local).deleteOne("v2");
+        verify(redis, never()).convertAndSend(anyString(), anyString());
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        ArgumentCaptor<String> msg = ArgumentCaptor.forClass(String.class);
+        verify(redis, times(2)).convertAndSend(eq(SearchIndexDispatcher.CHANNEL), msg.capture());
+        assertTrue(msg.getAllValues().get(0).endsWith(":I:v1"));
+        assertTrue(msg.getAllValues().get(1).endsWith(":D:v2"));
+    }
+
+    @Test
+    void withoutOutbox_writesAllIndexersDirectly() {
+        dispatcher.index("v1");
+
+        verify(es).indexOne("v1");
+        verify(local).indexOne("v1");
+        verify(outbox, never()).publish(anyString(), anyString(), any());
+    }
+
+    @Test
+    void onMessage_refreshesLocalIndexersForOtherNodesOnly() {
+        dispatcher.index("v1");
+        ArgumentCaptor<String> msg = ArgumentCaptor.forClass(String.class);
+        verify(redis).convertAndSend(eq(SearchIndexDispatcher.CHANNEL), msg.capture());
+        clearInvocations(es, local, redis);
+
+        dispatcher.onMessage(msg.getValue());
+        verifyNoInteractions(es, local);
+
+        dispatcher.onMessage("other-node:D:v9");
+        dispatcher.onMessage("other-node:I:v8");
+        verify(local).deleteOne("v9");
+        verify(local).indexOne("v8");
+        verify(es, never()).indexOne(any());
+        verify(es, never()).deleteOne(any());
+        verifyNoInteractions(redis);
+    }
+}
@@ -0,0 +1,111 @@
+package tech.cspioneer.backend.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.cspioneer.backend.common.SeekCursor;
+import tech.cspioneer.backend.entity.VulnerabilityMetadata;
+import tech.cspioneer.backend.enums.VulnerabilityStatus;
+import tech.cspioneer.backend.mapper.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 同值记录较多时，在一个引擎上取得的游标换到另一个引擎续查不重不漏。
+ * SQL 侧按 listByFiltersAdv 的排序与游标条件在内存中复现：ORDER BY col dir, vm.id dir，
+ * col op= v AND (col op v OR vm.id op id)。
+ */
+class SeekCursorCrossEngineTests {
+
+    private final List<VulnerabilityMetadata> rows = new ArrayList<>();
+    private LocalSearchIndex local;
+
+    @BeforeEach
+    void setUp() {
+        // uuid 顺序与 id 顺序相反，且多数记录严重度相同
+        float[] sev = {7.0f, 7.0f, 9.0f, 7.0f, 7.0f, 5.0f, 7.0f};
+        for (int i = 0; i < sev.length; i++) {
+            VulnerabilityMetadata vm = new VulnerabilityMetadata();
+            vm.setId(i + 1L);
+            vm.setUuid("u" + (9 - i));
+            vm.setIdentifier("COSV-2025-000" + (i + 1));
+            vm.setSummary("s" + i);
+            vm.setSeverityNum(sev[i]);
+            vm.setStatus(VulnerabilityStatus.ACTIVE);
+            vm.setModified(LocalDateTime.of(2025, 1, 1, 0, 0));
+            rows.add(vm);
+        }
+        VulnerabilityMetadataMapper vmMapper = mock(VulnerabilityMetadataMapper.class);
+        VulnerabilityMetadataAliasMapper aliasMapper = mock(VulnerabilityMetadataAliasMapper.class);
+        TagMapper tagMapper = mock(TagMapper.class);
+        when(aliasMapper.listByVulnerabilityIds(anyList())).thenReturn(List.of());
+        when(tagMapper.listCodesByVulnerabilityIds(anyList())).thenReturn(List.of());
+        when(vmMapper.scanForIndexing(eq(0L), anyInt())).thenReturn(rows);
+        local = new LocalSearchIndex(vmMapper, aliasMapper, tagMapper, mock(CategoryMapper.class), mock(OrganizationMapper.class));
+        local.reindexAll();
+    }
+
+    private List<VulnerabilityMetadata> sqlPage(String sortBy, String sortOrder, String cursor, int limit) {
+        SeekCursor seek = SeekCursor.decode(cursor, sortBy, sortOrder);
+        boolean asc = SeekCursor.isAsc(sortOrder);
+        boolean bySeverity = SeekCursor.SORT_SEVERITY.equals(SeekCursor.sortKey(sortBy));
+        Comparator<VulnerabilityMetadata> order = (a, b) -> {
+            int c = bySeverity ? Double.compare(a.getSeverityNum(), b.getSeverityNum()) : a.getModified().compareTo(b.getModified());
+            return c != 0 ? c : Long.compare(a.getId(), b.getId());
+        };
+        if (!asc) order = order.reversed();
+        List<VulnerabilityMetadata> out = new ArrayList<>();
+        for (VulnerabilityMetadata v : rows) {
+            if (seek != null) {
+                int c = bySeverity ? Double.compare(v.getSeverityNum(), (Double) seek.getValue())
+                        : v.getModified().compareTo((LocalDateTime) seek.getValue());
+                if (c == 0) c = Long.compare(v.getId(), seek.getId());
+                if (asc ? c <= 0 : c >= 0) continue;
+            }
+            out.add(v);
+        }
+        out.sort(order);
+        return out.subList(0, Math.min(limit, out.size()));
+    }
+
+    private LocalSearchIndex.Page localPage(String sortBy, String sortOrder, String cursor, int limit) {
+        return local.search(new LocalSearchIndex.Query(null, null, null, null, null, null, null, null, null,
+                sortBy, sortOrder, SeekCursor.decode(cursor, sortBy, sortOrder), 0, limit, new SearchVisibility(true, Set.of(), false)));
+    }
+
+    private static List<Long> ids(List<VulnerabilityMetadata> items) {
+        return items.stream().map(VulnerabilityMetadata::getId).toList();
+    }
+
+    @Test
+    void localCursorResumesOnSqlAndBack_withTiedSeverity() {
+        for (String dir : List.of("desc", "asc")) {
+            List<Long> seen = new ArrayList<>();
+            var p1 = localPage("severity", dir, null, 2);
+            seen.addAll(ids(p1.items()));
+            var p2 = sqlPage("severity", dir, p1.nextCursor(), 2);
+            seen.addAll(ids(p2));
+            String c2 = SeekCursor.next(p2, 2, "severity", dir);
+            var p3 = localPage("severity", dir, c2, 2);
+            seen.addAll(ids(p3.items()));
+            seen.addAll(ids(sqlPage("severity", dir, p3.nextCursor(), 10)));
+
+            List<Long> expected = ids(sqlPage("severity", dir, null, 10));
+            assertEquals(expected, seen, dir);
+        }
+    }
+
+    @Test
+    void esCursorFromSortValues_resumesOnSqlWithoutSkippingTies() {
+        // ES 命中 sort = [severityNum, id]；首页按 (7.0 desc, id desc) 止于 id=5
+        String cursor = SeekCursor.after(7.0f, 5L, "u4", "severity", "desc").encode();
+        assertEquals(List.of(7.0d, 5L), SeekCursor.decode(cursor, "severity", "desc").searchAfter());
+
+        assertEquals(List.of(4L, 2L, 1L, 6L), ids(sqlPage("severity", "desc", cursor, 10)));
+        assertEquals(List.of(4L, 2L, 1L, 6L), ids(localPage("severity", "desc", cursor, 10).items()));
+    }
+}
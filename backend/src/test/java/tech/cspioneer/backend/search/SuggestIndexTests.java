@@ -0,0 +1,98 @@
+package tech.cspioneer.backend.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.cspioneer.backend.entity.Organization;
+import tech.cspioneer.backend.entity.VulnerabilityMetadata;
+import tech.cspioneer.backend.entity.VulnerabilityMetadataAlias;
+import tech.cspioneer.backend.enums.VulnerabilityStatus;
+import tech.cspioneer.backend.mapper.OrganizationMapper;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataAliasMapper;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataMapper;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SuggestIndexTests {
+
+    private static final SearchVisibility ANON = new SearchVisibility(false, Set.of(), false);
+
+    private VulnerabilityMetadataMapper vmMapper;
+    private VulnerabilityMetadataAliasMapper aliasMapper;
+    private SuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        vmMapper = mock(VulnerabilityMetadataMapper.class);
+        aliasMapper = mock(VulnerabilityMetadataAliasMapper.class);
+        OrganizationMapper orgMapper = mock(OrganizationMapper.class);
+        Organization priv = new Organization();
+        priv.setId(9L);
+        priv.setUuid("org-priv");
+        priv.setIsPublic(false);
+        when(orgMapper.listByIds(anyCollection())).thenReturn(List.of(priv));
+        when(vmMapper.scanForIndexing(eq(0L), anyInt())).thenReturn(List.of(
+                vm(1L, "COSV-2025-0001", VulnerabilityStatus.ACTIVE, null),
+                vm(2L, "COSV-2025-0002", VulnerabilityStatus.ACTIVE, null),
+                vm(3L, "COSV-2025-0003", VulnerabilityStatus.ACTIVE, 9L),
+                vm(4L, "COSV-2025-0004", VulnerabilityStatus.DELETED, null)));
+        when(aliasMapper.listByVulnerabilityIds(anyList())).thenReturn(List.of(
+                alias(1L, "CVE-2025-1000"), alias(1L, "GHSA-abcd-0001"), alias(3L, "CVE-2025-1003")));
+        index = new SuggestIndex(vmMapper, aliasMapper, orgMapper);
+        assertEquals(3, index.reindexAll());
+    }
+
+    private static VulnerabilityMetadata vm(long id, String identifier, VulnerabilityStatus status, Long orgId) {
+        VulnerabilityMetadata vm = new VulnerabilityMetadata();
+        vm.setId(id);
+        vm.setUuid("u" + id);
+        vm.setIdentifier(identifier);
+        vm.setStatus(status);
+        vm.setOrganizationId(orgId);
+        return vm;
+    }
+
+    private static VulnerabilityMetadataAlias alias(long vmId, String value) {
+        VulnerabilityMetadataAlias a = new VulnerabilityMetadataAlias();
+        a.setVulnerabilityMetadataId(vmId);
+        a.setValue(value);
+        return a;
+    }
+
+    @Test
+    void prefixMatchesIdentifiersAndAliases_caseInsensitive_respectingVisibility() {
+        var cosv = index.suggest("cosv-2025", 10, ANON);
+        assertEquals(List.of("u1", "u2"), cosv.stream().map(SuggestIndex.Suggestion::uuid).toList());
+
+        var cve = index.suggest("CVE-2025-10", 10, ANON);
+        assertEquals(1, cve.size());
+        assertEquals("CVE-2025-1000", cve.get(0).matched());
+        assertEquals("COSV-2025-0001", cve.get(0).identifier());
+
+        var member = index.suggest("cve-2025-10", 10, new SearchVisibility(false, Set.of("org-priv"), false));
+        assertEquals(List.of("u1", "u3"), member.stream().map(SuggestIndex.Suggestion::uuid).toList());
+        assertEquals(1, index.suggest("COSV", 1, ANON).size());
+    }
+
+    @Test
+    void incrementalUpdatesOverrideSnapshot_andSurviveCompaction() {
+        VulnerabilityMetadata renamed = vm(2L, "COSV-2025-9999", VulnerabilityStatus.ACTIVE, null);
+        when(vmMapper.findByUuid("u2")).thenReturn(renamed);
+        when(aliasMapper.listByVulnerabilityId(2L)).thenReturn(List.of(alias(2L, "GHSA-zzzz-0002")));
+        index.indexOne("u2");
+        index.deleteOne("u1");
+
+        assertEquals(List.of("u2"), index.suggest("cosv", 10, ANON).stream().map(SuggestIndex.Suggestion::uuid).toList());
+        assertEquals("GHSA-zzzz-0002", index.suggest("ghsa", 10, ANON).get(0).matched());
+        assertTrue(index.suggest("cve-2025-1000", 10, ANON).isEmpty());
+
+        index.compact();
+        assertEquals(0, index.stats().get("overlay"));
+        assertEquals(List.of("u2"), index.suggest("cosv", 10, ANON).stream().map(SuggestIndex.Suggestion::uuid).toList());
+        assertTrue(index.suggest("ghsa-abcd", 10, ANON).isEmpty());
+    }
+}
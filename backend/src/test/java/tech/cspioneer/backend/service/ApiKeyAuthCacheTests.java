@@ -0,0 +1,86 @@
+package tech.cspioneer.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import tech.cspioneer.backend.entity.ApiKey;
+import tech.cspioneer.backend.mapper.ApiKeyMapper;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ApiKeyAuthCacheTests {
+
+    private static ApiKeyService.AuthContext ctx(String uuid) {
+        ApiKey k = new ApiKey();
+        k.setId(1L);
+        k.setUuid(uuid);
+        ApiKeyService.AuthContext c = new ApiKeyService.AuthContext();
+        c.key = k;
+        c.userUuid = "u1";
+        c.subjectType = "USER";
+        return c;
+    }
+
+    @Test
+    void get_servesCachedContextUntilEvicted() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        ApiKeyAuthCache cache = new ApiKeyAuthCache(mock(ApiKeyMapper.class), redis);
+        AtomicInteger loads = new AtomicInteger();
+
+        var first = cache.get("p", "h", () -> { loads.incrementAndGet(); return ctx("k1"); });
+        var second = cache.get("p", "h", () -> { loads.incrementAndGet(); return ctx("k1"); });
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+
+        cache.evict("k1");
+        verify(redis).convertAndSend(ApiKeyAuthCache.EVICT_CHANNEL, "k1");
+        assertNull(cache.get("p", "h", () -> { loads.incrementAndGet(); return null; }));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void flush_coalescesUsesPerKey() {
+        ApiKeyMapper mapper = mock(ApiKeyMapper.class);
+        ApiKeyAuthCache cache = new ApiKeyAuthCache(mapper, mock(StringRedisTemplate.class));
+        cache.recordUse(1L, "10.0.0.1");
+        cache.recordUse(1L, "10.0.0.2");
+        cache.recordUse(2L, "10.0.0.3");
+
+        assertEquals(2, cache.flush());
+        verify(mapper).touchBatch(argThat((List<ApiKeyMapper.LastUse> l) -> l.size() == 2
+                && l.stream().anyMatch(u -> u.id() == 1L && "10.0.0.2".equals(u.ip()))));
+        assertEquals(0, cache.flush());
+    }
+
+    @Test
+    void flush_retriesPerKeyAndDropsOnlyFailingRows() {
+        ApiKeyMapper mapper = mock(ApiKeyMapper.class);
+        ApiKeyAuthCache cache = new ApiKeyAuthCache(mapper, mock(StringRedisTemplate.class));
+        when(mapper.touchBatch(argThat((List<ApiKeyMapper.LastUse> l) -> l.stream().anyMatch(u -> u.id() == 2L))))
+                .thenThrow(new RuntimeException("Data too long"));
+        cache.recordUse(1L, "10.0.0.1");
+        cache.recordUse(2L, "10.0.0.2");
+
+        assertEquals(1, cache.flush());
+        verify(mapper).touchBatch(argThat((List<ApiKeyMapper.LastUse> l) -> l.size() == 1 && l.get(0).id() == 1L));
+        // 失败行已丢弃，不再阻塞后续回写
+        clearInvocations(mapper);
+        cache.recordUse(1L, "10.0.0.1");
+        assertEquals(1, cache.flush());
+        verify(mapper, times(1)).touchBatch(anyList());
+    }
+
+    @Test
+    void recordUse_truncatesIpToColumnWidth() {
+        ApiKeyMapper mapper = mock(ApiKeyMapper.class);
+        ApiKeyAuthCache cache = new ApiKeyAuthCache(mapper, mock(StringRedisTemplate.class));
+        cache.recordUse(1L, "1.1.1.1, ".repeat(20));
+
+        cache.flush();
+        verify(mapper).touchBatch(argThat((List<ApiKeyMapper.LastUse> l) -> l.get(0).ip().length() == ApiKeyAuthCache.IP_MAX_LENGTH));
+    }
+}
@@ -0,0 +1,116 @@
+package tech.cspioneer.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.cspioneer.backend.entity.ApiKeyUsageLog;
+import tech.cspioneer.backend.mapper.ApiKeyUsageLogMapper;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ApiKeyUsageRecorderTests {
+
+    @Test
+    void ringBuffer_rejectsWhenFullAndKeepsEveryItemUnderContention() throws Exception {
+        BoundedRingBuffer<Integer> rb = new BoundedRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) assertTrue(rb.offer(i));
+        assertFalse(rb.offer(99));
+        assertEquals(0, rb.poll());
+        assertTrue(rb.offer(4));
+
+        BoundedRingBuffer<Integer> shared = new BoundedRingBuffer<>(1 << 16);
+        int producers = 4, perProducer = 10000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread t = new Thread(() -> {
+                try { start.await(); } catch (InterruptedException ignored) {}
+                for (int i = 0; i < perProducer; i++) assertTrue(shared.offer(base + i));
+            });
+            threads.add(t);
+            t.start();
+        }
+        start.countDown();
+        for (Thread t : threads) t.join();
+        Set<Integer> seen = new HashSet<>();
+        for (Integer v; (v = shared.poll()) != null; ) seen.add(v);
+        assertEquals(producers * perProducer, seen.size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void drainOnce_writesInBatchesAndCountsDrops() {
+        ApiKeyUsageLogMapper mapper = mock(ApiKeyUsageLogMapper.class);
+        ApiKeyUsageRollupService rollup = mock(ApiKeyUsageRollupService.class);
+        ApiKeyUsageRecorder recorder = new ApiKeyUsageRecorder(mapper, rollup, mock(ObjectProvider.class));
+        ReflectionTestUtils.setField(recorder, "bufferSize", 16);
+        ReflectionTestUtils.setField(recorder, "batchSize", 10);
+        ReflectionTestUtils.setField(recorder, "flushIntervalMs", 60000L);
+        recorder.init();
+        recorder.shutdown(); // 停掉后台线程，由测试线程作为唯一消费者
+
+        for (int i = 0; i < 20; i++) recorder.record(new ApiKeyUsageLog());
+        // 容量 16：后 4 条被丢弃，其余按每批 10 条分两批写出
+        assertEquals(16, recorder.drainOnce());
+        assertEquals(4L, recorder.stats().get("dropped"));
+        verify(mapper, times(2)).insertBatch(anyList());
+        verify(rollup, times(2)).apply(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void drainThread_survivesFailedIteration() {
+        ApiKeyUsageLogMapper mapper = mock(ApiKeyUsageLogMapper.class);
+        ApiKeyUsageRollupService rollup = mock(ApiKeyUsageRollupService.class);
+        doThrow(new IllegalStateException("boom")).doNothing().when(rollup).apply(anyList());
+        ApiKeyUsageRecorder recorder = new ApiKeyUsageRecorder(mapper, rollup, mock(ObjectProvider.class));
+        ReflectionTestUtils.setField(recorder, "bufferSize", 16);
+        ReflectionTestUtils.setField(recorder, "batchSize", 1);
+        ReflectionTestUtils.setField(recorder, "flushIntervalMs", 20L);
+        recorder.init();
+        try {
+            recorder.record(new ApiKeyUsageLog());
+            verify(rollup, timeout(2000).times(1)).apply(anyList());
+            recorder.record(new ApiKeyUsageLog());
+            verify(mapper, timeout(2000).times(2)).insertBatch(anyList());
+            verify(rollup, timeout(2000).times(2)).apply(anyList());
+        } finally {
+            recorder.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void drainOnce_retriesFailedBatchPerRowAndDropsOnlyBadRows() {
+        ApiKeyUsageLogMapper mapper = mock(ApiKeyUsageLogMapper.class);
+        ApiKeyUsageRollupService rollup = mock(ApiKeyUsageRollupService.class);
+        ApiKeyUsageRecorder recorder = new ApiKeyUsageRecorder(mapper, rollup, mock(ObjectProvider.class));
+        ReflectionTestUtils.setField(recorder, "bufferSize", 16);
+        ReflectionTestUtils.setField(recorder, "batchSize", 10);
+        ReflectionTestUtils.setField(recorder, "flushIntervalMs", 60000L);
+        recorder.init();
+        recorder.shutdown();
+        when(mapper.insertBatch(argThat((List<ApiKeyUsageLog> l) -> l.stream().anyMatch(e -> "bad".equals(e.getUuid())))))
+                .thenThrow(new RuntimeException("Data too long for column 'request_path'"));
+        for (int i = 0; i < 5; i++) {
+            ApiKeyUsageLog e = new ApiKeyUsageLog();
+            e.setUuid(i == 2 ? "bad" : "u" + i);
+            recorder.record(e);
+        }
+
+        assertEquals(4, recorder.drainOnce());
+        assertEquals(4L, recorder.stats().get("written"));
+        assertEquals(1L, recorder.stats().get("failed"));
+        // 汇总只累加写入成功的记录
+        verify(rollup, times(4)).apply(argThat((List<ApiKeyUsageLog> l) -> l.size() == 1 && !"bad".equals(l.get(0).getUuid())));
+    }
+}
@@ -0,0 +1,53 @@
+package tech.cspioneer.backend.service;
+
+import org.junit.jupiter.api.Test;
+import tech.cspioneer.backend.entity.ApiKeyUsageLog;
+import tech.cspioneer.backend.mapper.ApiKeyUsageRollupMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiKeyUsageRollupServiceTests {
+
+    private static ApiKeyUsageLog log(LocalDateTime ts, String path, int status) {
+        ApiKeyUsageLog l = new ApiKeyUsageLog();
+        l.setApiKeyId(7L);
+        l.setRequestTimestamp(ts);
+        l.setRequestPath(path);
+        l.setResponseStatusCode(status);
+        return l;
+    }
+
+    @Test
+    void aggregate_mergesSameBucketAcrossGranularities() {
+        LocalDateTime t = LocalDateTime.of(2025, 11, 7, 10, 15, 30);
+        List<ApiKeyUsageRollupMapper.Row> rows = ApiKeyUsageRollupService.aggregate(List.of(
+                log(t, "/vulns/123e4567-e89b-12d3-a456-426614174000", 200),
+                log(t.plusSeconds(10), "/vulns/9f1c2d3e-0000-4000-8000-000000000001?x=1", 204),
+                log(t.plusMinutes(1), "/vulns/42", 404)));
+
+        // 2xx 两条落在同一分钟；404 在下一分钟；小时/天级各合并为 2xx、4xx 两行
+        assertEquals(6, rows.size());
+        assertTrue(rows.stream().allMatch(r -> "/vulns/{id}".equals(r.pathTemplate())));
+        var minute2xx = rows.stream().filter(r -> "MINUTE".equals(r.bucketUnit()) && "2xx".equals(r.statusClass())).findFirst().orElseThrow();
+        assertEquals(LocalDateTime.of(2025, 11, 7, 10, 15), minute2xx.bucketStart());
+        assertEquals(2, minute2xx.requestCount());
+        var day = rows.stream().filter(r -> "DAY".equals(r.bucketUnit())).mapToLong(ApiKeyUsageRollupMapper.Row::requestCount).sum();
+        assertEquals(3, day);
+    }
+
+    @Test
+    void range_clampsSpanPerGranularity() {
+        LocalDateTime to = LocalDateTime.of(2025, 11, 7, 10, 15);
+        var r = ApiKeyUsageRollupService.range("minute", to.minusDays(3), to);
+        assertEquals("MINUTE", r.unit());
+        assertEquals(to.plusMinutes(1), r.to());
+        assertEquals(r.to().minusHours(6), r.from());
+
+        var d = ApiKeyUsageRollupService.range(null, null, to);
+        assertEquals("HOUR", d.unit());
+        assertEquals(LocalDateTime.of(2025, 11, 7, 11, 0).minusHours(24), d.from());
+    }
+}
@@ -0,0 +1,66 @@
+package tech.cspioneer.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tech.cspioneer.backend.entity.*;
+import tech.cspioneer.backend.mapper.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CosvAggregateLoaderTests {
+    @Mock VulnerabilityMetadataAliasMapper aliasMapper;
+    @Mock VulnerabilityMetadataRelatedMapper relatedMapper;
+    @Mock VulnerabilityMetadataReferenceMapper referenceMapper;
+    @Mock VulnerabilityMetadataCweMapper cweMapper;
+    @Mock VulnerabilityMetadataTimelineMapper timelineMapper;
+    @Mock VulnerabilityMetadataSeverityMapper severityMapper;
+    @Mock VulnerabilityAffectedPackageMapper affectedPackageMapper;
+    @Mock VulnerabilityAffectedCommitMapper affectedCommitMapper;
+    @Mock VulnerabilityAffectedRangeMapper affectedRangeMapper;
+    @Mock VulnerabilityAffectedRangeEventMapper affectedRangeEventMapper;
+    @Mock VulnerabilityAffectedVersionMapper affectedVersionMapper;
+    @Mock VulnerabilityPatchDetailMapper patchDetailMapper;
+    @Mock VulnerabilityPatchBranchMapper patchBranchMapper;
+    @Mock VulnerabilityPatchTagMapper patchTagMapper;
+    @Mock VulnerabilityContributorMapper contributorMapper;
+    @Mock VulnerabilityCreditMapper creditMapper;
+    @Mock VulnerabilityCreditContactMapper creditContactMapper;
+    @Mock VulnerabilityExploitStatusMapper exploitStatusMapper;
+
+    @InjectMocks CosvAggregateLoader loader;
+
+    @Test
+    void loadAll_groupsChildrenWithOneQueryPerTable() {
+        VulnerabilityMetadataAlias a1 = new VulnerabilityMetadataAlias(); a1.setVulnerabilityMetadataId(1L); a1.setValue("CVE-1");
+        VulnerabilityMetadataAlias a2 = new VulnerabilityMetadataAlias(); a2.setVulnerabilityMetadataId(2L); a2.setValue("CVE-2");
+        when(aliasMapper.listByVulnerabilityIds(anyList())).thenReturn(List.of(a1, a2));
+
+        VulnerabilityAffectedPackage p1 = new VulnerabilityAffectedPackage(); p1.setId(10L); p1.setVulnerabilityMetadataId(1L);
+        VulnerabilityAffectedPackage p2 = new VulnerabilityAffectedPackage(); p2.setId(11L); p2.setVulnerabilityMetadataId(2L);
+        when(affectedPackageMapper.listByVulnerabilityIds(anyList())).thenReturn(List.of(p1, p2));
+        VulnerabilityAffectedRange r = new VulnerabilityAffectedRange(); r.setId(100L); r.setPackageId(11L);
+        when(affectedRangeMapper.listByPackageIds(anyList())).thenReturn(List.of(r));
+        VulnerabilityAffectedRangeEvent ev = new VulnerabilityAffectedRangeEvent(); ev.setRangeId(100L); ev.setEventType("fixed"); ev.setValue("1.0");
+        when(affectedRangeEventMapper.listByRangeIds(anyList())).thenReturn(List.of(ev));
+
+        var out = loader.loadAll(List.of(1L, 2L, 3L));
+
+        assertEquals(List.of(1L, 2L, 3L), List.copyOf(out.keySet()));
+        assertEquals("CVE-1", out.get(1L).aliases.get(0).getValue());
+        assertTrue(out.get(1L).affected.get(0).ranges.isEmpty());
+        assertEquals("1.0", out.get(2L).affected.get(0).ranges.get(0).events.get(0).getValue());
+        assertTrue(out.get(3L).affected.isEmpty());
+        verify(aliasMapper, times(1)).listByVulnerabilityIds(anyList());
+        verify(affectedRangeEventMapper, times(1)).listByRangeIds(eq(List.of(100L)));
+        verify(patchBranchMapper, never()).listByPatchDetailIds(anyList());
+        verify(aliasMapper, never()).listByVulnerabilityId(anyLong());
+    }
+}
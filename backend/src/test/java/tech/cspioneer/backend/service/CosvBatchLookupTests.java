@@ -0,0 +1,67 @@
+package tech.cspioneer.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tech.cspioneer.backend.entity.Category;
+import tech.cspioneer.backend.entity.Tag;
+import tech.cspioneer.backend.mapper.CategoryMapper;
+import tech.cspioneer.backend.mapper.TagMapper;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataAliasMapper;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataMapper;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CosvBatchLookupTests {
+    @Mock VulnerabilityMetadataMapper vmMapper;
+    @Mock VulnerabilityMetadataAliasMapper aliasMapper;
+    @Mock CategoryMapper categoryMapper;
+    @Mock TagMapper tagMapper;
+
+    @Test
+    void prefetch_answersLookupsFromMemory() {
+        when(vmMapper.findUuidsByIdentifiers(anyList())).thenReturn(List.of(Map.of("identifier", "COSV-1", "uuid", "u1")));
+        when(aliasMapper.findOwnersByValues(anyList())).thenReturn(List.of(Map.of("value", "CVE-1", "uuid", "u1")));
+        Category c = new Category(); c.setCode("WEB"); c.setName("Web");
+        when(categoryMapper.listByCodesOrNames(anyList())).thenReturn(List.of(c));
+        Tag t = new Tag(); t.setCode("XSS"); t.setName("跨站脚本");
+        when(tagMapper.listByCodesOrNames(anyList())).thenReturn(List.of(t));
+
+        CosvBatchLookup lookup = new CosvBatchLookup(vmMapper, aliasMapper, categoryMapper, tagMapper);
+        CosvBatchLookup.Keys keys = new CosvBatchLookup.Keys();
+        keys.identifier("COSV-1"); keys.identifier("COSV-2");
+        keys.alias("CVE-1"); keys.alias("CVE-2");
+        keys.category("WEB"); keys.category("Web");
+        keys.tag("XSS"); keys.tag("跨站脚本"); keys.tag("NOPE");
+        lookup.prefetch(keys);
+
+        assertEquals("u1", lookup.vulnerabilityUuid("cosv-1"));
+        assertNull(lookup.vulnerabilityUuid("COSV-2"));
+        assertEquals("u1", lookup.aliasOwner("CVE-1"));
+        assertNull(lookup.aliasOwner("CVE-2"));
+        assertTrue(lookup.categoryExists("WEB"));
+        assertEquals("WEB", lookup.categoryCodeByName("Web"));
+        assertTrue(lookup.tagExists("XSS"));
+        assertFalse(lookup.tagExists("NOPE"));
+        assertEquals("XSS", lookup.tagCode("跨站脚本"));
+
+        lookup.recordWrite("COSV-2", "u2", List.of("CVE-2"));
+        assertEquals("u2", lookup.vulnerabilityUuid("COSV-2"));
+        assertEquals("u2", lookup.aliasOwner("CVE-2"));
+
+        lookup.prefetch(keys);
+        verify(vmMapper, times(1)).findUuidsByIdentifiers(anyList());
+        verify(aliasMapper, times(1)).findOwnersByValues(anyList());
+        verify(vmMapper, never()).findByIdentifier(anyString());
+        verify(aliasMapper, never()).findVulnerabilityUuidByAlias(anyString());
+        verify(tagMapper, never()).findByCode(anyString());
+        verify(categoryMapper, never()).list(any(), anyInt(), anyInt());
+    }
+}
@@ -0,0 +1,118 @@
+package tech.cspioneer.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.core.context.SecurityContextHolder;
+import tech.cspioneer.backend.entity.CosvImportJob;
+import tech.cspioneer.backend.entity.User;
+import tech.cspioneer.backend.enums.UserStatus;
+import tech.cspioneer.backend.mapper.CosvImportJobItemMapper;
+import tech.cspioneer.backend.mapper.CosvImportJobMapper;
+import tech.cspioneer.backend.mapper.UserMapper;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CosvImportJobServiceTests {
+
+    private CosvImportJobMapper jobMapper;
+    private CosvImportService importService;
+    private UserMapper userMapper;
+
+    @BeforeEach
+    void setUp() {
+        jobMapper = mock(CosvImportJobMapper.class);
+        importService = mock(CosvImportService.class);
+        userMapper = mock(UserMapper.class);
+        User u = new User();
+        u.setId(1L);
+        u.setUuid("u1");
+        u.setStatus(UserStatus.ACTIVE);
+        when(userMapper.findByUuid("u1")).thenReturn(u);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    // 两个服务实例共享同一张任务表（同一组 mapper）
+    private CosvImportJobService instance() {
+        return new CosvImportJobService(jobMapper, mock(CosvImportJobItemMapper.class), userMapper, importService);
+    }
+
+    private static CosvImportJob job(String status) {
+        CosvImportJob j = new CosvImportJob();
+        j.setId(5L);
+        j.setUuid("job-5");
+        j.setUserId(1L);
+        j.setStatus(status);
+        j.setParams("{\"userUuid\":\"u1\",\"rawFileUuid\":\"f1\",\"action\":\"AUTO\"}");
+        return j;
+    }
+
+    @Test
+    void tick_recoversOnlyJobsWithExpiredLease() {
+        var service = instance();
+
+        service.tick();
+
+        verify(jobMapper).failStale(anyString(), eq(60L));
+        // 本实例未持有任务时不续约
+        verify(jobMapper, never()).heartbeat(anyString());
+    }
+
+    @Test
+    void cancel_onOtherInstance_isPolledByOwner() throws Exception {
+        var owner = instance();
+        var other = instance();
+        when(jobMapper.findById(5L)).thenReturn(job(CosvImportJobService.RUNNING));
+        when(jobMapper.findByUuid("job-5")).thenReturn(job(CosvImportJobService.RUNNING));
+        when(jobMapper.markRunning(eq(5L), anyString())).thenReturn(1);
+        when(jobMapper.requestCancel(5L)).thenReturn(1);
+        when(jobMapper.listCancelRequested(anyString())).thenReturn(List.of(5L));
+        when(importService.runBatch(any(), any(), any(), any(), any(), any(), any(), any(), any(), any())).thenAnswer(inv -> {
+            AtomicBoolean cancelled = inv.getArgument(8);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!cancelled.get() && System.currentTimeMillis() < deadline) Thread.sleep(5);
+            return new CosvIngestEngine.Summary(3, 3, 0, 10, cancelled.get());
+        });
+
+        var run = CompletableFuture.runAsync(() -> owner.runJob(5L, SecurityContextHolder.createEmptyContext()));
+        ArgumentCaptor<String> ownerId = ArgumentCaptor.forClass(String.class);
+        verify(jobMapper, timeout(2000)).markRunning(eq(5L), ownerId.capture());
+
+        Principal principal = () -> "u1";
+        other.cancel(principal, "job-5");
+        verify(jobMapper).requestCancel(5L);
+        assertFalse(run.isDone(), "取消标记尚未被持有实例读到");
+
+        owner.tick();
+        run.get(5, TimeUnit.SECONDS);
+        verify(jobMapper).heartbeat(ownerId.getValue());
+        verify(jobMapper).finish(eq(5L), eq(ownerId.getValue()), eq(CosvImportJobService.CANCELLED), anyString(), anyLong());
+        // 非持有实例不续约
+        verify(jobMapper, never()).heartbeat(argThat(id -> !id.equals(ownerId.getValue())));
+    }
+
+    @Test
+    void cancel_pendingJob_cancelsDirectlyFromAnyInstance() {
+        var service = instance();
+        when(jobMapper.findByUuid("job-5")).thenReturn(job(CosvImportJobService.PENDING));
+        when(jobMapper.cancelPending(eq(5L), anyString())).thenReturn(1);
+
+        service.cancel(() -> "u1", "job-5");
+
+        verify(jobMapper).cancelPending(eq(5L), anyString());
+        verify(jobMapper, never()).requestCancel(anyLong());
+    }
+}
@@ -0,0 +1,99 @@
+package tech.cspioneer.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import tech.cspioneer.backend.common.ApiException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CosvIngestEngineTests {
+
+    @Test
+    void run_isolatesFailingItemsAndJournalsEveryRecord() throws Exception {
+        PlatformTransactionManager tm = mock(PlatformTransactionManager.class);
+        when(tm.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+        CosvIngestEngine engine = new CosvIngestEngine(tm);
+        engine.init();
+        StringBuilder nd = new StringBuilder();
+        for (int i = 0; i < 50; i++) nd.append("{\"id\":\"V-").append(i).append("\"}\n");
+        nd.append("garbage\n");
+
+        List<CosvIngestEngine.ItemResult> journal = new ArrayList<>();
+        try (var reader = CosvRecordReader.open(new ByteArrayInputStream(nd.toString().getBytes(StandardCharsets.UTF_8)), new ObjectMapper())) {
+            var summary = engine.run(reader, cosv -> {
+                if (cosv.getId().endsWith("7")) throw new ApiException(400, "bad " + cosv.getId());
+                return Map.of("status", "OK", "identifier", cosv.getId());
+            }, journal::add);
+            assertEquals(51, summary.total());
+            assertEquals(6, summary.failed());
+            assertEquals(45, summary.success());
+        } finally {
+            engine.shutdown();
+        }
+        assertEquals(51, journal.size());
+        assertEquals(51, journal.stream().map(CosvIngestEngine.ItemResult::index).distinct().count());
+        verify(tm, atLeastOnce()).commit(any());
+    }
+
+    @Test
+    void run_writesChunkJournalAndSkipsAlreadyRecordedIndexes() throws Exception {
+        PlatformTransactionManager tm = mock(PlatformTransactionManager.class);
+        when(tm.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+        CosvIngestEngine engine = new CosvIngestEngine(tm);
+        engine.init();
+        StringBuilder nd = new StringBuilder();
+        for (int i = 0; i < 20; i++) nd.append("{\"id\":\"V-").append(i).append("\"}\n");
+        nd.append("garbage\n");
+
+        List<Integer> persisted = Collections.synchronizedList(new ArrayList<>());
+        try (var reader = CosvRecordReader.open(new ByteArrayInputStream(nd.toString().getBytes(StandardCharsets.UTF_8)), new ObjectMapper())) {
+            var summary = engine.run(reader, cosv -> Map.of("status", "OK"), r -> {},
+                    i -> i < 10, new java.util.concurrent.atomic.AtomicBoolean(false),
+                    results -> results.forEach(r -> persisted.add(r.index())));
+            assertEquals(11, summary.total());
+        } finally {
+            engine.shutdown();
+        }
+        Collections.sort(persisted);
+        assertEquals(List.of(10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20), persisted);
+    }
+
+    @Test
+    void run_failsChunkOnUnexpectedErrorAndKeepsDraining() throws Exception {
+        PlatformTransactionManager tm = mock(PlatformTransactionManager.class);
+        when(tm.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+        CosvIngestEngine engine = new CosvIngestEngine(tm);
+        org.springframework.test.util.ReflectionTestUtils.setField(engine, "workers", 1);
+        org.springframework.test.util.ReflectionTestUtils.setField(engine, "chunkSize", 5);
+        org.springframework.test.util.ReflectionTestUtils.setField(engine, "queueCapacity", 1);
+        engine.init();
+        StringBuilder nd = new StringBuilder();
+        for (int i = 0; i < 40; i++) nd.append("{\"id\":\"V-").append(i).append("\"}\n");
+
+        List<CosvIngestEngine.ItemResult> journal = new ArrayList<>();
+        try (var reader = CosvRecordReader.open(new ByteArrayInputStream(nd.toString().getBytes(StandardCharsets.UTF_8)), new ObjectMapper())) {
+            var summary = engine.run(reader, cosv -> {
+                // Error 不被逐条保存点捕获，会逃出块事务
+                if (cosv.getId().equals("V-3")) throw new AssertionError("boom");
+                return Map.of("status", "OK");
+            }, r -> {
+                journal.add(r);
+                if (r.index() == 20) throw new IllegalStateException("journal down");
+            });
+            assertEquals(40, summary.total());
+            assertEquals(5, summary.failed()); // V-0..V-4 所在块整块失败
+            assertEquals(35, summary.success());
+        } finally {
+            engine.shutdown();
+        }
+        assertEquals(40, journal.size());
+    }
+}
@@ -0,0 +1,45 @@
+package tech.cspioneer.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CosvRecordReaderTests {
+
+    private final ObjectMapper mapper = new ObjectMapper().setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
+
+    private List<CosvRecordReader.Record> readAll(String content) throws Exception {
+        List<CosvRecordReader.Record> out = new ArrayList<>();
+        try (var reader = CosvRecordReader.open(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), mapper)) {
+            CosvRecordReader.Record r;
+            while ((r = reader.next()) != null) out.add(r);
+        }
+        return out;
+    }
+
+    @Test
+    void ndjson_badLineIsReportedAndReadingContinues() throws Exception {
+        var recs = readAll("{\"id\":\"A\",\"summary\":\"a\"}\n{not json}\n\n{\"id\":\"B\",\"schema_version\":\"1.0.0\"}\n");
+        assertEquals(3, recs.size());
+        assertEquals("A", recs.get(0).cosv().getId());
+        assertNotNull(recs.get(1).error());
+        assertEquals(2, recs.get(2).index());
+        assertEquals("1.0.0", recs.get(2).cosv().getSchemaVersion());
+    }
+
+    @Test
+    void array_wrapperAndPrettyObject() throws Exception {
+        assertEquals(List.of("A", "B"), readAll(" [ {\"id\":\"A\"}, {\"id\":\"B\"} ]").stream().map(r -> r.cosv().getId()).toList());
+        assertEquals(List.of("A", "B"), readAll("{\n  \"items\": [ {\"id\":\"A\"}, {\"id\":\"B\"} ]\n}").stream().map(r -> r.cosv().getId()).toList());
+        var one = readAll("{\n  \"id\": \"C\",\n  \"summary\": \"c\"\n}\n");
+        assertEquals(1, one.size());
+        assertEquals("c", one.get(0).cosv().getSummary());
+    }
+}
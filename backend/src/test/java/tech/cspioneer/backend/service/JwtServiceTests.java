@@ -0,0 +1,48 @@
+package tech.cspioneer.backend.service;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTests {
+
+    private static JwtService service(String secret, String kid, String previousKeys) {
+        JwtService s = new JwtService();
+        ReflectionTestUtils.setField(s, "secret", secret);
+        ReflectionTestUtils.setField(s, "kid", kid);
+        ReflectionTestUtils.setField(s, "previousKeys", previousKeys);
+        ReflectionTestUtils.setField(s, "issuer", "cosv-horizon");
+        ReflectionTestUtils.setField(s, "accessTtl", Duration.ofMinutes(15));
+        ReflectionTestUtils.setField(s, "refreshTtl", Duration.ofDays(30));
+        s.init();
+        return s;
+    }
+
+    @Test
+    void rotation_acceptsPreviousKeysByKidAndLegacyTokens() {
+        String legacy = service("secret-a", "", "").generateAccessToken("u1", "USER");
+        String old = service("secret-a", "k1", "").generateAccessToken("u1", "USER");
+        JwtService rotated = service("secret-b", "k2", "k1:secret-a");
+
+        assertEquals("u1", rotated.parseAccessToken(old).getSubjectUuid());
+        assertEquals("u1", rotated.parseAccessToken(legacy).getSubjectUuid());
+        assertEquals("u1", rotated.parseAccessToken(rotated.generateAccessToken("u1", "USER")).getSubjectUuid());
+
+        // 旧密钥移除后，带旧 kid 的令牌被拒绝
+        JwtService retired = service("secret-b", "k2", "");
+        assertThrows(JWTVerificationException.class, () -> retired.parseAccessToken(old));
+        assertThrows(JWTVerificationException.class, () -> retired.parseAccessToken(legacy));
+    }
+
+    @Test
+    void parse_rejectsWrongTokenType() {
+        JwtService s = service("secret-a", "k1", "");
+        String refresh = s.generateRefreshToken("u1", "USER", null);
+        assertThrows(IllegalArgumentException.class, () -> s.parseAccessToken(refresh));
+        assertEquals("u1", s.parseRefreshToken(refresh).getSubjectUuid());
+    }
+}
@@ -26,6 +26,7 @@ class OrganizationServiceScopeTests {
     @Mock LnkUserOrganizationMapper lnkMapper;
     @Mock UserMapper userMapper;
     @Mock NotificationMapper notificationMapper;
+    @Mock VulnerabilityVisibilityService visibilityService;
 
     @InjectMocks OrganizationService service;
 
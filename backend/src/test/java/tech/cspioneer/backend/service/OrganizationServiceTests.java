@@ -32,6 +32,7 @@ class OrganizationServiceTests {
     @Mock LnkUserOrganizationMapper lnkMapper;
     @Mock UserMapper userMapper;
     @Mock NotificationMapper notificationMapper;
+    @Mock VulnerabilityVisibilityService visibilityService;
 
     @InjectMocks OrganizationService service;
 
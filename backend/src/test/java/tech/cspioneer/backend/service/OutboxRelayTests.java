@@ -0,0 +1,121 @@
+package tech.cspioneer.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import tech.cspioneer.backend.entity.OutboxEvent;
+import tech.cspioneer.backend.mapper.OutboxEventMapper;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTests {
+
+    private static OutboxEvent event(long id, String type, int attempts) {
+        OutboxEvent e = new OutboxEvent();
+        e.setId(id);
+        e.setEventType(type);
+        e.setAggregateUuid("vm-" + id);
+        e.setAttempts(attempts);
+        return e;
+    }
+
+    private static OutboxHandler handler(Set<String> types, Set<Long> failed) {
+        return new OutboxHandler() {
+            @Override public Set<String> eventTypes() { return types; }
+            @Override public Set<Long> handle(List<OutboxEvent> events) { return failed; }
+        };
+    }
+
+    private static OutboxRelay relay(OutboxEventMapper mapper, OutboxHandler... handlers) {
+        return relay(mapper, mock(PlatformTransactionManager.class), handlers);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static OutboxRelay relay(OutboxEventMapper mapper, PlatformTransactionManager txManager, OutboxHandler... handlers) {
+        ObjectProvider<OutboxHandler> provider = mock(ObjectProvider.class);
+        when(provider.orderedStream()).thenAnswer(inv -> Stream.of(handlers));
+        return new OutboxRelay(mapper, txManager, provider);
+    }
+
+    @Test
+    void relayOnce_deletesHandledAndReschedulesFailedWithBackoff() {
+        OutboxEventMapper mapper = mock(OutboxEventMapper.class);
+        when(mapper.lockAvailable(anyInt())).thenReturn(List.of(
+                event(1, OutboxService.VULN_INDEX, 0),
+                event(2, OutboxService.VULN_DELETE, 0),
+                event(3, OutboxService.VULN_POINTS, 3)));
+        OutboxRelay relay = relay(mapper,
+                handler(Set.of(OutboxService.VULN_INDEX, OutboxService.VULN_DELETE), Set.of()),
+                handler(Set.of(OutboxService.VULN_POINTS), Set.of(3L)));
+
+        assertEquals(3, relay.relayOnce());
+
+        verify(mapper).claim(eq(List.of(1L, 2L, 3L)), anyLong());
+        verify(mapper).deleteByIds(List.of(1L, 2L));
+        verify(mapper).reschedule(eq(3L), anyString(), eq(8L));
+    }
+
+    @Test
+    void relayOnce_keepsEventsWithoutHandler() {
+        OutboxEventMapper mapper = mock(OutboxEventMapper.class);
+        when(mapper.lockAvailable(anyInt())).thenReturn(List.of(event(7, "UNKNOWN", 0)));
+        OutboxRelay relay = relay(mapper);
+
+        relay.relayOnce();
+
+        verify(mapper, never()).deleteByIds(any());
+        verify(mapper).reschedule(eq(7L), eq("no handler"), eq(1L));
+    }
+
+    @Test
+    void relayOnce_parksEventAsFailedAfterMaxAttempts() {
+        OutboxEventMapper mapper = mock(OutboxEventMapper.class);
+        when(mapper.lockAvailable(anyInt())).thenReturn(List.of(event(7, "UNKNOWN", 9), event(8, "UNKNOWN", 8)));
+        OutboxRelay relay = relay(mapper);
+
+        relay.relayOnce();
+
+        // 默认上限 10 次：第 10 次失败后停止重试
+        verify(mapper).markFailed(7L, "no handler");
+        verify(mapper, never()).reschedule(eq(7L), anyString(), anyLong());
+        verify(mapper).reschedule(eq(8L), eq("no handler"), anyLong());
+        verify(mapper, never()).markFailed(eq(8L), anyString());
+    }
+
+    @Test
+    void relayOnce_commitsClaimBeforeDispatching() throws Exception {
+        OutboxEventMapper mapper = mock(OutboxEventMapper.class);
+        PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+        when(mapper.lockAvailable(anyInt())).thenReturn(List.of(event(1, OutboxService.VULN_INDEX, 0)));
+        OutboxHandler handler = spy(handler(Set.of(OutboxService.VULN_INDEX), Set.of()));
+        OutboxRelay relay = relay(mapper, txManager, handler);
+
+        relay.relayOnce();
+
+        // 领取事务提交（行锁释放）后才调用处理器，结算不再开事务
+        InOrder order = inOrder(mapper, txManager, handler);
+        order.verify(mapper).lockAvailable(anyInt());
+        order.verify(mapper).claim(List.of(1L), 60L);
+        order.verify(txManager).commit(any());
+        order.verify(handler).handle(anyList());
+        order.verify(mapper).deleteByIds(List.of(1L));
+        verify(txManager, times(1)).getTransaction(any());
+    }
+
+    @Test
+    void relayOnce_returnsZeroWithoutClaimingWhenNothingAvailable() {
+        OutboxEventMapper mapper = mock(OutboxEventMapper.class);
+        when(mapper.lockAvailable(anyInt())).thenReturn(List.of());
+
+        assertEquals(0, relay(mapper).relayOnce());
+
+        verify(mapper, never()).claim(any(), anyLong());
+    }
+}
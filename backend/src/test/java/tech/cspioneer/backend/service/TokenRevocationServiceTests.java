@@ -0,0 +1,58 @@
+package tech.cspioneer.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationServiceTests {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void watermark_isCachedAndUpdatedByRevokeAndMessages() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> ops = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(ops);
+        TokenRevocationService svc = new TokenRevocationService(redis);
+        Instant iat = Instant.ofEpochSecond(1_000);
+
+        // 未吊销同样缓存：第二次不再访问 Redis
+        assertTrue(svc.isIssuedAfter("u1", iat));
+        assertTrue(svc.isIssuedAfter("u1", iat));
+        verify(ops, times(1)).get("jwt:invalidAfter:u1");
+
+        svc.revokeAll("u1");
+        verify(redis).convertAndSend(eq(TokenRevocationService.REVOKE_CHANNEL), startsWith("u1:"));
+        assertFalse(svc.isIssuedAfter("u1", iat));
+
+        // 其他实例推送的水位直接生效，且不会被较小的值覆盖
+        svc.onRevokeMessage("u2:2000");
+        svc.onRevokeMessage("u2:1500");
+        assertEquals(Instant.ofEpochSecond(2000), svc.getInvalidAfter("u2"));
+        verify(ops, never()).get("jwt:invalidAfter:u2");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void expiredEntry_isServedWhenRedisFails() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> ops = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(ops);
+        when(ops.get("jwt:invalidAfter:u1")).thenReturn("500")
+                .thenThrow(new RedisConnectionFailureException("down"));
+        when(ops.get("jwt:invalidAfter:u3")).thenThrow(new RedisConnectionFailureException("down"));
+        TokenRevocationService svc = new TokenRevocationService(redis);
+
+        assertEquals(Instant.ofEpochSecond(500), svc.getInvalidAfter("u1"));
+        svc.cache.put("u1", new TokenRevocationService.Entry(500, 0)); // 模拟 TTL 已过
+        assertEquals(Instant.ofEpochSecond(500), svc.getInvalidAfter("u1"));
+        // 无缓存可用时仍向上抛出（由过滤器按未认证处理）
+        assertThrows(RedisConnectionFailureException.class, () -> svc.getInvalidAfter("u3"));
+    }
+}
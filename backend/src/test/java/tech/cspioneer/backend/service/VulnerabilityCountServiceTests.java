@@ -0,0 +1,40 @@
+package tech.cspioneer.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VulnerabilityCountServiceTests {
+
+    @Test
+    void get_cachesPerSignatureUntilInvalidated() {
+        VulnerabilityCountService svc = new VulnerabilityCountService();
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(42L, svc.get("adv|vis=all", false, cap -> { calls.incrementAndGet(); return 42L; }).value());
+        assertEquals(42L, svc.get("adv|vis=all", false, cap -> { calls.incrementAndGet(); return 0L; }).value());
+        assertEquals(1, calls.get());
+
+        svc.get("adv|vis=u1", false, cap -> { calls.incrementAndGet(); return 7L; });
+        assertEquals(2, calls.get());
+
+        svc.invalidate();
+        assertEquals(43L, svc.get("adv|vis=all", false, cap -> { calls.incrementAndGet(); return 43L; }).value());
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void get_estimatePassesCapAndFlagsApproximate() {
+        VulnerabilityCountService svc = new VulnerabilityCountService();
+
+        var capped = svc.get("sig", true, cap -> { assertEquals(10000, cap); return (long) cap; });
+        assertTrue(capped.approximate());
+        assertEquals(10000L, capped.value());
+
+        var exact = svc.get("sig", false, cap -> { assertNull(cap); return 12345L; });
+        assertFalse(exact.approximate());
+        assertEquals(12345L, exact.value());
+    }
+}
@@ -0,0 +1,106 @@
+package tech.cspioneer.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.cspioneer.backend.entity.User;
+import tech.cspioneer.backend.mapper.UserMapper;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class VulnerabilityQueryCacheTests {
+    private final ObjectMapper om = new ObjectMapper();
+    private StringRedisTemplate redis;
+    private ValueOperations<String, String> ops;
+    private VulnerabilityCountService countService;
+    private UserMapper userMapper;
+    private VulnerabilityVisibilityService visibilityService;
+    private VulnerabilityQueryCache cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redis = mock(StringRedisTemplate.class);
+        ops = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(ops);
+        countService = new VulnerabilityCountService();
+        ObjectProvider<io.micrometer.core.instrument.MeterRegistry> none = mock(ObjectProvider.class);
+        userMapper = mock(UserMapper.class);
+        visibilityService = mock(VulnerabilityVisibilityService.class);
+        cache = new VulnerabilityQueryCache(redis, om, userMapper, visibilityService, countService, none);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+    }
+
+    @AfterEach
+    void clearAuth() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void params_ignoresBlankAndSortsKeysAndCsvValues() {
+        assertEquals(VulnerabilityQueryCache.params("languages", "go, java", "status", " PUBLISHED ", "q", ""),
+                VulnerabilityQueryCache.params("status", "PUBLISHED", "q", null, "languages", "java,go"));
+    }
+
+    @Test
+    void get_freshEntryOfCurrentGenerationSkipsLoader() throws Exception {
+        String entry = om.writeValueAsString(Map.of("g", "3", "f", System.currentTimeMillis() + 60000, "d", Map.of("items", List.of("a"))));
+        when(ops.multiGet(anyList())).thenReturn(Arrays.asList("3", entry));
+        AtomicInteger calls = new AtomicInteger();
+
+        var data = cache.get("search", "p", () -> { calls.incrementAndGet(); return Map.of("items", List.of("b")); });
+        assertEquals(List.of("a"), data.get("items"));
+        assertEquals(0, calls.get());
+
+        // 代数变化后旧条目不可用
+        when(ops.multiGet(anyList())).thenReturn(Arrays.asList("4", entry));
+        data = cache.get("search", "p", () -> { calls.incrementAndGet(); return Map.of("items", List.of("b")); });
+        assertEquals(List.of("b"), data.get("items"));
+        assertEquals(1, calls.get());
+        verify(ops).set(startsWith("vq:search:public:"), contains("\"g\":\"4\""), any());
+    }
+
+    @Test
+    void get_fallsBackToLoaderWhenRedisFails() {
+        when(ops.multiGet(anyList())).thenThrow(new RedisConnectionFailureException("down"));
+        assertEquals(Map.of("ok", 1), cache.get("list", "p", () -> Map.of("ok", 1)));
+        assertEquals(1L, cache.stats().get("errors"));
+    }
+
+    @Test
+    void countInvalidation_bumpsGeneration() {
+        countService.invalidate();
+        verify(ops).increment("vq:gen");
+    }
+
+    @Test
+    void visibilityClass_anonymousAndUserWithoutOrgsShareKeyButMembersDoNot() {
+        // 共用 public 的前提：VulnerabilityService 对二者的组织过滤一致（见 VulnerabilityServiceScopeTests）
+        assertEquals("public", cache.visibilityClass());
+
+        User u = new User();
+        u.setId(5L);
+        when(userMapper.findByUuid("u-5")).thenReturn(u);
+        when(visibilityService.memberOrgs(5L)).thenReturn(VulnerabilityVisibilityService.MemberOrgs.NONE,
+                new VulnerabilityVisibilityService.MemberOrgs(List.of(3L), java.util.Set.of("org-3")));
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("u-5", null, List.of()));
+
+        assertEquals("public", cache.visibilityClass());
+        assertTrue(cache.visibilityClass().startsWith("member:"));
+    }
+}
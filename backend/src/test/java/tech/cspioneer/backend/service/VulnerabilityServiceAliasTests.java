@@ -0,0 +1,41 @@
+package tech.cspioneer.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.cspioneer.backend.common.ApiException;
+import tech.cspioneer.backend.entity.VulnerabilityMetadata;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataAliasMapper;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VulnerabilityServiceAliasTests {
+
+    @Mock VulnerabilityMetadataAliasMapper aliasMapper;
+
+    @InjectMocks VulnerabilityService service;
+
+    @Test
+    void checkAliasConflicts_matchesCaseVariants() {
+        when(aliasMapper.findOwnersByValues(anyList())).thenReturn(List.of(Map.of("value", "CVE-2024-1", "uuid", "other-vm")));
+        VulnerabilityMetadata vm = new VulnerabilityMetadata();
+        vm.setUuid("this-vm");
+
+        ApiException ex = assertThrows(ApiException.class,
+                () -> ReflectionTestUtils.invokeMethod(service, "checkAliasConflicts", vm, List.of("cve-2024-1")));
+        assertEquals(1015, ex.getCode());
+
+        // 自身已有的别名仅大小写不同，不算冲突
+        vm.setUuid("other-vm");
+        assertDoesNotThrow(() -> ReflectionTestUtils.invokeMethod(service, "checkAliasConflicts", vm, List.of(" cve-2024-1 ")));
+    }
+}
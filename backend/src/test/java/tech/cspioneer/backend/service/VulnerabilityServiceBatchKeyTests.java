@@ -0,0 +1,203 @@
+package tech.cspioneer.backend.service;
+
+import org.apache.ibatis.binding.MapperMethod;
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.cspioneer.backend.entity.*;
+import tech.cspioneer.backend.mapper.*;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * 多行插入回填的父表主键：MyBatis 按行序写回 list 元素的 id，服务层据此把子行挂到正确的父行上。
+ */
+@ExtendWith(MockitoExtension.class)
+class VulnerabilityServiceBatchKeyTests {
+
+    @Mock VulnerabilityAffectedPackageMapper affectedPackageMapper;
+    @Mock VulnerabilityAffectedCommitMapper affectedCommitMapper;
+    @Mock VulnerabilityAffectedVersionMapper affectedVersionMapper;
+    @Mock VulnerabilityAffectedRangeMapper affectedRangeMapper;
+    @Mock VulnerabilityAffectedRangeEventMapper affectedRangeEventMapper;
+    @Mock VulnerabilityPatchDetailMapper patchDetailMapper;
+    @Mock VulnerabilityPatchBranchMapper patchBranchMapper;
+    @Mock VulnerabilityPatchTagMapper patchTagMapper;
+    @Mock VulnerabilityCreditMapper creditMapper;
+    @Mock VulnerabilityCreditContactMapper creditContactMapper;
+    @InjectMocks VulnerabilityService service;
+
+    // 模拟自增主键：每次 insertBatch 按行序回填 id，与 MySQL 多行插入的连续自增一致
+    private static <T> void generateKeys(List<T> rows, AtomicLong seq, BiConsumer<T, Long> setId) {
+        for (T row : rows) setId.accept(row, seq.incrementAndGet());
+    }
+
+    private static <T> List<T> captured(List<List<T>> batches) {
+        List<T> out = new ArrayList<>();
+        batches.forEach(out::addAll);
+        return out;
+    }
+
+    @Test
+    void parentMappers_writeGeneratedKeysBackInRowOrder() throws Exception {
+        Configuration cfg = new Configuration();
+        assertKeysAssigned(cfg, VulnerabilityAffectedPackageMapper.class, VulnerabilityAffectedPackage::new, VulnerabilityAffectedPackage::getId);
+        assertKeysAssigned(cfg, VulnerabilityAffectedRangeMapper.class, VulnerabilityAffectedRange::new, VulnerabilityAffectedRange::getId);
+        assertKeysAssigned(cfg, VulnerabilityPatchDetailMapper.class, VulnerabilityPatchDetail::new, VulnerabilityPatchDetail::getId);
+        assertKeysAssigned(cfg, VulnerabilityCreditMapper.class, VulnerabilityCredit::new, VulnerabilityCredit::getId);
+    }
+
+    private static <T> void assertKeysAssigned(Configuration cfg, Class<?> mapper, java.util.function.Supplier<T> factory,
+                                               Function<T, Long> getId) throws Exception {
+        cfg.addMapper(mapper);
+        MappedStatement ms = cfg.getMappedStatement(mapper.getName() + ".insertBatch");
+        assertInstanceOf(Jdbc3KeyGenerator.class, ms.getKeyGenerator(), mapper.getSimpleName());
+
+        List<T> rows = List.of(factory.get(), factory.get(), factory.get());
+        MapperMethod.ParamMap<Object> param = new MapperMethod.ParamMap<>();
+        param.put("list", rows);
+        param.put("param1", rows);
+        ResultSetMetaData md = mock(ResultSetMetaData.class);
+        when(md.getColumnCount()).thenReturn(1);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(md);
+        when(rs.next()).thenReturn(true, true, true, false);
+        when(rs.getLong(1)).thenReturn(101L, 102L, 103L);
+        Statement stmt = mock(Statement.class);
+        when(stmt.getGeneratedKeys()).thenReturn(rs);
+
+        ms.getKeyGenerator().processAfter(null, ms, stmt, param);
+
+        assertEquals(List.of(101L, 102L, 103L), rows.stream().map(getId).toList(), mapper.getSimpleName());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void insertAffectedNodes_linksChildrenToGeneratedParentIdsAcrossChunks() {
+        AtomicLong pkgSeq = new AtomicLong(1000);
+        AtomicLong rangeSeq = new AtomicLong(5000);
+        doAnswer(inv -> { generateKeys(inv.getArgument(0), pkgSeq, VulnerabilityAffectedPackage::setId); return 0; })
+                .when(affectedPackageMapper).insertBatch(anyList());
+        doAnswer(inv -> { generateKeys(inv.getArgument(0), rangeSeq, VulnerabilityAffectedRange::setId); return 0; })
+                .when(affectedRangeMapper).insertBatch(anyList());
+        List<List<VulnerabilityAffectedCommit>> commitBatches = new ArrayList<>();
+        List<List<VulnerabilityAffectedVersion>> versionBatches = new ArrayList<>();
+        List<List<VulnerabilityAffectedRangeEvent>> eventBatches = new ArrayList<>();
+        doAnswer(inv -> { commitBatches.add(new ArrayList<>(inv.getArgument(0))); return 0; }).when(affectedCommitMapper).insertBatch(anyList());
+        doAnswer(inv -> { versionBatches.add(new ArrayList<>(inv.getArgument(0))); return 0; }).when(affectedVersionMapper).insertBatch(anyList());
+        doAnswer(inv -> { eventBatches.add(new ArrayList<>(inv.getArgument(0))); return 0; }).when(affectedRangeEventMapper).insertBatch(anyList());
+
+        // 超过单条语句的行数上限，父表分两批插入
+        int n = 503;
+        List<CosvAggregateLoader.AffectedNode> nodes = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            VulnerabilityAffectedPackage pkg = new VulnerabilityAffectedPackage();
+            pkg.setName("pkg-" + i);
+            var node = new CosvAggregateLoader.AffectedNode(pkg);
+            VulnerabilityAffectedCommit c = new VulnerabilityAffectedCommit();
+            c.setCommitId("commit-of-" + i);
+            node.commits.add(c);
+            VulnerabilityAffectedVersion v = new VulnerabilityAffectedVersion();
+            v.setVersion("version-of-" + i);
+            node.versions.add(v);
+            for (int r = 0; r < (i % 3); r++) {
+                VulnerabilityAffectedRange range = new VulnerabilityAffectedRange();
+                range.setRepo("range-" + i + "-" + r);
+                var rn = new CosvAggregateLoader.RangeNode(range);
+                VulnerabilityAffectedRangeEvent ev = new VulnerabilityAffectedRangeEvent();
+                ev.setValue("event-of-" + i + "-" + r);
+                rn.events.add(ev);
+                node.ranges.add(rn);
+            }
+            nodes.add(node);
+        }
+
+        ReflectionTestUtils.invokeMethod(service, "insertAffectedNodes", nodes);
+
+        verify(affectedPackageMapper, times(2)).insertBatch(anyList());
+        Map<Long, String> pkgNameById = new HashMap<>();
+        Map<Long, String> rangeRepoById = new HashMap<>();
+        for (var node : nodes) {
+            pkgNameById.put(node.pkg.getId(), node.pkg.getName());
+            for (var rn : node.ranges) {
+                rangeRepoById.put(rn.range.getId(), rn.range.getRepo());
+                assertEquals(node.pkg.getId(), rn.range.getPackageId());
+            }
+        }
+        assertEquals(n, pkgNameById.size(), "每个包应得到不同的主键");
+        for (var c : captured(commitBatches)) assertEquals("commit-of-" + pkgNameById.get(c.getPackageId()).substring(4), c.getCommitId());
+        for (var v : captured(versionBatches)) assertEquals("version-of-" + pkgNameById.get(v.getPackageId()).substring(4), v.getVersion());
+        List<VulnerabilityAffectedRangeEvent> events = captured(eventBatches);
+        assertEquals(rangeRepoById.size(), events.size());
+        for (var ev : events) assertEquals("event-of-" + rangeRepoById.get(ev.getRangeId()).substring(6), ev.getValue());
+        assertEquals(n, captured(commitBatches).size());
+        assertEquals(n, captured(versionBatches).size());
+    }
+
+    @Test
+    void insertPatchAndCreditNodes_linkChildrenToGeneratedParentIds() {
+        AtomicLong seq = new AtomicLong(200);
+        doAnswer(inv -> { generateKeys(inv.getArgument(0), seq, VulnerabilityPatchDetail::setId); return 0; })
+                .when(patchDetailMapper).insertBatch(anyList());
+        doAnswer(inv -> { generateKeys(inv.getArgument(0), seq, VulnerabilityCredit::setId); return 0; })
+                .when(creditMapper).insertBatch(anyList());
+        List<VulnerabilityPatchBranch> branches = new ArrayList<>();
+        List<VulnerabilityPatchTag> tags = new ArrayList<>();
+        List<VulnerabilityCreditContact> contacts = new ArrayList<>();
+        doAnswer(inv -> { branches.addAll(inv.getArgument(0)); return 0; }).when(patchBranchMapper).insertBatch(anyList());
+        doAnswer(inv -> { tags.addAll(inv.getArgument(0)); return 0; }).when(patchTagMapper).insertBatch(anyList());
+        doAnswer(inv -> { contacts.addAll(inv.getArgument(0)); return 0; }).when(creditContactMapper).insertBatch(anyList());
+
+        List<CosvAggregateLoader.PatchNode> patches = new ArrayList<>();
+        List<CosvAggregateLoader.CreditNode> credits = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            VulnerabilityPatchDetail d = new VulnerabilityPatchDetail();
+            var pn = new CosvAggregateLoader.PatchNode(d);
+            VulnerabilityPatchBranch b = new VulnerabilityPatchBranch();
+            b.setName("b" + i);
+            pn.branches.add(b);
+            VulnerabilityPatchTag t = new VulnerabilityPatchTag();
+            t.setName("t" + i);
+            pn.tags.add(t);
+            patches.add(pn);
+            VulnerabilityCredit c = new VulnerabilityCredit();
+            c.setName("c" + i);
+            var cn = new CosvAggregateLoader.CreditNode(c);
+            VulnerabilityCreditContact cc = new VulnerabilityCreditContact();
+            cc.setContact("c" + i);
+            cn.contacts.add(cc);
+            credits.add(cn);
+        }
+
+        ReflectionTestUtils.invokeMethod(service, "insertPatchNodes", patches);
+        ReflectionTestUtils.invokeMethod(service, "insertCreditNodes", credits);
+
+        for (int i = 0; i < 3; i++) {
+            Long patchId = patches.get(i).detail.getId();
+            assertNotNull(patchId);
+            assertEquals(patchId, branches.get(i).getPatchDetailId());
+            assertEquals("b" + i, branches.get(i).getName());
+            assertEquals(patchId, tags.get(i).getPatchDetailId());
+            Long creditId = credits.get(i).credit.getId();
+            assertNotNull(creditId);
+            assertEquals(creditId, contacts.get(i).getCreditId());
+            assertEquals(credits.get(i).credit.getName(), contacts.get(i).getContact());
+        }
+    }
+}
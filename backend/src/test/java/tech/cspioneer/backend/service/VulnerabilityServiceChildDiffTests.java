@@ -0,0 +1,517 @@
+package tech.cspioneer.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.cspioneer.backend.dto.CosvUpsert;
+import tech.cspioneer.backend.entity.*;
+import tech.cspioneer.backend.mapper.*;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 更新路径的差异写入：子表以内存表模拟（insertBatch 回填自增主键，deleteBy* 按主键或父键删除），
+ * 加载器按当前表内容组装聚合。差异写入后的表内容须与在空表上全量写入目标负载的结果一致（按多重集比较），
+ * 未变化的行保留原主键，且不留下孤儿子行。
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class VulnerabilityServiceChildDiffTests {
+
+    @Mock VulnerabilityMetadataAliasMapper aliasMapper;
+    @Mock VulnerabilityMetadataRelatedMapper relatedMapper;
+    @Mock VulnerabilityMetadataReferenceMapper referenceMapper;
+    @Mock VulnerabilityMetadataCweMapper cweMapper;
+    @Mock VulnerabilityMetadataTimelineMapper timelineMapper;
+    @Mock VulnerabilityMetadataSeverityMapper severityMapper;
+    @Mock VulnerabilityAffectedPackageMapper affectedPackageMapper;
+    @Mock VulnerabilityAffectedCommitMapper affectedCommitMapper;
+    @Mock VulnerabilityAffectedRangeMapper affectedRangeMapper;
+    @Mock VulnerabilityAffectedRangeEventMapper affectedRangeEventMapper;
+    @Mock VulnerabilityAffectedVersionMapper affectedVersionMapper;
+    @Mock VulnerabilityPatchDetailMapper patchDetailMapper;
+    @Mock VulnerabilityPatchBranchMapper patchBranchMapper;
+    @Mock VulnerabilityPatchTagMapper patchTagMapper;
+    @Mock VulnerabilityContributorMapper contributorMapper;
+    @Mock VulnerabilityCreditMapper creditMapper;
+    @Mock VulnerabilityCreditContactMapper creditContactMapper;
+    @Mock VulnerabilityExploitStatusMapper exploitStatusMapper;
+    @Mock CosvAggregateLoader cosvAggregateLoader;
+
+    @InjectMocks VulnerabilityService service;
+
+    private int writes;
+    private final Table<VulnerabilityMetadataAlias> aliases = new Table<>(VulnerabilityMetadataAlias::getId, VulnerabilityMetadataAlias::setId);
+    private final Table<VulnerabilityMetadataRelated> related = new Table<>(VulnerabilityMetadataRelated::getId, VulnerabilityMetadataRelated::setId);
+    private final Table<VulnerabilityMetadataReference> references = new Table<>(VulnerabilityMetadataReference::getId, VulnerabilityMetadataReference::setId);
+    private final Table<VulnerabilityMetadataCwe> cwes = new Table<>(VulnerabilityMetadataCwe::getId, VulnerabilityMetadataCwe::setId);
+    private final Table<VulnerabilityMetadataTimeline> timeline = new Table<>(VulnerabilityMetadataTimeline::getId, VulnerabilityMetadataTimeline::setId);
+    private final Table<VulnerabilityMetadataSeverity> severities = new Table<>(VulnerabilityMetadataSeverity::getId, VulnerabilityMetadataSeverity::setId);
+    private final Table<VulnerabilityAffectedPackage> packages = new Table<>(VulnerabilityAffectedPackage::getId, VulnerabilityAffectedPackage::setId);
+    private final Table<VulnerabilityAffectedCommit> commits = new Table<>(VulnerabilityAffectedCommit::getId, VulnerabilityAffectedCommit::setId);
+    private final Table<VulnerabilityAffectedVersion> versions = new Table<>(VulnerabilityAffectedVersion::getId, VulnerabilityAffectedVersion::setId);
+    private final Table<VulnerabilityAffectedRange> ranges = new Table<>(VulnerabilityAffectedRange::getId, VulnerabilityAffectedRange::setId);
+    private final Table<VulnerabilityAffectedRangeEvent> events = new Table<>(VulnerabilityAffectedRangeEvent::getId, VulnerabilityAffectedRangeEvent::setId);
+    private final Table<VulnerabilityPatchDetail> patches = new Table<>(VulnerabilityPatchDetail::getId, VulnerabilityPatchDetail::setId);
+    private final Table<VulnerabilityPatchBranch> branches = new Table<>(VulnerabilityPatchBranch::getId, VulnerabilityPatchBranch::setId);
+    private final Table<VulnerabilityPatchTag> tags = new Table<>(VulnerabilityPatchTag::getId, VulnerabilityPatchTag::setId);
+    private final Table<VulnerabilityContributor> contributors = new Table<>(VulnerabilityContributor::getId, VulnerabilityContributor::setId);
+    private final Table<VulnerabilityCredit> credits = new Table<>(VulnerabilityCredit::getId, VulnerabilityCredit::setId);
+    private final Table<VulnerabilityCreditContact> contacts = new Table<>(VulnerabilityCreditContact::getId, VulnerabilityCreditContact::setId);
+    private final Table<VulnerabilityExploitStatus> exploitStatus = new Table<>(VulnerabilityExploitStatus::getId, VulnerabilityExploitStatus::setId);
+    private final List<Table<?>> tables = List.of(aliases, related, references, cwes, timeline, severities, packages, commits, versions,
+            ranges, events, patches, branches, tags, contributors, credits, contacts, exploitStatus);
+
+    private final VulnerabilityMetadata vm = new VulnerabilityMetadata();
+
+    @BeforeEach
+    void setUp() {
+        vm.setId(1L);
+        vm.setUuid("vm-1");
+        when(aliasMapper.insertBatch(anyList())).thenAnswer(inv -> aliases.insert(inv.getArgument(0)));
+        when(aliasMapper.deleteByIds(anyList())).thenAnswer(inv -> aliases.delete(inv.getArgument(0)));
+        when(relatedMapper.insertBatch(anyList())).thenAnswer(inv -> related.insert(inv.getArgument(0)));
+        when(relatedMapper.deleteByIds(anyList())).thenAnswer(inv -> related.delete(inv.getArgument(0)));
+        when(referenceMapper.insertBatch(anyList())).thenAnswer(inv -> references.insert(inv.getArgument(0)));
+        when(referenceMapper.deleteByIds(anyList())).thenAnswer(inv -> references.delete(inv.getArgument(0)));
+        when(cweMapper.insertBatch(anyList())).thenAnswer(inv -> cwes.insert(inv.getArgument(0)));
+        when(cweMapper.deleteByIds(anyList())).thenAnswer(inv -> cwes.delete(inv.getArgument(0)));
+        when(timelineMapper.insertBatch(anyList())).thenAnswer(inv -> timeline.insert(inv.getArgument(0)));
+        when(timelineMapper.deleteByIds(anyList())).thenAnswer(inv -> timeline.delete(inv.getArgument(0)));
+        when(severityMapper.insertBatch(anyList())).thenAnswer(inv -> severities.insert(inv.getArgument(0)));
+        when(severityMapper.deleteByIds(anyList())).thenAnswer(inv -> severities.delete(inv.getArgument(0)));
+        when(contributorMapper.insertBatch(anyList())).thenAnswer(inv -> contributors.insert(inv.getArgument(0)));
+        when(contributorMapper.deleteByIds(anyList())).thenAnswer(inv -> contributors.delete(inv.getArgument(0)));
+        when(exploitStatusMapper.insertBatch(anyList())).thenAnswer(inv -> exploitStatus.insert(inv.getArgument(0)));
+        when(exploitStatusMapper.deleteByIds(anyList())).thenAnswer(inv -> exploitStatus.delete(inv.getArgument(0)));
+
+        when(affectedPackageMapper.insertBatch(anyList())).thenAnswer(inv -> packages.insert(inv.getArgument(0)));
+        when(affectedPackageMapper.deleteByIds(anyList())).thenAnswer(inv -> packages.delete(inv.getArgument(0)));
+        when(affectedPackageMapper.updateById(any())).thenAnswer(inv -> packages.update(inv.getArgument(0)));
+        when(affectedCommitMapper.insertBatch(anyList())).thenAnswer(inv -> commits.insert(inv.getArgument(0)));
+        when(affectedCommitMapper.deleteByIds(anyList())).thenAnswer(inv -> commits.delete(inv.getArgument(0)));
+        when(affectedCommitMapper.deleteByPackageIds(anyList())).thenAnswer(inv -> commits.deleteByParent(VulnerabilityAffectedCommit::getPackageId, inv.getArgument(0)));
+        when(affectedVersionMapper.insertBatch(anyList())).thenAnswer(inv -> versions.insert(inv.getArgument(0)));
+        when(affectedVersionMapper.deleteByIds(anyList())).thenAnswer(inv -> versions.delete(inv.getArgument(0)));
+        when(affectedVersionMapper.deleteByPackageIds(anyList())).thenAnswer(inv -> versions.deleteByParent(VulnerabilityAffectedVersion::getPackageId, inv.getArgument(0)));
+        when(affectedRangeMapper.insertBatch(anyList())).thenAnswer(inv -> ranges.insert(inv.getArgument(0)));
+        when(affectedRangeMapper.deleteByIds(anyList())).thenAnswer(inv -> ranges.delete(inv.getArgument(0)));
+        when(affectedRangeMapper.deleteByPackageIds(anyList())).thenAnswer(inv -> ranges.deleteByParent(VulnerabilityAffectedRange::getPackageId, inv.getArgument(0)));
+        when(affectedRangeMapper.updateDatabaseSpecificById(anyLong(), any())).thenAnswer(inv -> {
+            writes++;
+            ranges.rows.get(inv.<Long>getArgument(0)).setDatabaseSpecific(inv.getArgument(1));
+            return 1;
+        });
+        when(affectedRangeEventMapper.insertBatch(anyList())).thenAnswer(inv -> events.insert(inv.getArgument(0)));
+        when(affectedRangeEventMapper.deleteByIds(anyList())).thenAnswer(inv -> events.delete(inv.getArgument(0)));
+        when(affectedRangeEventMapper.deleteByRangeIds(anyList())).thenAnswer(inv -> events.deleteByParent(VulnerabilityAffectedRangeEvent::getRangeId, inv.getArgument(0)));
+
+        when(patchDetailMapper.insertBatch(anyList())).thenAnswer(inv -> patches.insert(inv.getArgument(0)));
+        when(patchDetailMapper.deleteByIds(anyList())).thenAnswer(inv -> patches.delete(inv.getArgument(0)));
+        when(patchDetailMapper.updateById(any())).thenAnswer(inv -> patches.update(inv.getArgument(0)));
+        when(patchBranchMapper.insertBatch(anyList())).thenAnswer(inv -> branches.insert(inv.getArgument(0)));
+        when(patchBranchMapper.deleteByIds(anyList())).thenAnswer(inv -> branches.delete(inv.getArgument(0)));
+        when(patchBranchMapper.deleteByPatchDetailIds(anyList())).thenAnswer(inv -> branches.deleteByParent(VulnerabilityPatchBranch::getPatchDetailId, inv.getArgument(0)));
+        when(patchTagMapper.insertBatch(anyList())).thenAnswer(inv -> tags.insert(inv.getArgument(0)));
+        when(patchTagMapper.deleteByIds(anyList())).thenAnswer(inv -> tags.delete(inv.getArgument(0)));
+        when(patchTagMapper.deleteByPatchDetailIds(anyList())).thenAnswer(inv -> tags.deleteByParent(VulnerabilityPatchTag::getPatchDetailId, inv.getArgument(0)));
+
+        when(creditMapper.insertBatch(anyList())).thenAnswer(inv -> credits.insert(inv.getArgument(0)));
+        when(creditMapper.deleteByIds(anyList())).thenAnswer(inv -> credits.delete(inv.getArgument(0)));
+        when(creditContactMapper.insertBatch(anyList())).thenAnswer(inv -> contacts.insert(inv.getArgument(0)));
+        when(creditContactMapper.deleteByIds(anyList())).thenAnswer(inv -> contacts.delete(inv.getArgument(0)));
+        when(creditContactMapper.deleteByCreditIds(anyList())).thenAnswer(inv -> contacts.deleteByParent(VulnerabilityCreditContact::getCreditId, inv.getArgument(0)));
+
+        when(cosvAggregateLoader.load(1L)).thenAnswer(inv -> snapshot());
+    }
+
+    // ---- 用例 ----
+
+    @Test
+    void unchangedPayload_writesNothingAndKeepsIds() {
+        assertTrue(apply(full()));
+        var ids = ids();
+        writes = 0;
+
+        assertFalse(apply(full()));
+        assertEquals(0, writes);
+        assertEquals(ids, ids());
+    }
+
+    @Test
+    void leafChildren_changedAddedRemovedAndDuplicates() {
+        CosvUpsert before = new CosvUpsert();
+        before.aliases = List.of("A1", "A2");
+        before.related = List.of("R1", "R2", "DUP", "DUP");
+        before.references = List.of(ref("WEB", "https://a"), ref("WEB", "https://b"), ref("FIX", "https://dup"), ref("FIX", "https://dup"));
+        before.cweIds = List.of("CWE-79", "CWE-79", "CWE-89");
+        before.cweNames = List.of("XSS", "XSS", "SQLi");
+        before.timeLine = List.of(tp("disclosed", "2024-01-01T00:00:00Z"), tp("fixed", "2024-02-01T00:00:00Z"));
+        before.severity = List.of(sev("CVSS_V3", "AV:N", "HIGH", 7.5f), sev("CVSS_V3", "AV:N", "HIGH", 7.5f));
+        before.contributors = List.of(contributor("org", "x"), contributor("org", "x"));
+        before.exploitStatus = List.of("POC", "POC", "WILD");
+        apply(before);
+        Long r2 = idOf(related, e -> "R2".equals(e.getValue()));
+        Long firstDup = idOf(related, e -> "DUP".equals(e.getValue()));
+        Long refA = idOf(references, e -> "https://a".equals(e.getUrl()));
+
+        CosvUpsert after = new CosvUpsert();
+        after.aliases = List.of("A2", "A3");
+        after.related = List.of("R2", "DUP", "R3");                                           // 删除 R1 与一条重复，新增 R3
+        after.references = List.of(ref("WEB", "https://a"), ref("ADVISORY", "https://b"), ref("FIX", "https://dup")); // 类型变化
+        after.cweIds = List.of("CWE-79", "CWE-89");
+        after.cweNames = List.of("XSS", "SQL Injection");                                     // 名称变化
+        after.timeLine = List.of(tp("disclosed", "2024-01-01T00:00:00Z"), tp("fixed", "2024-03-01T00:00:00Z"));
+        after.severity = List.of(sev("CVSS_V3", "AV:N", "HIGH", 7.5f), sev("CVSS_V3", "AV:N", "CRITICAL", 9.8f));
+        after.contributors = List.of(contributor("org", "x"), contributor("org", "x"), contributor("org", "y"));
+        after.exploitStatus = List.of("POC", "WILD");
+        assertTrue(apply(after));
+
+        assertNotNull(related.rows.get(r2), "未变化的行保留原主键");
+        assertNotNull(related.rows.get(firstDup), "重复自然键按先后匹配，保留先出现的一条");
+        assertNotNull(references.rows.get(refA));
+        assertEquals(replaced(after), state());
+    }
+
+    @Test
+    void affected_diffsPackagesRangesEventsCommitsAndVersions() {
+        CosvUpsert before = new CosvUpsert();
+        before.affected = List.of(
+                affected("npm", "a", "js", List.of("1.0", "1.1"), List.of("c1"), List.of("c2"),
+                        range("SEMVER", null, null, Map.of("introduced", "0"), Map.of("fixed", "1.2"))),
+                affected("npm", "b", "js", List.of("2.0"), List.of(), List.of(), range("ECOSYSTEM", null, null, Map.of("introduced", "0"))),
+                affected("npm", "dup", "js", List.of("x"), List.of(), List.of()),
+                affected("npm", "dup", "js", List.of("y"), List.of(), List.of()));
+        apply(before);
+        Long pkgA = idOf(packages, p -> "a".equals(p.getName()));
+        Long semver = idOf(ranges, r -> "SEMVER".equals(r.getType()));
+        Long introduced = idOf(events, e -> "introduced".equals(e.getEventType()) && semver.equals(e.getRangeId()));
+        Long v11 = idOf(versions, v -> "1.1".equals(v.getVersion()));
+
+        CosvUpsert after = new CosvUpsert();
+        after.affected = List.of(
+                // 包属性变化、版本增删、提交变化、范围内事件变化、范围 database_specific 变化、新增 GIT 范围
+                affected("npm", "a", "ts", List.of("1.1", "1.2"), List.of("c1"), List.of("c3"),
+                        range("SEMVER", null, Map.of("source", "nvd"), Map.of("introduced", "0"), Map.of("fixed", "1.3")),
+                        range("GIT", "https://repo", null, Map.of("introduced", "c1"))),
+                // 重复的包只保留一个：与先出现的 dup(x) 匹配，版本改为 y；另一个 dup 整体删除
+                affected("npm", "dup", "js", List.of("y"), List.of(), List.of()),
+                affected("pypi", "c", "python", List.of("3.0"), List.of(), List.of(), range("ECOSYSTEM", null, null, Map.of("introduced", "0"))));
+        assertTrue(apply(after));
+
+        assertEquals("ts", packages.rows.get(pkgA).getLanguage());
+        assertNotNull(ranges.rows.get(semver));
+        assertNotNull(events.rows.get(introduced));
+        assertNotNull(versions.rows.get(v11));
+        assertEquals(3, packages.rows.size(), "包 b 与一个重复包已删除，新增包 c");
+        assertNoOrphans();
+        assertEquals(replaced(after), state());
+    }
+
+    @Test
+    void patchDetails_diffsDetailsBranchesAndTags() {
+        CosvUpsert before = new CosvUpsert();
+        before.patchDetails = List.of(
+                patch("https://p/1", "https://i/1", List.of("main", "dev"), List.of("v1")),
+                patch("https://p/2", null, List.of("main"), List.of()),
+                patch("https://p/dup", null, List.of("b1"), List.of()),
+                patch("https://p/dup", null, List.of("b2"), List.of()));
+        apply(before);
+        Long p1 = idOf(patches, p -> "https://p/1".equals(p.getPatchUrl()));
+        Long main = idOf(branches, b -> "main".equals(b.getName()) && p1.equals(b.getPatchDetailId()));
+
+        CosvUpsert after = new CosvUpsert();
+        after.patchDetails = List.of(
+                patch("https://p/1", "https://i/1b", List.of("main", "release"), List.of("v1")),
+                patch("https://p/dup", null, List.of("b2"), List.of()),
+                patch("https://p/3", null, List.of(), List.of("v3")));
+        assertTrue(apply(after));
+
+        assertEquals("https://i/1b", patches.rows.get(p1).getIssueUrl());
+        assertNotNull(branches.rows.get(main));
+        assertNoOrphans();
+        assertEquals(replaced(after), state());
+    }
+
+    @Test
+    void credits_diffsCreditsAndContacts() {
+        CosvUpsert before = new CosvUpsert();
+        before.credits = List.of(
+                credit("alice", "FINDER", "a@x", "b@x"),
+                credit("bob", "REPORTER", "bob@x"),
+                credit("dup", "OTHER", "1"),
+                credit("dup", "OTHER", "2"));
+        apply(before);
+        Long alice = idOf(credits, c -> "alice".equals(c.getName()));
+        Long aliceMail = idOf(contacts, c -> "a@x".equals(c.getContact()));
+
+        CosvUpsert after = new CosvUpsert();
+        after.credits = List.of(
+                credit("alice", "FINDER", "a@x", "c@x"),
+                credit("dup", "OTHER", "2"),
+                credit("carol", "FINDER"));
+        assertTrue(apply(after));
+
+        assertNotNull(credits.rows.get(alice));
+        assertNotNull(contacts.rows.get(aliceMail));
+        assertNoOrphans();
+        assertEquals(replaced(after), state());
+    }
+
+    // ---- 执行与比较 ----
+
+    private boolean apply(CosvUpsert cosv) {
+        return Boolean.TRUE.equals(ReflectionTestUtils.invokeMethod(service, "upsertCosvChildrenOnUpdate", vm, cosv));
+    }
+
+    // 在空表上写入目标负载后的表内容（即全量替换的结果）
+    private List<String> replaced(CosvUpsert cosv) {
+        tables.forEach(t -> t.rows.clear());
+        apply(cosv);
+        return state();
+    }
+
+    private Map<String, Set<Long>> ids() {
+        Map<String, Set<Long>> m = new LinkedHashMap<>();
+        for (int i = 0; i < tables.size(); i++) m.put("t" + i, new TreeSet<>(tables.get(i).rows.keySet()));
+        return m;
+    }
+
+    private static <T> Long idOf(Table<T> t, java.util.function.Predicate<T> p) {
+        return t.rows.entrySet().stream().filter(e -> p.test(e.getValue())).map(Map.Entry::getKey).findFirst().orElseThrow();
+    }
+
+    // 与主键无关的表内容（子行沿外键归入父行），排序后按多重集比较
+    private List<String> state() {
+        List<String> out = new ArrayList<>();
+        aliases.rows.values().forEach(e -> out.add("alias " + e.getValue()));
+        related.rows.values().forEach(e -> out.add("related " + e.getValue()));
+        references.rows.values().forEach(e -> out.add("ref " + e.getType() + " " + e.getUrl()));
+        cwes.rows.values().forEach(e -> out.add("cwe " + e.getCweId() + " " + e.getCweName()));
+        timeline.rows.values().forEach(e -> out.add("time " + e.getType() + " " + e.getValue()));
+        severities.rows.values().forEach(e -> out.add("sev " + e.getType() + " " + e.getScore() + " " + e.getLevel() + " " + e.getScoreNum()));
+        for (var p : packages.rows.values()) {
+            List<String> rs = new ArrayList<>();
+            for (var r : ranges.children(VulnerabilityAffectedRange::getPackageId, p.getId())) {
+                rs.add(r.getType() + " " + r.getRepo() + " " + r.getDatabaseSpecific() + " "
+                        + sorted(events.children(VulnerabilityAffectedRangeEvent::getRangeId, r.getId()), e -> e.getEventType() + "=" + e.getValue()));
+            }
+            Collections.sort(rs);
+            out.add("pkg " + p.getEcosystem() + " " + p.getName() + " " + p.getPurl() + " " + p.getLanguage() + " " + p.getDatabaseSpecific()
+                    + " commits=" + sorted(commits.children(VulnerabilityAffectedCommit::getPackageId, p.getId()), c -> c.getCommitType() + ":" + c.getCommitId())
+                    + " versions=" + sorted(versions.children(VulnerabilityAffectedVersion::getPackageId, p.getId()), VulnerabilityAffectedVersion::getVersion)
+                    + " ranges=" + rs);
+        }
+        for (var p : patches.rows.values()) {
+            out.add("patch " + p.getPatchUrl() + " " + p.getIssueUrl()
+                    + " branches=" + sorted(branches.children(VulnerabilityPatchBranch::getPatchDetailId, p.getId()), VulnerabilityPatchBranch::getName)
+                    + " tags=" + sorted(tags.children(VulnerabilityPatchTag::getPatchDetailId, p.getId()), VulnerabilityPatchTag::getName));
+        }
+        contributors.rows.values().forEach(e -> out.add("contributor " + e.getOrg() + " " + e.getName()));
+        for (var c : credits.rows.values()) {
+            out.add("credit " + c.getName() + " " + c.getType()
+                    + " contacts=" + sorted(contacts.children(VulnerabilityCreditContact::getCreditId, c.getId()), VulnerabilityCreditContact::getContact));
+        }
+        exploitStatus.rows.values().forEach(e -> out.add("exploit " + e.getStatus()));
+        Collections.sort(out);
+        return out;
+    }
+
+    private static <T> List<String> sorted(List<T> rows, Function<T, String> f) {
+        return rows.stream().map(f).sorted().toList();
+    }
+
+    private void assertNoOrphans() {
+        commits.rows.values().forEach(c -> assertTrue(packages.rows.containsKey(c.getPackageId()), "commit orphan"));
+        versions.rows.values().forEach(v -> assertTrue(packages.rows.containsKey(v.getPackageId()), "version orphan"));
+        ranges.rows.values().forEach(r -> assertTrue(packages.rows.containsKey(r.getPackageId()), "range orphan"));
+        events.rows.values().forEach(e -> assertTrue(ranges.rows.containsKey(e.getRangeId()), "event orphan"));
+        branches.rows.values().forEach(b -> assertTrue(patches.rows.containsKey(b.getPatchDetailId()), "branch orphan"));
+        tags.rows.values().forEach(t -> assertTrue(patches.rows.containsKey(t.getPatchDetailId()), "tag orphan"));
+        contacts.rows.values().forEach(c -> assertTrue(credits.rows.containsKey(c.getCreditId()), "contact orphan"));
+    }
+
+    private CosvAggregateLoader.CosvAggregate snapshot() {
+        var a = new CosvAggregateLoader.CosvAggregate();
+        a.aliases.addAll(aliases.rows.values());
+        a.related.addAll(related.rows.values());
+        a.references.addAll(references.rows.values());
+        a.cwes.addAll(cwes.rows.values());
+        a.timeline.addAll(timeline.rows.values());
+        a.severities.addAll(severities.rows.values());
+        for (var p : packages.rows.values()) {
+            var n = new CosvAggregateLoader.AffectedNode(p);
+            n.commits.addAll(commits.children(VulnerabilityAffectedCommit::getPackageId, p.getId()));
+            n.versions.addAll(versions.children(VulnerabilityAffectedVersion::getPackageId, p.getId()));
+            for (var r : ranges.children(VulnerabilityAffectedRange::getPackageId, p.getId())) {
+                var rn = new CosvAggregateLoader.RangeNode(r);
+                rn.events.addAll(events.children(VulnerabilityAffectedRangeEvent::getRangeId, r.getId()));
+                n.ranges.add(rn);
+            }
+            a.affected.add(n);
+        }
+        for (var p : patches.rows.values()) {
+            var n = new CosvAggregateLoader.PatchNode(p);
+            n.branches.addAll(branches.children(VulnerabilityPatchBranch::getPatchDetailId, p.getId()));
+            n.tags.addAll(tags.children(VulnerabilityPatchTag::getPatchDetailId, p.getId()));
+            a.patchDetails.add(n);
+        }
+        a.contributors.addAll(contributors.rows.values());
+        for (var c : credits.rows.values()) {
+            var n = new CosvAggregateLoader.CreditNode(c);
+            n.contacts.addAll(contacts.children(VulnerabilityCreditContact::getCreditId, c.getId()));
+            a.credits.add(n);
+        }
+        a.exploitStatus.addAll(exploitStatus.rows.values());
+        return a;
+    }
+
+    private final class Table<T> {
+        final Map<Long, T> rows = new LinkedHashMap<>();
+        private final Function<T, Long> idOf;
+        private final BiConsumer<T, Long> setId;
+        private long seq;
+
+        Table(Function<T, Long> idOf, BiConsumer<T, Long> setId) {
+            this.idOf = idOf;
+            this.setId = setId;
+        }
+
+        int insert(List<T> list) {
+            writes++;
+            for (T r : list) {
+                setId.accept(r, ++seq);
+                rows.put(seq, r);
+            }
+            return list.size();
+        }
+
+        int delete(List<Long> ids) {
+            writes++;
+            int n = 0;
+            for (Long id : ids) if (rows.remove(id) != null) n++;
+            return n;
+        }
+
+        int deleteByParent(Function<T, Long> parent, List<Long> parentIds) {
+            writes++;
+            int before = rows.size();
+            rows.values().removeIf(r -> parentIds.contains(parent.apply(r)));
+            return before - rows.size();
+        }
+
+        int update(T row) {
+            writes++;
+            rows.put(idOf.apply(row), row);
+            return 1;
+        }
+
+        List<T> children(Function<T, Long> parent, Long parentId) {
+            return rows.values().stream().filter(r -> parentId.equals(parent.apply(r))).toList();
+        }
+    }
+
+    // ---- 负载构建 ----
+
+    private static CosvUpsert full() {
+        CosvUpsert c = new CosvUpsert();
+        c.aliases = List.of("CVE-2024-1");
+        c.related = List.of("GHSA-1", "GHSA-1");
+        c.references = List.of(ref("WEB", "https://a"));
+        c.cweIds = List.of("CWE-79");
+        c.cweNames = List.of("XSS");
+        c.timeLine = List.of(tp("disclosed", "2024-01-01T00:00:00.500Z"));
+        c.severity = List.of(sev("CVSS_V3", "AV:N", "HIGH", 7.54f));
+        c.affected = List.of(affected("npm", "a", "js", List.of("1.0"), List.of("c1"), List.of("c2"),
+                range("SEMVER", null, Map.of("k", 1), Map.of("introduced", "0"), Map.of("fixed", "1.2"))));
+        c.patchDetails = List.of(patch("https://p/1", "https://i/1", List.of("main"), List.of("v1")));
+        c.contributors = List.of(contributor("org", "x"));
+        c.credits = List.of(credit("alice", "FINDER", "a@x"));
+        c.exploitStatus = List.of("POC");
+        return c;
+    }
+
+    private static CosvUpsert.Reference ref(String type, String url) {
+        CosvUpsert.Reference r = new CosvUpsert.Reference();
+        r.type = type;
+        r.url = url;
+        return r;
+    }
+
+    private static CosvUpsert.TimePoint tp(String type, String value) {
+        CosvUpsert.TimePoint t = new CosvUpsert.TimePoint();
+        t.type = type;
+        t.value = value;
+        return t;
+    }
+
+    private static CosvUpsert.SeverityItem sev(String type, String score, String level, float num) {
+        CosvUpsert.SeverityItem s = new CosvUpsert.SeverityItem();
+        s.type = type;
+        s.score = score;
+        s.level = level;
+        s.scoreNum = num;
+        return s;
+    }
+
+    private static CosvUpsert.Contributor contributor(String org, String name) {
+        CosvUpsert.Contributor c = new CosvUpsert.Contributor();
+        c.org = org;
+        c.name = name;
+        return c;
+    }
+
+    @SafeVarargs
+    private static CosvUpsert.Range range(String type, String repo, Object databaseSpecific, Map<String, String>... evs) {
+        CosvUpsert.Range r = new CosvUpsert.Range();
+        r.type = type;
+        r.repo = repo;
+        r.databaseSpecific = databaseSpecific;
+        r.events = List.of(evs);
+        return r;
+    }
+
+    private static CosvUpsert.Affected affected(String eco, String name, String language, List<String> vers,
+                                                List<String> introduced, List<String> fixed, CosvUpsert.Range... rs) {
+        CosvUpsert.PackageSpec ps = new CosvUpsert.PackageSpec();
+        ps.ecosystem = eco;
+        ps.name = name;
+        ps.language = language;
+        ps.introducedCommits = introduced;
+        ps.fixedCommits = fixed;
+        CosvUpsert.Affected a = new CosvUpsert.Affected();
+        a.pkg = ps;
+        a.versions = vers;
+        a.ranges = List.of(rs);
+        return a;
+    }
+
+    private static CosvUpsert.PatchDetail patch(String url, String issue, List<String> branches, List<String> tags) {
+        CosvUpsert.PatchDetail p = new CosvUpsert.PatchDetail();
+        p.patchUrl = url;
+        p.issueUrl = issue;
+        p.branches = branches;
+        p.tags = tags;
+        return p;
+    }
+
+    private static CosvUpsert.Credit credit(String name, String type, String... contact) {
+        CosvUpsert.Credit c = new CosvUpsert.Credit();
+        c.name = name;
+        c.type = type;
+        c.contact = List.of(contact);
+        return c;
+    }
+}
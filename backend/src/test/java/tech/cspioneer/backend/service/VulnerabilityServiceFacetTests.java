@@ -0,0 +1,126 @@
+package tech.cspioneer.backend.service;
+
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import tech.cspioneer.backend.entity.User;
+import tech.cspioneer.backend.enums.UserStatus;
+import tech.cspioneer.backend.mapper.UserMapper;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataMapper;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VulnerabilityServiceFacetTests {
+
+    @Mock VulnerabilityMetadataMapper vmMapper;
+    @Mock UserMapper userMapper;
+    @Mock VulnerabilityVisibilityService visibilityService;
+    @InjectMocks VulnerabilityService service;
+
+    @AfterEach
+    void clearAuth() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private void login(String uuid, long userId, String... roles) {
+        User u = new User();
+        u.setId(userId);
+        u.setUuid(uuid);
+        u.setStatus(UserStatus.ACTIVE);
+        when(userMapper.findByUuid(uuid)).thenReturn(u);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(uuid, null,
+                Arrays.stream(roles).map(SimpleGrantedAuthority::new).toList()));
+    }
+
+    private Map<String, Map<String, Long>> facets(String languagesCSV) {
+        return service.facets(null, null, null, null, languagesCSV, null, null, null, null, null,
+                null, null, null, null, null, null, null);
+    }
+
+    private static Map<String, Object> row(String k, Object cnt) {
+        Map<String, Object> r = new HashMap<>();
+        r.put("k", k);
+        r.put("cnt", cnt);
+        return r;
+    }
+
+    private static String facetSql(String dim, List<Long> memberOrgIds, boolean enforceVisibility) {
+        Map<String, Object> p = new HashMap<>();
+        for (String k : List.of("languagesCSV", "status", "identifierPrefix", "q", "tagName", "tagCode", "organizationId", "categoryId",
+                "submittedFrom", "submittedTo", "modifiedFrom", "modifiedTo", "severityGe", "severityLe", "ftq")) p.put(k, null);
+        for (String k : List.of("sevCritical", "sevHigh", "sevMedium", "sevLow")) p.put(k, false);
+        p.put("dim", dim);
+        p.put("memberOrgIds", memberOrgIds);
+        p.put("enforceVisibility", enforceVisibility);
+        p.put("restrictPublicToActive", true);
+        p.put("limit", 50);
+        Configuration cfg = new Configuration();
+        cfg.addMapper(VulnerabilityMetadataMapper.class);
+        return cfg.getMappedStatement(VulnerabilityMetadataMapper.class.getName() + ".facetByFiltersAdv")
+                .getBoundSql(p).getSql().replaceAll("\\s+", " ");
+    }
+
+    @Test
+    void facets_countsEachDimensionAndSkipsRowsWithoutKey() {
+        login("u-admin", 9L, "ROLE_ADMIN");
+        when(vmMapper.facetByFiltersAdv(anyString(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                anyBoolean(), anyBoolean(), anyBoolean(), anyBoolean(), any(), any(), anyList(), anyBoolean(), anyBoolean(), anyInt(), any()))
+                .thenAnswer(inv -> switch ((String) inv.getArgument(0)) {
+                    case "language" -> List.of(row("go", 5L), row("java", BigInteger.valueOf(2)));
+                    case "severity" -> List.of(row("HIGH", 4L), row(null, 3L)); // 未设置严重度
+                    case "category" -> List.of(row(null, 7L));
+                    default -> List.of();
+                });
+
+        var out = facets("go,java");
+
+        assertEquals(VulnerabilityService.FACET_DIMENSIONS, List.copyOf(out.keySet()));
+        assertEquals(List.of("go", "java"), List.copyOf(out.get("language").keySet()));
+        assertEquals(Map.of("go", 5L, "java", 2L), out.get("language"));
+        assertEquals(Map.of("HIGH", 4L), out.get("severity"));
+        assertTrue(out.get("category").isEmpty());
+        assertTrue(out.get("tag").isEmpty());
+        // 每个维度一次分组查询，过滤条件与列表一致
+        for (String dim : VulnerabilityService.FACET_DIMENSIONS) {
+            verify(vmMapper).facetByFiltersAdv(eq(dim), eq("GO,JAVA"), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                    anyBoolean(), anyBoolean(), anyBoolean(), anyBoolean(), any(), any(), eq(List.of()), eq(false), anyBoolean(), anyInt(), any());
+        }
+        verifyNoInteractions(visibilityService);
+    }
+
+    @Test
+    void facets_nonAdminCountsOnlyVisibleRows() {
+        login("u-2", 2L);
+        when(visibilityService.memberOrgs(2L)).thenReturn(new VulnerabilityVisibilityService.MemberOrgs(List.of(3L), Set.of("org-3")));
+
+        facets(null);
+
+        for (String dim : VulnerabilityService.FACET_DIMENSIONS) {
+            verify(vmMapper).facetByFiltersAdv(eq(dim), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                    anyBoolean(), anyBoolean(), anyBoolean(), anyBoolean(), any(), any(), eq(List.of(3L)), eq(true), eq(true), anyInt(), any());
+        }
+        // 以这些参数渲染的 SQL 在分组前施加可见性过滤
+        for (String dim : VulnerabilityService.FACET_DIMENSIONS) {
+            String sql = facetSql(dim, List.of(3L), true);
+            int filter = sql.indexOf("AND (vm.visibility_class = 'PUBLIC'");
+            assertTrue(filter > 0, sql);
+            assertTrue(sql.indexOf("OR vm.organization_id IN (", filter) > 0, sql);
+            assertFalse(sql.contains("ORG_PUBLIC"), sql);
+            assertTrue(sql.indexOf("GROUP BY k") > filter, sql);
+        }
+        assertFalse(facetSql("tag", List.of(), false).contains("visibility_class"));
+    }
+}
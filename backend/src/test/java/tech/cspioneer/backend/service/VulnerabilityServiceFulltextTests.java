@@ -0,0 +1,115 @@
+package tech.cspioneer.backend.service;
+
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataMapper;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class VulnerabilityServiceFulltextTests {
+
+    @Mock VulnerabilityMetadataMapper vmMapper;
+    @InjectMocks VulnerabilityService service;
+
+    @AfterEach
+    void clearAuth() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private String ftq(String q) {
+        return ReflectionTestUtils.invokeMethod(service, "fulltextQuery", q);
+    }
+
+    private void loginAsAdmin() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "admin-uuid", null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+    }
+
+    private void search(String q) {
+        service.list(null, null, null, q, null, null, null, null, null, null,
+                null, null, null, null, null, null, null, null, null, 1, 20);
+    }
+
+    private static String listSql(String q, String ftq) {
+        Configuration cfg = new Configuration();
+        cfg.addMapper(VulnerabilityMetadataMapper.class);
+        Map<String, Object> p = new HashMap<>();
+        for (String k : List.of("languagesCSV", "status", "identifierPrefix", "tagName", "tagCode", "organizationId", "categoryId",
+                "submittedFrom", "submittedTo", "modifiedFrom", "modifiedTo", "sevCritical", "sevHigh", "sevMedium", "sevLow",
+                "severityGe", "severityLe", "seek")) p.put(k, null);
+        p.put("q", q);
+        p.put("ftq", ftq);
+        p.put("orderBy", "vm.id DESC");
+        p.put("limit", 20);
+        p.put("offset", 0);
+        p.put("memberOrgIds", List.of());
+        p.put("enforceVisibility", false);
+        p.put("restrictPublicToActive", true);
+        p.put("byRelevance", false);
+        return cfg.getMappedStatement(VulnerabilityMetadataMapper.class.getName() + ".listByFiltersAdv")
+                .getBoundSql(p).getSql().replaceAll("\\s+", " ");
+    }
+
+    @Test
+    void fulltextQuery_fallsBackToLikeForStopwordTokensOnlyWhenIndexHasStopwords() {
+        ReflectionTestUtils.setField(service, "sqlFulltext", true);
+
+        // 迁移脚本关闭了停用词：短的停用词查询同样走全文短语
+        assertEquals("\"in\"", ftq("in"));
+        assertEquals("\"xss in\"", ftq("xss in"));
+
+        ReflectionTestUtils.setField(service, "fulltextStopwords", true);
+        assertNull(ftq("in"));
+        assertNull(ftq("xss in"));
+        assertNull(ftq("login")); // 词元 "in" 被 ngram 分词器丢弃
+        assertEquals("\"注入\"", ftq("注入"));
+        assertEquals("\"xss\"", ftq("xss"));
+        assertNull(ftq("x")); // 短于 ngram 词元长度
+    }
+
+    @Test
+    void list_passesFulltextPhraseToMapperOnlyWhenEnabled() {
+        loginAsAdmin();
+
+        search("注入");
+        ReflectionTestUtils.setField(service, "sqlFulltext", true);
+        search("注入");
+
+        verify(vmMapper).listByFiltersAdv(isNull(), isNull(), isNull(), eq("注入"), isNull(), isNull(), isNull(), isNull(),
+                isNull(), isNull(), isNull(), isNull(), anyBoolean(), anyBoolean(), anyBoolean(), anyBoolean(), isNull(), isNull(),
+                anyString(), anyInt(), anyInt(), anyList(), eq(false), anyBoolean(), isNull(), isNull(), eq(false));
+        verify(vmMapper).listByFiltersAdv(isNull(), isNull(), isNull(), eq("注入"), isNull(), isNull(), isNull(), isNull(),
+                isNull(), isNull(), isNull(), isNull(), anyBoolean(), anyBoolean(), anyBoolean(), anyBoolean(), isNull(), isNull(),
+                anyString(), anyInt(), anyInt(), anyList(), eq(false), anyBoolean(), isNull(), eq("\"注入\""), eq(false));
+    }
+
+    @Test
+    void listSql_usesMatchAgainstWhenPhraseGiven() {
+        String like = listSql("注入", null);
+        assertTrue(like.contains("vm.summary LIKE"), like);
+        assertFalse(like.contains("MATCH"), like);
+
+        // 全文模式：摘要子串匹配换成 MATCH（含 details 与别名），标识/别名前缀仍并入结果
+        String ft = listSql("注入", "\"注入\"");
+        assertTrue(ft.contains("MATCH(f.identifier, f.summary, f.details)"), ft);
+        assertTrue(ft.contains("MATCH(a.value)"), ft);
+        assertTrue(ft.contains("p.identifier LIKE CONCAT(?, '%')"), ft);
+        assertFalse(ft.contains("summary LIKE"), ft);
+    }
+}
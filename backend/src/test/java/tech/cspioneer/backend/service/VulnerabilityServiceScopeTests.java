@@ -9,14 +9,18 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
 import tech.cspioneer.backend.common.ApiException;
 import tech.cspioneer.backend.entity.Organization;
 import tech.cspioneer.backend.entity.User;
 import tech.cspioneer.backend.entity.VulnerabilityMetadata;
+import tech.cspioneer.backend.enums.UserStatus;
 import tech.cspioneer.backend.mapper.*;
 import tech.cspioneer.backend.security.ApiKeyContext;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -61,4 +65,52 @@ class VulnerabilityServiceScopeTests {
         ApiException ex = assertThrows(ApiException.class, () -> service.getByUuid("vm-uuid"));
         assertEquals(1012, ex.getCode());
     }
+
+    private Object listAndScope(String organizationUuid) {
+        service.list(null, null, null, null, null, null, null, null, null, null,
+                null, organizationUuid, null, null, null, null, null, null, null, 1, 20);
+        return ReflectionTestUtils.invokeMethod(service, "resolveFilterScope", null, null, null, null, organizationUuid, null);
+    }
+
+    private void loginWithoutOrgs() {
+        User u = new User(); u.setId(5L); u.setUuid("u-5"); u.setStatus(UserStatus.ACTIVE);
+        when(userMapper.findByUuid("u-5")).thenReturn(u);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("u-5", null, List.of()));
+    }
+
+    @Test
+    void orgFilter_anonymousAndUserWithoutOrgsResolveSameScope() {
+        // 查询缓存把二者归入同一可见性类别 public，组织过滤的结果必须一致
+        Organization publicOrg = new Organization(); publicOrg.setId(2L); publicOrg.setUuid("org-pub"); publicOrg.setIsPublic(true);
+        when(organizationMapper.findByUuid("org-pub")).thenReturn(publicOrg);
+        List<String> statuses = new ArrayList<>();
+        when(vmMapper.listByFiltersAdv(any(), any(), any(), any(), any(), any(), eq(2L), any(), any(), any(), any(), any(),
+                anyBoolean(), anyBoolean(), anyBoolean(), anyBoolean(), any(), any(), anyString(), anyInt(), anyInt(),
+                anyList(), anyBoolean(), anyBoolean(), any(), any(), anyBoolean())).thenAnswer(inv -> {
+            statuses.add(inv.getArgument(1));
+            return List.of();
+        });
+
+        SecurityContextHolder.clearContext();
+        Object anonymous = listAndScope("org-pub");
+        loginWithoutOrgs();
+        Object noOrgs = listAndScope("org-pub");
+
+        assertEquals(List.of("ACTIVE", "ACTIVE"), statuses);
+        assertEquals(anonymous.toString().replace("currentUserId=null", "currentUserId=5"), noOrgs.toString());
+    }
+
+    @Test
+    void orgFilter_privateOrgRejectedForAnonymousAndUserWithoutOrgs() {
+        Organization privateOrg = new Organization(); privateOrg.setId(3L); privateOrg.setUuid("org-priv"); privateOrg.setIsPublic(false);
+        when(organizationMapper.findByUuid("org-priv")).thenReturn(privateOrg);
+
+        SecurityContextHolder.clearContext();
+        assertEquals(1012, assertThrows(ApiException.class, () -> listAndScope("org-priv")).getCode());
+        loginWithoutOrgs();
+        assertEquals(1012, assertThrows(ApiException.class, () -> listAndScope("org-priv")).getCode());
+        verify(vmMapper, never()).listByFiltersAdv(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                anyBoolean(), anyBoolean(), anyBoolean(), anyBoolean(), any(), any(), anyString(), anyInt(), anyInt(),
+                anyList(), anyBoolean(), anyBoolean(), any(), any(), anyBoolean());
+    }
 }
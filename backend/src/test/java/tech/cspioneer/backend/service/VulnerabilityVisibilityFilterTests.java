@@ -0,0 +1,183 @@
+package tech.cspioneer.backend.service;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import tech.cspioneer.backend.entity.User;
+import tech.cspioneer.backend.enums.UserStatus;
+import tech.cspioneer.backend.mapper.UserMapper;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataMapper;
+import tech.cspioneer.backend.search.SearchVisibility;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * visibility_class 可见性：四类记录 × 四类调用方，SQL 过滤（按 list() 实际传给 mapper 的参数渲染）
+ * 与检索引擎的内存判定 SearchVisibility 结果一致。
+ */
+@ExtendWith(MockitoExtension.class)
+class VulnerabilityVisibilityFilterTests {
+
+    private static final long PUBLIC_ORG = 2L;
+    private static final long PRIVATE_ORG = 3L;
+    private static final long OTHER_PRIVATE_ORG = 4L;
+
+    /** 一条漏洞：所属组织、组织是否公开、状态，以及 VISIBILITY_CLASS_EXPR 应得的类别 */
+    private record Row(String name, Long orgId, boolean orgIsPublic, String status, String visibilityClass) {}
+
+    private static final List<Row> ROWS = List.of(
+            new Row("个人漏洞（非 ACTIVE）", null, false, "REVIEWING", "PUBLIC"),
+            new Row("公开组织 ACTIVE", PUBLIC_ORG, true, "ACTIVE", "PUBLIC"),
+            new Row("公开组织非 ACTIVE", PUBLIC_ORG, true, "REVIEWING", "ORG_PUBLIC"),
+            new Row("私有组织（成员）", PRIVATE_ORG, false, "ACTIVE", "MEMBERS"),
+            new Row("私有组织（非成员）", OTHER_PRIVATE_ORG, false, "ACTIVE", "MEMBERS"));
+
+    @Mock VulnerabilityMetadataMapper vmMapper;
+    @Mock UserMapper userMapper;
+    @Mock VulnerabilityVisibilityService visibilityService;
+    @InjectMocks VulnerabilityService service;
+
+    @AfterEach
+    void clearAuth() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static String org(Long id) {
+        return id == null ? null : "org-" + id;
+    }
+
+    private void login(String uuid, long userId, String... roles) {
+        User u = new User();
+        u.setId(userId);
+        u.setUuid(uuid);
+        u.setStatus(UserStatus.ACTIVE);
+        when(userMapper.findByUuid(uuid)).thenReturn(u);
+        List<SimpleGrantedAuthority> authorities = Arrays.stream(roles).map(SimpleGrantedAuthority::new).toList();
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(uuid, null, authorities));
+    }
+
+    private static VulnerabilityVisibilityService.MemberOrgs members(Long... ids) {
+        Set<String> uuids = new HashSet<>();
+        for (Long id : ids) uuids.add(org(id));
+        return new VulnerabilityVisibilityService.MemberOrgs(List.of(ids), uuids);
+    }
+
+    /** 以当前身份调用 list()，按 mapper 收到的参数渲染 listByFiltersAdv 的 SQL */
+    @SuppressWarnings("unchecked")
+    private BoundSql listSql() {
+        service.list(null, null, null, null, null, null, null, null, null, null,
+                null, null, null, null, null, null, null, null, null, 1, 20);
+        ArgumentCaptor<List<Long>> memberOrgIds = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Boolean> enforce = ArgumentCaptor.forClass(Boolean.class);
+        ArgumentCaptor<Boolean> restrict = ArgumentCaptor.forClass(Boolean.class);
+        verify(vmMapper).listByFiltersAdv(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                anyBoolean(), anyBoolean(), anyBoolean(), anyBoolean(), any(), any(), anyString(), anyInt(), anyInt(),
+                memberOrgIds.capture(), enforce.capture(), restrict.capture(), any(), any(), anyBoolean());
+
+        Map<String, Object> p = new HashMap<>();
+        for (String k : List.of("languagesCSV", "status", "identifierPrefix", "q", "tagName", "tagCode", "organizationId", "categoryId",
+                "submittedFrom", "submittedTo", "modifiedFrom", "modifiedTo", "sevCritical", "sevHigh", "sevMedium", "sevLow",
+                "severityGe", "severityLe", "seek", "ftq")) p.put(k, null);
+        p.put("orderBy", "vm.id DESC");
+        p.put("limit", 20);
+        p.put("offset", 0);
+        p.put("byRelevance", false);
+        p.put("memberOrgIds", memberOrgIds.getValue());
+        p.put("enforceVisibility", enforce.getValue());
+        p.put("restrictPublicToActive", restrict.getValue());
+        Configuration cfg = new Configuration();
+        cfg.addMapper(VulnerabilityMetadataMapper.class);
+        return cfg.getMappedStatement(VulnerabilityMetadataMapper.class.getName() + ".listByFiltersAdv").getBoundSql(p);
+    }
+
+    /** 按渲染出的 VISIBILITY_FILTER 判断某条记录是否被选中 */
+    private static boolean admits(BoundSql sql, Row row) {
+        String s = sql.getSql().replaceAll("\\s+", " ");
+        if (!s.contains("vm.visibility_class")) return true;
+        if ("PUBLIC".equals(row.visibilityClass())) return true;
+        if ("ORG_PUBLIC".equals(row.visibilityClass()) && s.contains("OR vm.visibility_class = 'ORG_PUBLIC'")) return true;
+        if (!s.contains("vm.organization_id IN")) return false;
+        Set<Object> bound = new HashSet<>();
+        for (var pm : sql.getParameterMappings()) {
+            if (pm.getProperty().startsWith("__frch_oid")) bound.add(sql.getAdditionalParameter(pm.getProperty()));
+        }
+        return bound.contains(row.orgId());
+    }
+
+    private void assertVisible(BoundSql sql, SearchVisibility engine, Set<String> expected) {
+        Set<String> visible = new LinkedHashSet<>();
+        for (Row row : ROWS) {
+            boolean bySql = admits(sql, row);
+            assertEquals(engine.allows(org(row.orgId()), row.orgIsPublic(), row.status()), bySql, "SQL 与检索引擎判定不一致：" + row.name());
+            if (bySql) visible.add(row.name());
+        }
+        assertEquals(expected, visible);
+    }
+
+    @Test
+    void visibilityClassExpr_classifiesPersonalPublicOrgAndPrivateOrgRows() {
+        // 分支顺序决定类别：无组织 → PUBLIC；组织非公开 → MEMBERS；公开组织按状态 PUBLIC / ORG_PUBLIC
+        String expr = VulnerabilityMetadataMapper.VISIBILITY_CLASS_EXPR;
+        int personal = expr.indexOf("organization_id IS NULL THEN 'PUBLIC'");
+        int members = expr.indexOf("is_public = 1) THEN 'MEMBERS'");
+        int active = expr.indexOf("status = 'ACTIVE' THEN 'PUBLIC' ELSE 'ORG_PUBLIC'");
+        assertTrue(personal >= 0 && members > personal && active > members, expr);
+        assertTrue(expr.contains("WHEN NOT EXISTS"), expr);
+
+        Set<String> classes = new HashSet<>();
+        ROWS.forEach(r -> classes.add(r.visibilityClass()));
+        assertEquals(Set.of("PUBLIC", "ORG_PUBLIC", "MEMBERS"), classes);
+    }
+
+    @Test
+    void anonymous_seesOnlyPublicClass() {
+        when(visibilityService.memberOrgs(null)).thenReturn(VulnerabilityVisibilityService.MemberOrgs.NONE);
+
+        assertVisible(listSql(), new SearchVisibility(false, Set.of(), false),
+                Set.of("个人漏洞（非 ACTIVE）", "公开组织 ACTIVE"));
+    }
+
+    @Test
+    void loggedInWithoutOrgs_seesOnlyPublicClass() {
+        login("u-1", 1L);
+        when(visibilityService.memberOrgs(1L)).thenReturn(VulnerabilityVisibilityService.MemberOrgs.NONE);
+
+        assertVisible(listSql(), new SearchVisibility(false, Set.of(), false),
+                Set.of("个人漏洞（非 ACTIVE）", "公开组织 ACTIVE"));
+    }
+
+    @Test
+    void orgMember_alsoSeesEveryClassInOwnOrgs() {
+        login("u-2", 2L);
+        when(visibilityService.memberOrgs(2L)).thenReturn(members(PUBLIC_ORG, PRIVATE_ORG));
+
+        assertVisible(listSql(), new SearchVisibility(false, Set.of(org(PUBLIC_ORG), org(PRIVATE_ORG)), false),
+                Set.of("个人漏洞（非 ACTIVE）", "公开组织 ACTIVE", "公开组织非 ACTIVE", "私有组织（成员）"));
+    }
+
+    @Test
+    void admin_seesEverythingWithoutVisibilityFilter() {
+        login("u-admin", 9L, "ROLE_ADMIN");
+
+        BoundSql sql = listSql();
+
+        assertFalse(sql.getSql().contains("visibility_class"), sql.getSql());
+        verifyNoInteractions(visibilityService);
+        Set<String> all = new LinkedHashSet<>();
+        ROWS.forEach(r -> all.add(r.name()));
+        assertVisible(sql, new SearchVisibility(true, Set.of(), false), all);
+    }
+}
@@ -0,0 +1,83 @@
+package tech.cspioneer.backend.service;
+
+import org.junit.jupiter.api.Test;
+import tech.cspioneer.backend.dto.OrgWithRole;
+import tech.cspioneer.backend.entity.Organization;
+import tech.cspioneer.backend.mapper.OrganizationMapper;
+import tech.cspioneer.backend.mapper.VulnerabilityMetadataMapper;
+import tech.cspioneer.backend.search.SearchIndexDispatcher;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VulnerabilityVisibilityServiceTests {
+
+    private static OrgWithRole membership(long orgId) {
+        Organization o = new Organization();
+        o.setId(orgId);
+        o.setUuid("org-" + orgId);
+        OrgWithRole ow = new OrgWithRole();
+        ow.setOrganization(o);
+        ow.setRole("MEMBER");
+        return ow;
+    }
+
+    private static VulnerabilityVisibilityService service(OrganizationMapper orgMapper) {
+        return new VulnerabilityVisibilityService(orgMapper, mock(VulnerabilityMetadataMapper.class),
+                mock(VulnerabilityCountService.class), mock(SearchIndexDispatcher.class));
+    }
+
+    @Test
+    void memberOrgs_anonymousHasNoneWithoutQuery() {
+        OrganizationMapper orgMapper = mock(OrganizationMapper.class);
+
+        assertSame(VulnerabilityVisibilityService.MemberOrgs.NONE, service(orgMapper).memberOrgs(null));
+
+        verifyNoInteractions(orgMapper);
+    }
+
+    @Test
+    void memberOrgs_loggedInWithoutOrgsHasNone() {
+        OrganizationMapper orgMapper = mock(OrganizationMapper.class);
+        when(orgMapper.listByUserId(1L)).thenReturn(List.of());
+
+        assertEquals(VulnerabilityVisibilityService.MemberOrgs.NONE, service(orgMapper).memberOrgs(1L));
+    }
+
+    @Test
+    void memberOrgs_cachedUntilMembershipChanges() {
+        OrganizationMapper orgMapper = mock(OrganizationMapper.class);
+        when(orgMapper.listByUserId(2L)).thenReturn(List.of(membership(5), membership(3)), List.of(membership(5)));
+        var service = service(orgMapper);
+
+        var first = service.memberOrgs(2L);
+        assertEquals(List.of(3L, 5L), first.ids());
+        assertEquals(Set.of("org-3", "org-5"), first.uuids());
+        assertSame(first, service.memberOrgs(2L));
+        verify(orgMapper, times(1)).listByUserId(2L);
+
+        service.membershipChanged(2L);
+
+        assertEquals(List.of(5L), service.memberOrgs(2L).ids());
+        verify(orgMapper, times(2)).listByUserId(2L);
+    }
+
+    @Test
+    void orgVisibilityChanged_reindexesOrgVulnerabilities() {
+        VulnerabilityMetadataMapper vmMapper = mock(VulnerabilityMetadataMapper.class);
+        VulnerabilityCountService countService = mock(VulnerabilityCountService.class);
+        SearchIndexDispatcher dispatcher = mock(SearchIndexDispatcher.class);
+        when(vmMapper.listUuidsByOrganizationId(7L)).thenReturn(List.of("v1", "v2"));
+        var service = new VulnerabilityVisibilityService(mock(OrganizationMapper.class), vmMapper, countService, dispatcher);
+
+        service.orgVisibilityChanged(7L);
+
+        verify(vmMapper).refreshVisibilityClassByOrg(7L);
+        verify(dispatcher).index("v1");
+        verify(dispatcher).index("v2");
+        verify(countService).invalidate();
+    }
+}